@@ -0,0 +1,18 @@
+package autoconnect.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+//Entry point of benchmarks.jar: the regular JMH command line, with the GC profiler always attached so that every run
+//reports allocation rates (gc.alloc.rate.norm = bytes allocated per operation)
+public class BenchmarkRunner {
+    public static void main(String[] args) throws Exception{
+        CommandLineOptions commandLine = new CommandLineOptions(args);
+        new Runner(new OptionsBuilder()
+                .parent(commandLine)
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
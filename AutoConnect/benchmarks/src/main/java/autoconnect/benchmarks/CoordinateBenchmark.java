@@ -0,0 +1,90 @@
+package autoconnect.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+//Coordinate.getDistance/getDirection on pairs of objects, against the batch GeometryKernels on primitive columns.
+//One operation is one coordinate pair.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+public class CoordinateBenchmark {
+    private static final int POINTS = 1024;
+
+    private Object[] coordinates;
+    private double[] latitudes;
+    private double[] longitudes;
+    private double[] out;
+    private Object scalarKernels;
+    private Object defaultKernels;
+
+    @Setup
+    public void setUp() throws Throwable{
+        Random random = new Random(42);
+        coordinates = new Object[POINTS];
+        latitudes = new double[POINTS];
+        longitudes = new double[POINTS];
+        out = new double[POINTS];
+        for(int i = 0; i < POINTS; i++){
+            latitudes[i] = 44.22 + random.nextDouble() * 0.03;
+            longitudes[i] = -76.51 + random.nextDouble() * 0.03;
+            coordinates[i] = Simulation.NEW_COORDINATE.invokeExact(latitudes[i], longitudes[i]);
+        }
+        scalarKernels = Simulation.SCALAR_KERNELS.invokeExact();
+        defaultKernels = Simulation.DEFAULT_KERNELS.invokeExact();
+        if(!(boolean) Simulation.KERNELS_VECTORIZED.invokeExact(defaultKernels)){
+            System.out.println("Vector API unavailable: simd benchmarks measure the scalar kernels");
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(POINTS)
+    public void getDistance(Blackhole blackhole) throws Throwable{
+        Object origin = coordinates[0];
+        for(int i = 0; i < POINTS; i++){
+            blackhole.consume((double) Simulation.COORDINATE_DISTANCE.invokeExact(origin, coordinates[i]));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(POINTS)
+    public void getDirection(Blackhole blackhole) throws Throwable{
+        for(int i = 0; i < POINTS; i++){
+            blackhole.consume((double) Simulation.COORDINATE_DIRECTION.invokeExact(coordinates[i], coordinates[(i + 1) & (POINTS - 1)]));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(POINTS)
+    public double[] batchDistancesScalar() throws Throwable{
+        Simulation.KERNELS_DISTANCES.invokeExact(scalarKernels, latitudes[0], longitudes[0], latitudes, longitudes, 0, POINTS, out);
+        return out;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(POINTS)
+    public double[] batchDistancesSimd() throws Throwable{
+        Simulation.KERNELS_DISTANCES.invokeExact(defaultKernels, latitudes[0], longitudes[0], latitudes, longitudes, 0, POINTS, out);
+        return out;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(POINTS)
+    public double[] batchHeadingsScalar() throws Throwable{
+        Simulation.KERNELS_HEADINGS.invokeExact(scalarKernels, latitudes, longitudes, 0, POINTS, out);
+        return out;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(POINTS)
+    public double[] batchHeadingsSimd() throws Throwable{
+        Simulation.KERNELS_HEADINGS.invokeExact(defaultKernels, latitudes, longitudes, 0, POINTS, out);
+        return out;
+    }
+}
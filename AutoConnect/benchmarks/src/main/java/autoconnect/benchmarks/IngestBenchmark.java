@@ -0,0 +1,101 @@
+package autoconnect.benchmarks;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+//Loading a whole trace into vehicles, through each of the three ingest paths: the legacy per-vehicle files parsed by
+//Vehicle.parseRouteFile, streaming the CSV with TrafficTraceReader (in one pass, or in parallel chunks), and copying
+//routes out of a mapped BinaryTrace. generatedScenario scales the binary trace up SCENARIO_SCALE times with a
+//ScenarioGenerator, generating every vehicle in joining order and deriving its route.
+//Traces are synthetic and written to a temporary directory, so runs never touch trafficData/.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class IngestBenchmark {
+    private static final int SCENARIO_SCALE = 10;
+
+    @Param({"116", "1000"})
+    public int vehicles;
+
+    @Param({"300", "3000"})
+    public int samplesPerVehicle;
+
+    private Path directory;
+    private String csvTrace;
+    private String binaryTrace;
+    private String[] vehicleFiles;
+    private ForkJoinPool loader;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Throwable{
+        loader = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+        directory = Files.createTempDirectory("autoconnect-ingest");
+        csvTrace = directory.resolve("trace.txt").toString();
+        binaryTrace = directory.resolve("trace.bin").toString();
+        Traces.writeCsv(Path.of(csvTrace), vehicles, samplesPerVehicle, 42);
+        int converted = (int) Simulation.CONVERT_TRACE.invokeExact(csvTrace, binaryTrace);
+        if(converted != vehicles) throw new IllegalStateException("Converted " + converted + " of " + vehicles + " vehicles");
+
+        Path vehicleDirectory = Files.createDirectory(directory.resolve("vehicles"));
+        Traces.writeVehicleFiles(vehicleDirectory, vehicles, samplesPerVehicle, 42);
+        vehicleFiles = new String[vehicles];
+        for(int i = 0; i < vehicles; i++){
+            vehicleFiles[i] = vehicleDirectory.resolve("vehicleData" + (i + 1) + ".txt").toString();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception{
+        loader.shutdown();
+        Traces.deleteRecursively(directory);
+    }
+
+    @Benchmark
+    public void vehicleFiles(Blackhole blackhole) throws Throwable{
+        for(String file : vehicleFiles){
+            blackhole.consume(Simulation.NEW_VEHICLE_FROM_FILE.invokeExact(file));
+        }
+    }
+
+    @Benchmark
+    public List<?> streamingTrace() throws Throwable{
+        return (List<?>) Simulation.READ_TRACE.invokeExact(csvTrace, Integer.MAX_VALUE);
+    }
+
+    @Benchmark
+    public List<?> parallelStreamingTrace() throws Throwable{
+        return (List<?>) Simulation.READ_TRACE_PARALLEL.invokeExact(csvTrace, Integer.MAX_VALUE, (ExecutorService) loader, loader.getParallelism());
+    }
+
+    @Benchmark
+    public void binaryTrace(Blackhole blackhole) throws Throwable{
+        Object trace = Simulation.OPEN_BINARY_TRACE.invokeExact(binaryTrace);
+        int count = (int) Simulation.BINARY_VEHICLE_COUNT.invokeExact(trace);
+        for(int i = 0; i < count; i++){
+            blackhole.consume(Simulation.BINARY_LOAD_ROUTE.invokeExact(trace, i));
+        }
+    }
+
+    @Benchmark
+    public void generatedScenario(Blackhole blackhole) throws Throwable{
+        Object trace = Simulation.OPEN_BINARY_TRACE.invokeExact(binaryTrace);
+        Iterator<?> generator = (Iterator<?>) (Object) Simulation.NEW_SCENARIO_GENERATOR.invokeExact(trace, vehicles,
+                vehicles * SCENARIO_SCALE, 42L, 600, 25.0, 0.5);
+        while(generator.hasNext()){
+            Object vehicle = generator.next();
+            Object source = Simulation.VEHICLE_ROUTE_SOURCE.invokeExact(vehicle);
+            blackhole.consume(Simulation.ROUTE_SOURCE_LOAD.invokeExact(source));
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package autoconnect.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+//Encoding the JSON bodies of the two requests every vehicle sends on each tick, and decoding a /getbetas response.
+//Run with the GC profiler (the default in BenchmarkRunner) to see the bytes allocated per message.
+//binaryUpdatePayload encodes the same update as a frame of the binary wire protocol. Each fork prints the size of the
+//update it encodes: the JSON body (HTTP headers come on top of it), or the whole binary frame.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PayloadBenchmark {
+    private static final byte[] BETA_RESPONSE = "{\"Status\":\"Success\",\"PriorityMatrix\":[17,4,112]}".getBytes(StandardCharsets.UTF_8);
+
+    private Object vehicle;
+    private Object codec;
+    private ByteArrayInputStream betaResponse;
+
+    @Setup
+    public void setUp() throws Throwable{
+        Object route = Traces.route(1000, 42);
+        vehicle = Simulation.NEW_VEHICLE_FROM_ROUTE.invokeExact("1", route);
+        Simulation.VEHICLE_SET_AUTO_CONNECT_ID.invokeExact(vehicle, 4242);
+        codec = Simulation.NEW_CODEC.invokeExact();
+        betaResponse = new ByteArrayInputStream(BETA_RESPONSE);
+    }
+
+    @TearDown
+    public void printUpdateSize() throws Throwable{
+        Simulation.VEHICLE_UPDATE_PAYLOAD.invokeExact(vehicle);
+        int bytes = (int) Simulation.CODEC_REQUEST_LENGTH.invokeExact(Simulation.VEHICLE_CODEC.invokeExact(vehicle));
+        System.out.println("Update message: " + bytes + " bytes (" + System.getProperty("autoconnect.transport", "http") + ")");
+    }
+
+    @Benchmark
+    public void updatePayload() throws Throwable{
+        Simulation.VEHICLE_UPDATE_PAYLOAD.invokeExact(vehicle);
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = "-Dautoconnect.transport=binary")
+    public void binaryUpdatePayload() throws Throwable{
+        updatePayload();
+    }
+
+    @Benchmark
+    public void betaRequestPayload() throws Throwable{
+        Simulation.VEHICLE_BETA_PAYLOAD.invokeExact(vehicle);
+    }
+
+    @Benchmark
+    public int betaResponse() throws Throwable{
+        betaResponse.reset();
+        Simulation.CODEC_READ_RESPONSE.invokeExact(codec, (java.io.InputStream) betaResponse);
+        Simulation.CODEC_DECODE_RESPONSE.invokeExact(codec);
+        return (int) Simulation.CODEC_PRIORITY_MATRIX_LENGTH.invokeExact(codec);
+    }
+}
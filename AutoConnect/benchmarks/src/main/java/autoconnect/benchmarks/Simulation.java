@@ -0,0 +1,160 @@
+package autoconnect.benchmarks;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+
+import static java.lang.invoke.MethodType.methodType;
+
+//Bridge to the simulation classes. The simulation lives in the default package, which code in a named package cannot
+//import, and JMH refuses benchmarks in the default package. Every entry point is therefore bound once as a MethodHandle
+//typed on Object; held in static finals, the handles are constant-folded and inlined by the JIT like direct calls.
+final class Simulation {
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+    static final Class<?> COORDINATE = load("Coordinate");
+    static final Class<?> ROUTE = load("Route");
+    static final Class<?> VEHICLE = load("Vehicle");
+    static final Class<?> GEOMETRY_KERNELS = load("GeometryKernels");
+
+    static final MethodHandle NEW_COORDINATE = constructor(COORDINATE, double.class, double.class);
+    static final MethodHandle COORDINATE_DISTANCE = virtual(COORDINATE, "getDistance", double.class, COORDINATE);
+    static final MethodHandle COORDINATE_DIRECTION = virtual(COORDINATE, "getDirection", double.class, COORDINATE);
+
+    static final MethodHandle NEW_ROUTE = constructor(ROUTE);
+    static final MethodHandle ROUTE_ADD = virtual(ROUTE, "add", void.class, int.class, double.class, double.class);
+    static final MethodHandle ROUTE_TRIM = virtual(ROUTE, "trim", void.class);
+    static final MethodHandle ROUTE_REMAINING = virtual(ROUTE, "remaining", int.class);
+    static final MethodHandle ROUTE_REWIND = virtual(ROUTE, "rewind", void.class);
+
+    static final MethodHandle NEW_VEHICLE_FROM_FILE = constructor(VEHICLE, String.class);
+    static final MethodHandle NEW_VEHICLE_FROM_ROUTE = constructor(VEHICLE, String.class, ROUTE);
+    static final MethodHandle VEHICLE_SPEED = virtual(VEHICLE, "getSpeed", double.class);
+    static final MethodHandle VEHICLE_DIRECTION = virtual(VEHICLE, "getDirection", double.class);
+    static final MethodHandle VEHICLE_MOVE_FORWARD = virtual(VEHICLE, "moveVehicleForward", boolean.class);
+    static final MethodHandle VEHICLE_UPDATE_PAYLOAD = virtual(VEHICLE, "buildUpdatePayload", void.class);
+    static final MethodHandle VEHICLE_BETA_PAYLOAD = virtual(VEHICLE, "buildBetaRequestPayload", void.class);
+    static final MethodHandle VEHICLE_INITIALIZE = virtual(VEHICLE, "initialize", boolean.class);
+    static final MethodHandle VEHICLE_TICK = virtual(VEHICLE, "tick", boolean.class);
+    static final MethodHandle VEHICLE_TICK_ASYNC = virtual(VEHICLE, "tickAsync", java.util.concurrent.CompletableFuture.class);
+    static final MethodHandle VEHICLE_STARTING_TIME = virtual(VEHICLE, "getStartingTime", int.class);
+    static final MethodHandle VEHICLE_SET_NEXT_TICK_TIME = setter(VEHICLE, "nextTickTime", int.class);
+    static final MethodHandle VEHICLE_SET_AUTO_CONNECT_ID = setter(VEHICLE, "AutoConnectId", int.class);
+    static final MethodHandle VEHICLE_CODEC = getter(VEHICLE, "codec", load("VehicleMessageCodec"));
+
+    static final MethodHandle NEW_CODEC = constructor(load("VehicleMessageCodec"));
+    static final MethodHandle CODEC_READ_RESPONSE = virtual(load("VehicleMessageCodec"), "readResponse", void.class, java.io.InputStream.class);
+    static final MethodHandle CODEC_DECODE_RESPONSE = virtual(load("VehicleMessageCodec"), "decodeResponse", void.class);
+    static final MethodHandle CODEC_PRIORITY_MATRIX_LENGTH = virtual(load("VehicleMessageCodec"), "getPriorityMatrixLength", int.class);
+    static final MethodHandle CODEC_REQUEST_LENGTH = virtual(load("VehicleMessageCodec"), "getRequestLength", int.class);
+
+    static final MethodHandle READ_TRACE = staticMethod(load("TrafficTraceReader"), "read", List.class, String.class, int.class);
+    static final MethodHandle READ_TRACE_PARALLEL = staticMethod(load("TrafficTraceReader"), "readParallel", List.class,
+            String.class, int.class, ExecutorService.class, int.class);
+    static final MethodHandle CONVERT_TRACE = staticMethod(load("BinaryTrace"), "convert", int.class, String.class, String.class);
+    static final MethodHandle OPEN_BINARY_TRACE = staticMethod(load("BinaryTrace"), "open", load("BinaryTrace"), String.class);
+    static final MethodHandle BINARY_VEHICLE_COUNT = virtual(load("BinaryTrace"), "getVehicleCount", int.class);
+    static final MethodHandle BINARY_LOAD_ROUTE = virtual(load("BinaryTrace"), "loadRoute", ROUTE, int.class);
+    static final MethodHandle NEW_SCENARIO_GENERATOR = constructor(load("ScenarioGenerator"), load("BinaryTrace"), int.class,
+            int.class, long.class, int.class, double.class, double.class);
+    static final MethodHandle VEHICLE_ROUTE_SOURCE = getter(VEHICLE, "routeSource", load("Vehicle$RouteSource"));
+    static final MethodHandle ROUTE_SOURCE_LOAD = virtual(load("Vehicle$RouteSource"), "load", ROUTE);
+
+    static final MethodHandle NEW_WORLD_STATE = constructor(load("WorldState"));
+    static final MethodHandle WORLD_PUBLISH = virtual(load("WorldState"), "publish", void.class,
+            int.class, int.class, double.class, double.class, double.class, double.class);
+    static final MethodHandle WORLD_SNAPSHOT = virtual(load("WorldState"), "snapshot", load("WorldState$Snapshot"), load("WorldState$Snapshot"));
+    static final MethodHandle NEW_WORLD_SNAPSHOT = constructor(load("WorldState$Snapshot"));
+    static final MethodHandle WORLD_SNAPSHOT_SIZE = virtual(load("WorldState$Snapshot"), "size", int.class);
+
+    static final MethodHandle SCALAR_KERNELS = staticMethod(GEOMETRY_KERNELS, "scalar", GEOMETRY_KERNELS);
+    static final MethodHandle DEFAULT_KERNELS = staticMethod(GEOMETRY_KERNELS, "get", GEOMETRY_KERNELS);
+    static final MethodHandle KERNELS_VECTORIZED = virtual(GEOMETRY_KERNELS, "isVectorized", boolean.class);
+    static final MethodHandle KERNELS_DISTANCES = virtual(GEOMETRY_KERNELS, "distances", void.class,
+            double.class, double.class, double[].class, double[].class, int.class, int.class, double[].class);
+    static final MethodHandle KERNELS_HEADINGS = virtual(GEOMETRY_KERNELS, "headings", void.class,
+            double[].class, double[].class, int.class, int.class, double[].class);
+
+    static final MethodHandle NEW_LOCAL_SERVER = constructor(load("LocalAutoConnectServer"), int.class, int.class);
+    static final MethodHandle LOCAL_SERVER_START = virtual(load("LocalAutoConnectServer"), "start", void.class);
+    static final MethodHandle LOCAL_SERVER_STOP = virtual(load("LocalAutoConnectServer"), "stop", void.class);
+    static final MethodHandle LOCAL_SERVER_ADDRESS = virtual(load("LocalAutoConnectServer"), "getAddress", String.class);
+    static final MethodHandle HTTP_TRANSPORT = staticMethod(load("HttpTransport"), "getInstance", load("HttpTransport"));
+    static final MethodHandle HTTP_SET_SERVER_ADDRESS = virtual(load("HttpTransport"), "setServerAddress", void.class, String.class);
+    static final MethodHandle LOCAL_SERVER_START_FRAME_LISTENER = virtual(load("LocalAutoConnectServer"), "startFrameListener",
+            InetSocketAddress.class, int.class);
+    static final MethodHandle BINARY_TRANSPORT = staticMethod(load("BinaryTransport"), "getInstance", load("BinaryTransport"));
+    static final MethodHandle BINARY_SET_SERVER_ADDRESS = virtual(load("BinaryTransport"), "setServerAddress", void.class, InetSocketAddress.class);
+
+    private Simulation(){
+    }
+
+    private static Class<?> load(String name){
+        try{
+            return Class.forName(name);
+        }catch (ClassNotFoundException e){
+            throw new IllegalStateException("Simulation class " + name + " is not on the classpath", e);
+        }
+    }
+
+    private static MethodHandles.Lookup privateLookup(Class<?> owner) throws IllegalAccessException{
+        return MethodHandles.privateLookupIn(owner, LOOKUP);
+    }
+
+    //erases every simulation type in the handle's signature to Object, so callers can use invokeExact
+    private static MethodHandle erase(MethodHandle handle){
+        MethodType type = handle.type();
+        for(int i = 0; i < type.parameterCount(); i++){
+            if(isSimulationType(type.parameterType(i))) type = type.changeParameterType(i, Object.class);
+        }
+        if(isSimulationType(type.returnType())) type = type.changeReturnType(Object.class);
+        return handle.asType(type);
+    }
+
+    private static boolean isSimulationType(Class<?> type){
+        return !type.isPrimitive() && !type.isArray() && type.getPackageName().isEmpty();
+    }
+
+    private static MethodHandle constructor(Class<?> owner, Class<?>... parameters){
+        try{
+            return erase(privateLookup(owner).findConstructor(owner, methodType(void.class, parameters)));
+        }catch (ReflectiveOperationException e){
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static MethodHandle virtual(Class<?> owner, String name, Class<?> returnType, Class<?>... parameters){
+        try{
+            return erase(privateLookup(owner).findVirtual(owner, name, methodType(returnType, parameters)));
+        }catch (ReflectiveOperationException e){
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static MethodHandle staticMethod(Class<?> owner, String name, Class<?> returnType, Class<?>... parameters){
+        try{
+            return erase(privateLookup(owner).findStatic(owner, name, methodType(returnType, parameters)));
+        }catch (ReflectiveOperationException e){
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static MethodHandle getter(Class<?> owner, String name, Class<?> type){
+        try{
+            return erase(privateLookup(owner).findGetter(owner, name, type));
+        }catch (ReflectiveOperationException e){
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static MethodHandle setter(Class<?> owner, String name, Class<?> type){
+        try{
+            return erase(privateLookup(owner).findSetter(owner, name, type));
+        }catch (ReflectiveOperationException e){
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package autoconnect.benchmarks;
+
+import java.net.InetSocketAddress;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+//End-to-end vehicle ticks (move, /updateconnect, and /getbetas every BETA_REQUEST_INTERVALS ticks) against an
+//embedded LocalAutoConnectServer, over a fleet of registered vehicles.
+//  tick           blocking ticks, round-robin over the fleet: ticks per second for one client thread (raise with -t)
+//  asyncFleetTick every vehicle ticks at once through the AsyncHttpTransport: fleet ticks per second, so multiply by
+//                 vehicleCount for ticks per second
+//  batchedFleetTick  as asyncFleetTick, with updates and beta requests coalesced by the RequestBatcher
+//  binaryTick, binaryFleetTick  as tick and asyncFleetTick, over the binary wire protocol (BinaryTransport) instead
+//                 of JSON over HTTP
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TickBenchmark {
+    private static final int SAMPLES_PER_VEHICLE = 2000;
+    private static final int REWIND_MARGIN = 64;
+
+    @Param({"100", "1000"})
+    public int vehicleCount;
+
+    private Object server;
+    private Object[] vehicles;
+    private Object[] routes;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Throwable{
+        server = Simulation.NEW_LOCAL_SERVER.invokeExact(0, Runtime.getRuntime().availableProcessors() * 2);
+        Simulation.LOCAL_SERVER_START.invokeExact(server);
+        Simulation.HTTP_SET_SERVER_ADDRESS.invokeExact(Simulation.HTTP_TRANSPORT.invokeExact(), (String) Simulation.LOCAL_SERVER_ADDRESS.invokeExact(server));
+        Simulation.BINARY_SET_SERVER_ADDRESS.invokeExact(Simulation.BINARY_TRANSPORT.invokeExact(),
+                (InetSocketAddress) Simulation.LOCAL_SERVER_START_FRAME_LISTENER.invokeExact(server, 0));
+
+        vehicles = new Object[vehicleCount];
+        routes = new Object[vehicleCount];
+        for(int i = 0; i < vehicleCount; i++){
+            routes[i] = Traces.route(SAMPLES_PER_VEHICLE, i);
+            vehicles[i] = Simulation.NEW_VEHICLE_FROM_ROUTE.invokeExact(Integer.toString(i + 1), routes[i]);
+            if(!(boolean) Simulation.VEHICLE_INITIALIZE.invokeExact(vehicles[i])){
+                throw new IllegalStateException("Vehicle " + (i + 1) + " could not register with the local server");
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Throwable{
+        Simulation.LOCAL_SERVER_STOP.invokeExact(server);
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+    }
+
+    @Benchmark
+    public boolean tick(Cursor cursor) throws Throwable{
+        int i = cursor.next;
+        cursor.next = i + 1 == vehicleCount ? 0 : i + 1;
+        rewindIfNeeded(i);
+        return (boolean) Simulation.VEHICLE_TICK.invokeExact(vehicles[i]);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void asyncFleetTick() throws Throwable{
+        fleetTick();
+    }
+
+    @Benchmark
+    @Threads(1)
+    @Fork(value = 1, jvmArgsAppend = "-Dautoconnect.batch=true")
+    public void batchedFleetTick() throws Throwable{
+        fleetTick();
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = "-Dautoconnect.transport=binary")
+    public boolean binaryTick(Cursor cursor) throws Throwable{
+        return tick(cursor);
+    }
+
+    @Benchmark
+    @Threads(1)
+    @Fork(value = 1, jvmArgsAppend = "-Dautoconnect.transport=binary")
+    public void binaryFleetTick() throws Throwable{
+        fleetTick();
+    }
+
+    private void fleetTick() throws Throwable{
+        CompletableFuture<?>[] ticks = new CompletableFuture<?>[vehicleCount];
+        for(int i = 0; i < vehicleCount; i++){
+            rewindIfNeeded(i);
+            ticks[i] = (CompletableFuture<?>) Simulation.VEHICLE_TICK_ASYNC.invokeExact(vehicles[i]);
+        }
+        CompletableFuture.allOf(ticks).join();
+    }
+
+    //vehicles loop over their routes instead of reaching the end and leaving the simulation
+    private void rewindIfNeeded(int i) throws Throwable{
+        if((int) Simulation.ROUTE_REMAINING.invokeExact(routes[i]) < REWIND_MARGIN) Simulation.ROUTE_REWIND.invokeExact(routes[i]);
+    }
+}
@@ -0,0 +1,87 @@
+package autoconnect.benchmarks;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+//Synthetic traffic shaped like trafficData/kingstonTraffic.txt: vehicles drive a random walk around Kingston, sampled
+//every 0.2s.
+final class Traces {
+    private static final double START_LATITUDE = 44.23;
+    private static final double START_LONGITUDE = -76.49;
+    private static final double STEP_DEGREES = 0.00002;
+
+    private Traces(){
+    }
+
+    //Time stamp of a sample as written in a trace, in seconds
+    static String sampleTime(int sample){
+        int tenths = 2 * (sample + 1);
+        return tenths / 10 + "." + tenths % 10;
+    }
+
+    //Time of a sample in SimulationTime milliseconds
+    static int sampleMillis(int sample){
+        return 200 * (sample + 1);
+    }
+
+    //Returns a Route of the given number of samples
+    static Object route(int samples, long seed) throws Throwable{
+        Random random = new Random(seed);
+        Object route = Simulation.NEW_ROUTE.invokeExact();
+        double latitude = START_LATITUDE + random.nextDouble() * 0.02;
+        double longitude = START_LONGITUDE + random.nextDouble() * 0.02;
+        double heading = random.nextDouble() * 2 * Math.PI;
+        for(int i = 0; i < samples; i++){
+            Simulation.ROUTE_ADD.invokeExact(route, sampleMillis(i), latitude, longitude);
+            heading += (random.nextDouble() - 0.5) * 0.2;
+            latitude += Math.cos(heading) * STEP_DEGREES;
+            longitude += Math.sin(heading) * STEP_DEGREES;
+        }
+        Simulation.ROUTE_TRIM.invokeExact(route);
+        return route;
+    }
+
+    //Writes a CSV trace (Trajectory ID, Vehicle ID, Time Stamp, Latitude, Longitude) of the given size
+    static void writeCsv(Path file, int vehicles, int samplesPerVehicle, long seed) throws IOException{
+        Random random = new Random(seed);
+        try(BufferedWriter writer = Files.newBufferedWriter(file)){
+            writer.write("Trajectory ID,Vehicle ID,Time Stamp,Latitude,Longitude\n");
+            for(int vehicle = 1; vehicle <= vehicles; vehicle++){
+                double latitude = START_LATITUDE + random.nextDouble() * 0.02;
+                double longitude = START_LONGITUDE + random.nextDouble() * 0.02;
+                writer.write(vehicle + ",QRDF" + vehicle + "," + sampleTime(0) + "," + latitude + "," + longitude + "\n");
+                for(int i = 1; i <= samplesPerVehicle; i++){
+                    latitude += (random.nextDouble() - 0.5) * STEP_DEGREES;
+                    longitude += (random.nextDouble() - 0.5) * STEP_DEGREES;
+                    writer.write(",," + sampleTime(i) + "," + latitude + "," + longitude + "\n");
+                }
+            }
+        }
+    }
+
+    //Writes one legacy per-vehicle file (trafficData/vehicleDataN.txt layout) per vehicle into the directory
+    static void writeVehicleFiles(Path directory, int vehicles, int samplesPerVehicle, long seed) throws IOException{
+        Random random = new Random(seed);
+        for(int vehicle = 1; vehicle <= vehicles; vehicle++){
+            try(BufferedWriter writer = Files.newBufferedWriter(directory.resolve("vehicleData" + vehicle + ".txt"))){
+                double latitude = START_LATITUDE + random.nextDouble() * 0.02;
+                double longitude = START_LONGITUDE + random.nextDouble() * 0.02;
+                for(int i = 1; i <= samplesPerVehicle; i++){
+                    latitude += (random.nextDouble() - 0.5) * STEP_DEGREES;
+                    longitude += (random.nextDouble() - 0.5) * STEP_DEGREES;
+                    writer.write(",," + sampleTime(i) + "," + latitude + "," + longitude + "\n");
+                }
+            }
+        }
+    }
+
+    static void deleteRecursively(Path path) throws IOException{
+        if(path == null || !Files.exists(path)) return;
+        try(var paths = Files.walk(path)){
+            paths.sorted(java.util.Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package autoconnect.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+//Per-tick work a Vehicle does locally, without the server: estimating its speed and heading from the samples ahead,
+//and advancing along its route to its next tick.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class VehicleBenchmark {
+    //kept well above Route.SPEED_WINDOW, so that moveVehicleForward never reaches the end of the route
+    private static final int REWIND_MARGIN = 64;
+
+    @Param({"1000", "100000"})
+    public int samples;
+
+    private Object route;
+    private Object vehicle;
+
+    @Setup
+    public void setUp() throws Throwable{
+        route = Traces.route(samples, 42);
+        vehicle = Simulation.NEW_VEHICLE_FROM_ROUTE.invokeExact("1", route);
+        restartTickClock();
+    }
+
+    //the vehicle's tick clock must follow its route back to the start, as a tick only ever moves forward in time
+    private void restartTickClock() throws Throwable{
+        Simulation.VEHICLE_SET_NEXT_TICK_TIME.invokeExact(vehicle, (int) Simulation.VEHICLE_STARTING_TIME.invokeExact(vehicle));
+    }
+
+    @Benchmark
+    public double getSpeed() throws Throwable{
+        return (double) Simulation.VEHICLE_SPEED.invokeExact(vehicle);
+    }
+
+    @Benchmark
+    public double getDirection() throws Throwable{
+        return (double) Simulation.VEHICLE_DIRECTION.invokeExact(vehicle);
+    }
+
+    @Benchmark
+    public boolean moveVehicleForward() throws Throwable{
+        if((int) Simulation.ROUTE_REMAINING.invokeExact(route) < REWIND_MARGIN){
+            Simulation.ROUTE_REWIND.invokeExact(route);
+            restartTickClock();
+        }
+        return (boolean) Simulation.VEHICLE_MOVE_FORWARD.invokeExact(vehicle);
+    }
+}
@@ -0,0 +1,100 @@
+package autoconnect.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+//The shared WorldState: what a vehicle pays at each tick to publish its state, what a reader pays to snapshot the
+//whole fleet, and both at once on separate threads (the "contended" group), where publishing should cost the same as
+//alone since publishers never wait for readers.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WorldStateBenchmark {
+    private static final int MAX_PUBLISHERS = 4; //shares of the fleet, one per publishing thread
+
+    @Param({"1000", "100000"})
+    public int vehicles;
+
+    private Object world;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Throwable{
+        world = Simulation.NEW_WORLD_STATE.invokeExact();
+        for(int autoId = 1; autoId <= vehicles; autoId++){
+            Simulation.WORLD_PUBLISH.invokeExact(world, autoId, 0, 44.2 + autoId * 1e-6, -76.5, 30.0, 90.0);
+        }
+    }
+
+    //Publishers each cycle through their own share of the fleet, as every vehicle only ever publishes itself
+    @State(Scope.Thread)
+    public static class Publisher {
+        private static int publishers = 0;
+
+        private int first;
+        private int count;
+        private int next = 0;
+        private int time = 0;
+
+        @Setup(Level.Trial)
+        public void setUp(WorldStateBenchmark benchmark){
+            synchronized(Publisher.class){
+                int share = Math.max(1, benchmark.vehicles / MAX_PUBLISHERS);
+                first = 1 + (publishers++ % MAX_PUBLISHERS) * share;
+                count = share;
+            }
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Reader {
+        private Object snapshot;
+
+        @Setup(Level.Trial)
+        public void setUp() throws Throwable{
+            snapshot = Simulation.NEW_WORLD_SNAPSHOT.invokeExact();
+        }
+    }
+
+    @Benchmark
+    public void publish(Publisher publisher) throws Throwable{
+        publishNext(publisher);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public int snapshot(Reader reader) throws Throwable{
+        return snapshotFleet(reader);
+    }
+
+    @Benchmark
+    @Group("contended")
+    @GroupThreads(3)
+    public void contendedPublish(Publisher publisher) throws Throwable{
+        publishNext(publisher);
+    }
+
+    @Benchmark
+    @Group("contended")
+    @GroupThreads(1)
+    public int contendedSnapshot(Reader reader) throws Throwable{
+        return snapshotFleet(reader);
+    }
+
+    private void publishNext(Publisher publisher) throws Throwable{
+        int autoId = publisher.first + publisher.next;
+        if(++publisher.next == publisher.count){
+            publisher.next = 0;
+            publisher.time += 200;
+        }
+        Simulation.WORLD_PUBLISH.invokeExact(world, autoId, publisher.time, 44.2 + autoId * 1e-6, -76.5, 30.0, 90.0);
+    }
+
+    private int snapshotFleet(Reader reader) throws Throwable{
+        Object snapshot = Simulation.WORLD_SNAPSHOT.invokeExact(world, reader.snapshot);
+        return (int) Simulation.WORLD_SNAPSHOT_SIZE.invokeExact(snapshot);
+    }
+}
@@ -0,0 +1,74 @@
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+//Checks the default invalidation: 3 seconds, 30 metres travelled, or 20 degrees of turn
+public class BetaCandidateCacheTest {
+
+    @Test
+    public void nothingIsFreshBeforeTheFirstFetch(){
+        assertFalse(new BetaCandidateCache().isFresh(0, 0, 0));
+    }
+
+    @Test
+    public void candidatesExpireAfterTheTtl(){
+        BetaCandidateCache cache = new BetaCandidateCache();
+        cache.filled(1000, 0, 0);
+        assertTrue(cache.isFresh(1000, 0, 0));
+        assertTrue(cache.isFresh(3999, 0, 0));
+        assertFalse(cache.isFresh(4000, 0, 0));
+
+        cache.filled(4000, 0, 0);
+        assertTrue(cache.isFresh(4200, 0, 0));
+    }
+
+    //72 km/h is 4 metres per 200ms tick, so the eighth tick takes the vehicle past 30 metres
+    @Test
+    public void candidatesExpireOnceTheVehicleHasTravelledTooFar(){
+        BetaCandidateCache cache = new BetaCandidateCache();
+        cache.filled(0, 72, 45);
+        for(int tick = 1; tick <= 7; tick++){
+            assertTrue(cache.isFresh(tick * 200, 72, 45), "tick " + tick);
+        }
+        assertFalse(cache.isFresh(8 * 200, 72, 45));
+    }
+
+    //Each interval is travelled at the speed the vehicle had when it started
+    @Test
+    public void distanceIsTheSpeedAtEachTickIntegratedOverTheTimeToTheNext(){
+        BetaCandidateCache cache = new BetaCandidateCache();
+        cache.filled(0, 0, 0);
+        assertTrue(cache.isFresh(1000, 200, 0)); //stood still until now
+        assertTrue(cache.isFresh(1500, 200, 0)); //27.8m
+        assertFalse(cache.isFresh(1600, 200, 0)); //33.3m
+    }
+
+    @Test
+    public void candidatesExpireOnceTheHeadingTurnsTooFar(){
+        assertTrue(isFreshAfterTurning(90, 110));
+        assertFalse(isFreshAfterTurning(90, 111));
+        assertTrue(isFreshAfterTurning(90, 70));
+        assertFalse(isFreshAfterTurning(90, 69));
+        assertTrue(isFreshAfterTurning(350, 5)); //across north
+        assertFalse(isFreshAfterTurning(350, 15));
+        assertFalse(isFreshAfterTurning(0, 180));
+    }
+
+    @Test
+    public void headingIsIgnoredWhileStandingStill(){
+        BetaCandidateCache stoppedAtFetch = new BetaCandidateCache();
+        stoppedAtFetch.filled(0, 0, 0);
+        assertTrue(stoppedAtFetch.isFresh(200, 1, 180));
+
+        BetaCandidateCache stoppedNow = new BetaCandidateCache();
+        stoppedNow.filled(0, 1, 90);
+        assertTrue(stoppedNow.isFresh(200, 0, 0));
+    }
+
+    private static boolean isFreshAfterTurning(double fetchedDirection, double direction){
+        BetaCandidateCache cache = new BetaCandidateCache();
+        cache.filled(0, 1, fetchedDirection);
+        return cache.isFresh(200, 1, direction);
+    }
+}
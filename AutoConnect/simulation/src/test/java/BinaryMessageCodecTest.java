@@ -0,0 +1,158 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import org.json.JSONException;
+import org.junit.jupiter.api.Test;
+
+//Checks the binary codec against frames read and written the way LocalFrameListener does, with a ByteBuffer
+public class BinaryMessageCodecTest {
+    private final BinaryMessageCodec codec = new BinaryMessageCodec();
+
+    @Test
+    public void initConnectFrameCarriesEveryFieldExactly(){
+        codec.encodeInitConnect("QRDF100 é", 44.23946487053904, -76.49441989567629, 44.2, -76.5, 42.125, -12.5, 1_577_880_000_123L);
+        codec.setRequestId(77);
+        ByteBuffer frame = frame(codec, BinaryMessageCodec.INIT_CONNECT, 77);
+
+        byte[] vin = new byte[frame.getShort() & 0xffff];
+        frame.get(vin);
+        assertEquals("QRDF100 é", new String(vin, StandardCharsets.UTF_8));
+        assertEquals(44.23946487053904, frame.getDouble(), 0);
+        assertEquals(-76.49441989567629, frame.getDouble(), 0);
+        assertEquals(44.2, frame.getDouble(), 0);
+        assertEquals(-76.5, frame.getDouble(), 0);
+        assertEquals(42.125, frame.getDouble(), 0);
+        assertEquals(-12.5, frame.getDouble(), 0);
+        assertEquals(1_577_880_000_123L, frame.getLong());
+        assertFalse(frame.hasRemaining());
+        assertEquals("QRDF100 é", codec.getRequestVin());
+    }
+
+    @Test
+    public void updateFrameCarriesEveryFieldExactly(){
+        codec.encodeUpdate(17, Double.MIN_VALUE, -0.0, 1e300, -1, 0, 359.99999999999994, -1L);
+        ByteBuffer frame = frame(codec, BinaryMessageCodec.UPDATE_CONNECT, 0);
+
+        assertEquals(17, frame.getInt());
+        assertEquals(Double.MIN_VALUE, frame.getDouble(), 0);
+        assertEquals(Double.doubleToLongBits(-0.0), Double.doubleToLongBits(frame.getDouble()));
+        assertEquals(1e300, frame.getDouble(), 0);
+        assertEquals(-1, frame.getDouble(), 0);
+        assertEquals(0, frame.getDouble(), 0);
+        assertEquals(359.99999999999994, frame.getDouble(), 0);
+        assertEquals(-1L, frame.getLong());
+        assertFalse(frame.hasRemaining());
+        assertEquals(17, codec.getRequestAutoId());
+    }
+
+    @Test
+    public void terminationAndBetaRequestFrames(){
+        codec.encodeTermination(9);
+        ByteBuffer frame = frame(codec, BinaryMessageCodec.TERMINATE, 0);
+        assertEquals(9, frame.getInt());
+        assertFalse(frame.hasRemaining());
+
+        codec.encodeBetaRequest(5, 44.5, -76.25, 30, 90, 1_000L, 0.5, 8);
+        frame = frame(codec, BinaryMessageCodec.GET_BETAS, 0);
+        assertEquals(5, frame.getInt());
+        assertEquals(44.5, frame.getDouble(), 0);
+        assertEquals(-76.25, frame.getDouble(), 0);
+        assertEquals(30, frame.getDouble(), 0);
+        assertEquals(90, frame.getDouble(), 0);
+        assertEquals(1_000L, frame.getLong());
+        assertEquals(0.5, frame.getDouble(), 0);
+        assertEquals(8, frame.getInt());
+        assertFalse(frame.hasRemaining());
+    }
+
+    @Test
+    public void decodesInitResponse(){
+        respond(ByteBuffer.allocate(1 + 4 + 8)
+                .put((byte) (BinaryMessageCodec.AUTO_ID | BinaryMessageCodec.TIME_CHECK | BinaryMessageCodec.SUCCESS))
+                .putInt(12)
+                .putDouble(0.2));
+
+        assertEquals(12, codec.getAutoId());
+        assertTrue(codec.hasTimeCheck());
+        assertEquals(0.2, codec.getTimeCheck(), 0);
+        assertTrue(codec.isSuccess());
+        assertEquals("Success", codec.getStatus());
+    }
+
+    @Test
+    public void decodesStatusText(){
+        byte[] status = "Unknown vehicle".getBytes(StandardCharsets.UTF_8);
+        respond(ByteBuffer.allocate(1 + 4 + 2 + status.length)
+                .put((byte) (BinaryMessageCodec.AUTO_ID | BinaryMessageCodec.STATUS_TEXT))
+                .putInt(3)
+                .putShort((short) status.length)
+                .put(status));
+
+        assertEquals(3, codec.getAutoId());
+        assertFalse(codec.hasTimeCheck());
+        assertFalse(codec.isSuccess());
+        assertEquals("Unknown vehicle", codec.getStatus());
+    }
+
+    @Test
+    public void decodesPriorityMatrixLongerThanItsBuffer(){
+        int[] candidates = new int[40];
+        for(int i = 0; i < candidates.length; i++) candidates[i] = i * 7 - 3;
+        ByteBuffer response = ByteBuffer.allocate(1 + 2 + 4 * candidates.length)
+                .put((byte) (BinaryMessageCodec.SUCCESS | BinaryMessageCodec.PRIORITY_MATRIX))
+                .putShort((short) candidates.length);
+        for(int candidate : candidates) response.putInt(candidate);
+        respond(response);
+
+        assertTrue(codec.isSuccess());
+        assertEquals(candidates.length, codec.getPriorityMatrixLength());
+        assertArrayEquals(candidates, Arrays.copyOf(codec.getPriorityMatrix(), candidates.length));
+    }
+
+    @Test
+    public void fieldsOfAnEarlierResponseAreNotReused(){
+        respond(ByteBuffer.allocate(1 + 4 + 8)
+                .put((byte) (BinaryMessageCodec.AUTO_ID | BinaryMessageCodec.TIME_CHECK | BinaryMessageCodec.SUCCESS))
+                .putInt(12)
+                .putDouble(0.2));
+        respond(ByteBuffer.allocate(1).put((byte) 0));
+
+        assertFalse(codec.hasTimeCheck());
+        assertThrows(JSONException.class, codec::isSuccess); //no Status at all, as the JSON codec
+        assertThrows(JSONException.class, codec::getAutoId);
+        assertThrows(JSONException.class, codec::getPriorityMatrixLength);
+    }
+
+    @Test
+    public void truncatedAndOverlongResponsesAreReportedAsJsonExceptions(){
+        ByteBuffer truncated = ByteBuffer.allocate(1 + 2).put((byte) BinaryMessageCodec.AUTO_ID).putShort((short) 1);
+        assertThrows(JSONException.class, () -> respond(truncated));
+
+        ByteBuffer trailing = ByteBuffer.allocate(1 + 4 + 1).put((byte) BinaryMessageCodec.AUTO_ID).putInt(1).put((byte) 0);
+        assertThrows(JSONException.class, () -> respond(trailing));
+
+        assertThrows(JSONException.class, () -> respond(ByteBuffer.allocate(0)));
+    }
+
+    //The encoded request frame, checked up to its opcode and positioned at the opcode's fields
+    private static ByteBuffer frame(BinaryMessageCodec codec, byte opcode, int requestId){
+        ByteBuffer frame = ByteBuffer.wrap(codec.getRequestBuffer(), 0, codec.getRequestLength());
+        assertEquals(codec.getRequestLength() - 4, frame.getInt());
+        assertEquals(requestId, frame.getInt());
+        assertEquals(opcode, frame.get());
+        return frame;
+    }
+
+    //Hands the codec a response frame's fields, as BinaryTransport does once it has read the frame's header
+    private void respond(ByteBuffer fields){
+        codec.setResponse(fields.array(), 0, fields.position());
+        codec.decodeResponse();
+    }
+}
@@ -0,0 +1,92 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+//Checks that a converted trace reads back exactly the routes TrafficTraceReader reads from the CSV
+public class BinaryTraceTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    public void convertedTraceHoldsTheRoutesOfTheCsv() throws IOException, AutoConnectException{
+        SplittableRandom random = new SplittableRandom(5);
+        StringBuilder csv = new StringBuilder("Trajectory ID,Vehicle ID,Time Stamp,Latitude,Longitude\n");
+        for(int vehicle = 0; vehicle < 40; vehicle++){
+            csv.append(vehicle).append(",V").append(vehicle).append(",0,0,0\n");
+            int samples = vehicle == 7 ? 0 : 1 + random.nextInt(300); //vehicle 7 has a first row but no samples
+            double time = random.nextInt(500) * 0.2;
+            for(int i = 0; i < samples; i++, time += 0.2){
+                csv.append(",,").append(String.format(Locale.ROOT, "%.1f", time))
+                        .append(',').append(44.23 + random.nextDouble(-0.05, 0.05))
+                        .append(',').append(-76.49 + random.nextDouble(-0.05, 0.05)).append('\n');
+            }
+        }
+        String csvFile = write("trace.csv", csv.toString());
+        String binaryFile = directory.resolve("trace.bin").toString();
+        List<Route> expected = new ArrayList<>();
+        new TrafficTraceReader(csvFile, Integer.MAX_VALUE, (id, route) -> expected.add(route)).read();
+
+        assertEquals(expected.size(), BinaryTrace.convert(csvFile, binaryFile));
+        assertTrue(BinaryTrace.isCurrent(binaryFile));
+        BinaryTrace trace = BinaryTrace.open(binaryFile);
+        assertEquals(expected.size(), trace.getVehicleCount());
+        for(int vehicle = 0; vehicle < expected.size(); vehicle++){
+            Route route = expected.get(vehicle);
+            Route loaded = trace.loadRoute(vehicle);
+            assertEquals(route.length(), trace.getSampleCount(vehicle));
+            assertEquals(route.isEmpty() ? 0 : route.getTime(0), trace.getStartingTime(vehicle));
+            assertEquals(route.length(), loaded.length());
+            for(int i = 0; i < route.length(); i++){
+                assertEquals(route.getTime(i), loaded.getTime(i));
+                assertEquals(Double.doubleToLongBits(route.getLatitude(i)), Double.doubleToLongBits(loaded.getLatitude(i)));
+                assertEquals(Double.doubleToLongBits(route.getLongitude(i)), Double.doubleToLongBits(loaded.getLongitude(i)));
+            }
+        }
+        assertEquals(0, trace.getSampleCount(7));
+
+        //columns are copied into the front of arrays larger than the vehicle's samples
+        int[] times = new int[1000];
+        double[] latitudes = new double[1000];
+        double[] longitudes = new double[1000];
+        trace.readColumns(3, times, latitudes, longitudes);
+        assertEquals(expected.get(3).getTime(expected.get(3).length() - 1), times[expected.get(3).length() - 1]);
+        assertEquals(0, times[expected.get(3).length()]);
+    }
+
+    @Test
+    public void onlyTracesOfThisVersionAreCurrent() throws IOException{
+        assertFalse(BinaryTrace.isCurrent(write("trace.csv", "Trajectory ID,Vehicle ID,Time Stamp,Latitude,Longitude\n")));
+        assertFalse(BinaryTrace.isCurrent(write("short.bin", "AC")));
+
+        Path versionOne = directory.resolve("v1.bin");
+        try(DataOutputStream out = new DataOutputStream(new FileOutputStream(versionOne.toFile()))){
+            out.writeInt(0x41435452);
+            out.writeInt(1);
+            out.writeInt(0);
+            out.writeLong(20);
+        }
+        assertFalse(BinaryTrace.isCurrent(versionOne.toString()));
+        assertThrows(AutoConnectException.class, () -> BinaryTrace.open(versionOne.toString()));
+    }
+
+    private String write(String name, String content) throws IOException{
+        Path file = directory.resolve(name);
+        Files.write(file, content.getBytes(StandardCharsets.US_ASCII));
+        return file.toString();
+    }
+}
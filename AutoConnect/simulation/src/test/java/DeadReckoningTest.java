@@ -0,0 +1,99 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+//Checks the default thresholds: 10 metres off the extrapolation, 15 degrees of turn, 10 seconds of silence
+public class DeadReckoningTest {
+    private static final int STEP = 200; //ms between samples, as in the traces
+    private static final double STRIDE = 1e-5; //degrees per sample, about 5.5 m/s
+    private static final double DISTANCE_THRESHOLD_KM = 0.01;
+
+    @Test
+    public void firstUpdateIsAlwaysDue(){
+        assertTrue(new DeadReckoning().isUpdateDue(route(10, 0, 0)));
+    }
+
+    @Test
+    public void steadyVehicleIsOnlyUpdatedAfterTheLongestSilence(){
+        Route route = route(100, 0, 0);
+        DeadReckoning deadReckoning = new DeadReckoning();
+        deadReckoning.reported(route);
+
+        for(int time = STEP; time < 10_000; time += STEP){
+            assertTrue(route.advanceTo(time));
+            assertFalse(deadReckoning.isUpdateDue(route), "at " + time);
+        }
+        assertTrue(route.advanceTo(10_000));
+        assertTrue(deadReckoning.isUpdateDue(route));
+
+        deadReckoning.reported(route);
+        assertTrue(route.advanceTo(10_000 + STEP));
+        assertFalse(deadReckoning.isUpdateDue(route));
+    }
+
+    //Stopped dead: the extrapolation runs on and the heading no longer counts, so only the distance can trigger
+    @Test
+    public void updateIsDueOnceThePositionDivergesByTheDistanceThreshold(){
+        int moving = 3;
+        int samples = 40;
+        int[] times = new int[samples];
+        double[] latitudes = new double[samples];
+        double[] longitudes = new double[samples];
+        for(int i = 0; i < samples; i++){
+            times[i] = i * STEP;
+            latitudes[i] = 44.23 + STRIDE * Math.min(i, moving - 1);
+            longitudes[i] = -76.49;
+        }
+        Route route = new Route(times, latitudes, longitudes);
+        DeadReckoning deadReckoning = new DeadReckoning();
+        deadReckoning.reported(route);
+        double velocity = STRIDE * (moving - 1) / ((moving - 1) * STEP / 1000.0);
+
+        boolean sawSuppressed = false;
+        boolean sawDue = false;
+        for(int i = 1; i < samples; i++){
+            assertTrue(route.advanceTo(times[i]));
+            double predicted = latitudes[0] + velocity * times[i] / 1000.0;
+            boolean diverged = Coordinate.getDistance(predicted, longitudes[0], latitudes[i], longitudes[i]) > DISTANCE_THRESHOLD_KM;
+            assertEquals(diverged, deadReckoning.isUpdateDue(route), "at " + times[i]);
+            sawSuppressed |= !diverged;
+            sawDue |= diverged;
+        }
+        assertTrue(sawSuppressed && sawDue);
+    }
+
+    @Test
+    public void updateIsDueOnceTheHeadingTurnsByTheHeadingThreshold(){
+        assertFalse(isDueAfterTurning(14));
+        assertFalse(isDueAfterTurning(-14));
+        assertTrue(isDueAfterTurning(16));
+        assertTrue(isDueAfterTurning(-16));
+        assertTrue(isDueAfterTurning(180));
+    }
+
+    //Reported heading north, then checked right where the route turns, where the position is still on the extrapolation
+    private static boolean isDueAfterTurning(double degrees){
+        int turn = 5;
+        Route route = route(turn + 5, turn, Math.toRadians(degrees));
+        DeadReckoning deadReckoning = new DeadReckoning();
+        deadReckoning.reported(route);
+        assertTrue(route.advanceTo(turn * STEP));
+        return deadReckoning.isUpdateDue(route);
+    }
+
+    //Samples heading north at a steady speed, turning by the given angle from sample turn on
+    private static Route route(int samples, int turn, double turnRadians){
+        Route route = new Route();
+        double latitude = 44.23;
+        double longitude = -76.49;
+        for(int i = 0; i < samples; i++){
+            route.add(i * STEP, latitude, longitude);
+            double heading = i >= turn && turn > 0 ? turnRadians : 0;
+            latitude += STRIDE * Math.cos(heading);
+            longitude += STRIDE * Math.sin(heading);
+        }
+        return route;
+    }
+}
@@ -0,0 +1,192 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+//Records the exchanges of a scripted server with ExchangeRecorder, then checks ReplayTransport serves them back
+public class ExchangeReplayTest {
+    private static final VehicleTransport.Request INIT = VehicleTransport.Request.INIT_CONNECT;
+    private static final VehicleTransport.Request UPDATE = VehicleTransport.Request.UPDATE_CONNECT;
+    private static final VehicleTransport.Request BETAS = VehicleTransport.Request.GET_BETAS;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void replayServesTheRecordedResponsesOfEachVehicle() throws Exception{
+        String log = directory.resolve("exchanges.log").toString();
+        VehicleTransport recorder = recorder(new ScriptedServer(), log);
+
+        //vehicle A, blocking: joins, three updates and a beta request
+        VehicleMessageCodec a = recorder.newCodec();
+        assertEquals(201, recorder.send(INIT, init(a, "A")));
+        assertEquals("{\"Status\":\"Success\",\"AutoId\":1,\"TimeCheck\":0.2}", response(a));
+        for(int i = 1; i <= 3; i++) assertEquals(200, recorder.send(UPDATE, update(a, 1)));
+        assertEquals(201, recorder.send(BETAS, betas(a, 1)));
+
+        //vehicle B, asynchronous: joins, then its beta request fails
+        VehicleMessageCodec b = recorder.newCodec();
+        assertEquals(201, recorder.sendAsync(INIT, init(b, "B")).get());
+        ExecutionException failure = assertThrows(ExecutionException.class, () -> recorder.sendAsync(BETAS, betas(b, 2)).get());
+        assertTrue(failure.getCause() instanceof IOException);
+        recorder.shutdown();
+
+        VehicleTransport replay = replay(log);
+        VehicleMessageCodec replayedA = replay.newCodec();
+        assertEquals(VehicleMessageCodec.class, replayedA.getClass());
+        assertEquals(201, replay.send(INIT, init(replayedA, "A")));
+        assertEquals("{\"Status\":\"Success\",\"AutoId\":1,\"TimeCheck\":0.2}", response(replayedA));
+        for(int i = 1; i <= 3; i++){
+            assertEquals(200, replay.send(UPDATE, update(replayedA, 1)));
+            assertEquals("{\"Status\":\"Success\",\"Update\":" + i + "}", response(replayedA));
+        }
+        assertEquals(200, replay.sendAsync(UPDATE, update(replayedA, 1)).get()); //one more than recorded: the last again
+        assertEquals("{\"Status\":\"Success\",\"Update\":3}", response(replayedA));
+        assertEquals(201, replay.send(BETAS, betas(replayedA, 1)));
+        replayedA.decodeResponse();
+        assertEquals(2, replayedA.getPriorityMatrixLength());
+        assertEquals(7, replayedA.getPriorityMatrix()[1]);
+
+        VehicleMessageCodec replayedB = replay.newCodec();
+        assertEquals(201, replay.sendAsync(INIT, init(replayedB, "B")).get());
+        assertEquals("{\"Status\":\"Success\",\"AutoId\":2,\"TimeCheck\":0.2}", response(replayedB));
+        assertThrows(IOException.class, () -> replay.send(BETAS, betas(replayedB, 2))); //failed when recorded
+        assertThrows(IOException.class, () -> replay.send(UPDATE, update(replayedB, 2))); //never recorded
+        assertThrows(IOException.class, () -> replay.send(INIT, init(replay.newCodec(), "C")));
+        replay.shutdown();
+    }
+
+    @Test
+    public void replayUsesTheCodecOfTheRecordedTransport() throws Exception{
+        String log = directory.resolve("binary.log").toString();
+        ScriptedServer server = new ScriptedServer();
+        server.binary = true;
+        recorder(server, log).shutdown();
+
+        assertEquals(BinaryMessageCodec.class, replay(log).newCodec().getClass());
+    }
+
+    @Test
+    public void corruptLogsAreRejected() throws Exception{
+        String log = directory.resolve("exchanges.log").toString();
+        VehicleTransport recorder = recorder(new ScriptedServer(), log);
+        recorder.send(INIT, init(recorder.newCodec(), "A"));
+        recorder.shutdown();
+
+        byte[] recorded = Files.readAllBytes(Path.of(log));
+        Path truncated = directory.resolve("truncated.log");
+        Files.write(truncated, Arrays.copyOf(recorded, recorded.length - 3));
+        assertThrows(AutoConnectException.class, () -> replay(truncated.toString()));
+
+        Path otherVersion = directory.resolve("other.log");
+        try(DataOutputStream out = new DataOutputStream(new FileOutputStream(otherVersion.toFile()))){
+            out.writeInt(ExchangeRecorder.MAGIC);
+            out.writeInt(ExchangeRecorder.VERSION + 1);
+            out.writeByte(ExchangeRecorder.CODEC_JSON);
+        }
+        assertThrows(AutoConnectException.class, () -> replay(otherVersion.toString()));
+
+        Path unknownRequest = directory.resolve("unknown.log");
+        byte[] withUnknownRequest = recorded.clone();
+        withUnknownRequest[9] = 42; //first record's request
+        Files.write(unknownRequest, withUnknownRequest);
+        assertThrows(AutoConnectException.class, () -> replay(unknownRequest.toString()));
+    }
+
+    private static VehicleMessageCodec init(VehicleMessageCodec codec, String vin){
+        codec.encodeInitConnect(vin, 44.23, -76.49, 44.3, -76.4, 0, 0, 0);
+        return codec;
+    }
+
+    private static VehicleMessageCodec update(VehicleMessageCodec codec, int autoId){
+        codec.encodeUpdate(autoId, 44.23, -76.49, 44.3, -76.4, 30, 90, 1000);
+        return codec;
+    }
+
+    private static VehicleMessageCodec betas(VehicleMessageCodec codec, int autoId){
+        codec.encodeBetaRequest(autoId, 44.23, -76.49, 30, 90, 1000, 0.5, 8);
+        return codec;
+    }
+
+    private static String response(VehicleMessageCodec codec){
+        return new String(codec.getResponseBuffer(), 0, codec.getResponseLength(), StandardCharsets.UTF_8);
+    }
+
+    private static VehicleTransport recorder(VehicleTransport delegate, String log) throws ReflectiveOperationException{
+        Constructor<ExchangeRecorder> constructor = ExchangeRecorder.class.getDeclaredConstructor(VehicleTransport.class, String.class);
+        constructor.setAccessible(true);
+        return constructor.newInstance(delegate, log);
+    }
+
+    private static VehicleTransport replay(String log) throws Exception{
+        Constructor<ReplayTransport> constructor = ReplayTransport.class.getDeclaredConstructor(String.class);
+        constructor.setAccessible(true);
+        try{
+            return constructor.newInstance(log);
+        }catch (InvocationTargetException e){
+            throw (Exception) e.getCause();
+        }
+    }
+
+    //Hands out AutoIds in order of /initconnect, numbers each vehicle's updates, and fails the beta requests of even AutoIds
+    private static class ScriptedServer implements VehicleTransport {
+        private boolean binary;
+        private int nextAutoId = 1;
+        private final Map<Integer, Integer> updates = new HashMap<>();
+
+        @Override
+        public VehicleMessageCodec newCodec(){
+            return binary ? new BinaryMessageCodec() : new VehicleMessageCodec();
+        }
+
+        @Override
+        public synchronized int send(Request request, VehicleMessageCodec codec) throws IOException{
+            switch(request){
+                case INIT_CONNECT:
+                    return respond(codec, 201, "{\"Status\":\"Success\",\"AutoId\":" + nextAutoId++ + ",\"TimeCheck\":0.2}");
+                case UPDATE_CONNECT:
+                    return respond(codec, 200, "{\"Status\":\"Success\",\"Update\":" + updates.merge(codec.getRequestAutoId(), 1, Integer::sum) + "}");
+                case GET_BETAS:
+                    if(codec.getRequestAutoId() % 2 == 0) throw new IOException("Connection reset");
+                    return respond(codec, 201, "{\"Status\":\"Success\",\"PriorityMatrix\":[2,7]}");
+                default:
+                    return respond(codec, 200, "{\"Status\":\"Success\"}");
+            }
+        }
+
+        @Override
+        public CompletableFuture<Integer> sendAsync(Request request, VehicleMessageCodec codec){
+            try{
+                return CompletableFuture.completedFuture(send(request, codec));
+            }catch (IOException e){
+                return CompletableFuture.failedFuture(e);
+            }
+        }
+
+        @Override
+        public void shutdown(){
+        }
+
+        private static int respond(VehicleMessageCodec codec, int statusCode, String body){
+            byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+            codec.setResponse(bytes, 0, bytes.length);
+            return statusCode;
+        }
+    }
+}
@@ -0,0 +1,114 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.Test;
+
+//Checks both kernels, the scalar one and the one get() picks (SIMD when the Vector API is present), against Coordinate
+//to the tolerances stated in GeometryKernels' header
+public class GeometryKernelsTest {
+    private static final double DISTANCE_TOLERANCE_KM = 1e-12;
+    private static final double HEADING_TOLERANCE_DEGREES = 1e-9;
+    private static final double HAVERSINE_TOLERANCE_KM = 1e-9;
+    private static final int POINTS = 1003; //not a multiple of any vector length, so that the scalar tails run too
+
+    private final SplittableRandom random = new SplittableRandom(11);
+    private final double[] latitudes = new double[POINTS];
+    private final double[] longitudes = new double[POINTS];
+
+    //points a few km around Kingston, with some repeated and some sharing a latitude or longitude with the previous one
+    private void scatter(){
+        for(int i = 0; i < POINTS; i++){
+            latitudes[i] = 44.23 + random.nextDouble(-0.05, 0.05);
+            longitudes[i] = -76.49 + random.nextDouble(-0.05, 0.05);
+            if(i > 0 && i % 17 == 0) latitudes[i] = latitudes[i - 1];
+            if(i > 0 && i % 19 == 0) longitudes[i] = longitudes[i - 1];
+            if(i > 0 && i % 23 == 0){
+                latitudes[i] = latitudes[i - 1];
+                longitudes[i] = longitudes[i - 1];
+            }
+        }
+    }
+
+    @Test
+    public void distancesAgreeWithCoordinate(){
+        scatter();
+        for(GeometryKernels kernels : new GeometryKernels[]{GeometryKernels.scalar(), GeometryKernels.get()}){
+            for(int query = 0; query < 20; query++){
+                int from = random.nextInt(POINTS / 2);
+                int to = from + random.nextInt(POINTS - from + 1);
+                double latitude = latitudes[random.nextInt(POINTS)];
+                double longitude = longitudes[random.nextInt(POINTS)];
+                double[] out = new double[to - from];
+                kernels.distances(latitude, longitude, latitudes, longitudes, from, to, out);
+                for(int i = from; i < to; i++){
+                    assertEquals(Coordinate.getDistance(latitude, longitude, latitudes[i], longitudes[i]), out[i - from],
+                            DISTANCE_TOLERANCE_KM, kernels.getClass() + " point " + i);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void pairwiseDistancesAgreeWithCoordinate(){
+        scatter();
+        int from = 5;
+        int to = 78;
+        int n = to - from;
+        for(GeometryKernels kernels : new GeometryKernels[]{GeometryKernels.scalar(), GeometryKernels.get()}){
+            double[] out = new double[n * n];
+            kernels.pairwiseDistances(latitudes, longitudes, from, to, out);
+            for(int i = from; i < to; i++){
+                for(int j = from; j < to; j++){
+                    assertEquals(Coordinate.getDistance(latitudes[i], longitudes[i], latitudes[j], longitudes[j]),
+                            out[(i - from) * n + (j - from)], DISTANCE_TOLERANCE_KM, kernels.getClass() + " pair " + i + ", " + j);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void headingsAgreeWithCoordinate(){
+        scatter();
+        for(GeometryKernels kernels : new GeometryKernels[]{GeometryKernels.scalar(), GeometryKernels.get()}){
+            double[] out = new double[POINTS - 1];
+            kernels.headings(latitudes, longitudes, 0, POINTS, out);
+            for(int i = 0; i < POINTS - 1; i++){
+                double expected = Coordinate.getDirection(latitudes[i], longitudes[i], latitudes[i + 1], longitudes[i + 1]);
+                double difference = Math.abs(expected - out[i]) % 360;
+                assertTrue(Math.min(difference, 360 - difference) <= HEADING_TOLERANCE_DEGREES,
+                        kernels.getClass() + " step " + i + ": " + out[i] + " vs " + expected);
+            }
+        }
+    }
+
+    @Test
+    public void bothHaversinePathsAgree(){
+        scatter();
+        double[] scalar = new double[POINTS];
+        double[] selected = new double[POINTS];
+        for(int query = 0; query < 20; query++){
+            double latitude = latitudes[random.nextInt(POINTS)];
+            double longitude = longitudes[random.nextInt(POINTS)];
+            GeometryKernels.scalar().haversineDistances(latitude, longitude, latitudes, longitudes, 0, POINTS, scalar);
+            GeometryKernels.get().haversineDistances(latitude, longitude, latitudes, longitudes, 0, POINTS, selected);
+            for(int i = 0; i < POINTS; i++){
+                assertEquals(GeometryKernels.haversineDistance(latitude, longitude, latitudes[i], longitudes[i]), scalar[i], 0);
+                assertEquals(scalar[i], selected[i], HAVERSINE_TOLERANCE_KM, "point " + i);
+            }
+        }
+    }
+
+    @Test
+    public void emptyAndSinglePointRangesWriteNothing(){
+        scatter();
+        for(GeometryKernels kernels : new GeometryKernels[]{GeometryKernels.scalar(), GeometryKernels.get()}){
+            double[] out = {-1};
+            kernels.distances(44.23, -76.49, latitudes, longitudes, 7, 7, out);
+            kernels.headings(latitudes, longitudes, 7, 8, out);
+            kernels.haversineDistances(44.23, -76.49, latitudes, longitudes, 7, 7, out);
+            assertEquals(-1, out[0], 0);
+        }
+    }
+}
@@ -0,0 +1,104 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.reflect.Constructor;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.Test;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void smallValuesAreCountedExactly(){
+        LatencyHistogram histogram = new LatencyHistogram();
+        for(long value = 0; value < 128; value++) histogram.record(value);
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+
+        assertEquals(128, snapshot.getCount());
+        assertEquals(127 / 2.0, snapshot.getMeanNanos(), 1e-12);
+        assertEquals(127, snapshot.getMaxNanos());
+        assertEquals(0, snapshot.getPercentileNanos(0));
+        assertEquals(63, snapshot.getPercentileNanos(50));
+        assertEquals(126, snapshot.getPercentileNanos(99));
+        assertEquals(127, snapshot.getPercentileNanos(100));
+    }
+
+    @Test
+    public void percentilesAreWithinTheBucketPrecisionOfTheExactOnes(){
+        LatencyHistogram histogram = new LatencyHistogram();
+        SplittableRandom random = new SplittableRandom(3);
+        long[] values = new long[100_000];
+        for(int i = 0; i < values.length; i++){
+            values[i] = (long) Math.exp(random.nextDouble(0, Math.log(1e11))); //spread over every power of two
+            histogram.record(values[i]);
+        }
+        Arrays.sort(values);
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+
+        for(double percentile : new double[]{1, 10, 50, 90, 99, 99.9, 100}){
+            long exact = values[(int) Math.max(0, Math.ceil(percentile / 100 * values.length) - 1)];
+            long reported = snapshot.getPercentileNanos(percentile);
+            assertTrue(Math.abs(reported - exact) <= exact / 64.0 + 1, percentile + "th: " + reported + " vs " + exact);
+        }
+        assertEquals(values[values.length - 1], snapshot.getMaxNanos());
+        assertEquals(Arrays.stream(values).average().getAsDouble(), snapshot.getMeanNanos(), 1e-6);
+    }
+
+    @Test
+    public void negativeAndHugeValuesAreClamped(){
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(-5);
+        histogram.record(Long.MAX_VALUE / 2);
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+
+        assertEquals(2, snapshot.getCount());
+        assertEquals(0, snapshot.getPercentileNanos(50));
+        assertEquals(Long.MAX_VALUE / 2, snapshot.getMaxNanos());
+        assertTrue(snapshot.getPercentileNanos(100) < Long.MAX_VALUE / 2); //the last bucket, not the exact maximum
+    }
+
+    @Test
+    public void intervalsHoldOnlyTheValuesRecordedSinceTheEarlierSnapshot(){
+        LatencyHistogram histogram = new LatencyHistogram();
+        for(int i = 0; i < 100; i++) histogram.record(1_000_000);
+        LatencyHistogram.Snapshot earlier = histogram.snapshot();
+        for(int i = 0; i < 10; i++) histogram.record(50);
+        LatencyHistogram.Snapshot interval = histogram.snapshot().since(earlier);
+
+        assertEquals(10, interval.getCount());
+        assertEquals(50, interval.getMeanNanos(), 0);
+        assertEquals(50, interval.getPercentileNanos(100));
+        assertEquals(50, interval.getMaxNanos());
+        assertEquals(0, new LatencyHistogram().snapshot().getPercentileNanos(99));
+    }
+
+    @Test
+    public void concurrentRecordsAreAllCounted() throws InterruptedException{
+        LatencyHistogram histogram = new LatencyHistogram();
+        Thread[] threads = new Thread[4];
+        for(int t = 0; t < threads.length; t++){
+            threads[t] = new Thread(() -> {
+                for(int i = 0; i < 50_000; i++) histogram.record(i);
+            });
+            threads[t].start();
+        }
+        for(Thread thread : threads) thread.join();
+        assertEquals(200_000, histogram.snapshot().getCount());
+    }
+
+    //The peak is kept as vehicles join, not sampled when a snapshot happens to be taken
+    @Test
+    public void peakOfActiveVehiclesIsKeptAfterTheyLeave() throws ReflectiveOperationException{
+        Constructor<SimulationMetrics> constructor = SimulationMetrics.class.getDeclaredConstructor();
+        constructor.setAccessible(true);
+        SimulationMetrics metrics = constructor.newInstance();
+
+        for(int i = 0; i < 5; i++) metrics.vehicleJoined();
+        for(int i = 0; i < 4; i++) metrics.vehicleLeft();
+        metrics.vehicleJoined();
+        metrics.vehicleLeft();
+
+        assertEquals(5, metrics.getPeakActiveVehicles());
+    }
+}
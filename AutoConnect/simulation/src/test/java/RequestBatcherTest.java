@@ -0,0 +1,172 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.sun.net.httpserver.HttpServer;
+
+//Checks how a batch's body is built and how its response is split back into the vehicles' codecs: by BatchMessage
+//alone, and end to end through RequestBatcher against a server answering with a canned response
+public class RequestBatcherTest {
+    private static final long TIMEOUT_SECONDS = 10;
+
+    private HttpServer server;
+    private String previousServerAddress;
+    private volatile int cannedStatus;
+    private volatile String cannedBody;
+    private final List<String> receivedBodies = new ArrayList<>();
+
+    @BeforeEach
+    public void startServer() throws IOException{
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", exchange -> {
+            try(InputStream body = exchange.getRequestBody()){
+                synchronized(receivedBodies){
+                    receivedBodies.add(new String(body.readAllBytes(), StandardCharsets.UTF_8));
+                }
+            }
+            byte[] response = cannedBody.getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(cannedStatus, response.length);
+            try(OutputStream out = exchange.getResponseBody()){
+                out.write(response);
+            }
+        });
+        server.start();
+        previousServerAddress = HttpTransport.getInstance().getServerAddress();
+        HttpTransport.getInstance().setServerAddress("http://127.0.0.1:" + server.getAddress().getPort());
+    }
+
+    @AfterEach
+    public void stopServer(){
+        HttpTransport.getInstance().setServerAddress(previousServerAddress);
+        server.stop(0);
+    }
+
+    @Test
+    public void batchBodyHoldsEveryRequestInOrder(){
+        List<VehicleMessageCodec> codecs = updates(3);
+        BatchMessage message = new BatchMessage("Updates", codecs);
+
+        JSONArray items = new JSONObject(new String(message.getRequestBuffer(), 0, message.getRequestLength(), StandardCharsets.UTF_8))
+                .getJSONArray("Updates");
+        assertEquals(3, message.size());
+        assertEquals(3, items.length());
+        for(int i = 0; i < 3; i++){
+            assertEquals(new JSONObject(request(codecs.get(i))).toString(), items.getJSONObject(i).toString());
+        }
+    }
+
+    @Test
+    public void resultsAreCopiedIntoTheCodecsOfTheirRequests(){
+        List<VehicleMessageCodec> codecs = updates(3);
+        BatchMessage message = new BatchMessage("Updates", codecs);
+        respond(message, "{\"Before\":[1,{\"Results\":2}], \"Results\" : [ {\"Code\":200,\"Body\":{\"Status\":\"Success\",\"AutoId\":10}},"
+                + "{\"Body\":{\"Status\":\"Malformed request: x\"},\"Code\":400}, {\"Code\":204} ], \"After\":\"}\"}");
+
+        assertEquals(3, message.distributeResults());
+        assertArrayEquals(new int[]{200, 400, 204}, new int[]{message.getStatusCode(0), message.getStatusCode(1), message.getStatusCode(2)});
+        codecs.get(0).decodeResponse();
+        assertTrue(codecs.get(0).isSuccess());
+        assertEquals(10, codecs.get(0).getAutoId());
+        codecs.get(1).decodeResponse();
+        assertEquals("Malformed request: x", codecs.get(1).getStatus());
+        assertEquals(0, codecs.get(2).getResponseLength()); //no body at all
+    }
+
+    @Test
+    public void missingResultsAreCountedAndMalformedOnesRejected(){
+        BatchMessage message = new BatchMessage("Updates", updates(3));
+        respond(message, "{\"Results\":[{\"Code\":200,\"Body\":{}}]}");
+        assertEquals(1, message.distributeResults());
+        respond(message, "{\"Other\":true}");
+        assertEquals(0, message.distributeResults());
+
+        for(String malformed : new String[]{"{\"Results\":[{\"Body\":{}}]}", "{\"Results\":[{\"Code\":200,\"Body\":{}}",
+                "{\"Results\":[{},{},{},{}]}", "[]", ""}){
+            respond(message, malformed);
+            assertThrows(JSONException.class, message::distributeResults, malformed);
+        }
+    }
+
+    @Test
+    public void requestsBeyondAPartialResponseFailOnTheirOwn() throws Exception{
+        cannedStatus = 200;
+        cannedBody = "{\"Results\":[{\"Code\":200,\"Body\":{\"Status\":\"Success\"}},{\"Code\":404,\"Body\":{\"Status\":\"Unknown\"}}]}";
+        List<VehicleMessageCodec> codecs = updates(3);
+        List<CompletableFuture<Integer>> results = submitAsOneBatch(codecs);
+
+        assertEquals(200, results.get(0).get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertEquals(404, results.get(1).get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        ExecutionException missing = assertThrows(ExecutionException.class, () -> results.get(2).get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertTrue(missing.getCause() instanceof IOException);
+        codecs.get(1).decodeResponse();
+        assertEquals("Unknown", codecs.get(1).getStatus());
+
+        synchronized(receivedBodies){
+            assertEquals(1, receivedBodies.size());
+            assertEquals(3, new JSONObject(receivedBodies.get(0)).getJSONArray("Updates").length());
+        }
+    }
+
+    @Test
+    public void aFailedOrMalformedBatchFailsEveryRequest() throws Exception{
+        for(String[] canned : new String[][]{{"500", "{}"}, {"200", "{\"Results\":[{\"Code\":200"}}){
+            cannedStatus = Integer.parseInt(canned[0]);
+            cannedBody = canned[1];
+            for(CompletableFuture<Integer> result : submitAsOneBatch(updates(2))){
+                ExecutionException failure = assertThrows(ExecutionException.class, () -> result.get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+                assertTrue(failure.getCause() instanceof IOException, Arrays.toString(canned));
+            }
+        }
+        assertFalse(receivedBodies.isEmpty());
+    }
+
+    //Holding the batcher's lock keeps its linger timer from sending the batch before every codec is in it
+    private static List<CompletableFuture<Integer>> submitAsOneBatch(List<VehicleMessageCodec> codecs){
+        RequestBatcher batcher = RequestBatcher.updates();
+        List<CompletableFuture<Integer>> results = new ArrayList<>();
+        synchronized(batcher){
+            for(VehicleMessageCodec codec : codecs) results.add(batcher.submit(codec));
+        }
+        return results;
+    }
+
+    private static List<VehicleMessageCodec> updates(int count){
+        List<VehicleMessageCodec> codecs = new ArrayList<>();
+        for(int i = 0; i < count; i++){
+            VehicleMessageCodec codec = new VehicleMessageCodec();
+            codec.encodeUpdate(10 + i, 44.23 + i, -76.49, 44.3, -76.4, 12.5, 90, 1_000L * i);
+            codecs.add(codec);
+        }
+        return codecs;
+    }
+
+    private static String request(MessageBuffer message){
+        return new String(message.getRequestBuffer(), 0, message.getRequestLength(), StandardCharsets.UTF_8);
+    }
+
+    private static void respond(MessageBuffer message, String body){
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        message.setResponse(bytes, 0, bytes.length);
+    }
+}
@@ -0,0 +1,91 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+public class RouteTest {
+
+    //samples every 200ms, with a gap between 400 and 2000
+    private static Route routeWithGap(){
+        return new Route(new int[]{0, 200, 400, 2000, 2200},
+                new double[]{44.0, 44.1, 44.2, 44.3, 44.4},
+                new double[]{-76.0, -76.1, -76.2, -76.3, -76.4});
+    }
+
+    @Test
+    public void advancesToTheLatestSampleAtOrBeforeTheTime(){
+        Route route = routeWithGap();
+        assertTrue(route.advanceTo(0));
+        assertEquals(0, route.getCurrentTime());
+        assertTrue(route.advanceTo(399));
+        assertEquals(200, route.getCurrentTime());
+        assertEquals(44.1, route.getLatitude(0), 0);
+        assertTrue(route.advanceTo(400));
+        assertEquals(400, route.getCurrentTime());
+    }
+
+    @Test
+    public void stopsAtAGapWithoutMoving(){
+        Route route = routeWithGap();
+        assertTrue(route.advanceTo(200));
+
+        //a whole sampling step or more past the last sample before the gap
+        assertFalse(route.advanceTo(600));
+        assertEquals(200, route.getCurrentTime());
+        assertFalse(route.advanceTo(1999));
+        assertEquals(200, route.getCurrentTime());
+
+        //less than a step past it is still on the route
+        assertTrue(route.advanceTo(599));
+        assertEquals(400, route.getCurrentTime());
+    }
+
+    @Test
+    public void resumesAfterAGap(){
+        Route route = routeWithGap();
+        assertTrue(route.advanceTo(2100));
+        assertEquals(2000, route.getCurrentTime());
+        assertEquals(2, route.remaining());
+    }
+
+    @Test
+    public void neverMovesBackIntoThePast(){
+        Route route = routeWithGap();
+        assertTrue(route.advanceTo(2000));
+        assertTrue(route.advanceTo(100));
+        assertEquals(2000, route.getCurrentTime());
+    }
+
+    @Test
+    public void endsAtItsLastSample(){
+        Route route = routeWithGap();
+        assertTrue(route.advanceTo(2200));
+        assertEquals(1, route.remaining());
+        assertTrue(route.advanceTo(2200));
+        assertFalse(route.advanceTo(2201));
+        assertEquals(2200, route.getCurrentTime());
+
+        assertFalse(new Route().advanceTo(0));
+    }
+
+    @Test
+    public void findsSamplesOfUnevenlySampledRoutes(){
+        int[] times = {0, 200, 400, 500, 700, 750, 800, 1000};
+        Route route = new Route();
+        for(int time : times) route.add(time, 44, -76);
+        route.trim();
+        int step = times[1] - times[0]; //the sampling step, as seen from the first sample
+
+        //brute force: the latest sample at or before the time, unless that is a whole step or more behind it
+        for(int time = 0; time <= 1300; time += 10){
+            route.rewind();
+            int expected = 0;
+            for(int i = 0; i < times.length && times[i] <= time; i++) expected = i;
+            boolean onRoute = time - times[expected] < step;
+
+            assertEquals(onRoute, route.advanceTo(time), "time " + time);
+            assertEquals(onRoute ? times[expected] : 0, route.getCurrentTime(), "time " + time);
+        }
+    }
+}
@@ -0,0 +1,160 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Locale;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class ScenarioGeneratorTest {
+    private static final int TRACE_VEHICLES = 7;
+    private static final int WINDOW_SECONDS = 600;
+    private static final double JITTER_METRES = 25;
+
+    @TempDir
+    Path directory;
+
+    private BinaryTrace trace;
+
+    //seven vehicles heading in different directions from different starting times, with 20 to 50 samples each
+    @BeforeEach
+    public void convertTrace() throws IOException, AutoConnectException{
+        StringBuilder csv = new StringBuilder("Trajectory ID,Vehicle ID,Time Stamp,Latitude,Longitude\n");
+        for(int vehicle = 0; vehicle < TRACE_VEHICLES; vehicle++){
+            csv.append(vehicle).append(",V").append(vehicle).append(",0,0,0\n");
+            for(int i = 0; i < 20 + 5 * vehicle; i++){
+                csv.append(String.format(Locale.ROOT, ",,%.1f,%.9f,%.9f\n", 3 * vehicle + 0.2 * i,
+                        44.23 + 1e-5 * i * Math.cos(vehicle), -76.49 + 1e-5 * i * Math.sin(vehicle)));
+            }
+        }
+        Path csvFile = directory.resolve("trace.csv");
+        Files.write(csvFile, csv.toString().getBytes(StandardCharsets.US_ASCII));
+        String binaryFile = directory.resolve("trace.bin").toString();
+        BinaryTrace.convert(csvFile.toString(), binaryFile);
+        trace = BinaryTrace.open(binaryFile);
+    }
+
+    @Test
+    public void sameSeedYieldsTheSameFleet() throws Exception{
+        List<Vehicle> first = generate(new ScenarioGenerator(trace, TRACE_VEHICLES, 60, 42, WINDOW_SECONDS, JITTER_METRES, 0.5));
+        List<Vehicle> second = generate(new ScenarioGenerator(trace, TRACE_VEHICLES, 60, 42, WINDOW_SECONDS, JITTER_METRES, 0.5));
+        List<Vehicle> otherSeed = generate(new ScenarioGenerator(trace, TRACE_VEHICLES, 60, 43, WINDOW_SECONDS, JITTER_METRES, 0.5));
+
+        assertEquals(first.size(), second.size());
+        int differingStarts = 0;
+        for(int i = 0; i < first.size(); i++){
+            assertEquals(id(first.get(i)), id(second.get(i)));
+            assertEquals(first.get(i).getStartingTime(), second.get(i).getStartingTime());
+            Route route = route(first.get(i));
+            Route again = route(second.get(i));
+            for(int sample = 0; sample < route.length(); sample++){
+                assertEquals(route.getTime(sample), again.getTime(sample));
+                assertEquals(Double.doubleToLongBits(route.getLatitude(sample)), Double.doubleToLongBits(again.getLatitude(sample)));
+                assertEquals(Double.doubleToLongBits(route.getLongitude(sample)), Double.doubleToLongBits(again.getLongitude(sample)));
+            }
+            if(first.get(i).getStartingTime() != otherSeed.get(i).getStartingTime()) differingStarts++;
+        }
+        assertTrue(differingStarts > first.size() / 2);
+    }
+
+    @Test
+    public void everyVehicleIsGeneratedOnceInStartingTimeOrder() throws Exception{
+        int fleetSize = 100; //not a multiple of the bases, so the last copy only covers some of them
+        ScenarioGenerator generator = new ScenarioGenerator(trace, TRACE_VEHICLES, fleetSize, 1, WINDOW_SECONDS, JITTER_METRES, 0.5);
+        assertEquals(fleetSize, generator.getFleetSize());
+        List<Vehicle> fleet = generate(generator);
+
+        assertEquals(fleetSize, fleet.size());
+        BitSet names = new BitSet();
+        int copies = (fleetSize + TRACE_VEHICLES - 1) / TRACE_VEHICLES;
+        double slice = WINDOW_SECONDS * 1000.0 / copies;
+        for(int i = 0; i < fleet.size(); i++){
+            Vehicle vehicle = fleet.get(i);
+            if(i > 0) assertTrue(vehicle.getStartingTime() >= fleet.get(i - 1).getStartingTime());
+            int index = Integer.parseInt(id(vehicle)) - 1;
+            assertFalse(names.get(index));
+            names.set(index);
+
+            //copy c of a base starts within the c-th slice of the window after the base
+            int base = index % TRACE_VEHICLES;
+            int copy = index / TRACE_VEHICLES;
+            int offset = vehicle.getStartingTime() - trace.getStartingTime(base);
+            assertTrue(offset >= copy * slice && offset < (copy + 1) * slice, id(vehicle) + " starts " + offset + "ms after its base");
+        }
+        assertEquals(fleetSize, names.cardinality());
+        assertEquals(fleetSize, names.nextClearBit(0));
+    }
+
+    @Test
+    public void routesAreShiftedAndMovedCopiesOfTheirBase() throws Exception{
+        for(double reverseProbability : new double[]{0, 1}){
+            for(Vehicle vehicle : generate(new ScenarioGenerator(trace, TRACE_VEHICLES, 30, 5, WINDOW_SECONDS, JITTER_METRES, reverseProbability))){
+                int base = (Integer.parseInt(id(vehicle)) - 1) % TRACE_VEHICLES;
+                Route original = trace.loadRoute(base);
+                Route route = route(vehicle);
+                int last = route.length() - 1;
+                assertEquals(original.length(), route.length());
+                assertEquals(vehicle.getStartingTime(), route.getTime(0));
+
+                int shift = vehicle.getStartingTime() - original.getTime(0);
+                double latitudeOffset = route.getLatitude(0) - original.getLatitude(reverseProbability == 0 ? 0 : last);
+                double longitudeOffset = route.getLongitude(0) - original.getLongitude(reverseProbability == 0 ? 0 : last);
+                assertTrue(Coordinate.getDistance(0, 0, latitudeOffset, longitudeOffset) <= JITTER_METRES / 1000 + 1e-9);
+                for(int i = 0; i <= last; i++){
+                    int source = reverseProbability == 0 ? i : last - i;
+                    assertEquals(original.getTime(i) + shift, route.getTime(i));
+                    assertEquals(original.getLatitude(source) + latitudeOffset, route.getLatitude(i), 1e-12);
+                    assertEquals(original.getLongitude(source) + longitudeOffset, route.getLongitude(i), 1e-12);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void basesBeyondTheTraceAreIgnored() throws Exception{
+        assertEquals(20, generate(new ScenarioGenerator(trace, 100, 20, 1, WINDOW_SECONDS, 0, 0)).size());
+        ScenarioGenerator empty = new ScenarioGenerator(trace, 0, 20, 1, WINDOW_SECONDS, 0, 0);
+        assertEquals(0, empty.getFleetSize());
+        assertFalse(empty.hasNext());
+
+        //without jitter or reversal, a copy only moves in time
+        List<Vehicle> unvaried = generate(new ScenarioGenerator(trace, TRACE_VEHICLES, TRACE_VEHICLES, 1, WINDOW_SECONDS, 0, 0));
+        for(Vehicle vehicle : unvaried){
+            Route original = trace.loadRoute(Integer.parseInt(id(vehicle)) - 1);
+            Route route = route(vehicle);
+            for(int i = 0; i < original.length(); i++){
+                assertEquals(original.getLatitude(i), route.getLatitude(i), 0);
+                assertEquals(original.getLongitude(i), route.getLongitude(i), 0);
+            }
+        }
+    }
+
+    private static List<Vehicle> generate(ScenarioGenerator generator){
+        List<Vehicle> fleet = new ArrayList<>();
+        while(generator.hasNext()) fleet.add(generator.next());
+        return fleet;
+    }
+
+    private static String id(Vehicle vehicle) throws ReflectiveOperationException{
+        Field id = Vehicle.class.getDeclaredField("ID");
+        id.setAccessible(true);
+        return (String) id.get(vehicle);
+    }
+
+    //The route the vehicle would load when it joins
+    private static Route route(Vehicle vehicle) throws Exception{
+        Field source = Vehicle.class.getDeclaredField("routeSource");
+        source.setAccessible(true);
+        return ((Vehicle.RouteSource) source.get(vehicle)).load();
+    }
+}
@@ -0,0 +1,197 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.StringJoiner;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class SimulationOutputTest {
+    private static final int PRODUCERS = 4;
+    private static final int EVENTS_PER_PRODUCER = 50_000; //all together several times the default ring size
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void ringDeliversEveryEventOfEveryProducerInOrder() throws Exception{
+        RecordingSink sink = new RecordingSink();
+        SimulationOutput output = SimulationOutput.open(sink);
+        assertTrue(SimulationOutput.getInstance() == output);
+
+        Thread[] producers = new Thread[PRODUCERS];
+        for(int p = 0; p < PRODUCERS; p++){
+            int autoId = p;
+            producers[p] = new Thread(() -> {
+                int[] candidates = new int[8];
+                output.vehicleJoined("V" + autoId, autoId);
+                for(int time = 0; time < EVENTS_PER_PRODUCER; time++){
+                    int count = time % (candidates.length + 1); //up to twice a slot's initial candidates
+                    for(int i = 0; i < count; i++) candidates[i] = time + i;
+                    output.connection(autoId, time, candidates, count);
+                }
+                output.vehicleLeft(autoId);
+            });
+            producers[p].start();
+        }
+        for(Thread producer : producers) producer.join();
+        output.close();
+
+        assertTrue(sink.closed);
+        for(int p = 0; p < PRODUCERS; p++){
+            List<String> events = sink.events.get(p);
+            assertEquals(EVENTS_PER_PRODUCER + 2, events.size());
+            assertEquals("joined V" + p, events.get(0));
+            for(int time = 0; time < EVENTS_PER_PRODUCER; time++){
+                int[] candidates = new int[time % 9];
+                for(int i = 0; i < candidates.length; i++) candidates[i] = time + i;
+                assertEquals(time + " " + Arrays.toString(candidates), events.get(time + 1));
+            }
+            assertEquals("left", events.get(EVENTS_PER_PRODUCER + 1));
+        }
+        assertTrue(SimulationOutput.getInstance() != output);
+    }
+
+    @Test
+    public void sinkErrorsAreReportedOnCloseWithoutBlockingProducers() throws Exception{
+        RecordingSink sink = new RecordingSink();
+        sink.failOnConnection = true;
+        SimulationOutput output = SimulationOutput.open(sink);
+        output.vehicleJoined("V", 1);
+        for(int time = 0; time < 3 * EVENTS_PER_PRODUCER; time++) output.connection(1, time, new int[0], 0);
+
+        IOException failure = assertThrows(IOException.class, output::close);
+        assertEquals("disk full", failure.getMessage());
+        assertEquals(1, sink.events.get(1).size()); //nothing more was written after the failure
+        assertTrue(sink.closed);
+    }
+
+    //Compares the text layout with the rows the simulation used to build one by one as strings
+    @Test
+    public void textLayoutMatchesTheOriginalRows() throws IOException{
+        SplittableRandom random = new SplittableRandom(9);
+        Path file = directory.resolve("simulation.txt");
+        TextOutputSink sink = new TextOutputSink(file.toString());
+
+        Map<Integer, StringBuilder> blocks = new LinkedHashMap<>();
+        Map<Integer, Integer> rows = new HashMap<>();
+        StringBuilder expected = new StringBuilder("Connections ID, Vehicle ID, Time Stamp, Current Open Connections\n");
+        int nextAutoId = -2;
+        for(int step = 0; step < 5000; step++){
+            int action = random.nextInt(10);
+            if(blocks.isEmpty() || action == 0){
+                int autoId = nextAutoId++;
+                String vin = random.nextBoolean() ? "QRDF" + autoId : "VÉH-" + autoId;
+                sink.vehicleJoined(vin, autoId);
+                blocks.put(autoId, new StringBuilder());
+                rows.put(autoId, 0);
+                blocks.get(autoId).append(vin).append('\t'); //stands in for the VIN until the first row
+            }else if(action == 1){
+                int autoId = randomKey(blocks, random);
+                sink.vehicleLeft(autoId);
+                expected.append(firstRowVin(blocks.remove(autoId)));
+            }else{
+                int autoId = randomKey(blocks, random);
+                int time = random.nextBoolean() ? random.nextInt(10_000) * 200 : random.nextInt(100_000);
+                int[] candidates = new int[random.nextInt(6)];
+                for(int i = 0; i < candidates.length; i++) candidates[i] = random.nextInt(200_000) - 100;
+                sink.connection(autoId, time, candidates, candidates.length);
+                blocks.get(autoId).append(originalRow(rows.get(autoId), autoId, time, candidates));
+                rows.merge(autoId, 1, Integer::sum);
+            }
+        }
+        for(StringBuilder block : blocks.values()) expected.append(firstRowVin(block));
+        sink.vehicleLeft(12345); //never joined
+        sink.close();
+
+        assertEquals(expected.toString(), new String(Files.readAllBytes(file), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void timeStampsAreWrittenAsSimulationTimeFormatsThem() throws IOException{
+        Path file = directory.resolve("times.txt");
+        TextOutputSink sink = new TextOutputSink(file.toString());
+        int[] times = {0, 1, 10, 100, 120, 1005, 12_400, 30_000, 2_147_483_647, -200, -1500};
+        sink.vehicleJoined("V", 1);
+        for(int time : times) sink.connection(1, time, new int[0], 0);
+        sink.close();
+
+        String[] lines = new String(Files.readAllBytes(file), StandardCharsets.UTF_8).split("\n");
+        assertEquals(times.length + 1, lines.length);
+        for(int i = 0; i < times.length; i++){
+            assertEquals(SimulationTime.format(times[i]), lines[i + 1].split(",", -1)[2]);
+        }
+    }
+
+    //The row Vehicle.saveAlphaResponse built: VIN and AutoConnectId on the first row only, which never lists
+    //connections, later rows listing them joined with ', and the time stamp as a Float's toString
+    private static String originalRow(int previousRows, int autoId, int time, int[] candidates){
+        String connectionsId = previousRows == 0 ? "\t" : "";
+        String vehicleId = previousRows == 0 ? String.valueOf(autoId) : "";
+        String timeStamp = Float.toString(time / (float) SimulationTime.MILLIS_IN_SECOND);
+        String openConnection = "";
+        if(previousRows > 0){
+            StringJoiner joiner = new StringJoiner("'");
+            for(int candidate : candidates) joiner.add(Integer.toString(candidate));
+            openConnection = joiner.toString();
+        }
+        return connectionsId + "," + vehicleId + "," + timeStamp + "," + openConnection + "\n";
+    }
+
+    //A vehicle's block with its VIN moved into its first row, and nothing if it never had a row
+    private static String firstRowVin(StringBuilder block){
+        int tab = block.indexOf("\t");
+        String vin = block.substring(0, tab);
+        String rows = block.substring(tab + 1);
+        return rows.isEmpty() ? "" : rows.replaceFirst("\t", vin);
+    }
+
+    private static int randomKey(Map<Integer, StringBuilder> blocks, SplittableRandom random){
+        List<Integer> keys = new ArrayList<>(blocks.keySet());
+        return keys.get(random.nextInt(keys.size()));
+    }
+
+    //Records the events of each vehicle as strings, as the writer thread hands them over
+    private static class RecordingSink implements OutputSink {
+        private final Map<Integer, List<String>> events = new HashMap<>();
+        private boolean failOnConnection;
+        private volatile boolean closed;
+
+        @Override
+        public void vehicleJoined(String vin, int autoId){
+            events.computeIfAbsent(autoId, id -> new ArrayList<>()).add("joined " + vin);
+        }
+
+        @Override
+        public void connection(int autoId, int time, int[] candidates, int count) throws IOException{
+            if(failOnConnection) throw new IOException("disk full");
+            events.get(autoId).add(time + " " + Arrays.toString(Arrays.copyOf(candidates, count)));
+        }
+
+        @Override
+        public void vehicleLeft(int autoId){
+            events.get(autoId).add("left");
+        }
+
+        @Override
+        public void flush(){
+        }
+
+        @Override
+        public void close(){
+            closed = true;
+        }
+    }
+}
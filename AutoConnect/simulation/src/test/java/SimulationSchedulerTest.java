@@ -0,0 +1,119 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+public class SimulationSchedulerTest {
+    private static final long TIMEOUT_SECONDS = 10;
+
+    @Test
+    public void eventsRunInTimeOrderThenInSubmissionOrder() throws Exception{
+        SimulationScheduler scheduler = new SimulationScheduler(new PooledVehicleRuntime(1), Double.POSITIVE_INFINITY);
+        List<String> order = Collections.synchronizedList(new ArrayList<>());
+        int[] times = {30, 10, 20, 10, 0, 30, 10};
+        for(int i = 0; i < times.length; i++){
+            String label = times[i] + "#" + i;
+            scheduler.schedule(times[i], () -> order.add(label));
+        }
+        //an event scheduled for the current instant from within it runs after the instant's earlier events
+        scheduler.schedule(20, () -> scheduler.schedule(20, () -> order.add("20#late")));
+
+        run(scheduler);
+        assertEquals(Arrays.asList("0#4", "10#1", "10#3", "10#6", "20#2", "20#late", "30#0", "30#5"), order);
+    }
+
+    @Test
+    public void asFastAsPossibleSkipsTheTimeBetweenEvents() throws Exception{
+        SimulationScheduler scheduler = new SimulationScheduler(new PooledVehicleRuntime(2), Double.POSITIVE_INFINITY);
+        AtomicBoolean ran = new AtomicBoolean();
+        scheduler.schedule(0, () -> {});
+        scheduler.schedule((int) TimeUnit.HOURS.toMillis(1), () -> ran.set(true));
+
+        run(scheduler); //fails on its timeout rather than waiting an hour
+        assertTrue(ran.get());
+    }
+
+    @Test
+    public void asFastAsPossibleWaitsForTheRunningEventsOfTheInstant() throws Exception{
+        SimulationScheduler scheduler = new SimulationScheduler(new PooledVehicleRuntime(4), Double.POSITIVE_INFINITY);
+        AtomicBoolean responded = new AtomicBoolean();
+        AtomicBoolean respondedBeforeNextInstant = new AtomicBoolean();
+        scheduler.scheduleAsync(0, () -> CompletableFuture.runAsync(() -> {
+            sleep(100);
+            responded.set(true);
+        }));
+        scheduler.schedule(1, () -> respondedBeforeNextInstant.set(responded.get()));
+
+        run(scheduler);
+        assertTrue(respondedBeforeNextInstant.get());
+    }
+
+    @Test
+    public void speedupMapsSimulatedTimeOntoTheWallClock() throws Exception{
+        SimulationScheduler scheduler = new SimulationScheduler(new PooledVehicleRuntime(1), 20);
+        AtomicLong ranAt = new AtomicLong();
+        scheduler.schedule(0, () -> {});
+        scheduler.schedule(1000, () -> ranAt.set(System.nanoTime()));
+
+        long start = System.nanoTime();
+        run(scheduler);
+        assertTrue(ranAt.get() - start >= TimeUnit.MILLISECONDS.toNanos(1000 / 20), "ran after " + (ranAt.get() - start) + "ns");
+    }
+
+    @Test
+    public void crashingEventsStillFinish() throws Exception{
+        SimulationScheduler scheduler = new SimulationScheduler(new PooledVehicleRuntime(1), Double.POSITIVE_INFINITY);
+        AtomicBoolean ran = new AtomicBoolean();
+        scheduler.schedule(0, () -> {
+            throw new IllegalStateException("crash");
+        });
+        scheduler.scheduleAsync(0, () -> CompletableFuture.failedFuture(new IllegalStateException("async crash")));
+        scheduler.schedule(5, () -> ran.set(true));
+
+        run(scheduler);
+        assertTrue(ran.get());
+    }
+
+    @Test
+    public void speedupIsReadFromItsProperty(){
+        String previous = System.getProperty("autoconnect.speedup");
+        try{
+            System.setProperty("autoconnect.speedup", "max");
+            assertTrue(SimulationScheduler.create(new PooledVehicleRuntime(1)).isAsFastAsPossible());
+            System.setProperty("autoconnect.speedup", "0");
+            assertTrue(SimulationScheduler.create(new PooledVehicleRuntime(1)).isAsFastAsPossible());
+            System.setProperty("autoconnect.speedup", " 2.5 ");
+            assertFalse(SimulationScheduler.create(new PooledVehicleRuntime(1)).isAsFastAsPossible());
+            System.setProperty("autoconnect.speedup", "fast");
+            assertThrows(IllegalArgumentException.class, () -> SimulationScheduler.create(new PooledVehicleRuntime(1)));
+        }finally{
+            if(previous == null) System.clearProperty("autoconnect.speedup");
+            else System.setProperty("autoconnect.speedup", previous);
+        }
+    }
+
+    private static void run(SimulationScheduler scheduler) throws Exception{
+        scheduler.start();
+        scheduler.finishSubmitting();
+        scheduler.getCompletion().get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    }
+
+    private static void sleep(long millis){
+        try{
+            Thread.sleep(millis);
+        }catch (InterruptedException e){
+            Thread.currentThread().interrupt();
+        }
+    }
+}
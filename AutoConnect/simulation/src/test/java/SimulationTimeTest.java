@@ -0,0 +1,79 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.Test;
+
+//Checks the conversions against BigDecimal arithmetic on the same decimals
+public class SimulationTimeTest {
+    private final SplittableRandom random = new SplittableRandom(13);
+
+    @Test
+    public void decimalsOfUpToThreeFractionDigitsAreExact(){
+        assertEquals(12_400, SimulationTime.fromDecimal(124, 1));
+        assertEquals(30_000, SimulationTime.fromDecimal(30, 0));
+        assertEquals(1, SimulationTime.fromDecimal(1, 3));
+        assertEquals(0, SimulationTime.fromDecimal(0, 2));
+        assertEquals(-2_500, SimulationTime.fromDecimal(-25, 1));
+        assertEquals(Integer.MAX_VALUE, SimulationTime.fromDecimal(Integer.MAX_VALUE, 3));
+    }
+
+    @Test
+    public void furtherFractionDigitsAreRoundedHalfUp(){
+        assertEquals(1_235, SimulationTime.fromDecimal(12_345, 4));
+        assertEquals(1_234, SimulationTime.fromDecimal(123_449_999, 8));
+        assertEquals(-1_234, SimulationTime.fromDecimal(-12_345, 4)); //half up, as Math.round
+        assertEquals(-1_235, SimulationTime.fromDecimal(-12_346, 4));
+        assertEquals(SimulationTime.fromSeconds(-1.2345), SimulationTime.fromDecimal(-12_345, 4));
+
+        for(int i = 0; i < 100_000; i++){
+            long digits = random.nextLong(-1_000_000_000_000_000L, 1_000_000_000_000_000L);
+            int fractionDigits = 3 + random.nextInt(1, 16);
+            long expected = halfUp(digits, fractionDigits);
+            if(expected < Integer.MIN_VALUE || expected > Integer.MAX_VALUE){
+                int fraction = fractionDigits;
+                assertThrows(ArithmeticException.class, () -> SimulationTime.fromDecimal(digits, fraction));
+            }else{
+                assertEquals(expected, SimulationTime.fromDecimal(digits, fractionDigits), digits + "e-" + fractionDigits);
+            }
+        }
+    }
+
+    @Test
+    public void timesThatDoNotFitAreRejected(){
+        assertThrows(ArithmeticException.class, () -> SimulationTime.fromDecimal(Integer.MAX_VALUE + 1L, 3));
+        assertThrows(ArithmeticException.class, () -> SimulationTime.fromDecimal(2_147_484, 0));
+        assertThrows(ArithmeticException.class, () -> SimulationTime.fromDecimal(Long.MAX_VALUE, 0));
+        assertThrows(ArithmeticException.class, () -> SimulationTime.fromDecimal(Long.MAX_VALUE, 4));
+        assertThrows(ArithmeticException.class, () -> SimulationTime.fromSeconds(2_147_484));
+    }
+
+    @Test
+    public void formatUsesAsFewDecimalsAsItNeedsButAtLeastOne(){
+        assertEquals("12.4", SimulationTime.format(12_400));
+        assertEquals("30.0", SimulationTime.format(30_000));
+        assertEquals("0.0", SimulationTime.format(0));
+        assertEquals("0.005", SimulationTime.format(5));
+        assertEquals("1.05", SimulationTime.format(1_050));
+        assertEquals("-0.2", SimulationTime.format(-200));
+        assertEquals("2147483.647", SimulationTime.format(Integer.MAX_VALUE));
+        assertEquals("-2147483.648", SimulationTime.format(Integer.MIN_VALUE));
+
+        for(int i = 0; i < 100_000; i++){
+            int time = random.nextInt();
+            BigDecimal seconds = BigDecimal.valueOf(time, 3).stripTrailingZeros();
+            if(seconds.scale() < 1) seconds = seconds.setScale(1);
+            String formatted = SimulationTime.format(time);
+            assertEquals(seconds.toPlainString(), formatted);
+            assertEquals(time, SimulationTime.parse(formatted));
+        }
+    }
+
+    //digits * 10^-fractionDigits in milliseconds, rounded half towards positive infinity
+    private static long halfUp(long digits, int fractionDigits){
+        return BigDecimal.valueOf(digits, fractionDigits - 3).add(new BigDecimal("0.5")).setScale(0, RoundingMode.FLOOR).longValueExact();
+    }
+}
@@ -0,0 +1,122 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.Test;
+
+//Checks the grid's ring searches against a scan of every vehicle
+public class SpatialIndexTest {
+    private static final int VEHICLES = 2000;
+    private static final double CELL_SIZE_KM = 0.25;
+
+    private final SplittableRandom random = new SplittableRandom(7);
+    private final double[] latitudes = new double[VEHICLES];
+    private final double[] longitudes = new double[VEHICLES];
+    private final double[] headings = new double[VEHICLES];
+    private final boolean[] present = new boolean[VEHICLES];
+
+    //vehicles scattered over a few km around Kingston, some sharing cells and some in cells of negative coordinates
+    private SpatialIndex scatter(){
+        SpatialIndex index = new SpatialIndex(CELL_SIZE_KM);
+        for(int id = 0; id < VEHICLES; id++) move(index, id);
+        return index;
+    }
+
+    private void move(SpatialIndex index, int id){
+        latitudes[id] = 44.23 + random.nextDouble(-0.03, 0.03);
+        longitudes[id] = -76.49 + random.nextDouble(-0.03, 0.03);
+        headings[id] = random.nextDouble(0, 360);
+        present[id] = true;
+        index.update(id, latitudes[id], longitudes[id], headings[id]);
+    }
+
+    @Test
+    public void radiusSearchFindsExactlyTheVehiclesAScanFinds(){
+        SpatialIndex index = scatter();
+        for(int query = 0; query < 200; query++){
+            double latitude = 44.23 + random.nextDouble(-0.035, 0.035);
+            double longitude = -76.49 + random.nextDouble(-0.035, 0.035);
+            double radius = random.nextDouble(0.01, 1.5);
+            double heading = random.nextDouble(0, 360);
+            double tolerance = query % 2 == 0 ? 180 : random.nextDouble(0, 90);
+            int exclude = random.nextInt(VEHICLES);
+
+            List<Integer> found = new ArrayList<>();
+            index.findWithinRadius(latitude, longitude, radius, heading, tolerance, exclude, found::add);
+            found.sort(null);
+            assertEquals(scan(latitude, longitude, radius, heading, tolerance, exclude), found, "query " + query);
+        }
+    }
+
+    @Test
+    public void nearestSearchFindsTheClosestVehiclesAScanFinds(){
+        SpatialIndex index = scatter();
+        int[] result = new int[16];
+        for(int query = 0; query < 200; query++){
+            double latitude = 44.23 + random.nextDouble(-0.035, 0.035);
+            double longitude = -76.49 + random.nextDouble(-0.035, 0.035);
+            double radius = random.nextDouble(0.05, 2);
+            int k = 1 + random.nextInt(result.length);
+            double heading = random.nextDouble(0, 360);
+            double tolerance = query % 2 == 0 ? 180 : random.nextDouble(0, 90);
+            int exclude = random.nextInt(VEHICLES);
+
+            List<Integer> expected = scan(latitude, longitude, radius, heading, tolerance, exclude);
+            expected.sort(Comparator.comparingDouble(id -> Coordinate.getDistance(latitude, longitude, latitudes[id], longitudes[id])));
+            expected = expected.subList(0, Math.min(k, expected.size()));
+
+            int found = index.findNearest(latitude, longitude, radius, k, heading, tolerance, exclude, result);
+            assertArrayEquals(expected.stream().mapToInt(Integer::intValue).toArray(), Arrays.copyOf(result, found), "query " + query);
+        }
+    }
+
+    @Test
+    public void movedAndRemovedVehiclesAreFoundWhereTheyAre(){
+        SpatialIndex index = scatter();
+        for(int id = 0; id < VEHICLES; id += 3) move(index, id);
+        for(int id = 1; id < VEHICLES; id += 5){
+            index.remove(id);
+            present[id] = false;
+        }
+        index.remove(VEHICLES * 10); //never added
+
+        int live = 0;
+        for(boolean isPresent : present) if(isPresent) live++;
+        assertEquals(live, index.size());
+        assertFalse(index.contains(1));
+        assertTrue(index.contains(0));
+
+        List<Integer> found = new ArrayList<>();
+        index.findWithinRadius(44.23, -76.49, 1, 0, 180, -1, found::add);
+        found.sort(null);
+        assertEquals(scan(44.23, -76.49, 1, 0, 180, -1), found);
+    }
+
+    @Test
+    public void idsBeyondTheInitialCapacityAreIndexed(){
+        SpatialIndex index = new SpatialIndex(CELL_SIZE_KM);
+        index.update(50_000, 44.23, -76.49, 0);
+        int[] result = new int[1];
+        assertEquals(1, index.findNearest(44.23, -76.49, 0.1, 1, 0, 180, -1, result));
+        assertEquals(50_000, result[0]);
+    }
+
+    //Ids of present vehicles matching the query, in ascending order
+    private List<Integer> scan(double latitude, double longitude, double radius, double heading, double tolerance, int exclude){
+        List<Integer> matches = new ArrayList<>();
+        for(int id = 0; id < VEHICLES; id++){
+            if(!present[id] || id == exclude) continue;
+            double difference = Math.abs(headings[id] - heading) % 360;
+            if(tolerance < 180 && Math.min(difference, 360 - difference) > tolerance) continue;
+            if(Coordinate.getDistance(latitude, longitude, latitudes[id], longitudes[id]) <= radius) matches.add(id);
+        }
+        return matches;
+    }
+}
@@ -0,0 +1,100 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+//Checks the in-place number parsing of the mapped trace against Double.parseDouble and SimulationTime.parse
+public class TrafficTraceReaderTest {
+    private static final String HEADER = "Trajectory ID,Vehicle ID,Time Stamp,Latitude,Longitude\n";
+
+    //fast path and every kind of fallback: signs, zeros, integers, 17 significant digits, more digits than a long
+    //holds, mantissas beyond 2^53, more fraction digits than there are exact powers of ten, and exponents
+    private static final String[] NUMBERS = {
+            "44.23946487053904", "-76.49441989567629", "44.239460689531306", "0", "-0", "0.0", "-0.0", "+12.5", "45",
+            "-76", "0.1", "0.30000000000000004", "9007199254740993", "9007199254740992.5", "123456789012345678901.5",
+            "-0.000000000000000000001234", "0.12345678901234567890123", "1e-3", "-2.5E+2", "6.02214076e23",
+            "4.9e-324", "1.7976931348623157e308", "000044.500", "44."};
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void numbersParseAsDoubleParseDoubleParsesThem() throws IOException, AutoConnectException{
+        StringBuilder trace = new StringBuilder(HEADER).append("1,QRDF100,0,0,0\n");
+        for(int i = 0; i < NUMBERS.length; i++){
+            trace.append(",,").append(i).append(',').append(NUMBERS[i]).append(',').append(NUMBERS[NUMBERS.length - 1 - i]).append('\n');
+        }
+        Route route = readOnlyRoute(trace.toString());
+
+        assertEquals(NUMBERS.length, route.length());
+        for(int i = 0; i < NUMBERS.length; i++){
+            assertEquals(Double.doubleToLongBits(Double.parseDouble(NUMBERS[i])), Double.doubleToLongBits(route.getLatitude(i)), NUMBERS[i]);
+            String longitude = NUMBERS[NUMBERS.length - 1 - i];
+            assertEquals(Double.doubleToLongBits(Double.parseDouble(longitude)), Double.doubleToLongBits(route.getLongitude(i)), longitude);
+        }
+    }
+
+    @Test
+    public void timeStampsParseAsSimulationTimeParsesThem() throws IOException, AutoConnectException{
+        String[] times = {"0", "0.2", "0.25", "1.0005", "17", "100.125", "2147483.647", "12.0000000000000000000001", "1e2"};
+        StringBuilder trace = new StringBuilder(HEADER).append("1,QRDF100,0,0,0\n");
+        for(String time : times) trace.append(",,").append(time).append(",44,-76\n");
+        Route route = readOnlyRoute(trace.toString());
+
+        for(int i = 0; i < times.length; i++){
+            assertEquals(SimulationTime.parse(times[i]), route.getTime(i), times[i]);
+        }
+    }
+
+    @Test
+    public void rowsEndingInCarriageReturnsAndBlankLinesAreRead() throws IOException, AutoConnectException{
+        Route route = readOnlyRoute(HEADER.replace("\n", "\r\n") + "1,QRDF100,0,0,0\r\n,,0.2,44.5,-76.5\r\n\r\n,,0.4,-44.25,76.25\r\n");
+
+        assertEquals(2, route.length());
+        assertEquals(-44.25, route.getLatitude(1), 0);
+        assertEquals(76.25, route.getLongitude(1), 0);
+    }
+
+    @Test
+    public void vehiclesAreSplitAtTheirFirstRowAndCappedAtMaxVehicles() throws IOException, AutoConnectException{
+        String trace = HEADER + "1,A,0,0,0\n,,0.2,44,-76\n,,0.4,44,-76\n2,B,0,0,0\n,,0.2,45,-75\n3,C,0,0,0\n,,0.2,46,-74\n";
+        List<Route> routes = new ArrayList<>();
+        assertEquals(2, new TrafficTraceReader(write(trace), 2, (id, route) -> routes.add(route)).read());
+
+        assertEquals(2, routes.get(0).length());
+        assertEquals(1, routes.get(1).length());
+        assertEquals(45, routes.get(1).getLatitude(0), 0);
+    }
+
+    @Test
+    public void malformedRowsAreReported() throws IOException{
+        for(String row : new String[]{",,0.2,,-76", ",,0.2,44", ",,0.2,44,-76,12", ",,,44,-76", ",,0.2,1.2.3,-76",
+                ",,0.2,44,4a.5", ",,0.2,-,-76", ",,1.2.3,44,-76", ",,0x10,44,-76"}){
+            String file = write(HEADER + "1,QRDF100,0,0,0\n" + row + "\n");
+            assertThrows(AutoConnectException.class, () -> new TrafficTraceReader(file, 1, (id, route) -> {}).read(), row);
+        }
+        String samplesFirst = write(HEADER + ",,0.2,44,-76\n");
+        assertThrows(AutoConnectException.class, () -> new TrafficTraceReader(samplesFirst, 1, (id, route) -> {}).read());
+    }
+
+    private Route readOnlyRoute(String trace) throws IOException, AutoConnectException{
+        List<Route> routes = new ArrayList<>();
+        new TrafficTraceReader(write(trace), Integer.MAX_VALUE, (id, route) -> routes.add(route)).read();
+        assertEquals(1, routes.size());
+        return routes.get(0);
+    }
+
+    private String write(String trace) throws IOException{
+        Path file = Files.createTempFile(directory, "trace", ".txt");
+        Files.write(file, trace.getBytes(StandardCharsets.US_ASCII));
+        return file.toString();
+    }
+}
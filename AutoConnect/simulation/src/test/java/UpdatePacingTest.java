@@ -0,0 +1,103 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+//Checks the default pacing: 1s without a TimeCheck, backoff doubling up to 8 times above a 250ms latency or after a
+//busy response and shrinking by a quarter per tick, and first ticks jittered over the whole interval
+public class UpdatePacingTest {
+    private static final long FAST_NANOS = 1_000_000;
+    private static final long SLOW_NANOS = 400_000_000;
+
+    @Test
+    public void intervalFollowsTheServersTimeChecks(){
+        UpdatePacing pacing = new UpdatePacing();
+        assertEquals(1000, pacing.getInterval());
+        pacing.setServerInterval(0.2);
+        assertEquals(200, pacing.getInterval());
+        for(double garbage : new double[]{0, -1, 3600, Double.NaN, Double.POSITIVE_INFINITY}){
+            pacing.setServerInterval(garbage);
+            assertEquals(200, pacing.getInterval(), "after " + garbage);
+        }
+        pacing.setServerInterval(0.0001);
+        assertEquals(1, pacing.getInterval()); //never a zero interval
+    }
+
+    @Test
+    public void busyServerDoublesTheIntervalUpToTheMaximumBackoff(){
+        UpdatePacing pacing = new UpdatePacing();
+        int time = 0;
+        int[] expected = {2000, 4000, 8000, 8000};
+        for(int interval : expected){
+            pacing.observe(FAST_NANOS, true);
+            int next = pacing.nextTick(time);
+            assertEquals(interval, next - time);
+            time = next;
+        }
+
+        //then shrinks back by a quarter per tick once the server keeps up
+        int[] recovering = {6000, 4500, 3375, 2531, 1898, 1424, 1068, 1000, 1000};
+        for(int interval : recovering){
+            pacing.observe(FAST_NANOS, false);
+            int next = pacing.nextTick(time);
+            assertEquals(interval, next - time, 1);
+            time = next;
+        }
+    }
+
+    @Test
+    public void slowResponsesBackOffUntilTheSmoothedLatencyRecovers(){
+        UpdatePacing pacing = new UpdatePacing();
+        pacing.observe(SLOW_NANOS, false);
+        assertEquals(2000, pacing.nextTick(0));
+
+        //the average falls by a quarter of the gap per response: 400 -> 300.25 -> 225.4ms
+        pacing.observe(FAST_NANOS, false);
+        assertEquals(2000 + 4000, pacing.nextTick(2000));
+        pacing.observe(FAST_NANOS, false);
+        assertEquals(6000 + 3000, pacing.nextTick(6000));
+
+        //unchanged once the interval is back to the server's
+        UpdatePacing steady = new UpdatePacing();
+        steady.observe(FAST_NANOS, false);
+        assertEquals(1000, steady.nextTick(0));
+    }
+
+    @Test
+    public void onlyAFewBusyResponsesInARowAreRiddenOut(){
+        UpdatePacing pacing = new UpdatePacing();
+        for(int i = 0; i < 3; i++){
+            pacing.observe(FAST_NANOS, true);
+            assertTrue(pacing.canRideOutFailure());
+        }
+        pacing.observe(FAST_NANOS, true);
+        assertFalse(pacing.canRideOutFailure());
+
+        pacing.observe(FAST_NANOS, false);
+        pacing.observe(FAST_NANOS, true);
+        assertTrue(pacing.canRideOutFailure());
+    }
+
+    @Test
+    public void firstTicksAreSpreadOverTheIntervalInSlotsByVin(){
+        UpdatePacing pacing = new UpdatePacing();
+        Map<Integer, Integer> vehiclesPerTick = new HashMap<>();
+        int vehicles = 10_000;
+        for(int i = 0; i < vehicles; i++){
+            String vin = "QRDF" + i;
+            int tick = pacing.firstTick(5000, vin);
+            assertEquals(tick, new UpdatePacing().firstTick(5000, vin)); //the same phase on every run
+            assertTrue(tick > 5000 && tick <= 6000, vin + " at " + tick);
+            assertEquals(0, (tick - 5000) % 100, vin + " at " + tick);
+            vehiclesPerTick.merge(tick, 1, Integer::sum);
+        }
+        assertEquals(10, vehiclesPerTick.size());
+        for(int count : vehiclesPerTick.values()){
+            assertTrue(count > vehicles / 20 && count < vehicles * 3 / 20, vehiclesPerTick.toString());
+        }
+    }
+}
@@ -0,0 +1,165 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Arrays;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+
+//Checks the hand-written JSON codec against org.json, which the messages used to be built and read with
+public class VehicleMessageCodecTest {
+    private static final double FRACTION_TOLERANCE = 0.5e-12; //doubles are written with 12 decimals
+
+    private final VehicleMessageCodec codec = new VehicleMessageCodec();
+
+    @Test
+    public void initConnectParsesAsTheSameMessage(){
+        long time = 1_577_880_000_123L;
+        codec.encodeInitConnect("QRDF100", 44.23946487053904, -76.49441989567629, 44.2, -76.5, 42.125, -12.5, time);
+        JSONObject message = parse(codec);
+
+        assertEquals("QRDF100", message.getString("VIN"));
+        assertEquals("dummyGPX", message.getString("RouteXML"));
+        assertEquals(44.23946487053904, message.getDouble("PositionX"), FRACTION_TOLERANCE);
+        assertEquals(-76.49441989567629, message.getDouble("PositionY"), FRACTION_TOLERANCE);
+        assertEquals(44.2, message.getDouble("DestinationX"), FRACTION_TOLERANCE);
+        assertEquals(-76.5, message.getDouble("DestinationY"), FRACTION_TOLERANCE);
+        assertEquals(42.125, message.getDouble("Speed"), FRACTION_TOLERANCE);
+        assertEquals(-12.5, message.getDouble("Direction"), FRACTION_TOLERANCE);
+        assertEquals(time, Instant.parse(message.getString("Time")).toEpochMilli());
+        assertEquals("QRDF100", codec.getRequestVin());
+        assertEquals(-1, codec.getRequestAutoId());
+    }
+
+    @Test
+    public void updateParsesAsTheSameMessage(){
+        codec.encodeUpdate(17, 0.000000000001, -0.0000000000004, 1e7, -123456.75, 0, 359.999999999999, 0);
+        JSONObject message = parse(codec);
+
+        assertEquals(17, message.getInt("AutoId"));
+        assertEquals(0.000000000001, message.getDouble("PositionX"), FRACTION_TOLERANCE);
+        assertEquals(0, message.getDouble("PositionY"), FRACTION_TOLERANCE);
+        assertEquals(1e7, message.getDouble("DestinationX"), 0);
+        assertEquals(-123456.75, message.getDouble("DestinationY"), 0);
+        assertEquals(0, message.getDouble("Speed"), 0);
+        assertEquals(359.999999999999, message.getDouble("Direction"), FRACTION_TOLERANCE);
+        assertEquals("1970-01-01T00:00:00.000Z", message.getString("Time"));
+        assertEquals(0, message.getInt("Terminated"));
+        assertEquals(17, codec.getRequestAutoId());
+    }
+
+    @Test
+    public void timesBeforeTheEpochAndInLeapYearsAreWrittenAsInstants(){
+        for(long time : new long[]{-1L, -86_400_000L * 365 * 30 - 7, 951_782_400_000L, 4_107_542_399_999L}){
+            codec.encodeUpdate(1, 0, 0, 0, 0, 0, 0, time);
+            assertEquals(time, Instant.parse(parse(codec).getString("Time")).toEpochMilli(), "time " + time);
+        }
+    }
+
+    @Test
+    public void terminationParsesAsTheSameMessage(){
+        codec.encodeTermination(-2147483648);
+        JSONObject message = parse(codec);
+
+        assertEquals(Integer.MIN_VALUE, message.getInt("AutoId"));
+        assertEquals("", message.getString("Time"));
+        assertEquals(1, message.getInt("Terminated"));
+    }
+
+    @Test
+    public void betaRequestParsesAsTheSameMessage(){
+        codec.encodeBetaRequest(5, 44.5, -76.25, 30, 90, 1_000L, 0.5, 8);
+        JSONObject message = parse(codec);
+
+        assertEquals(5, message.getInt("AutoId"));
+        assertEquals(44.5, message.getDouble("PositionX"), 0);
+        assertEquals(-76.25, message.getDouble("PositionY"), 0);
+        assertEquals(0.5, message.getDouble("ConnectionRadius"), 0);
+        assertEquals(8, message.getInt("BetaBound"));
+        assertEquals(1_000L, Instant.parse(message.getString("Time")).toEpochMilli());
+    }
+
+    @Test
+    public void stringsAreEscapedAsOrgJsonReadsThem(){
+        String vin = "VIN \"quoted\" \\ tab\t é € 🚗";
+        codec.encodeInitConnect(vin, 0, 0, 0, 0, 0, 0, 0);
+        assertEquals(vin, parse(codec).getString("VIN"));
+    }
+
+    @Test
+    public void nonFiniteNumbersAreRejected(){
+        assertThrows(JSONException.class, () -> codec.encodeUpdate(1, Double.NaN, 0, 0, 0, 0, 0, 0));
+        assertThrows(JSONException.class, () -> codec.encodeUpdate(1, 0, Double.POSITIVE_INFINITY, 0, 0, 0, 0, 0));
+    }
+
+    @Test
+    public void decodesInitResponse(){
+        respond(new JSONObject().put("AutoId", 12).put("TimeCheck", 0.2).put("Status", "Success"));
+
+        assertEquals(12, codec.getAutoId());
+        assertTrue(codec.hasTimeCheck());
+        assertEquals(0.2, codec.getTimeCheck(), 0);
+        assertTrue(codec.isSuccess());
+        assertEquals("Success", codec.getStatus());
+    }
+
+    @Test
+    public void decodesBetaResponseAndSkipsUnknownFields(){
+        JSONObject response = new JSONObject()
+                .put("Extra", new JSONObject().put("Nested", new JSONArray().put(1).put("x]}").put(JSONObject.NULL)))
+                .put("PriorityMatrix", new JSONArray(Arrays.asList(3, 1, 4, 1, 5, 9, 2, 6, 5, 3)))
+                .put("Status", "Success")
+                .put("Note", "a \"quoted\" value");
+        respond(response);
+
+        assertTrue(codec.isSuccess());
+        assertFalse(codec.hasTimeCheck());
+        assertEquals(10, codec.getPriorityMatrixLength());
+        assertArrayEquals(new int[]{3, 1, 4, 1, 5, 9, 2, 6, 5, 3}, Arrays.copyOf(codec.getPriorityMatrix(), 10));
+    }
+
+    @Test
+    public void decodesEmptyPriorityMatrixAndFailureStatus(){
+        respond(new JSONObject().put("PriorityMatrix", new JSONArray()).put("Status", "Unknown vehicle"));
+
+        assertEquals(0, codec.getPriorityMatrixLength());
+        assertFalse(codec.isSuccess());
+        assertEquals("Unknown vehicle", codec.getStatus());
+    }
+
+    @Test
+    public void fieldsOfAnEarlierResponseAreNotReused(){
+        respond(new JSONObject().put("AutoId", 12).put("TimeCheck", 0.2).put("Status", "Success"));
+        respond(new JSONObject().put("Status", "Success"));
+
+        assertFalse(codec.hasTimeCheck());
+        assertThrows(JSONException.class, codec::getAutoId);
+        assertThrows(JSONException.class, codec::getPriorityMatrixLength);
+    }
+
+    @Test
+    public void malformedResponsesAreReportedAsJsonExceptions(){
+        for(String response : new String[]{"", "[]", "{\"AutoId\":", "{\"AutoId\":12", "{\"AutoId\" 12}", "{\"Status\":\"Success}"}){
+            byte[] bytes = response.getBytes(StandardCharsets.UTF_8);
+            codec.setResponse(bytes, 0, bytes.length);
+            assertThrows(JSONException.class, codec::decodeResponse, response);
+        }
+    }
+
+    private static JSONObject parse(VehicleMessageCodec codec){
+        return new JSONObject(new String(codec.getRequestBuffer(), 0, codec.getRequestLength(), StandardCharsets.UTF_8));
+    }
+
+    private void respond(JSONObject response){
+        byte[] bytes = response.toString().getBytes(StandardCharsets.UTF_8);
+        codec.setResponse(bytes, 0, bytes.length);
+        codec.decodeResponse();
+    }
+}
@@ -0,0 +1,125 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.lang.reflect.Constructor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class WorldStateTest {
+    private WorldState world;
+
+    //a world of its own per test, rather than the shared instance
+    @BeforeEach
+    public void createWorld() throws ReflectiveOperationException{
+        Constructor<WorldState> constructor = WorldState.class.getDeclaredConstructor();
+        constructor.setAccessible(true);
+        world = constructor.newInstance();
+    }
+
+    @Test
+    public void snapshotHoldsTheLatestStateOfLiveVehiclesInAutoIdOrder(){
+        world.publish(3000, 10, 44.3, -76.3, 30, 90); //in a later segment than the others
+        world.publish(7, 20, 44.1, -76.1, 10, 45);
+        world.publish(0, 30, 44.0, -76.0, 0, 0);
+        world.publish(7, 40, 44.2, -76.2, 20, 180);
+
+        WorldState.Snapshot snapshot = world.snapshot();
+        assertEquals(3, snapshot.size());
+        assertEquals(0, snapshot.getAutoId(0));
+        assertEquals(7, snapshot.getAutoId(1));
+        assertEquals(3000, snapshot.getAutoId(2));
+
+        assertEquals(40, snapshot.getTime(1));
+        assertEquals(44.2, snapshot.getLatitude(1), 0);
+        assertEquals(-76.2, snapshot.getLongitude(1), 0);
+        assertEquals(20, snapshot.getSpeed(1), 0);
+        assertEquals(180, snapshot.getHeading(1), 0);
+        assertEquals((0 + 20 + 30) / 3.0, snapshot.getMeanSpeed(), 1e-12);
+    }
+
+    @Test
+    public void vehiclesThatLeftAreNotInSnapshots(){
+        world.publish(1, 10, 44.1, -76.1, 10, 0);
+        world.publish(2, 10, 44.2, -76.2, 10, 0);
+        world.leave(1);
+        world.leave(5); //never published
+
+        WorldState.Snapshot snapshot = world.snapshot();
+        assertEquals(1, snapshot.size());
+        assertEquals(2, snapshot.getAutoId(0));
+
+        world.publish(1, 20, 44.1, -76.1, 10, 0); //rejoins
+        assertEquals(2, world.snapshot(snapshot).size());
+    }
+
+    @Test
+    public void vehiclesWithoutAnAutoIdAreIgnored(){
+        world.publish(-1, 10, 44.1, -76.1, 10, 0);
+        world.leave(-1);
+        assertEquals(0, world.snapshot().size());
+    }
+
+    @Test
+    public void reusedSnapshotsGrowAndAreReplaced(){
+        for(int autoId = 0; autoId < 600; autoId++) world.publish(autoId, autoId, 44, -76, autoId, 0);
+        WorldState.Snapshot snapshot = world.snapshot();
+        assertEquals(600, snapshot.size());
+
+        for(int autoId = 0; autoId < 600; autoId += 2) world.leave(autoId);
+        world.snapshot(snapshot);
+        assertEquals(300, snapshot.size());
+        for(int i = 0; i < snapshot.size(); i++){
+            assertEquals(2 * i + 1, snapshot.getAutoId(i));
+            assertEquals(2 * i + 1, snapshot.getSpeed(i), 0);
+        }
+    }
+
+    @Test
+    public void neighboursAreTheVehiclesWithinTheRadius(){
+        world.publish(1, 0, 44.0, -76.0, 0, 0);
+        world.publish(2, 0, 44.001, -76.0, 0, 0); //111 m away
+        world.publish(3, 0, 44.0, -76.01, 0, 0); //1.11 km away
+        int[] neighbours = new int[4];
+
+        int found = world.snapshot().neighbours(44.0, -76.0, 0.5, neighbours);
+        assertEquals(2, found);
+        assertEquals(1, neighbours[0]);
+        assertEquals(2, neighbours[1]);
+    }
+
+    //Readers running alongside a publishing vehicle only ever see the whole state of one of its ticks
+    @Test
+    public void readersNeverSeeHalfWrittenState() throws InterruptedException{
+        int ticks = 200_000;
+        AtomicBoolean done = new AtomicBoolean();
+        AtomicReference<String> torn = new AtomicReference<>();
+
+        Thread vehicle = new Thread(() -> {
+            for(int tick = 1; tick <= ticks; tick++) world.publish(42, tick, tick, -tick, 2.0 * tick, tick % 360);
+            done.set(true);
+        });
+        Thread reader = new Thread(() -> {
+            WorldState.Snapshot snapshot = new WorldState.Snapshot();
+            while(!done.get() && torn.get() == null){
+                world.snapshot(snapshot);
+                if(snapshot.size() == 0) continue;
+                int tick = snapshot.getTime(0);
+                if(snapshot.getLatitude(0) != tick || snapshot.getLongitude(0) != -tick
+                        || snapshot.getSpeed(0) != 2.0 * tick || snapshot.getHeading(0) != tick % 360){
+                    torn.set("tick " + tick + " read as " + snapshot.getLatitude(0) + ", " + snapshot.getLongitude(0) + ", "
+                            + snapshot.getSpeed(0) + ", " + snapshot.getHeading(0));
+                }
+            }
+        });
+        reader.start();
+        vehicle.start();
+        vehicle.join();
+        reader.join();
+
+        assertNull(torn.get());
+        assertEquals(ticks, world.snapshot().getTime(0));
+    }
+}
@@ -0,0 +1,85 @@
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+//SIMD implementation of GeometryKernels on the JDK Vector API. Lives outside src because it must be compiled and run
+//with --add-modules jdk.incubator.vector; GeometryKernels.get() picks it up reflectively when it is on the classpath.
+//Tails shorter than a full vector are computed one element at a time, as in the scalar kernels.
+public class VectorGeometryKernels extends GeometryKernels {
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+    private static final double EARTH_RADIUS_KM = 6371.0088;
+    private static final double DEGREES_IN_RADIAN = 180 / Math.PI;
+    private static final double RADIANS_IN_DEGREE = Math.PI / 180;
+
+    public VectorGeometryKernels(){
+        //fail at construction rather than first use if the module is not actually available
+        DoubleVector.zero(SPECIES);
+    }
+
+    @Override
+    public boolean isVectorized(){
+        return true;
+    }
+
+    @Override
+    public void distances(double latitude, double longitude, double[] latitudes, double[] longitudes, int from, int to, double[] out){
+        int i = from;
+        for(int bound = from + SPECIES.loopBound(to - from); i < bound; i += SPECIES.length()){
+            DoubleVector x = DoubleVector.fromArray(SPECIES, latitudes, i).sub(latitude).mul(Coordinate.KM_IN_DEGREE);
+            DoubleVector y = DoubleVector.fromArray(SPECIES, longitudes, i).sub(longitude).mul(Coordinate.KM_IN_DEGREE);
+            x.mul(x).add(y.mul(y)).lanewise(VectorOperators.SQRT).intoArray(out, i - from);
+        }
+        for(; i < to; i++){
+            double x = Coordinate.KM_IN_DEGREE * (latitudes[i] - latitude);
+            double y = Coordinate.KM_IN_DEGREE * (longitudes[i] - longitude);
+            out[i - from] = Math.sqrt(x * x + y * y);
+        }
+    }
+
+    @Override
+    public void pairwiseDistances(double[] latitudes, double[] longitudes, int from, int to, double[] out){
+        int n = to - from;
+        double[] row = new double[n];
+        for(int i = from; i < to; i++){
+            distances(latitudes[i], longitudes[i], latitudes, longitudes, from, to, row);
+            System.arraycopy(row, 0, out, (i - from) * n, n);
+        }
+    }
+
+    @Override
+    public void headings(double[] latitudes, double[] longitudes, int from, int to, double[] out){
+        int i = from;
+        for(int bound = from + SPECIES.loopBound(Math.max(0, to - 1 - from)); i < bound; i += SPECIES.length()){
+            DoubleVector x = DoubleVector.fromArray(SPECIES, latitudes, i + 1).sub(DoubleVector.fromArray(SPECIES, latitudes, i));
+            DoubleVector y = DoubleVector.fromArray(SPECIES, longitudes, i + 1).sub(DoubleVector.fromArray(SPECIES, longitudes, i));
+            DoubleVector angle = y.div(x).lanewise(VectorOperators.ATAN).mul(DEGREES_IN_RADIAN);
+            angle = angle.add(360, angle.compare(VectorOperators.LT, 0));
+
+            VectorMask<Double> samePoint = x.compare(VectorOperators.EQ, 0).and(y.compare(VectorOperators.EQ, 0));
+            angle.blend(0, samePoint).intoArray(out, i - from);
+        }
+        for(; i < to - 1; i++){
+            out[i - from] = heading(latitudes[i], longitudes[i], latitudes[i + 1], longitudes[i + 1]);
+        }
+    }
+
+    @Override
+    public void haversineDistances(double latitude, double longitude, double[] latitudes, double[] longitudes, int from, int to, double[] out){
+        double latitudeRadians = latitude * RADIANS_IN_DEGREE;
+        double cosLatitude = Math.cos(latitudeRadians);
+        int i = from;
+        for(int bound = from + SPECIES.loopBound(to - from); i < bound; i += SPECIES.length()){
+            DoubleVector toLatitudes = DoubleVector.fromArray(SPECIES, latitudes, i).mul(RADIANS_IN_DEGREE);
+            DoubleVector sinHalfLatitude = toLatitudes.sub(latitudeRadians).div(2).lanewise(VectorOperators.SIN);
+            DoubleVector sinHalfLongitude = DoubleVector.fromArray(SPECIES, longitudes, i).sub(longitude)
+                    .mul(RADIANS_IN_DEGREE / 2).lanewise(VectorOperators.SIN);
+            DoubleVector a = sinHalfLatitude.mul(sinHalfLatitude)
+                    .add(toLatitudes.lanewise(VectorOperators.COS).mul(cosLatitude).mul(sinHalfLongitude).mul(sinHalfLongitude));
+            a.lanewise(VectorOperators.SQRT).min(1).lanewise(VectorOperators.ASIN).mul(2 * EARTH_RADIUS_KM).intoArray(out, i - from);
+        }
+        for(; i < to; i++){
+            out[i - from] = haversineDistance(latitude, longitude, latitudes[i], longitudes[i]);
+        }
+    }
+}
@@ -0,0 +1,223 @@
+import java.io.IOException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.HttpEntityEnclosingRequestBase;
+import org.apache.http.client.methods.HttpPatch;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.impl.nio.client.HttpAsyncClients;
+import org.apache.http.impl.nio.conn.PoolingNHttpClientConnectionManager;
+import org.apache.http.impl.nio.reactor.DefaultConnectingIOReactor;
+import org.apache.http.impl.nio.reactor.IOReactorConfig;
+import org.apache.http.nio.IOControl;
+import org.apache.http.nio.client.methods.AsyncByteConsumer;
+import org.apache.http.nio.client.methods.HttpAsyncMethods;
+import org.apache.http.nio.reactor.IOReactorException;
+import org.apache.http.protocol.HttpContext;
+
+//Non-blocking counterpart of HttpTransport, used when the simulation is launched with -Dautoconnect.io=async.
+//Requests go through Apache's NIO client: a handful of I/O reactor threads (-Dautoconnect.async.threads) multiplex
+//every vehicle's connections, and no thread waits on a response, so the number of vehicles is bounded by the server
+//rather than by threads.
+//
+//At most -Dautoconnect.async.maxInFlight requests are outstanding at once across all vehicles; further requests wait
+//in a FIFO queue and are sent as earlier ones complete. Each vehicle only issues its next request from the completion
+//of the previous one, so a vehicle's own requests are never reordered (eg. /updateconnect cannot overtake /initconnect).
+//Timeouts reuse the -Dautoconnect.http.* settings of HttpTransport.
+public class AsyncHttpTransport {
+    private static final String IO_MODE_PROPERTY = "autoconnect.io";
+    private static final int MAX_IN_FLIGHT = Integer.getInteger("autoconnect.async.maxInFlight", 1024);
+    private static final int IO_THREADS = Integer.getInteger("autoconnect.async.threads", Math.max(1, Runtime.getRuntime().availableProcessors() / 2));
+    private static final int CONNECT_TIMEOUT_MS = Integer.getInteger("autoconnect.http.connectTimeout", 2000);
+    private static final int SOCKET_TIMEOUT_MS = Integer.getInteger("autoconnect.http.socketTimeout", 5000);
+    private static final int POOL_WAIT_TIMEOUT_MS = Integer.getInteger("autoconnect.http.poolTimeout", 5000);
+
+    private static final ContentType JSON_CONTENT = ContentType.create("application/json", java.nio.charset.StandardCharsets.UTF_8);
+    private static final boolean ENABLED = System.getProperty(IO_MODE_PROPERTY, "blocking").equalsIgnoreCase("async");
+
+    private final CloseableHttpAsyncClient httpClient;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final ConcurrentLinkedQueue<PendingRequest> waiting = new ConcurrentLinkedQueue<>();
+    private final Map<String, URI> endpointUris = new ConcurrentHashMap<>();
+
+    private AsyncHttpTransport(){
+        IOReactorConfig reactorConfig = IOReactorConfig.custom()
+                .setIoThreadCount(IO_THREADS)
+                .setTcpNoDelay(true)
+                .setSoKeepAlive(true)
+                .build();
+        PoolingNHttpClientConnectionManager connectionManager;
+        try{
+            connectionManager = new PoolingNHttpClientConnectionManager(new DefaultConnectingIOReactor(reactorConfig));
+        }catch (IOReactorException e){
+            throw new IllegalStateException("Asynchronous HTTP transport could not start --> " + e.getMessage(), e);
+        }
+        //every admitted request gets its own connection; the in-flight limit is what bounds them
+        connectionManager.setMaxTotal(MAX_IN_FLIGHT);
+        connectionManager.setDefaultMaxPerRoute(MAX_IN_FLIGHT);
+
+        RequestConfig requestConfig = RequestConfig.custom()
+                .setConnectTimeout(CONNECT_TIMEOUT_MS)
+                .setSocketTimeout(SOCKET_TIMEOUT_MS)
+                .setConnectionRequestTimeout(POOL_WAIT_TIMEOUT_MS)
+                .build();
+
+        httpClient = HttpAsyncClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(requestConfig)
+                .build();
+        httpClient.start();
+    }
+
+    //Whether vehicles should use this transport instead of the blocking HttpTransport
+    public static boolean isEnabled(){
+        return ENABLED;
+    }
+
+    public static AsyncHttpTransport getInstance(){
+        return Holder.INSTANCE;
+    }
+
+    //Sends the codec's encoded request. The response body is buffered in the codec before the returned future
+    //completes with the HTTP status code; it completes exceptionally with an IOException if the exchange failed.
+    //The codec must not be touched until then
+    public CompletableFuture<Integer> post(String endpoint, MessageBuffer codec){
+        return send(new HttpPost(uriOf(endpoint)), endpoint, codec);
+    }
+
+    public CompletableFuture<Integer> patch(String endpoint, MessageBuffer codec){
+        return send(new HttpPatch(uriOf(endpoint)), endpoint, codec);
+    }
+
+    public int getInFlight(){
+        return inFlight.get();
+    }
+
+    //Only call once every vehicle has finished
+    public void shutdown(){
+        try{
+            httpClient.close();
+        }catch (IOException e){
+            System.out.println("Asynchronous HTTP transport could not be closed cleanly --> " + e.getMessage());
+        }
+    }
+
+    private CompletableFuture<Integer> send(HttpEntityEnclosingRequestBase request, String endpoint, MessageBuffer codec){
+        request.setEntity(new ByteArrayEntity(codec.getRequestBuffer(), 0, codec.getRequestLength(), JSON_CONTENT));
+        PendingRequest pending = new PendingRequest(request, endpoint, codec);
+        waiting.add(pending);
+        admitWaitingRequests();
+        return pending.result;
+    }
+
+    //Sends queued requests, in FIFO order, for as long as there is room under the in-flight limit. Called both after a
+    //request is queued and after one completes, so a queued request can never be left behind
+    private void admitWaitingRequests(){
+        while(!waiting.isEmpty()){
+            int current = inFlight.get();
+            if(current >= MAX_IN_FLIGHT) return;
+            if(!inFlight.compareAndSet(current, current + 1)) continue;
+
+            PendingRequest pending = waiting.poll();
+            if(pending == null){
+                inFlight.decrementAndGet(); //another thread took it
+                continue;
+            }
+            try{
+                httpClient.execute(HttpAsyncMethods.create(pending.request), new CodecConsumer(pending.codec), pending);
+            }catch (RuntimeException e){
+                //eg. the I/O reactor has stopped: the request never took its slot, and must still complete
+                inFlight.decrementAndGet();
+                SimulationMetrics.getInstance().recordRequest(pending.endpoint, System.nanoTime() - pending.start, true);
+                pending.result.completeExceptionally(new IOException("Request to " + pending.request.getURI() + " could not be sent", e));
+            }
+        }
+    }
+
+    private URI uriOf(String endpoint){
+        String address = HttpTransport.getInstance().getServerAddress();
+        return endpointUris.computeIfAbsent(address + endpoint, URI::create);
+    }
+
+    private static class Holder {
+        private static final AsyncHttpTransport INSTANCE = new AsyncHttpTransport();
+    }
+
+    //A request waiting for, or occupying, an in-flight slot. Its callback releases the slot. Its latency includes any
+    //time spent waiting for a slot
+    private class PendingRequest implements FutureCallback<Integer> {
+        private final HttpEntityEnclosingRequestBase request;
+        private final String endpoint;
+        private final MessageBuffer codec;
+        private final long start = System.nanoTime();
+        private final CompletableFuture<Integer> result = new CompletableFuture<>();
+
+        private PendingRequest(HttpEntityEnclosingRequestBase request, String endpoint, MessageBuffer codec){
+            this.request = request;
+            this.endpoint = endpoint;
+            this.codec = codec;
+        }
+
+        @Override
+        public void completed(Integer statusCode){
+            release();
+            SimulationMetrics.getInstance().recordRequest(endpoint, System.nanoTime() - start, statusCode >= HttpStatus.SC_BAD_REQUEST);
+            result.complete(statusCode);
+        }
+
+        @Override
+        public void failed(Exception e){
+            release();
+            SimulationMetrics.getInstance().recordRequest(endpoint, System.nanoTime() - start, true);
+            result.completeExceptionally(e instanceof IOException ? e : new IOException(e));
+        }
+
+        @Override
+        public void cancelled(){
+            failed(new IOException("Request to " + request.getURI() + " was cancelled"));
+        }
+
+        private void release(){
+            inFlight.decrementAndGet();
+            admitWaitingRequests();
+        }
+    }
+
+    //Streams the response body straight into the requester's buffer, and yields the status code
+    private static class CodecConsumer extends AsyncByteConsumer<Integer> {
+        private final MessageBuffer codec;
+        private int statusCode;
+
+        private CodecConsumer(MessageBuffer codec){
+            this.codec = codec;
+        }
+
+        @Override
+        protected void onResponseReceived(HttpResponse response){
+            statusCode = response.getStatusLine().getStatusCode();
+            codec.clearResponse();
+        }
+
+        @Override
+        protected void onByteReceived(ByteBuffer chunk, IOControl ioControl){
+            codec.appendResponse(chunk);
+        }
+
+        @Override
+        protected Integer buildResult(HttpContext context){
+            return statusCode;
+        }
+    }
+}
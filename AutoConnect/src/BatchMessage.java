@@ -0,0 +1,139 @@
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import org.json.JSONException;
+
+//One batched exchange with the server: the already encoded requests of several vehicles, sent as a single body, and the
+//response that is split back into the vehicles' own codecs.
+//
+//Contract of the /batch/* endpoints:
+//  request   {"<items>":[<request 1>,<request 2>,...]}
+//  response  200 {"Results":[{"Code":<status 1>,"Body":<response 1>},...]}
+//Each request is exactly the body its vehicle would send to the single endpoint, and results come back in the same
+//order, each with the HTTP status and body the single endpoint would have answered with. That way a vehicle handles
+//its share of a batch with the same code as an unbatched response.
+public class BatchMessage extends MessageBuffer {
+    private static final byte[] RESULTS_NAME = "Results".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] CODE_NAME = "Code".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] BODY_NAME = "Body".getBytes(StandardCharsets.US_ASCII);
+
+    private final List<VehicleMessageCodec> items;
+    private final int[] statusCodes;
+    private int resultCount;
+
+    //Concatenates the requests currently encoded in each codec under the given field name
+    public BatchMessage(String itemsName, List<VehicleMessageCodec> items){
+        this.items = items;
+        this.statusCodes = new int[items.size()];
+
+        byte[] opening = ("{\"" + itemsName + "\":[").getBytes(StandardCharsets.US_ASCII);
+        writeBytes(opening, 0, opening.length);
+        for(int i = 0; i < items.size(); i++){
+            if(i > 0) writeByte(',');
+            VehicleMessageCodec item = items.get(i);
+            writeBytes(item.getRequestBuffer(), 0, item.getRequestLength());
+        }
+        writeByte(']');
+        writeByte('}');
+    }
+
+    public int size(){
+        return items.size();
+    }
+
+    //Scans the buffered response and copies each result's body into the codec of the request it answers. Returns how
+    //many results were found; items beyond that count got no answer
+    public int distributeResults(){
+        resultCount = 0;
+        position = 0;
+        skipWhitespace();
+        expect('{');
+        skipWhitespace();
+        if(peek() == '}') return 0;
+        while(true){
+            skipWhitespace();
+            expect('"');
+            int nameOffset = position;
+            skipStringContent();
+            int nameLength = position - 1 - nameOffset;
+            skipWhitespace();
+            expect(':');
+            skipWhitespace();
+
+            if(nameEquals(nameOffset, nameLength, RESULTS_NAME)) readResults();
+            else skipValue();
+
+            skipWhitespace();
+            byte b = next();
+            if(b == '}') return resultCount;
+            if(b != ',') throw malformed("expected ',' or '}'");
+        }
+    }
+
+    //HTTP status the single endpoint would have returned for item i; only valid for i < distributeResults()
+    public int getStatusCode(int i){
+        return statusCodes[i];
+    }
+
+    private void readResults(){
+        expect('[');
+        skipWhitespace();
+        if(peek() == ']'){
+            position++;
+            return;
+        }
+        while(true){
+            skipWhitespace();
+            readResult();
+            skipWhitespace();
+            byte b = next();
+            if(b == ']') return;
+            if(b != ',') throw malformed("expected ',' or ']'");
+        }
+    }
+
+    private void readResult(){
+        if(resultCount >= items.size()) throw malformed("more results than requests");
+        int code = -1;
+        int bodyOffset = -1;
+        int bodyLength = 0;
+
+        expect('{');
+        skipWhitespace();
+        if(peek() != '}'){
+            while(true){
+                skipWhitespace();
+                expect('"');
+                int nameOffset = position;
+                skipStringContent();
+                int nameLength = position - 1 - nameOffset;
+                skipWhitespace();
+                expect(':');
+                skipWhitespace();
+
+                if(nameEquals(nameOffset, nameLength, CODE_NAME)){
+                    code = readInt();
+                }else if(nameEquals(nameOffset, nameLength, BODY_NAME)){
+                    bodyOffset = position;
+                    skipValue();
+                    bodyLength = position - bodyOffset;
+                }else{
+                    skipValue();
+                }
+
+                skipWhitespace();
+                byte b = next();
+                if(b == '}') break;
+                if(b != ',') throw malformed("expected ',' or '}'");
+            }
+        }else{
+            position++;
+        }
+        if(code < 0) throw new JSONException("JSONObject[\"Code\"] not found.");
+
+        VehicleMessageCodec item = items.get(resultCount);
+        if(bodyOffset < 0) item.clearResponse();
+        else item.setResponse(response, bodyOffset, bodyLength);
+        statusCodes[resultCount++] = code;
+    }
+}
@@ -0,0 +1,68 @@
+//Client-side cache of a vehicle's beta candidates, enabled with -Dautoconnect.betaCache=true.
+//
+//Candidates fetched from /getbetas are reused at later ticks, instead of being asked for again, until they are likely
+//to be stale: once -Dautoconnect.betaCache.ttl seconds (default 3) have passed since they were fetched, the vehicle
+//has travelled more than -Dautoconnect.betaCache.distance metres (default 30), or its heading has turned by more
+//than -Dautoconnect.betaCache.heading degrees (default 20), whichever comes first. The vehicle can't see how its
+//candidates move, so the TTL is what bounds how far they may have drifted meanwhile.
+//
+//Distance and heading come from the vehicle's getSpeed and getDirection: the distance travelled is the speed at
+//each tick integrated over the time to the next one. A vehicle standing still has no direction (getDirection is 0),
+//so heading changes are only compared while it moves. Hits and misses are counted in SimulationMetrics.
+public class BetaCandidateCache {
+    private static final boolean ENABLED = Boolean.getBoolean("autoconnect.betaCache");
+    private static final double TTL_SECONDS = Double.parseDouble(System.getProperty("autoconnect.betaCache.ttl", "3"));
+    private static final double DISTANCE_THRESHOLD_KM = Double.parseDouble(System.getProperty("autoconnect.betaCache.distance", "30")) / 1000;
+    private static final double HEADING_THRESHOLD = Double.parseDouble(System.getProperty("autoconnect.betaCache.heading", "20"));
+    private static final double MILLIS_IN_HOUR = 3600.0 * SimulationTime.MILLIS_IN_SECOND;
+    private static final int TTL = SimulationTime.fromSeconds(TTL_SECONDS);
+
+    //state since the candidates were fetched, in SimulationTime milliseconds, km/h, km and degrees
+    private boolean filled = false;
+    private int filledTime;
+    private double filledDirection;
+    private int lastTime;
+    private double lastSpeed;
+    private double travelled;
+
+    public static boolean isEnabled(){
+        return ENABLED;
+    }
+
+    //Whether the candidates fetched last still hold for the vehicle at time, moving at speed towards direction. If not,
+    //the caller fetches new ones and calls filled()
+    public boolean isFresh(int time, double speed, double direction){
+        if(!filled){
+            SimulationMetrics.getInstance().recordBetaCacheMiss();
+            return false;
+        }
+
+        travelled += lastSpeed * (time - lastTime) / MILLIS_IN_HOUR;
+        lastTime = time;
+        lastSpeed = speed;
+
+        boolean fresh = time - filledTime < TTL && travelled <= DISTANCE_THRESHOLD_KM
+                && (speed == 0 || filledDirection < 0 || headingChange(filledDirection, direction) <= HEADING_THRESHOLD);
+        if(fresh){
+            SimulationMetrics.getInstance().recordBetaCacheHit();
+        }else{
+            SimulationMetrics.getInstance().recordBetaCacheMiss();
+        }
+        return fresh;
+    }
+
+    //Remembers the vehicle's state when its candidates were fetched
+    public void filled(int time, double speed, double direction){
+        filled = true;
+        filledTime = time;
+        filledDirection = speed == 0 ? -1 : direction; //no heading to compare against while standing still
+        lastTime = time;
+        lastSpeed = speed;
+        travelled = 0;
+    }
+
+    private static double headingChange(double from, double to){
+        double change = Math.abs(to - from) % 360;
+        return Math.min(change, 360 - change);
+    }
+}
@@ -0,0 +1,232 @@
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import org.json.JSONException;
+
+//Codec of the binary wire protocol spoken by BinaryTransport and the frame listener of LocalAutoConnectServer. It
+//carries the same messages as VehicleMessageCodec, in fixed-layout frames instead of JSON: numbers are sent as raw
+//big-endian ints, longs and doubles, and fields every message of a kind has are identified by position, not by name.
+//
+//Request frame:   int length (of the rest of the frame), int request id, byte opcode, then by opcode
+//  INIT_CONNECT     short VIN length, VIN (UTF-8), double PositionX, PositionY, DestinationX, DestinationY, Speed,
+//                   Direction, long Time (ms since the epoch)
+//  UPDATE_CONNECT   int AutoId, double PositionX, PositionY, DestinationX, DestinationY, Speed, Direction, long Time
+//  TERMINATE        int AutoId
+//  GET_BETAS        int AutoId, double PositionX, PositionY, Speed, Direction, long Time, double ConnectionRadius,
+//                   int BetaBound
+//Response frame:  int length, int request id (of the request answered), short status (as the HTTP status code of
+//                 the JSON endpoint), byte fields present, then those fields in this order:
+//  AUTO_ID          int AutoId
+//  TIME_CHECK       double TimeCheck
+//  STATUS_TEXT      short length, Status (UTF-8); not sent for a Status of "Success", which is the SUCCESS bit
+//  PRIORITY_MATRIX  short count, count ints
+//
+//The request id is filled in by the transport. Responses are handed to the codec from the fields byte onwards.
+public class BinaryMessageCodec extends VehicleMessageCodec {
+    public static final int FRAME_HEADER_SIZE = 8; //length and request id
+    public static final int RESPONSE_HEADER_SIZE = FRAME_HEADER_SIZE + 2; //and status
+    public static final int MAX_FRAME_SIZE = 1 << 20;
+
+    public static final byte INIT_CONNECT = 1;
+    public static final byte UPDATE_CONNECT = 2;
+    public static final byte TERMINATE = 3;
+    public static final byte GET_BETAS = 4;
+
+    public static final int AUTO_ID = 1;
+    public static final int TIME_CHECK = 1 << 1;
+    public static final int SUCCESS = 1 << 2;
+    public static final int STATUS_TEXT = 1 << 3;
+    public static final int PRIORITY_MATRIX = 1 << 4;
+
+    private boolean success;
+
+    @Override
+    public void encodeInitConnect(String vin, double positionX, double positionY, double destinationX, double destinationY,
+                                  double speed, double direction, long timeMillis){
+        setRequester(vin, -1);
+        beginFrame(INIT_CONNECT);
+        byte[] vinBytes = vin.getBytes(StandardCharsets.UTF_8);
+        writeShort(vinBytes.length);
+        writeBytes(vinBytes, 0, vinBytes.length);
+        writeDouble(positionX);
+        writeDouble(positionY);
+        writeDouble(destinationX);
+        writeDouble(destinationY);
+        writeDouble(speed);
+        writeDouble(direction);
+        writeLong(timeMillis);
+        endFrame();
+    }
+
+    @Override
+    public void encodeUpdate(int autoId, double positionX, double positionY, double destinationX, double destinationY,
+                             double speed, double direction, long timeMillis){
+        setRequester(null, autoId);
+        beginFrame(UPDATE_CONNECT);
+        writeInt(autoId);
+        writeDouble(positionX);
+        writeDouble(positionY);
+        writeDouble(destinationX);
+        writeDouble(destinationY);
+        writeDouble(speed);
+        writeDouble(direction);
+        writeLong(timeMillis);
+        endFrame();
+    }
+
+    @Override
+    public void encodeTermination(int autoId){
+        setRequester(null, autoId);
+        beginFrame(TERMINATE);
+        writeInt(autoId);
+        endFrame();
+    }
+
+    @Override
+    public void encodeBetaRequest(int autoId, double positionX, double positionY, double speed, double direction,
+                                  long timeMillis, double connectionRadius, int betaBound){
+        setRequester(null, autoId);
+        beginFrame(GET_BETAS);
+        writeInt(autoId);
+        writeDouble(positionX);
+        writeDouble(positionY);
+        writeDouble(speed);
+        writeDouble(direction);
+        writeLong(timeMillis);
+        writeDouble(connectionRadius);
+        writeInt(betaBound);
+        endFrame();
+    }
+
+    @Override
+    public void decodeResponse(){
+        hasAutoId = false;
+        hasTimeCheck = false;
+        success = false;
+        statusOffset = -1;
+        priorityMatrixLength = -1;
+
+        position = 0;
+        int fields = readUnsignedByte();
+        if((fields & AUTO_ID) != 0){
+            autoId = readInt32();
+            hasAutoId = true;
+        }
+        if((fields & TIME_CHECK) != 0){
+            timeCheck = Double.longBitsToDouble(readInt64());
+            hasTimeCheck = true;
+        }
+        if((fields & SUCCESS) != 0){
+            success = true;
+        }else if((fields & STATUS_TEXT) != 0){
+            statusLength = readUint16();
+            statusOffset = position;
+            skip(statusLength);
+        }
+        if((fields & PRIORITY_MATRIX) != 0){
+            int count = readUint16();
+            if(count > priorityMatrix.length) priorityMatrix = Arrays.copyOf(priorityMatrix, Math.max(count, priorityMatrix.length * 2));
+            for(int i = 0; i < count; i++) priorityMatrix[i] = readInt32();
+            priorityMatrixLength = count;
+        }
+        if(position != responseLength) throw malformed("unexpected trailing bytes");
+    }
+
+    @Override
+    public boolean isSuccess(){
+        return success || super.isSuccess();
+    }
+
+    @Override
+    public String getStatus(){
+        return success ? "Success" : super.getStatus();
+    }
+
+    //Request id of the frame encoded last, as set by the transport
+    public void setRequestId(int requestId){
+        putInt(request, 4, requestId);
+    }
+
+    public static void putInt(byte[] buffer, int offset, int value){
+        buffer[offset] = (byte) (value >>> 24);
+        buffer[offset + 1] = (byte) (value >>> 16);
+        buffer[offset + 2] = (byte) (value >>> 8);
+        buffer[offset + 3] = (byte) value;
+    }
+
+    public static int getInt(byte[] buffer, int offset){
+        return (buffer[offset] & 0xff) << 24 | (buffer[offset + 1] & 0xff) << 16
+                | (buffer[offset + 2] & 0xff) << 8 | buffer[offset + 3] & 0xff;
+    }
+
+    public static int getUnsignedShort(byte[] buffer, int offset){
+        return (buffer[offset] & 0xff) << 8 | buffer[offset + 1] & 0xff;
+    }
+
+    //---- encoding ----
+
+    private void beginFrame(byte opcode){
+        clearRequest();
+        ensureRequestCapacity(FRAME_HEADER_SIZE);
+        requestLength = FRAME_HEADER_SIZE; //filled in by endFrame and the transport
+        writeByte(opcode);
+    }
+
+    private void endFrame(){
+        putInt(request, 0, requestLength - 4);
+    }
+
+    private void writeShort(int value){
+        if(value > 0xffff) throw new JSONException("Field of " + value + " bytes is too long for a binary frame");
+        writeByte(value >>> 8);
+        writeByte(value);
+    }
+
+    private void writeInt(int value){
+        ensureRequestCapacity(4);
+        putInt(request, requestLength, value);
+        requestLength += 4;
+    }
+
+    private void writeLong(long value){
+        writeInt((int) (value >>> 32));
+        writeInt((int) value);
+    }
+
+    private void writeDouble(double value){
+        writeLong(Double.doubleToLongBits(value));
+    }
+
+    //---- decoding ----
+
+    private int readUnsignedByte(){
+        return next() & 0xff;
+    }
+
+    private int readUint16(){
+        require(2);
+        int value = getUnsignedShort(response, position);
+        position += 2;
+        return value;
+    }
+
+    private int readInt32(){
+        require(4);
+        int value = getInt(response, position);
+        position += 4;
+        return value;
+    }
+
+    private long readInt64(){
+        return (long) readInt32() << 32 | readInt32() & 0xffffffffL;
+    }
+
+    private void skip(int length){
+        require(length);
+        position += length;
+    }
+
+    private void require(int length){
+        if(position + length > responseLength) throw malformed("unexpected end of response");
+    }
+}
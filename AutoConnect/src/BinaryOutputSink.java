@@ -0,0 +1,102 @@
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+//Compact binary form of the simulation output, streamed to disk in event order with no per-vehicle buffering.
+//
+//Layout (big-endian):
+//  header   magic int, version int
+//  records  kind byte, then
+//             JOINED      AutoConnectId int, VIN length short, VIN bytes (UTF-8)
+//             CONNECTION  AutoConnectId int, time stamp int (SimulationTime milliseconds), candidate count short,
+//                         candidate AutoConnectIds int[count]
+//             LEFT        AutoConnectId int
+//
+//replay() feeds a recorded file back into another sink, eg. to produce the text layout after the run.
+public class BinaryOutputSink extends FileOutputSink {
+    private static final int MAGIC = 0x4143534F; //"ACSO"
+    private static final int VERSION = 2;
+    private static final byte JOINED = 1;
+    private static final byte CONNECTION = 2;
+    private static final byte LEFT = 3;
+
+    public BinaryOutputSink(String file) throws IOException{
+        super(file);
+        buffer.putInt(MAGIC);
+        buffer.putInt(VERSION);
+    }
+
+    @Override
+    public void vehicleJoined(String vin, int autoId) throws IOException{
+        byte[] vinBytes = vin.getBytes(StandardCharsets.UTF_8);
+        ensureRoom(1 + 4 + 2);
+        buffer.put(JOINED);
+        buffer.putInt(autoId);
+        buffer.putShort((short) vinBytes.length);
+        write(vinBytes, 0, vinBytes.length);
+    }
+
+    @Override
+    public void connection(int autoId, int time, int[] candidates, int count) throws IOException{
+        ensureRoom(1 + 4 + 4 + 2);
+        buffer.put(CONNECTION);
+        buffer.putInt(autoId);
+        buffer.putInt(time);
+        buffer.putShort((short) count);
+        for(int i = 0; i < count; i++){
+            ensureRoom(4);
+            buffer.putInt(candidates[i]);
+        }
+    }
+
+    @Override
+    public void vehicleLeft(int autoId) throws IOException{
+        ensureRoom(1 + 4);
+        buffer.put(LEFT);
+        buffer.putInt(autoId);
+    }
+
+    //Sends every event of a recorded binary output to sink, in the order they were recorded, then closes the sink
+    public static void replay(String binaryFile, OutputSink sink) throws IOException, AutoConnectException{
+        try(DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(binaryFile), 1 << 16))){
+            if(in.readInt() != MAGIC || in.readInt() != VERSION){
+                throw new AutoConnectException(binaryFile + " is not a binary simulation output of version " + VERSION + "!");
+            }
+
+            int[] candidates = new int[16];
+            while(true){
+                int kind = in.read();
+                if(kind == -1) break;
+                int autoId = in.readInt();
+                if(kind == JOINED){
+                    byte[] vin = new byte[in.readUnsignedShort()];
+                    in.readFully(vin);
+                    sink.vehicleJoined(new String(vin, StandardCharsets.UTF_8), autoId);
+                }else if(kind == CONNECTION){
+                    int time = in.readInt();
+                    int count = in.readUnsignedShort();
+                    if(count > candidates.length) candidates = new int[count];
+                    for(int i = 0; i < count; i++) candidates[i] = in.readInt();
+                    sink.connection(autoId, time, candidates, count);
+                }else if(kind == LEFT){
+                    sink.vehicleLeft(autoId);
+                }else{
+                    throw new AutoConnectException(binaryFile + " has an unknown record kind " + kind + "!");
+                }
+            }
+        }catch (EOFException e){
+            throw new AutoConnectException(binaryFile + " ends in the middle of a record!");
+        }finally{
+            sink.close();
+        }
+    }
+
+    //Usage: BinaryOutputSink <binary output> <text output>
+    public static void main(String[] args) throws IOException, AutoConnectException{
+        replay(args[0], new TextOutputSink(args[1]));
+        System.out.println("Converted " + args[0] + " to " + args[1] + "\n");
+    }
+}
@@ -0,0 +1,177 @@
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+//Compact, indexed binary form of a traffic trace, so that coordinates don't have to be re-parsed from text on every run.
+//
+//Layout (big-endian):
+//  header  magic int, version int, vehicle count int, index offset long
+//  data    per vehicle: time int[n], latitude double[n], longitude double[n]
+//  index   per vehicle: starting time int, sample count int, data offset long
+//
+//Times are SimulationTime milliseconds (version 1 stored float seconds, and is converted again from the CSV).
+//
+//The index is written last so that the converter can stream vehicles out as the CSV is read. Opening a trace
+//memory-maps it and only reads the index; a vehicle's columns are copied out of the mapping on demand.
+public class BinaryTrace {
+    private static final int MAGIC = 0x41435452; //"ACTR"
+    private static final int VERSION = 2;
+    private static final int HEADER_SIZE = 4 + 4 + 4 + 8;
+    private static final int INDEX_ENTRY_SIZE = 4 + 4 + 8;
+    private static final int SAMPLE_SIZE = 4 + 8 + 8;
+    private static final long MAX_SEGMENT_SIZE = 1L << 30; //a single mapping can't exceed 2GB, so larger traces are mapped in segments
+
+    private final int[] startingTimes;
+    private final int[] sampleCounts;
+    private final int[] segmentOfVehicle;
+    private final int[] offsetInSegment;
+    private final List<MappedByteBuffer> segments = new ArrayList<>();
+
+    //Converts a CSV trace (Trajectory ID, Vehicle ID, Time Stamp, Latitude, Longitude) into the binary layout
+    public static int convert(String csvFile, String binaryFile) throws IOException, AutoConnectException{
+        List<Integer> startingTimes = new ArrayList<>();
+        List<Integer> sampleCounts = new ArrayList<>();
+        List<Long> dataOffsets = new ArrayList<>();
+        long[] position = {HEADER_SIZE};
+
+        try(DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(binaryFile), 1 << 16))){
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(0);  //vehicle count, patched below
+            out.writeLong(0); //index offset, patched below
+
+            new TrafficTraceReader(csvFile, Integer.MAX_VALUE, (id, route) -> {
+                int samples = route.length();
+                startingTimes.add(route.isEmpty() ? 0 : route.getTime(0));
+                sampleCounts.add(samples);
+                dataOffsets.add(position[0]);
+                for(int i=0; i<samples; i++) out.writeInt(route.getTime(i));
+                for(int i=0; i<samples; i++) out.writeDouble(route.getLatitude(i));
+                for(int i=0; i<samples; i++) out.writeDouble(route.getLongitude(i));
+                position[0] += (long) samples * SAMPLE_SIZE;
+            }).read();
+
+            for(int i=0; i<startingTimes.size(); i++){
+                out.writeInt(startingTimes.get(i));
+                out.writeInt(sampleCounts.get(i));
+                out.writeLong(dataOffsets.get(i));
+            }
+        }
+
+        try(RandomAccessFile header = new RandomAccessFile(binaryFile, "rw")){
+            header.seek(8);
+            header.writeInt(startingTimes.size());
+            header.writeLong(position[0]);
+        }
+        return startingTimes.size();
+    }
+
+    public static BinaryTrace open(String binaryFile) throws IOException, AutoConnectException{
+        return new BinaryTrace(binaryFile);
+    }
+
+    //Whether binaryFile is a binary trace this version can open, eg. to convert it again if not
+    public static boolean isCurrent(String binaryFile) throws IOException{
+        try(FileChannel channel = FileChannel.open(Paths.get(binaryFile), StandardOpenOption.READ)){
+            if(channel.size() < HEADER_SIZE) return false;
+            ByteBuffer header = ByteBuffer.allocate(8);
+            while(header.hasRemaining() && channel.read(header) >= 0);
+            return header.getInt(0) == MAGIC && header.getInt(4) == VERSION;
+        }
+    }
+
+    private BinaryTrace(String binaryFile) throws IOException, AutoConnectException{
+        try(FileChannel channel = FileChannel.open(Paths.get(binaryFile), StandardOpenOption.READ)){
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+            if(header.getInt(0) != MAGIC || header.getInt(4) != VERSION){
+                throw new AutoConnectException(String.format("%s is not a version %s binary traffic trace", binaryFile, VERSION));
+            }
+            int vehicles = header.getInt(8);
+            long indexOffset = header.getLong(12);
+
+            startingTimes = new int[vehicles];
+            sampleCounts = new int[vehicles];
+            segmentOfVehicle = new int[vehicles];
+            offsetInSegment = new int[vehicles];
+
+            MappedByteBuffer index = channel.map(FileChannel.MapMode.READ_ONLY, indexOffset, (long) vehicles * INDEX_ENTRY_SIZE);
+            long segmentStart = HEADER_SIZE;
+            long segmentEnd = HEADER_SIZE;
+            for(int i=0; i<vehicles; i++){
+                int entry = i * INDEX_ENTRY_SIZE;
+                startingTimes[i] = index.getInt(entry);
+                sampleCounts[i] = index.getInt(entry + 4);
+                long dataOffset = index.getLong(entry + 8);
+                long dataEnd = dataOffset + (long) sampleCounts[i] * SAMPLE_SIZE;
+
+                //segments always start on a vehicle's block, so no vehicle ever straddles two mappings
+                if(dataEnd - segmentStart > MAX_SEGMENT_SIZE){
+                    segments.add(channel.map(FileChannel.MapMode.READ_ONLY, segmentStart, segmentEnd - segmentStart));
+                    segmentStart = dataOffset;
+                }
+                segmentOfVehicle[i] = segments.size();
+                offsetInSegment[i] = (int) (dataOffset - segmentStart);
+                segmentEnd = dataEnd;
+            }
+            segments.add(channel.map(FileChannel.MapMode.READ_ONLY, segmentStart, segmentEnd - segmentStart));
+        }
+    }
+
+    public int getVehicleCount(){
+        return startingTimes.length;
+    }
+
+    public int getStartingTime(int vehicle){
+        return startingTimes[vehicle];
+    }
+
+    public int getSampleCount(int vehicle){
+        return sampleCounts[vehicle];
+    }
+
+    //Copies the given vehicle's columns out of the mapped file into a new Route
+    public Route loadRoute(int vehicle){
+        int samples = sampleCounts[vehicle];
+        int[] times = new int[samples];
+        double[] latitudes = new double[samples];
+        double[] longitudes = new double[samples];
+        readColumns(vehicle, times, latitudes, longitudes);
+        return new Route(times, latitudes, longitudes);
+    }
+
+    //Copies the given vehicle's columns out of the mapped file into arrays of at least getSampleCount(vehicle) elements
+    public void readColumns(int vehicle, int[] times, double[] latitudes, double[] longitudes){
+        int samples = sampleCounts[vehicle];
+        ByteBuffer data = segments.get(segmentOfVehicle[vehicle]).duplicate();
+        int offset = offsetInSegment[vehicle];
+        data.position(offset);
+        data.slice().asIntBuffer().get(times, 0, samples);
+        data.position(offset + samples * 4);
+        data.slice().asDoubleBuffer().get(latitudes, 0, samples);
+        data.position(offset + samples * 12);
+        data.slice().asDoubleBuffer().get(longitudes, 0, samples);
+    }
+
+    //Usage: BinaryTrace <csv trace> <binary trace>
+    public static void main(String[] args){
+        if(args.length != 2){
+            System.out.println("Usage: BinaryTrace <csv trace> <binary trace>");
+            return;
+        }
+        try{
+            int vehicles = convert(args[0], args[1]);
+            System.out.println("Converted " + vehicles + " vehicles from " + args[0] + " into " + args[1] + "\n");
+        }catch (IOException | AutoConnectException e){
+            System.out.println(e.getMessage());
+        }
+    }
+}
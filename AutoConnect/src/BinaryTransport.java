@@ -0,0 +1,256 @@
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.http.HttpStatus;
+
+//VehicleTransport speaking the binary wire protocol of BinaryMessageCodec, used when the simulation is launched with
+//-Dautoconnect.transport=binary.
+//
+//Every vehicle shares -Dautoconnect.binary.connections persistent TCP connections (default 2) to
+//-Dautoconnect.binary.server=<host>:<port>. Requests are pipelined: a request is written as soon as it is sent, without
+//waiting for earlier responses, and each response is matched back to its request by the request id in its frame, so
+//the server may answer in any order. A reader thread per connection hands each response to its requester's codec.
+//A connection that fails fails every request in flight on it, and is reopened by the next request sent over it.
+//Responses slower than -Dautoconnect.http.socketTimeout milliseconds fail as with the HTTP transports.
+public class BinaryTransport implements VehicleTransport {
+    private static final boolean ENABLED = System.getProperty(TRANSPORT_PROPERTY, "http").equalsIgnoreCase("binary");
+    private static final String DEFAULT_SERVER_ADDRESS = "192.168.0.104:4002";
+    private static final int CONNECTIONS = Math.max(1, Integer.getInteger("autoconnect.binary.connections", 2));
+    private static final int CONNECT_TIMEOUT_MS = Integer.getInteger("autoconnect.http.connectTimeout", 2000);
+    private static final int SOCKET_TIMEOUT_MS = Integer.getInteger("autoconnect.http.socketTimeout", 5000);
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+    private static final ScheduledThreadPoolExecutor TIMEOUTS = createTimeoutTimer();
+
+    private final Connection[] connections = new Connection[CONNECTIONS];
+    private final AtomicInteger nextRequestId = new AtomicInteger();
+    private volatile InetSocketAddress serverAddress = parseAddress(System.getProperty("autoconnect.binary.server", DEFAULT_SERVER_ADDRESS));
+
+    private BinaryTransport(){
+        for(int i = 0; i < CONNECTIONS; i++) connections[i] = new Connection(i);
+    }
+
+    public static boolean isEnabled(){
+        return ENABLED;
+    }
+
+    public static BinaryTransport getInstance(){
+        return Holder.INSTANCE;
+    }
+
+    //Points every connection opened from now on at another server, eg. the frame listener of a LocalAutoConnectServer
+    public void setServerAddress(InetSocketAddress serverAddress){
+        this.serverAddress = serverAddress;
+    }
+
+    @Override
+    public VehicleMessageCodec newCodec(){
+        return new BinaryMessageCodec();
+    }
+
+    @Override
+    public int send(Request request, VehicleMessageCodec codec) throws IOException{
+        try{
+            return sendAsync(request, codec).get();
+        }catch (InterruptedException e){
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a response to " + request.getEndpoint());
+        }catch (ExecutionException e){
+            throw e.getCause() instanceof IOException ? (IOException) e.getCause() : new IOException(e.getCause());
+        }
+    }
+
+    @Override
+    public CompletableFuture<Integer> sendAsync(Request request, VehicleMessageCodec codec){
+        int requestId = nextRequestId.getAndIncrement();
+        PendingRequest pending = new PendingRequest(request.getEndpoint(), (BinaryMessageCodec) codec);
+        Connection connection = connections[Math.floorMod(requestId, CONNECTIONS)];
+        connection.send(requestId, pending);
+        return pending.result;
+    }
+
+    @Override
+    public void shutdown(){
+        for(Connection connection : connections) connection.close(new IOException("Binary transport was shut down"));
+    }
+
+    private static InetSocketAddress parseAddress(String address){
+        int colon = address.lastIndexOf(':');
+        if(colon < 0) throw new IllegalArgumentException("Binary server address " + address + " has no port");
+        return new InetSocketAddress(address.substring(0, colon), Integer.parseInt(address.substring(colon + 1)));
+    }
+
+    private static ScheduledThreadPoolExecutor createTimeoutTimer(){
+        ScheduledThreadPoolExecutor timer = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "binary-transport-timeouts");
+            thread.setDaemon(true);
+            return thread;
+        });
+        timer.setRemoveOnCancelPolicy(true); //answered requests cancel their timeouts, which would otherwise pile up
+        return timer;
+    }
+
+    private static class Holder {
+        private static final BinaryTransport INSTANCE = new BinaryTransport();
+    }
+
+    //A request written to a connection and waiting for its response
+    private static class PendingRequest {
+        private final String endpoint;
+        private final BinaryMessageCodec codec;
+        private final long start = System.nanoTime();
+        private final CompletableFuture<Integer> result = new CompletableFuture<>();
+        private volatile ScheduledFuture<?> timeout;
+
+        private PendingRequest(String endpoint, BinaryMessageCodec codec){
+            this.endpoint = endpoint;
+            this.codec = codec;
+        }
+
+        private void completed(int statusCode){
+            cancelTimeout();
+            SimulationMetrics.getInstance().recordRequest(endpoint, System.nanoTime() - start, statusCode >= HttpStatus.SC_BAD_REQUEST);
+            result.complete(statusCode);
+        }
+
+        private void failed(IOException e){
+            cancelTimeout();
+            if(result.isDone()) return;
+            SimulationMetrics.getInstance().recordRequest(endpoint, System.nanoTime() - start, true);
+            result.completeExceptionally(e);
+        }
+
+        private void cancelTimeout(){
+            ScheduledFuture<?> timeout = this.timeout;
+            if(timeout != null) timeout.cancel(false);
+        }
+    }
+
+    //One persistent connection, opened on first use. Writes are serialized on the connection; its reader thread
+    //completes requests as their responses arrive
+    private class Connection {
+        private final int index;
+        private final Map<Integer, PendingRequest> inFlight = new ConcurrentHashMap<>();
+        private SocketChannel channel; //guarded by this; null while closed
+
+        private Connection(int index){
+            this.index = index;
+        }
+
+        private void send(int requestId, PendingRequest pending){
+            pending.codec.setRequestId(requestId);
+            inFlight.put(requestId, pending);
+            //a request is completed only by whichever of its response, its timeout and a failure of the connection takes
+            //it out of inFlight first, so its codec is never written once the vehicle has been handed the outcome
+            pending.timeout = TIMEOUTS.schedule(() -> {
+                if(inFlight.remove(requestId, pending)){
+                    pending.failed(new SocketTimeoutException("No response to " + pending.endpoint + " within " + SOCKET_TIMEOUT_MS + "ms"));
+                }
+            }, SOCKET_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+
+            synchronized(this){
+                try{
+                    SocketChannel open = open();
+                    ByteBuffer frame = ByteBuffer.wrap(pending.codec.getRequestBuffer(), 0, pending.codec.getRequestLength());
+                    while(frame.hasRemaining()) open.write(frame);
+                }catch (IOException e){
+                    close(e);
+                }
+            }
+        }
+
+        private SocketChannel open() throws IOException{
+            if(channel != null) return channel;
+            SocketChannel opened = SocketChannel.open();
+            try{
+                opened.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                opened.setOption(StandardSocketOptions.SO_KEEPALIVE, true);
+                opened.socket().connect(serverAddress, CONNECT_TIMEOUT_MS);
+            }catch (IOException e){
+                opened.close();
+                throw e;
+            }
+            channel = opened;
+            Thread reader = new Thread(() -> readResponses(opened), "binary-transport-" + index);
+            reader.setDaemon(true);
+            reader.start();
+            return opened;
+        }
+
+        //Fails every request in flight, and closes the channel so that the next request reopens it
+        private void close(IOException cause){
+            synchronized(this){
+                if(channel != null){
+                    try{
+                        channel.close();
+                    }catch (IOException e){
+                        //already failing; nothing left to release
+                    }
+                    channel = null;
+                }
+            }
+            for(Integer requestId : inFlight.keySet()){
+                PendingRequest pending = inFlight.remove(requestId);
+                if(pending != null) pending.failed(cause);
+            }
+        }
+
+        private void readResponses(SocketChannel channel){
+            ByteBuffer buffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+            try{
+                while(true){
+                    if(channel.read(buffer) < 0) throw new EOFException("Binary server closed the connection");
+                    buffer.flip();
+                    while(buffer.remaining() >= 4){
+                        int frameLength = BinaryMessageCodec.getInt(buffer.array(), buffer.position());
+                        if(frameLength < BinaryMessageCodec.RESPONSE_HEADER_SIZE - 4 || frameLength > BinaryMessageCodec.MAX_FRAME_SIZE){
+                            throw new IOException("Binary server sent a frame of " + frameLength + " bytes");
+                        }
+                        if(buffer.remaining() < 4 + frameLength){
+                            if(buffer.capacity() < 4 + frameLength) buffer = grow(buffer, 4 + frameLength);
+                            break;
+                        }
+                        dispatch(buffer.array(), buffer.position(), 4 + frameLength);
+                        buffer.position(buffer.position() + 4 + frameLength);
+                    }
+                    buffer.compact();
+                }
+            }catch (IOException e){
+                synchronized(this){
+                    if(this.channel != channel) return; //closed on purpose, eg. by shutdown
+                }
+                close(e);
+            }
+        }
+
+        private void dispatch(byte[] frame, int offset, int length){
+            int requestId = BinaryMessageCodec.getInt(frame, offset + 4);
+            PendingRequest pending = inFlight.remove(requestId);
+            if(pending == null) return; //timed out meanwhile, and the vehicle may already be reusing the codec
+            int statusCode = BinaryMessageCodec.getUnsignedShort(frame, offset + BinaryMessageCodec.FRAME_HEADER_SIZE);
+            pending.codec.setResponse(frame, offset + BinaryMessageCodec.RESPONSE_HEADER_SIZE, length - BinaryMessageCodec.RESPONSE_HEADER_SIZE);
+            pending.completed(statusCode);
+        }
+
+        private ByteBuffer grow(ByteBuffer buffer, int capacity){
+            ByteBuffer grown = ByteBuffer.wrap(Arrays.copyOf(buffer.array(), capacity));
+            grown.position(buffer.position());
+            grown.limit(buffer.limit());
+            return grown;
+        }
+    }
+}
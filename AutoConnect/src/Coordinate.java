@@ -1,5 +1,5 @@
 public class Coordinate {
-    private static final int KM_IN_DEGREE = 111;
+    public static final int KM_IN_DEGREE = 111; //flat scale of both latitude and longitude degrees
     private static final double SPEED_DURATION = 0.2;
     private static final int SECONDS_IN_HOUR = 3600;
 
@@ -30,26 +30,39 @@ public class Coordinate {
 
     //Returns absolute distance between two coordinates in kilometres
     public double getDistance(Coordinate target){
-        double xComponent = Math.pow(KM_IN_DEGREE * Math.abs(this.latitude-target.latitude), 2);
-        double yComponent = Math.pow(KM_IN_DEGREE * Math.abs(this.longitude-target.longitude), 2);
-        return Math.sqrt(xComponent+yComponent);
+        return getDistance(this.latitude, this.longitude, target.latitude, target.longitude);
     }
 
     //Returns travelling speed of current coordinate to target coordinate,
     // over an interval of SPEED_DURATION seconds, in km/hr
     public double getSpeed(Coordinate target){
-        double distance = this.getDistance(target);
-        return SECONDS_IN_HOUR*(distance/SPEED_DURATION);
+        return getSpeed(this.latitude, this.longitude, target.latitude, target.longitude);
     }
 
     //Returns angle of vector between current and target coordinate in degrees
     public double getDirection(Coordinate target){
-        if(this.equals(target)) return 0;
+        return getDirection(this.latitude, this.longitude, target.latitude, target.longitude);
+    }
+
+    //Primitive forms of the above, for callers holding raw latitude/longitude columns (eg. Route)
+    public static double getDistance(double fromLatitude, double fromLongitude, double toLatitude, double toLongitude){
+        double xComponent = Math.pow(KM_IN_DEGREE * Math.abs(fromLatitude-toLatitude), 2);
+        double yComponent = Math.pow(KM_IN_DEGREE * Math.abs(fromLongitude-toLongitude), 2);
+        return Math.sqrt(xComponent+yComponent);
+    }
+
+    public static double getSpeed(double fromLatitude, double fromLongitude, double toLatitude, double toLongitude){
+        double distance = getDistance(fromLatitude, fromLongitude, toLatitude, toLongitude);
+        return SECONDS_IN_HOUR*(distance/SPEED_DURATION);
+    }
+
+    public static double getDirection(double fromLatitude, double fromLongitude, double toLatitude, double toLongitude){
+        if(Double.compare(fromLatitude, toLatitude)==0 && Double.compare(fromLongitude, toLongitude)==0) return 0;
 
         //since angle is simply a ratio measurement, no need to convert to kilometres
         //additionally, we MUST keep the original positive/negative values of x- and y-components
-        double xComponent = target.latitude - this.latitude;
-        double yComponent = target.longitude - this.longitude;
+        double xComponent = toLatitude - fromLatitude;
+        double yComponent = toLongitude - fromLongitude;
         double angle = Math.toDegrees(Math.atan(yComponent/xComponent));
         if (angle < 0){
             angle += 360;
@@ -58,4 +71,3 @@ public class Coordinate {
     }
 
 }
-
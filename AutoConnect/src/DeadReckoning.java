@@ -0,0 +1,82 @@
+//Dead-reckoning suppression of position updates, enabled with -Dautoconnect.deadReckoning=true.
+//
+//After each update it sends, a vehicle extrapolates its reported position along the velocity it had at that moment.
+//An update is only sent again once the true position on its route diverges from the extrapolation by more than
+//-Dautoconnect.deadReckoning.distance metres (default 10), its heading turns by more than
+//-Dautoconnect.deadReckoning.heading degrees (default 15), or -Dautoconnect.deadReckoning.maxSilence seconds (default
+//10) have passed since the last update, whichever comes first.
+//
+//The velocity is taken from the route's samples and their time stamps rather than from Coordinate.getSpeed and
+//getDirection: getSpeed assumes a fixed sample spacing, and getDirection folds headings into two quadrants (it is an
+//atan, not an atan2), so extrapolating along it would head the wrong way for half of all directions.
+//
+//A server wanting positions within the thresholds must extrapolate the same way from the last update's time; one that
+//keeps the last reported position (such as LocalAutoConnectServer) sees each vehicle as it was at its last update.
+public class DeadReckoning {
+    private static final boolean ENABLED = Boolean.getBoolean("autoconnect.deadReckoning");
+    private static final double DISTANCE_THRESHOLD_KM = Double.parseDouble(System.getProperty("autoconnect.deadReckoning.distance", "10")) / 1000;
+    private static final double HEADING_THRESHOLD = Double.parseDouble(System.getProperty("autoconnect.deadReckoning.heading", "15"));
+    private static final double MAX_SILENCE_SECONDS = Double.parseDouble(System.getProperty("autoconnect.deadReckoning.maxSilence", "10"));
+    private static final int VELOCITY_SAMPLES = 3; //same look-ahead as Vehicle's speed
+    private static final double MILLIMETRES_IN_KM = 1e6;
+    private static final double MILLIS_IN_SECOND = SimulationTime.MILLIS_IN_SECOND;
+
+    //state at the last update sent, in degrees and seconds (reportedTime in SimulationTime milliseconds)
+    private boolean reported = false;
+    private int reportedTime;
+    private double reportedLatitude;
+    private double reportedLongitude;
+    private double latitudeVelocity;
+    private double longitudeVelocity;
+
+    public static boolean isEnabled(){
+        return ENABLED;
+    }
+
+    //Whether the vehicle at the route's cursor must send an update. If so, the caller sends it and calls reported() once
+    //the server has accepted it; otherwise the divergence it leaves the server with is recorded in SimulationMetrics
+    public boolean isUpdateDue(Route route){
+        if(!reported) return true;
+
+        double elapsed = (route.getCurrentTime() - reportedTime) / MILLIS_IN_SECOND;
+        if(elapsed >= MAX_SILENCE_SECONDS) return true;
+
+        double predictedLatitude = reportedLatitude + latitudeVelocity * elapsed;
+        double predictedLongitude = reportedLongitude + longitudeVelocity * elapsed;
+        double error = Coordinate.getDistance(predictedLatitude, predictedLongitude, route.getLatitude(0), route.getLongitude(0));
+        if(error > DISTANCE_THRESHOLD_KM) return true;
+
+        if(headingChange(latitudeVelocity, longitudeVelocity, velocity(route, true), velocity(route, false)) > HEADING_THRESHOLD) return true;
+
+        SimulationMetrics.getInstance().recordSuppressedUpdate((long) (error * MILLIMETRES_IN_KM));
+        return false;
+    }
+
+    //Remembers the state at the route's cursor as the one the server was last told about
+    public void reported(Route route){
+        reported = true;
+        reportedTime = route.getCurrentTime();
+        reportedLatitude = route.getLatitude(0);
+        reportedLongitude = route.getLongitude(0);
+        latitudeVelocity = velocity(route, true);
+        longitudeVelocity = velocity(route, false);
+        SimulationMetrics.getInstance().recordSentUpdate();
+    }
+
+    //Average latitude (or longitude) velocity, in degrees per second, over the next few samples of the route
+    private static double velocity(Route route, boolean latitude){
+        int last = Math.min(VELOCITY_SAMPLES, route.remaining()) - 1;
+        if(last <= 0) return 0;
+        double duration = (route.getTime(last) - route.getTime(0)) / MILLIS_IN_SECOND;
+        if(duration <= 0) return 0;
+        return latitude ? (route.getLatitude(last) - route.getLatitude(0)) / duration
+                : (route.getLongitude(last) - route.getLongitude(0)) / duration;
+    }
+
+    //Angle in degrees between two velocities; 0 if either vehicle is standing still
+    private static double headingChange(double fromLatitude, double fromLongitude, double toLatitude, double toLongitude){
+        if((fromLatitude == 0 && fromLongitude == 0) || (toLatitude == 0 && toLongitude == 0)) return 0;
+        double change = Math.abs(Math.toDegrees(Math.atan2(toLongitude, toLatitude) - Math.atan2(fromLongitude, fromLatitude))) % 360;
+        return Math.min(change, 360 - change);
+    }
+}
@@ -0,0 +1,126 @@
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+
+//VehicleTransport recording every exchange of the transport selected with -Dautoconnect.transport (http or binary)
+//into an append-only exchange log, when the simulation is launched with -Dautoconnect.record=<log file>. The log can
+//then be served back by ReplayTransport, to run the client without a server.
+//
+//Log layout (big-endian):
+//  header  magic int, version int, codec byte (CODEC_JSON or CODEC_BINARY: the format responses are stored in)
+//  record  per exchange, in the order they completed:
+//          request byte (VehicleTransport.Request ordinal), AutoId int (of the requesting vehicle; -1 for
+//          INIT_CONNECT, which is followed by short VIN length and VIN in UTF-8 instead), status short (status code of
+//          the response; 0 if the exchange failed), response length int, then the response as the codec buffered it
+//Exchanges of one vehicle are sequential, so its records are in the order it sent the requests.
+public class ExchangeRecorder implements VehicleTransport {
+    public static final int MAGIC = 0x4143584c; //"ACXL"
+    public static final int VERSION = 1;
+    public static final byte CODEC_JSON = 0;
+    public static final byte CODEC_BINARY = 1;
+    public static final int FAILED = 0;
+
+    private static final String LOG_FILE = System.getProperty("autoconnect.record");
+    private static final int WRITE_BUFFER_SIZE = 1 << 16;
+
+    private final VehicleTransport delegate;
+    private final String file;
+    private DataOutputStream log; //guarded by this; null once closed, or if the log could not be created
+    private long recorded = 0;
+
+    private ExchangeRecorder(VehicleTransport delegate, String file){
+        this.delegate = delegate;
+        this.file = file;
+        try{
+            log = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), WRITE_BUFFER_SIZE));
+            log.writeInt(MAGIC);
+            log.writeInt(VERSION);
+            log.writeByte(delegate.newCodec() instanceof BinaryMessageCodec ? CODEC_BINARY : CODEC_JSON);
+        }catch (IOException e){
+            System.out.println("Exchanges cannot be recorded to " + file + " --> " + e.getMessage());
+            log = null;
+        }
+    }
+
+    public static boolean isEnabled(){
+        return LOG_FILE != null && !LOG_FILE.isEmpty();
+    }
+
+    public static ExchangeRecorder getInstance(){
+        return Holder.INSTANCE;
+    }
+
+    @Override
+    public VehicleMessageCodec newCodec(){
+        return delegate.newCodec();
+    }
+
+    @Override
+    public int send(Request request, VehicleMessageCodec codec) throws IOException{
+        int statusCode;
+        try{
+            statusCode = delegate.send(request, codec);
+        }catch (IOException e){
+            record(request, codec, FAILED);
+            throw e;
+        }
+        record(request, codec, statusCode);
+        return statusCode;
+    }
+
+    //The exchange is recorded before the returned future completes, so before the vehicle can reuse its codec
+    @Override
+    public CompletableFuture<Integer> sendAsync(Request request, VehicleMessageCodec codec){
+        return delegate.sendAsync(request, codec).whenComplete((statusCode, error) ->
+                record(request, codec, error == null ? statusCode : FAILED));
+    }
+
+    @Override
+    public void shutdown(){
+        synchronized(this){
+            if(log != null){
+                try{
+                    log.close();
+                    System.out.println("Recorded " + recorded + " exchanges to " + file + "\n");
+                }catch (IOException e){
+                    System.out.println("Exchange log " + file + " could not be completed --> " + e.getMessage());
+                }
+                log = null;
+            }
+        }
+        delegate.shutdown();
+    }
+
+    private synchronized void record(Request request, VehicleMessageCodec codec, int statusCode){
+        if(log == null) return;
+        try{
+            log.writeByte(request.ordinal());
+            log.writeInt(codec.getRequestAutoId());
+            if(request == Request.INIT_CONNECT){
+                byte[] vin = codec.getRequestVin().getBytes(StandardCharsets.UTF_8);
+                log.writeShort(vin.length);
+                log.write(vin);
+            }
+            log.writeShort(statusCode);
+            int length = statusCode == FAILED ? 0 : codec.getResponseLength();
+            log.writeInt(length);
+            log.write(codec.getResponseBuffer(), 0, length);
+            recorded++;
+        }catch (IOException e){
+            System.out.println("Stopped recording exchanges to " + file + " --> " + e.getMessage());
+            try{
+                log.close();
+            }catch (IOException closing){
+                //already failing; nothing left to release
+            }
+            log = null;
+        }
+    }
+
+    private static class Holder {
+        private static final ExchangeRecorder INSTANCE = new ExchangeRecorder(VehicleTransport.network(), LOG_FILE);
+    }
+}
@@ -0,0 +1,59 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+//Output sink writing through one large buffer into a file channel. An existing file is truncated, so every run starts
+//a fresh output
+public abstract class FileOutputSink implements OutputSink {
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    private final FileChannel channel;
+    protected final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+    protected FileOutputSink(String file) throws IOException{
+        Path path = Paths.get(file);
+        if(path.getParent() != null) Files.createDirectories(path.getParent());
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+    //Makes room for at least length more bytes in the buffer, writing it out if needed
+    protected void ensureRoom(int length) throws IOException{
+        if(buffer.remaining() < length) writeBuffer();
+    }
+
+    //Writes bytes of any length, bypassing the buffer for those larger than it
+    protected void write(byte[] bytes, int offset, int length) throws IOException{
+        if(length > buffer.capacity()){
+            writeBuffer();
+            ByteBuffer source = ByteBuffer.wrap(bytes, offset, length);
+            while(source.hasRemaining()) channel.write(source);
+            return;
+        }
+        ensureRoom(length);
+        buffer.put(bytes, offset, length);
+    }
+
+    @Override
+    public void flush() throws IOException{
+        writeBuffer();
+    }
+
+    @Override
+    public void close() throws IOException{
+        try{
+            writeBuffer();
+        }finally{
+            channel.close();
+        }
+    }
+
+    private void writeBuffer() throws IOException{
+        buffer.flip();
+        while(buffer.hasRemaining()) channel.write(buffer);
+        buffer.clear();
+    }
+}
@@ -0,0 +1,98 @@
+//Batch forms of Coordinate's geometry, working on primitive latitude/longitude columns (eg. those of a Route or a
+//SpatialIndex bucket) instead of one pair of Coordinate objects at a time.
+//
+//This class is the scalar implementation. When the JDK Vector API is available (the class VectorGeometryKernels from
+//src-vector, compiled and run with --add-modules jdk.incubator.vector), get() returns a SIMD implementation instead;
+//-Dautoconnect.simd=false forces the scalar one.
+//
+//Tolerances, against Coordinate's methods on the same inputs:
+//  distances, pairwiseDistances  agree to within 1e-12 km (both paths square the components exactly and take one
+//                                correctly-rounded sqrt; only Coordinate's Math.pow may differ in the last bit)
+//  headings                      agree to within 1e-9 degrees (the SIMD atan is not correctly rounded)
+//  haversineDistances            is a different, more accurate model of distance on the earth's surface. getDistance does
+//                                not shrink a degree of longitude by cos(latitude), so at Kingston's latitude it overstates
+//                                east-west distances by up to ~40%; the two haversine paths agree to within 1e-9 km
+public class GeometryKernels {
+    private static final double EARTH_RADIUS_KM = 6371.0088; //mean earth radius
+    private static final double DEGREES_IN_RADIAN = 180 / Math.PI;
+
+    private static final GeometryKernels INSTANCE = load();
+
+    protected GeometryKernels(){
+    }
+
+    public static GeometryKernels get(){
+        return INSTANCE;
+    }
+
+    public static GeometryKernels scalar(){
+        return new GeometryKernels();
+    }
+
+    public boolean isVectorized(){
+        return false;
+    }
+
+    //out[i-from] = distance in km from (latitude, longitude) to point i, for i in [from, to)
+    public void distances(double latitude, double longitude, double[] latitudes, double[] longitudes, int from, int to, double[] out){
+        for(int i = from; i < to; i++){
+            double x = Coordinate.KM_IN_DEGREE * (latitudes[i] - latitude);
+            double y = Coordinate.KM_IN_DEGREE * (longitudes[i] - longitude);
+            out[i - from] = Math.sqrt(x * x + y * y);
+        }
+    }
+
+    //out[(i-from)*n + (j-from)] = distance in km between points i and j, for i, j in [from, to) where n = to-from
+    public void pairwiseDistances(double[] latitudes, double[] longitudes, int from, int to, double[] out){
+        double[] row = new double[to - from];
+        for(int i = from; i < to; i++){
+            distances(latitudes[i], longitudes[i], latitudes, longitudes, from, to, row);
+            System.arraycopy(row, 0, out, (i - from) * (to - from), to - from);
+        }
+    }
+
+    //out[i-from] = direction in degrees from point i to point i+1 along a route, for i in [from, to-1)
+    public void headings(double[] latitudes, double[] longitudes, int from, int to, double[] out){
+        for(int i = from; i < to - 1; i++){
+            out[i - from] = heading(latitudes[i], longitudes[i], latitudes[i + 1], longitudes[i + 1]);
+        }
+    }
+
+    //Accurate variant of distances, on a spherical earth
+    public void haversineDistances(double latitude, double longitude, double[] latitudes, double[] longitudes, int from, int to, double[] out){
+        for(int i = from; i < to; i++){
+            out[i - from] = haversineDistance(latitude, longitude, latitudes[i], longitudes[i]);
+        }
+    }
+
+    //Great-circle distance in km between two coordinates
+    public static double haversineDistance(double fromLatitude, double fromLongitude, double toLatitude, double toLongitude){
+        double fromLatitudeRadians = Math.toRadians(fromLatitude);
+        double toLatitudeRadians = Math.toRadians(toLatitude);
+        double sinHalfLatitude = Math.sin((toLatitudeRadians - fromLatitudeRadians) / 2);
+        double sinHalfLongitude = Math.sin(Math.toRadians(toLongitude - fromLongitude) / 2);
+        double a = sinHalfLatitude * sinHalfLatitude
+                + Math.cos(fromLatitudeRadians) * Math.cos(toLatitudeRadians) * sinHalfLongitude * sinHalfLongitude;
+        return 2 * EARTH_RADIUS_KM * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+
+    //Same definition as Coordinate.getDirection
+    protected static double heading(double fromLatitude, double fromLongitude, double toLatitude, double toLongitude){
+        double xComponent = toLatitude - fromLatitude;
+        double yComponent = toLongitude - fromLongitude;
+        if(xComponent == 0 && yComponent == 0) return 0;
+
+        double angle = Math.atan(yComponent / xComponent) * DEGREES_IN_RADIAN;
+        return angle < 0 ? angle + 360 : angle;
+    }
+
+    private static GeometryKernels load(){
+        if(!Boolean.parseBoolean(System.getProperty("autoconnect.simd", "true"))) return new GeometryKernels();
+        try{
+            return (GeometryKernels) Class.forName("VectorGeometryKernels").getDeclaredConstructor().newInstance();
+        }catch (ReflectiveOperationException | LinkageError e){
+            //Vector API module not present, or SIMD kernels not compiled in
+            return new GeometryKernels();
+        }
+    }
+}
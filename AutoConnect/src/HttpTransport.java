@@ -0,0 +1,134 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpStatus;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpEntityEnclosingRequestBase;
+import org.apache.http.client.methods.HttpPatch;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+
+//Single HTTP transport shared by every Vehicle in the simulation. All requests go through one pooled
+//connection manager, so vehicles reuse kept-alive connections instead of opening a new socket per request.
+//The server endpoint, limits and timeouts can be overridden at launch with -Dautoconnect.server=<url> and
+//-Dautoconnect.http.<setting>=<value>
+//Request bodies are sent straight from, and response bodies read straight into, the calling vehicle's
+//MessageBuffer (eg. VehicleMessageCodec) buffers.
+public class HttpTransport {
+    private static final String DEFAULT_SERVER_ADDRESS = "http://192.168.0.104:4001";
+
+    private static final int MAX_CONNECTIONS_TOTAL = Integer.getInteger("autoconnect.http.maxTotal", 512);
+    private static final int MAX_CONNECTIONS_PER_ROUTE = Integer.getInteger("autoconnect.http.maxPerRoute", 256);
+    private static final int CONNECT_TIMEOUT_MS = Integer.getInteger("autoconnect.http.connectTimeout", 2000);
+    private static final int SOCKET_TIMEOUT_MS = Integer.getInteger("autoconnect.http.socketTimeout", 5000);
+    private static final int POOL_WAIT_TIMEOUT_MS = Integer.getInteger("autoconnect.http.poolTimeout", 5000);
+    private static final int IDLE_EVICTION_SECONDS = Integer.getInteger("autoconnect.http.idleEviction", 30);
+    private static final int VALIDATE_AFTER_INACTIVITY_MS = 1000;
+
+    private static final ContentType JSON_CONTENT = ContentType.create("application/json", StandardCharsets.UTF_8);
+
+    private static final HttpTransport INSTANCE = new HttpTransport();
+
+    private final CloseableHttpClient httpClient;
+    private volatile String serverAddress = System.getProperty("autoconnect.server", DEFAULT_SERVER_ADDRESS);
+    private volatile Map<String, URI> endpointUris = new ConcurrentHashMap<>(); //parsed once per endpoint and server
+
+    private HttpTransport(){
+        PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
+        connectionManager.setMaxTotal(MAX_CONNECTIONS_TOTAL);
+        connectionManager.setDefaultMaxPerRoute(MAX_CONNECTIONS_PER_ROUTE);
+        connectionManager.setValidateAfterInactivity(VALIDATE_AFTER_INACTIVITY_MS);
+
+        RequestConfig requestConfig = RequestConfig.custom()
+                .setConnectTimeout(CONNECT_TIMEOUT_MS)
+                .setSocketTimeout(SOCKET_TIMEOUT_MS)
+                .setConnectionRequestTimeout(POOL_WAIT_TIMEOUT_MS)
+                .build();
+
+        httpClient = HttpClientBuilder.create()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(requestConfig)
+                .setKeepAliveStrategy(DefaultConnectionKeepAliveStrategy.INSTANCE)
+                .evictExpiredConnections()
+                .evictIdleConnections(IDLE_EVICTION_SECONDS, TimeUnit.SECONDS)
+                .build();
+    }
+
+    public static HttpTransport getInstance(){
+        return INSTANCE;
+    }
+
+    //Points every subsequent request at another server, eg. an embedded LocalAutoConnectServer
+    public void setServerAddress(String serverAddress){
+        this.serverAddress = serverAddress;
+        this.endpointUris = new ConcurrentHashMap<>();
+    }
+
+    public String getServerAddress(){
+        return serverAddress;
+    }
+
+    //Sends the codec's encoded request and buffers the response body in the codec. Returns the HTTP status code
+    public int post(String endpoint, MessageBuffer codec) throws IOException{
+        return execute(new HttpPost(uriOf(endpoint)), endpoint, codec);
+    }
+
+    public int patch(String endpoint, MessageBuffer codec) throws IOException{
+        return execute(new HttpPatch(uriOf(endpoint)), endpoint, codec);
+    }
+
+    //Releases all pooled connections; only call once every vehicle has finished
+    public void shutdown(){
+        try{
+            httpClient.close();
+        }catch (IOException e){
+            System.out.println("HTTP transport could not be closed cleanly --> " + e.getMessage());
+        }
+    }
+
+    //The response entity is always fully consumed (even on error statuses), which is what allows the
+    //underlying connection to return to the pool and be kept alive for the next request
+    private int execute(HttpEntityEnclosingRequestBase request, String endpoint, MessageBuffer codec) throws IOException{
+        request.setEntity(new ByteArrayEntity(codec.getRequestBuffer(), 0, codec.getRequestLength(), JSON_CONTENT));
+
+        long start = System.nanoTime();
+        boolean failed = true;
+        try(CloseableHttpResponse response = httpClient.execute(request)){
+            HttpEntity responseEntity = response.getEntity();
+            if(responseEntity == null){
+                codec.clearResponse();
+            }else{
+                try(InputStream body = responseEntity.getContent()){
+                    codec.readResponse(body);
+                }
+            }
+            int statusCode = response.getStatusLine().getStatusCode();
+            failed = statusCode >= HttpStatus.SC_BAD_REQUEST;
+            return statusCode;
+        }finally{
+            SimulationMetrics.getInstance().recordRequest(endpoint, System.nanoTime() - start, failed);
+        }
+    }
+
+    private URI uriOf(String endpoint){
+        Map<String, URI> uris = endpointUris;
+        URI uri = uris.get(endpoint);
+        if(uri == null){
+            uri = URI.create(serverAddress + endpoint);
+            uris.put(endpoint, uri);
+        }
+        return uri;
+    }
+}
@@ -0,0 +1,57 @@
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+
+//JSON-over-HTTP VehicleTransport. Blocking exchanges go through HttpTransport and asynchronous ones through
+//AsyncHttpTransport; with -Dautoconnect.batch=true, position updates and beta requests are coalesced by the
+//RequestBatcher in both cases. /initconnect and terminations are always sent on their own.
+public class HttpVehicleTransport implements VehicleTransport {
+    private static final HttpVehicleTransport INSTANCE = new HttpVehicleTransport();
+
+    private HttpVehicleTransport(){
+    }
+
+    public static HttpVehicleTransport getInstance(){
+        return INSTANCE;
+    }
+
+    @Override
+    public VehicleMessageCodec newCodec(){
+        return new VehicleMessageCodec();
+    }
+
+    @Override
+    public int send(Request request, VehicleMessageCodec codec) throws IOException{
+        HttpTransport transport = HttpTransport.getInstance();
+        switch(request){
+            case INIT_CONNECT:
+                return transport.post(request.getEndpoint(), codec);
+            case UPDATE_CONNECT:
+                return RequestBatcher.isEnabled() ? RequestBatcher.updates().send(codec) : transport.patch(request.getEndpoint(), codec);
+            case GET_BETAS:
+                return RequestBatcher.isEnabled() ? RequestBatcher.betaRequests().send(codec) : transport.post(request.getEndpoint(), codec);
+            default:
+                return transport.patch(request.getEndpoint(), codec);
+        }
+    }
+
+    @Override
+    public CompletableFuture<Integer> sendAsync(Request request, VehicleMessageCodec codec){
+        AsyncHttpTransport transport = AsyncHttpTransport.getInstance();
+        switch(request){
+            case INIT_CONNECT:
+                return transport.post(request.getEndpoint(), codec);
+            case UPDATE_CONNECT:
+                return RequestBatcher.isEnabled() ? RequestBatcher.updates().submit(codec) : transport.patch(request.getEndpoint(), codec);
+            case GET_BETAS:
+                return RequestBatcher.isEnabled() ? RequestBatcher.betaRequests().submit(codec) : transport.post(request.getEndpoint(), codec);
+            default:
+                return transport.patch(request.getEndpoint(), codec);
+        }
+    }
+
+    @Override
+    public void shutdown(){
+        HttpTransport.getInstance().shutdown();
+        if(AsyncHttpTransport.isEnabled() || RequestBatcher.isEnabled()) AsyncHttpTransport.getInstance().shutdown();
+    }
+}
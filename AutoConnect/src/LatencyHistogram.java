@@ -0,0 +1,108 @@
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+//Concurrent histogram of durations in nanoseconds (or any other non-negative quantity), with log-linear buckets:
+//exact below 128, then 64 buckets per power of two, so any recorded value is reported to within 1/64 (~1.6%). Values
+//above MAX_TRACKABLE_NANOS (~18 minutes) all land in the last bucket, although the maximum is kept exactly.
+//
+//Recording is a few arithmetic operations and one uncontended atomic increment: the counts are striped by thread, so
+//threads recording at once almost never touch the same cache line. Stripes are only summed up when taking a snapshot.
+public class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 6;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS; //buckets per power of two
+    private static final int LINEAR_BUCKETS = 2 * SUB_BUCKETS;    //values below this are counted exactly
+    private static final long MAX_TRACKABLE_NANOS = (1L << 40) - 1;
+    private static final int BUCKETS = bucketOf(MAX_TRACKABLE_NANOS) + 1;
+    private static final int STRIPES = Math.min(64, Integer.highestOneBit(Math.max(4, Runtime.getRuntime().availableProcessors() * 2) - 1) << 1);
+
+    private final AtomicLongArray counts = new AtomicLongArray(STRIPES * BUCKETS); //stripe-major
+    private final LongAdder total = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    public void record(long nanos){
+        if(nanos < 0) nanos = 0;
+        int stripe = (int) Thread.currentThread().getId() & (STRIPES - 1);
+        counts.getAndIncrement(stripe * BUCKETS + bucketOf(Math.min(nanos, MAX_TRACKABLE_NANOS)));
+        total.add(nanos);
+        max.accumulate(nanos);
+    }
+
+    //Consistent enough copy of the counts so far: values recorded while it is taken may or may not be included
+    public Snapshot snapshot(){
+        long[] merged = new long[BUCKETS];
+        for(int stripe = 0; stripe < STRIPES; stripe++){
+            int offset = stripe * BUCKETS;
+            for(int bucket = 0; bucket < BUCKETS; bucket++){
+                merged[bucket] += counts.get(offset + bucket);
+            }
+        }
+        return new Snapshot(merged, total.sum(), max.get());
+    }
+
+    private static int bucketOf(long nanos){
+        if(nanos < LINEAR_BUCKETS) return (int) nanos;
+        int shift = 63 - Long.numberOfLeadingZeros(nanos) - SUB_BUCKET_BITS; //so that nanos >>> shift is in [SUB_BUCKETS, 2*SUB_BUCKETS)
+        return LINEAR_BUCKETS + (shift - 1) * SUB_BUCKETS + (int) (nanos >>> shift) - SUB_BUCKETS;
+    }
+
+    //Value reported for a bucket: the middle of the range of values it counts
+    private static long valueOf(int bucket){
+        if(bucket < LINEAR_BUCKETS) return bucket;
+        int shift = (bucket - LINEAR_BUCKETS) / SUB_BUCKETS + 1;
+        long lowest = (long) ((bucket - LINEAR_BUCKETS) % SUB_BUCKETS + SUB_BUCKETS) << shift;
+        return lowest + (1L << (shift - 1));
+    }
+
+    public static class Snapshot {
+        private final long[] counts;
+        private final long count;
+        private final long totalNanos;
+        private final long maxNanos;
+
+        private Snapshot(long[] counts, long totalNanos, long maxNanos){
+            long count = 0;
+            for(long bucketCount : counts) count += bucketCount;
+            this.counts = counts;
+            this.count = count;
+            this.totalNanos = totalNanos;
+            this.maxNanos = maxNanos;
+        }
+
+        public long getCount(){
+            return count;
+        }
+
+        public double getMeanNanos(){
+            return count == 0 ? 0 : (double) totalNanos / count;
+        }
+
+        public long getMaxNanos(){
+            return maxNanos;
+        }
+
+        //Smallest recorded value that at least the given percentage of values don't exceed; 0 if nothing was recorded
+        public long getPercentileNanos(double percentile){
+            if(count == 0) return 0;
+            long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+            long seen = 0;
+            for(int bucket = 0; bucket < counts.length; bucket++){
+                seen += counts[bucket];
+                if(seen >= rank) return Math.min(valueOf(bucket), maxNanos);
+            }
+            return maxNanos;
+        }
+
+        //Values recorded since an earlier snapshot of the same histogram. The exact maximum of that interval isn't
+        //known, so it is estimated from its highest non-empty bucket
+        public Snapshot since(Snapshot earlier){
+            long[] difference = new long[counts.length];
+            long highest = 0;
+            for(int bucket = 0; bucket < counts.length; bucket++){
+                difference[bucket] = counts[bucket] - earlier.counts[bucket];
+                if(difference[bucket] > 0) highest = valueOf(bucket);
+            }
+            return new Snapshot(difference, totalNanos - earlier.totalNanos, Math.min(highest, maxNanos));
+        }
+    }
+}
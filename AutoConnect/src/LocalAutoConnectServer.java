@@ -0,0 +1,239 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.http.HttpStatus;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+//Embedded stand-in for the AutoConnect server, so the simulation can run (and be profiled) on a single box.
+//Implements /initconnect, /updateconnect and /getbetas with the same JSON contract as the real server, plus their
+//batched forms under /batch/ (see BatchMessage); beta candidates are simply the closest live vehicles within the
+//requested radius, not the proprietary algorithm.
+//Candidates are looked up in a SpatialIndex, and can additionally be restricted to vehicles heading the same way
+//with -Dautoconnect.localServer.headingTolerance=<degrees>. The update interval handed out to vehicles is set with
+//-Dautoconnect.localServer.timeCheck=<seconds> (default 1).
+//The same endpoints can also be served as binary frames to a BinaryTransport, see startFrameListener.
+public class LocalAutoConnectServer {
+    private static final int DEFAULT_PORT = 4001;
+    private static final int DEFAULT_BINARY_PORT = 4002;
+    private static final double TIME_CHECK = Double.parseDouble(System.getProperty("autoconnect.localServer.timeCheck", "1.0")); //update interval handed out to vehicles, in seconds
+    private static final double METRES_IN_KM = 1000.0;
+    private static final double INDEX_CELL_SIZE_KM = 0.1; //matches the vehicles' connection radius
+    private static final int MAX_IDLE_CONNECTIONS = 4096;
+    private static final double HEADING_TOLERANCE = Double.parseDouble(System.getProperty("autoconnect.localServer.headingTolerance", "180"));
+
+    static {
+        //the JDK server leaves Nagle's algorithm on by default, which adds a delayed-ACK stall to every small
+        //keep-alive response; must be set before the server classes are first loaded
+        if(System.getProperty("sun.net.httpserver.nodelay") == null){
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+        //by default it also closes idle keep-alive connections beyond the 200th, racing with clients that pool more
+        //(eg. AsyncHttpTransport with many requests in flight), whose next request then fails on a closed connection
+        if(System.getProperty("sun.net.httpserver.maxIdleConnections") == null){
+            System.setProperty("sun.net.httpserver.maxIdleConnections", Integer.toString(MAX_IDLE_CONNECTIONS));
+        }
+    }
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final AtomicInteger nextAutoId = new AtomicInteger(1);
+    private final SpatialIndex vehicles = new SpatialIndex(INDEX_CELL_SIZE_KM);
+    private LocalFrameListener frameListener;
+
+    public LocalAutoConnectServer(int port, int threads) throws IOException{
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", port), 1024);
+        executor = Executors.newFixedThreadPool(threads);
+        server.setExecutor(executor);
+        server.createContext("/initconnect", exchange -> handleSingle(exchange, HttpStatus.SC_CREATED, this::initConnect));
+        server.createContext("/updateconnect", exchange -> handleSingle(exchange, HttpStatus.SC_OK, this::updateConnect));
+        server.createContext("/getbetas", exchange -> handleSingle(exchange, HttpStatus.SC_CREATED, this::getBetas));
+        server.createContext("/batch/updateconnect", exchange -> handleBatch(exchange, "Updates", HttpStatus.SC_OK, this::updateConnect));
+        server.createContext("/batch/getbetas", exchange -> handleBatch(exchange, "Requests", HttpStatus.SC_CREATED, this::getBetas));
+    }
+
+    public void start(){
+        server.start();
+        System.out.println("Local AutoConnect server listening on " + getAddress() + "\n");
+    }
+
+    //Starts serving the binary wire protocol (see BinaryMessageCodec) on the given port (0 picks any free port) as well,
+    //and returns where it listens
+    public synchronized InetSocketAddress startFrameListener(int port) throws IOException{
+        if(frameListener == null){
+            frameListener = new LocalFrameListener(this, new InetSocketAddress("127.0.0.1", port), executor);
+            frameListener.start();
+            System.out.println("Local AutoConnect server listening for binary frames on " + frameListener.getAddress() + "\n");
+        }
+        return frameListener.getAddress();
+    }
+
+    public void stop(){
+        synchronized(this){
+            if(frameListener != null) frameListener.stop();
+        }
+        server.stop(0);
+        executor.shutdown();
+    }
+
+    public String getAddress(){
+        InetSocketAddress address = server.getAddress();
+        return "http://" + address.getHostString() + ":" + address.getPort();
+    }
+
+    //---- operations behind both the JSON endpoints and the binary frames ----
+
+    //Registers a new vehicle; returns its AutoId
+    int register(double latitude, double longitude, double direction){
+        int autoId = nextAutoId.getAndIncrement();
+        vehicles.update(autoId, latitude, longitude, direction);
+        return autoId;
+    }
+
+    //Moves a registered vehicle; returns false if the vehicle is unknown
+    boolean update(int autoId, double latitude, double longitude, double direction){
+        if(!vehicles.contains(autoId)) return false;
+        vehicles.update(autoId, latitude, longitude, direction);
+        return true;
+    }
+
+    void remove(int autoId){
+        vehicles.remove(autoId);
+    }
+
+    //Stores up to betaBound candidates for the vehicle in candidates; returns how many were found
+    int findBetas(int autoId, double latitude, double longitude, double direction, double connectionRadius, int betaBound, int[] candidates){
+        return vehicles.findNearest(latitude, longitude, connectionRadius / METRES_IN_KM, betaBound, direction, HEADING_TOLERANCE, autoId, candidates);
+    }
+
+    double getTimeCheck(){
+        return TIME_CHECK;
+    }
+
+    //---- JSON endpoints ----
+
+    private JSONObject initConnect(JSONObject request){
+        int autoId = register(request.getDouble("PositionX"), request.getDouble("PositionY"), request.optDouble("Direction", 0));
+
+        JSONObject response = new JSONObject();
+        response.put("AutoId", autoId);
+        response.put("TimeCheck", TIME_CHECK);
+        response.put("Status", "Success");
+        return response;
+    }
+
+    private JSONObject updateConnect(JSONObject request){
+        int autoId = request.getInt("AutoId");
+
+        JSONObject response = new JSONObject();
+        response.put("AutoId", autoId);
+        if(request.optInt("Terminated", 0) == 1){
+            remove(autoId);
+            response.put("Status", "Success");
+        }else{
+            boolean known = update(autoId, request.getDouble("PositionX"), request.getDouble("PositionY"), request.optDouble("Direction", 0));
+            response.put("Status", known ? "Success" : "Unknown vehicle");
+        }
+        return response;
+    }
+
+    private JSONObject getBetas(JSONObject request){
+        int autoId = request.getInt("AutoId");
+        double latitude = request.getDouble("PositionX");
+        double longitude = request.getDouble("PositionY");
+        double direction = request.optDouble("Direction", 0);
+        double connectionRadius = request.getDouble("ConnectionRadius");
+        int betaBound = request.getInt("BetaBound");
+
+        int[] candidates = new int[Math.max(0, betaBound)];
+        int found = findBetas(autoId, latitude, longitude, direction, connectionRadius, betaBound, candidates);
+        JSONArray priorityMatrix = new JSONArray();
+        for(int i=0; i<found; i++){
+            priorityMatrix.put(candidates[i]);
+        }
+
+        JSONObject response = new JSONObject();
+        response.put("Status", "Success");
+        response.put("PriorityMatrix", priorityMatrix);
+        return response;
+    }
+
+    private static void handleSingle(HttpExchange exchange, int successStatus, Endpoint endpoint) throws IOException{
+        try{
+            sendJson(exchange, successStatus, endpoint.handle(readJson(exchange)));
+        }catch (JSONException e){
+            sendJson(exchange, HttpStatus.SC_BAD_REQUEST, malformedRequest(e));
+        }
+    }
+
+    //Answers each request of a batch (see BatchMessage) with the status and body its single endpoint would have
+    //returned, so one malformed request fails on its own instead of failing the whole batch
+    private static void handleBatch(HttpExchange exchange, String itemsName, int successStatus, Endpoint endpoint) throws IOException{
+        JSONArray requests;
+        try{
+            requests = readJson(exchange).getJSONArray(itemsName);
+        }catch (JSONException e){
+            sendJson(exchange, HttpStatus.SC_BAD_REQUEST, malformedRequest(e));
+            return;
+        }
+
+        JSONArray results = new JSONArray();
+        for(int i=0; i<requests.length(); i++){
+            JSONObject result = new JSONObject();
+            try{
+                result.put("Body", endpoint.handle(requests.getJSONObject(i)));
+                result.put("Code", successStatus);
+            }catch (JSONException e){
+                result.put("Body", malformedRequest(e));
+                result.put("Code", HttpStatus.SC_BAD_REQUEST);
+            }
+            results.put(result);
+        }
+        JSONObject response = new JSONObject();
+        response.put("Results", results);
+        sendJson(exchange, HttpStatus.SC_OK, response);
+    }
+
+    private static JSONObject readJson(HttpExchange exchange) throws IOException{
+        try(InputStream body = exchange.getRequestBody()){
+            return new JSONObject(new String(body.readAllBytes(), StandardCharsets.UTF_8));
+        }
+    }
+
+    private static void sendJson(HttpExchange exchange, int status, JSONObject json) throws IOException{
+        byte[] body = json.toString().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=UTF-8");
+        exchange.sendResponseHeaders(status, body.length);
+        try(OutputStream out = exchange.getResponseBody()){
+            out.write(body);
+        }
+    }
+
+    private static JSONObject malformedRequest(JSONException e){
+        JSONObject response = new JSONObject();
+        response.put("Status", "Malformed request: " + e.getMessage());
+        return response;
+    }
+
+    private interface Endpoint {
+        JSONObject handle(JSONObject request) throws JSONException;
+    }
+
+    //Usage: LocalAutoConnectServer [port [binary port]]
+    public static void main(String[] args) throws IOException{
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        int binaryPort = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_BINARY_PORT;
+        LocalAutoConnectServer server = new LocalAutoConnectServer(port, Runtime.getRuntime().availableProcessors() * 2);
+        server.start();
+        server.startFrameListener(binaryPort);
+    }
+}
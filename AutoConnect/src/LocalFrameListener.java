@@ -0,0 +1,214 @@
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.apache.http.HttpStatus;
+
+//Frame handler of a LocalAutoConnectServer: serves the binary wire protocol of BinaryMessageCodec to BinaryTransport
+//clients, with the same semantics as the server's JSON endpoints.
+//
+//Each connection has a reader thread that splits the stream into request frames and hands each one to the server's
+//executor; responses are written back as soon as they are ready, so requests pipelined on one connection are handled
+//in parallel and may be answered out of order.
+public class LocalFrameListener {
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+    private static final int MIN_FRAME_LENGTH = 5; //request id and opcode
+
+    private final LocalAutoConnectServer server;
+    private final ServerSocketChannel listener;
+    private final ExecutorService executor;
+    private final Set<SocketChannel> connections = ConcurrentHashMap.newKeySet();
+
+    public LocalFrameListener(LocalAutoConnectServer server, InetSocketAddress address, ExecutorService executor) throws IOException{
+        this.server = server;
+        this.executor = executor;
+        listener = ServerSocketChannel.open();
+        listener.bind(address, 1024);
+    }
+
+    public void start(){
+        Thread acceptor = new Thread(this::acceptConnections, "frame-listener");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    public InetSocketAddress getAddress(){
+        return (InetSocketAddress) listener.socket().getLocalSocketAddress();
+    }
+
+    public void stop(){
+        try{
+            listener.close();
+            for(SocketChannel connection : connections) connection.close();
+        }catch (IOException e){
+            System.out.println("Frame listener could not be closed cleanly --> " + e.getMessage());
+        }
+    }
+
+    private void acceptConnections(){
+        try{
+            while(true){
+                SocketChannel connection = listener.accept();
+                connection.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                connections.add(connection);
+                Thread reader = new Thread(() -> readRequests(connection), "frame-listener-" + connection.getRemoteAddress());
+                reader.setDaemon(true);
+                reader.start();
+            }
+        }catch (ClosedChannelException e){
+            //stopped
+        }catch (IOException e){
+            System.out.println("Frame listener stopped accepting connections --> " + e.getMessage());
+        }
+    }
+
+    private void readRequests(SocketChannel connection){
+        ByteBuffer buffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+        try{
+            while(true){
+                if(connection.read(buffer) < 0) throw new EOFException();
+                buffer.flip();
+                while(buffer.remaining() >= 4){
+                    int frameLength = buffer.getInt(buffer.position());
+                    if(frameLength < MIN_FRAME_LENGTH || frameLength > BinaryMessageCodec.MAX_FRAME_SIZE){
+                        throw new IOException("Client sent a frame of " + frameLength + " bytes");
+                    }
+                    if(buffer.remaining() < 4 + frameLength){
+                        if(buffer.capacity() < 4 + frameLength){
+                            ByteBuffer grown = ByteBuffer.wrap(Arrays.copyOf(buffer.array(), 4 + frameLength));
+                            grown.position(buffer.position()).limit(buffer.limit());
+                            buffer = grown;
+                        }
+                        break;
+                    }
+                    byte[] frame = Arrays.copyOfRange(buffer.array(), buffer.position(), buffer.position() + 4 + frameLength);
+                    buffer.position(buffer.position() + 4 + frameLength);
+                    executor.execute(() -> respond(connection, frame));
+                }
+                buffer.compact();
+            }
+        }catch (IOException | RejectedExecutionException e){
+            //client went away, sent garbage, or the server is stopping
+        }finally{
+            connections.remove(connection);
+            try{
+                connection.close();
+            }catch (IOException e){
+                //nothing left to release
+            }
+        }
+    }
+
+    private void respond(SocketChannel connection, byte[] frame){
+        ByteBuffer response = handle(ByteBuffer.wrap(frame));
+        response.flip();
+        try{
+            synchronized(connection){
+                while(response.hasRemaining()) connection.write(response);
+            }
+        }catch (IOException e){
+            //the reader thread notices the broken connection and closes it
+        }
+    }
+
+    //Answers one request frame; the response is left ready to be flipped
+    private ByteBuffer handle(ByteBuffer request){
+        request.position(4);
+        int requestId = request.getInt();
+        try{
+            byte opcode = request.get();
+            switch(opcode){
+                case BinaryMessageCodec.INIT_CONNECT: {
+                    byte[] vin = new byte[request.getShort() & 0xffff];
+                    request.get(vin);
+                    double latitude = request.getDouble();
+                    double longitude = request.getDouble();
+                    request.getDouble(); //destination and speed
+                    request.getDouble();
+                    request.getDouble();
+                    double direction = request.getDouble();
+                    int autoId = server.register(latitude, longitude, direction);
+                    return response(requestId, HttpStatus.SC_CREATED, 4 + 8)
+                            .put((byte) (BinaryMessageCodec.AUTO_ID | BinaryMessageCodec.TIME_CHECK | BinaryMessageCodec.SUCCESS))
+                            .putInt(autoId)
+                            .putDouble(server.getTimeCheck());
+                }
+                case BinaryMessageCodec.UPDATE_CONNECT: {
+                    int autoId = request.getInt();
+                    double latitude = request.getDouble();
+                    double longitude = request.getDouble();
+                    request.getDouble(); //destination and speed
+                    request.getDouble();
+                    request.getDouble();
+                    double direction = request.getDouble();
+                    if(server.update(autoId, latitude, longitude, direction)){
+                        return response(requestId, HttpStatus.SC_OK, 4)
+                                .put((byte) (BinaryMessageCodec.AUTO_ID | BinaryMessageCodec.SUCCESS))
+                                .putInt(autoId);
+                    }
+                    byte[] status = "Unknown vehicle".getBytes(StandardCharsets.UTF_8);
+                    return response(requestId, HttpStatus.SC_OK, 4 + 2 + status.length)
+                            .put((byte) (BinaryMessageCodec.AUTO_ID | BinaryMessageCodec.STATUS_TEXT))
+                            .putInt(autoId)
+                            .putShort((short) status.length)
+                            .put(status);
+                }
+                case BinaryMessageCodec.TERMINATE: {
+                    int autoId = request.getInt();
+                    server.remove(autoId);
+                    return response(requestId, HttpStatus.SC_OK, 4)
+                            .put((byte) (BinaryMessageCodec.AUTO_ID | BinaryMessageCodec.SUCCESS))
+                            .putInt(autoId);
+                }
+                case BinaryMessageCodec.GET_BETAS: {
+                    int autoId = request.getInt();
+                    double latitude = request.getDouble();
+                    double longitude = request.getDouble();
+                    request.getDouble(); //speed
+                    double direction = request.getDouble();
+                    request.getLong(); //time
+                    double connectionRadius = request.getDouble();
+                    int betaBound = request.getInt();
+
+                    int[] candidates = new int[Math.max(0, betaBound)];
+                    int found = server.findBetas(autoId, latitude, longitude, direction, connectionRadius, betaBound, candidates);
+                    ByteBuffer response = response(requestId, HttpStatus.SC_CREATED, 2 + 4 * found)
+                            .put((byte) (BinaryMessageCodec.SUCCESS | BinaryMessageCodec.PRIORITY_MATRIX))
+                            .putShort((short) found);
+                    for(int i = 0; i < found; i++) response.putInt(candidates[i]);
+                    return response;
+                }
+                default:
+                    return malformed(requestId, "unknown opcode " + opcode);
+            }
+        }catch (BufferUnderflowException e){
+            return malformed(requestId, "frame too short");
+        }
+    }
+
+    private static ByteBuffer malformed(int requestId, String reason){
+        byte[] status = ("Malformed request: " + reason).getBytes(StandardCharsets.UTF_8);
+        return response(requestId, HttpStatus.SC_BAD_REQUEST, 2 + status.length)
+                .put((byte) BinaryMessageCodec.STATUS_TEXT)
+                .putShort((short) status.length)
+                .put(status);
+    }
+
+    //Response frame with its header and fields byte written, and room for fieldsLength bytes of fields
+    private static ByteBuffer response(int requestId, int status, int fieldsLength){
+        ByteBuffer response = ByteBuffer.allocate(BinaryMessageCodec.RESPONSE_HEADER_SIZE + 1 + fieldsLength);
+        return response.putInt(response.capacity() - 4).putInt(requestId).putShort((short) status);
+    }
+}
@@ -0,0 +1,215 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import org.json.JSONException;
+
+//Reusable request and response buffers of an exchange with the server, which the transports send from and receive
+//into directly, with the primitives to scan a JSON response in place. Subclasses encode and decode the actual messages.
+public abstract class MessageBuffer {
+    private static final int INITIAL_BUFFER_SIZE = 512;
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22};
+    private static final long MAX_EXACT_MANTISSA = 1L << 53;
+
+    protected byte[] request = new byte[INITIAL_BUFFER_SIZE];
+    protected int requestLength;
+    protected byte[] response = new byte[INITIAL_BUFFER_SIZE];
+    protected int responseLength;
+    protected int position; //scanning position in the response
+
+    //The encoded request occupies the first getRequestLength() bytes of the buffer
+    public byte[] getRequestBuffer(){
+        return request;
+    }
+
+    public int getRequestLength(){
+        return requestLength;
+    }
+
+    //The buffered response occupies the first getResponseLength() bytes of the buffer
+    public byte[] getResponseBuffer(){
+        return response;
+    }
+
+    public int getResponseLength(){
+        return responseLength;
+    }
+
+    //Reads a whole response body into the response buffer; call decodeResponse() to parse it
+    public void readResponse(InputStream body) throws IOException{
+        responseLength = 0;
+        int read;
+        while((read = body.read(response, responseLength, response.length - responseLength)) != -1){
+            responseLength += read;
+            if(responseLength == response.length) response = Arrays.copyOf(response, response.length * 2);
+        }
+    }
+
+    //Records that the last response had no body; also starts a response delivered in chunks with appendResponse
+    public void clearResponse(){
+        responseLength = 0;
+    }
+
+    //Appends the next chunk of a response body delivered asynchronously
+    public void appendResponse(ByteBuffer chunk){
+        int length = chunk.remaining();
+        if(responseLength + length > response.length) response = Arrays.copyOf(response, Math.max(response.length * 2, responseLength + length));
+        chunk.get(response, responseLength, length);
+        responseLength += length;
+    }
+
+    //Replaces the response with a copy of length bytes of source, eg. one vehicle's share of a batched response
+    public void setResponse(byte[] source, int offset, int length){
+        responseLength = 0;
+        if(length > response.length) response = new byte[Math.max(response.length * 2, length)];
+        System.arraycopy(source, offset, response, 0, length);
+        responseLength = length;
+    }
+
+    protected void clearRequest(){
+        requestLength = 0;
+    }
+
+    protected void writeBytes(byte[] source, int offset, int length){
+        ensureRequestCapacity(length);
+        System.arraycopy(source, offset, request, requestLength, length);
+        requestLength += length;
+    }
+
+    protected void writeByte(int b){
+        ensureRequestCapacity(1);
+        request[requestLength++] = (byte) b;
+    }
+
+    protected void ensureRequestCapacity(int extra){
+        if(requestLength + extra > request.length) request = Arrays.copyOf(request, Math.max(request.length * 2, requestLength + extra));
+    }
+
+    protected int readInt(){
+        double value = readNumber();
+        if(value != (int) value) throw malformed("expected an integer");
+        return (int) value;
+    }
+
+    //Parses a JSON number. Mantissas of up to 2^53 scaled by at most 10^22 are converted exactly with a single
+    //multiplication or division; anything longer falls back to Double.parseDouble
+    protected double readNumber(){
+        int start = position;
+        boolean negative = false;
+        if(peek() == '-'){
+            negative = true;
+            position++;
+        }
+
+        long mantissa = 0;
+        int exponent = 0;
+        boolean exact = true;
+        int digits = 0;
+        while(position < responseLength && isDigit(response[position])){
+            if(mantissa < MAX_EXACT_MANTISSA / 10) mantissa = mantissa * 10 + (response[position] - '0');
+            else exact = false;
+            digits++;
+            position++;
+        }
+        if(position < responseLength && response[position] == '.'){
+            position++;
+            while(position < responseLength && isDigit(response[position])){
+                if(mantissa < MAX_EXACT_MANTISSA / 10){
+                    mantissa = mantissa * 10 + (response[position] - '0');
+                    exponent--;
+                }else if(response[position] != '0'){
+                    exact = false;
+                }
+                digits++;
+                position++;
+            }
+        }
+        if(digits == 0) throw malformed("expected a number");
+        if(position < responseLength && (response[position] == 'e' || response[position] == 'E')){
+            position++;
+            boolean negativeExponent = false;
+            if(peek() == '+' || peek() == '-') negativeExponent = response[position++] == '-';
+            int explicitExponent = 0;
+            while(position < responseLength && isDigit(response[position])){
+                if(explicitExponent < 10_000) explicitExponent = explicitExponent * 10 + (response[position] - '0');
+                position++;
+            }
+            exponent += negativeExponent ? -explicitExponent : explicitExponent;
+        }
+
+        if(exact && exponent >= -22 && exponent <= 22){
+            double value = exponent >= 0 ? mantissa * POWERS_OF_TEN[exponent] : mantissa / POWERS_OF_TEN[-exponent];
+            return negative ? -value : value;
+        }
+        return Double.parseDouble(new String(response, start, position - start, StandardCharsets.US_ASCII));
+    }
+
+    //Skips any JSON value: string, number, literal, object or array
+    protected void skipValue(){
+        byte first = peek();
+        if(first == '"'){
+            position++;
+            skipStringContent();
+        }else if(first == '{' || first == '['){
+            int depth = 0;
+            do{
+                byte b = next();
+                if(b == '"') skipStringContent();
+                else if(b == '{' || b == '[') depth++;
+                else if(b == '}' || b == ']') depth--;
+            }while(depth > 0);
+        }else{
+            //number or literal: runs until the next delimiter
+            while(position < responseLength && response[position] != ',' && response[position] != '}'
+                    && response[position] != ']' && !isWhitespace(response[position])) position++;
+        }
+    }
+
+    //Advances past the closing quote of a string whose opening quote has already been consumed
+    protected void skipStringContent(){
+        while(true){
+            byte b = next();
+            if(b == '"') return;
+            if(b == '\\') next();
+        }
+    }
+
+    protected boolean nameEquals(int offset, int length, byte[] name){
+        return length == name.length && Arrays.equals(response, offset, offset + length, name, 0, length);
+    }
+
+    protected void skipWhitespace(){
+        while(position < responseLength && isWhitespace(response[position])) position++;
+    }
+
+    protected void expect(char expected){
+        if(next() != expected) throw malformed("expected '" + expected + "'");
+    }
+
+    protected byte peek(){
+        if(position >= responseLength) throw malformed("unexpected end of response");
+        return response[position];
+    }
+
+    protected byte next(){
+        byte b = peek();
+        position++;
+        return b;
+    }
+
+    protected JSONException malformed(String reason){
+        return new JSONException("Malformed response at character " + position + ": " + reason);
+    }
+
+    protected static boolean isDigit(byte b){
+        return b >= '0' && b <= '9';
+    }
+
+    protected static boolean isWhitespace(byte b){
+        return b == ' ' || b == '\n' || b == '\r' || b == '\t';
+    }
+}
@@ -0,0 +1,16 @@
+import java.io.IOException;
+
+//Destination of the simulation's output events, called only from the SimulationOutput writer thread.
+//A vehicle joins once, then reports the beta candidates of each of its /getbetas responses, then leaves.
+public interface OutputSink {
+    void vehicleJoined(String vin, int autoId) throws IOException;
+
+    void connection(int autoId, int time, int[] candidates, int count) throws IOException;
+
+    void vehicleLeft(int autoId) throws IOException;
+
+    //Called whenever the writer runs out of events, so output becomes visible while the simulation is still running
+    void flush() throws IOException;
+
+    void close() throws IOException;
+}
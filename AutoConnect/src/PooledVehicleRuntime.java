@@ -0,0 +1,30 @@
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+//Runs vehicle events on a bounded pool of platform threads. A vehicle never owns a thread: it only
+//occupies one for the duration of a single spawn or tick event.
+public class PooledVehicleRuntime extends VehicleRuntime {
+    private final ExecutorService executor;
+
+    public PooledVehicleRuntime(int threads){
+        AtomicInteger threadCount = new AtomicInteger();
+        ThreadFactory threadFactory = r -> {
+            Thread thread = new Thread(r, "vehicle-runtime-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        executor = Executors.newFixedThreadPool(threads, threadFactory);
+    }
+
+    @Override
+    public void execute(Runnable task){
+        executor.execute(task);
+    }
+
+    @Override
+    public void shutdown(){
+        executor.shutdown();
+    }
+}
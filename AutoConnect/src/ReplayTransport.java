@@ -0,0 +1,213 @@
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import org.apache.http.HttpStatus;
+
+//VehicleTransport serving the responses of an exchange log written by ExchangeRecorder instead of talking to a server,
+//used when the simulation is launched with -Dautoconnect.transport=replay. The log is read from
+//-Dautoconnect.replay.log (default trafficData/exchanges.log), and every response is delivered after
+//-Dautoconnect.replay.latency milliseconds (default 0, fractions allowed), so the client's own cost can be measured
+//at full speed, repeatably.
+//
+//A vehicle's /initconnect is answered with the next recorded /initconnect response of its VIN, which hands the vehicle
+//its recorded AutoId; every later request of the vehicle is answered with the next recorded response of that AutoId
+//to the same kind of request. A vehicle sending more requests of a kind than were recorded (eg. because its pacing
+//differs from the recording run) is answered with the last of them again; a request of a kind never recorded for the
+//vehicle fails as an unreachable server would.
+public class ReplayTransport implements VehicleTransport {
+    private static final boolean ENABLED = System.getProperty(TRANSPORT_PROPERTY, "http").equalsIgnoreCase("replay");
+    private static final String LOG_FILE = System.getProperty("autoconnect.replay.log", "trafficData/exchanges.log");
+    private static final long LATENCY_NANOS = (long) (Double.parseDouble(System.getProperty("autoconnect.replay.latency", "0")) * 1_000_000);
+    private static final int READ_BUFFER_SIZE = 1 << 16;
+
+    private static ReplayTransport instance;
+
+    private final boolean binary;
+    private final Map<String, Exchanges> byVin = new HashMap<>(); //both never modified once loaded
+    private final Map<Integer, Exchanges> byAutoId = new HashMap<>();
+    private final AtomicLong replayed = new AtomicLong();
+    private final AtomicLong repeated = new AtomicLong();
+    private final ScheduledExecutorService delayer;
+
+    private ReplayTransport(String file) throws IOException, AutoConnectException{
+        try(DataInputStream log = new DataInputStream(new BufferedInputStream(new FileInputStream(file), READ_BUFFER_SIZE))){
+            if(log.readInt() != ExchangeRecorder.MAGIC || log.readInt() != ExchangeRecorder.VERSION){
+                throw new AutoConnectException(String.format("%s is not a version %s exchange log", file, ExchangeRecorder.VERSION));
+            }
+            binary = log.readByte() == ExchangeRecorder.CODEC_BINARY;
+
+            Request[] requests = Request.values();
+            int request;
+            while((request = log.read()) >= 0){
+                if(request >= requests.length){
+                    throw new AutoConnectException(String.format("Exchange log %s has an unknown request %s", file, request));
+                }
+                int autoId = log.readInt();
+                String vin = null;
+                if(requests[request] == Request.INIT_CONNECT){
+                    byte[] vinBytes = new byte[log.readUnsignedShort()];
+                    log.readFully(vinBytes);
+                    vin = new String(vinBytes, StandardCharsets.UTF_8);
+                }
+                int statusCode = log.readUnsignedShort();
+                byte[] response = new byte[log.readInt()];
+                log.readFully(response);
+
+                Exchanges exchanges = vin != null ? byVin.computeIfAbsent(vin, key -> new Exchanges())
+                        : byAutoId.computeIfAbsent(autoId, key -> new Exchanges());
+                exchanges.add(requests[request], new Exchange(statusCode, response));
+            }
+        }catch (EOFException e){
+            throw new AutoConnectException(String.format("Exchange log %s ends in the middle of an exchange", file));
+        }
+        delayer = LATENCY_NANOS > 0 ? Executors.newScheduledThreadPool(Runtime.getRuntime().availableProcessors(), runnable -> {
+            Thread thread = new Thread(runnable, "replay-transport");
+            thread.setDaemon(true);
+            return thread;
+        }) : null;
+    }
+
+    public static boolean isEnabled(){
+        return ENABLED;
+    }
+
+    //Reads the exchange log, if it hasn't been read yet, so that a missing or corrupt log is reported before the
+    //simulation starts
+    public static synchronized ReplayTransport load() throws IOException, AutoConnectException{
+        if(instance == null){
+            instance = new ReplayTransport(LOG_FILE);
+            System.out.println("Replaying " + instance.size() + " recorded exchanges from " + LOG_FILE + "!\n");
+        }
+        return instance;
+    }
+
+    public static ReplayTransport getInstance(){
+        try{
+            return load();
+        }catch (IOException | AutoConnectException e){
+            throw new IllegalStateException("Exchange log " + LOG_FILE + " could not be read --> " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public VehicleMessageCodec newCodec(){
+        return binary ? new BinaryMessageCodec() : new VehicleMessageCodec();
+    }
+
+    @Override
+    public int send(Request request, VehicleMessageCodec codec) throws IOException{
+        long start = System.nanoTime();
+        try{
+            return respond(request, codec);
+        }finally{
+            if(LATENCY_NANOS > 0){
+                long remaining;
+                while((remaining = start + LATENCY_NANOS - System.nanoTime()) > 0) LockSupport.parkNanos(remaining);
+            }
+        }
+    }
+
+    @Override
+    public CompletableFuture<Integer> sendAsync(Request request, VehicleMessageCodec codec){
+        CompletableFuture<Integer> result = new CompletableFuture<>();
+        int statusCode;
+        try{
+            statusCode = respond(request, codec);
+        }catch (IOException e){
+            result.completeExceptionally(e);
+            return result;
+        }
+        if(delayer == null){
+            result.complete(statusCode);
+        }else{
+            delayer.schedule(() -> result.complete(statusCode), LATENCY_NANOS, TimeUnit.NANOSECONDS);
+        }
+        return result;
+    }
+
+    @Override
+    public void shutdown(){
+        if(delayer != null) delayer.shutdown();
+        System.out.println("Replayed " + replayed.get() + " exchanges, " + repeated.get() + " of them beyond the recording\n");
+    }
+
+    private long size(){
+        long exchanges = 0;
+        for(Exchanges recorded : byVin.values()) exchanges += recorded.size();
+        for(Exchanges recorded : byAutoId.values()) exchanges += recorded.size();
+        return exchanges;
+    }
+
+    //Buffers the recorded response to the request in the codec, and returns its status code
+    private int respond(Request request, VehicleMessageCodec codec) throws IOException{
+        long start = System.nanoTime();
+        Exchanges exchanges = request == Request.INIT_CONNECT ? byVin.get(codec.getRequestVin()) : byAutoId.get(codec.getRequestAutoId());
+        Exchange exchange = exchanges == null ? null : exchanges.next(request, repeated);
+        boolean failed = exchange == null || exchange.statusCode == ExchangeRecorder.FAILED;
+        SimulationMetrics.getInstance().recordRequest(request.getEndpoint(), System.nanoTime() - start + LATENCY_NANOS,
+                failed || exchange.statusCode >= HttpStatus.SC_BAD_REQUEST);
+        replayed.incrementAndGet();
+
+        if(exchange == null){
+            String requester = request == Request.INIT_CONNECT ? "VIN# " + codec.getRequestVin() : "AutoId " + codec.getRequestAutoId();
+            throw new IOException("No " + request.getEndpoint() + " exchange of " + requester + " was recorded");
+        }
+        if(failed) throw new IOException("Recorded " + request.getEndpoint() + " exchange failed");
+        codec.setResponse(exchange.response, 0, exchange.response.length);
+        return exchange.statusCode;
+    }
+
+    //A recorded response
+    private static class Exchange {
+        private final int statusCode;
+        private final byte[] response;
+
+        private Exchange(int statusCode, byte[] response){
+            this.statusCode = statusCode;
+            this.response = response;
+        }
+    }
+
+    //The recorded responses of one vehicle, by kind of request, in the order they were recorded. Only served under its
+    //lock, as a vehicle's requests may be sent from a different thread each time
+    private static class Exchanges {
+        private final Map<Request, ArrayDeque<Exchange>> pending = new HashMap<>();
+        private final Map<Request, Exchange> last = new HashMap<>();
+
+        private void add(Request request, Exchange exchange){
+            pending.computeIfAbsent(request, key -> new ArrayDeque<>()).add(exchange);
+        }
+
+        private int size(){
+            int exchanges = 0;
+            for(ArrayDeque<Exchange> recorded : pending.values()) exchanges += recorded.size();
+            return exchanges;
+        }
+
+        //Next recorded response to the request, or the last one again once they have all been served
+        private synchronized Exchange next(Request request, AtomicLong repeated){
+            ArrayDeque<Exchange> recorded = pending.get(request);
+            Exchange exchange = recorded == null ? null : recorded.poll();
+            if(exchange != null){
+                last.put(request, exchange);
+                return exchange;
+            }
+            exchange = last.get(request);
+            if(exchange != null) repeated.incrementAndGet();
+            return exchange;
+        }
+    }
+}
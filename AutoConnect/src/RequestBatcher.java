@@ -0,0 +1,168 @@
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.HttpStatus;
+
+//Coalesces the position updates (or beta requests) that vehicles send within a short window into one request to the
+//server's /batch/* endpoint, used when the simulation is launched with -Dautoconnect.batch=true.
+//
+//A batch is sent as soon as it holds -Dautoconnect.batch.maxSize requests, or -Dautoconnect.batch.lingerMs after its
+//first request was queued, whichever comes first. Its response is split back into each vehicle's codec (see
+//BatchMessage), and each vehicle's future completes with the status the single endpoint would have returned, so the
+//vehicle handles the outcome exactly as if it had sent the request alone.
+//
+//Batches go through the AsyncHttpTransport in both I/O modes. In the blocking mode a vehicle's pool thread waits on
+//its share of the batch, so a batch can never hold more requests than there are simulation threads.
+public class RequestBatcher {
+    private static final boolean ENABLED = Boolean.getBoolean("autoconnect.batch");
+    private static final int MAX_BATCH_SIZE = Math.max(1, Integer.getInteger("autoconnect.batch.maxSize", 256));
+    private static final long LINGER_MICROS = (long) (Double.parseDouble(System.getProperty("autoconnect.batch.lingerMs", "2")) * 1000);
+
+    private static final ScheduledExecutorService LINGER_TIMER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "request-batcher");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private static final RequestBatcher UPDATES = new RequestBatcher("/batch/updateconnect", "Updates", "/updateconnect");
+    private static final RequestBatcher BETA_REQUESTS = new RequestBatcher("/batch/getbetas", "Requests", "/getbetas");
+
+    private final String endpoint;
+    private final String itemsName;
+    private final String itemEndpoint; //single endpoint the items are recorded under in SimulationMetrics
+
+    //batch being filled, and the timer that will send it; guarded by this
+    private Batch filling = new Batch();
+    private ScheduledFuture<?> lingerTask;
+
+    private RequestBatcher(String endpoint, String itemsName, String itemEndpoint){
+        this.endpoint = endpoint;
+        this.itemsName = itemsName;
+        this.itemEndpoint = itemEndpoint;
+    }
+
+    public static boolean isEnabled(){
+        return ENABLED;
+    }
+
+    //Batcher for /updateconnect position updates (not terminations, which are sent on their own)
+    public static RequestBatcher updates(){
+        return UPDATES;
+    }
+
+    //Batcher for /getbetas requests
+    public static RequestBatcher betaRequests(){
+        return BETA_REQUESTS;
+    }
+
+    //Queues the request encoded in the codec. The returned future completes with the item's HTTP status once its
+    //response has been copied into the codec, or exceptionally with an IOException if the batch failed.
+    //The codec must not be touched until then
+    public CompletableFuture<Integer> submit(VehicleMessageCodec codec){
+        CompletableFuture<Integer> result = new CompletableFuture<>();
+        Batch full = null;
+        synchronized(this){
+            int size = filling.add(codec, result);
+            if(size >= MAX_BATCH_SIZE){
+                if(lingerTask != null) lingerTask.cancel(false);
+                full = takeBatch();
+            }else if(size == 1){
+                lingerTask = LINGER_TIMER.schedule(this::flush, LINGER_MICROS, TimeUnit.MICROSECONDS);
+            }
+        }
+        if(full != null) send(full);
+        return result;
+    }
+
+    //Blocking form of submit, for the blocking I/O mode
+    public int send(VehicleMessageCodec codec) throws IOException{
+        try{
+            return submit(codec).get();
+        }catch (InterruptedException e){
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a batched response");
+        }catch (ExecutionException e){
+            throw e.getCause() instanceof IOException ? (IOException) e.getCause() : new IOException(e.getCause());
+        }
+    }
+
+    private void flush(){
+        Batch batch;
+        synchronized(this){
+            if(filling.codecs.isEmpty()) return;
+            batch = takeBatch();
+        }
+        send(batch);
+    }
+
+    //Hands over the batch being filled and starts a new one; caller holds the lock
+    private Batch takeBatch(){
+        Batch batch = filling;
+        filling = new Batch();
+        lingerTask = null;
+        return batch;
+    }
+
+    private void send(Batch batch){
+        BatchMessage message = new BatchMessage(itemsName, batch.codecs);
+        AsyncHttpTransport.getInstance().post(endpoint, message).whenComplete((statusCode, error) -> {
+            if(error != null){
+                batch.failFrom(0, error instanceof IOException ? (IOException) error : new IOException(error));
+                return;
+            }
+            if(statusCode != HttpStatus.SC_OK){
+                batch.failFrom(0, new IOException("Batch request to " + endpoint + " failed with status " + statusCode));
+                return;
+            }
+
+            int answered;
+            try{
+                answered = message.distributeResults();
+            }catch (RuntimeException e){
+                batch.failFrom(0, new IOException("Malformed batch response from " + endpoint + " --> " + e.getMessage()));
+                return;
+            }
+            for(int i = 0; i < answered; i++){
+                batch.complete(i, message.getStatusCode(i));
+            }
+            batch.failFrom(answered, new IOException("No result for request in batch to " + endpoint));
+        });
+    }
+
+    //Requests of one batch, with the futures of the vehicles waiting on them and when each was queued
+    private class Batch {
+        private final List<VehicleMessageCodec> codecs = new ArrayList<>();
+        private final List<CompletableFuture<Integer>> results = new ArrayList<>();
+        private long[] submitted = new long[16];
+
+        private int add(VehicleMessageCodec codec, CompletableFuture<Integer> result){
+            if(codecs.size() == submitted.length) submitted = Arrays.copyOf(submitted, submitted.length * 2);
+            submitted[codecs.size()] = System.nanoTime();
+            codecs.add(codec);
+            results.add(result);
+            return codecs.size();
+        }
+
+        private void complete(int i, int statusCode){
+            SimulationMetrics.getInstance().recordRequest(itemEndpoint, System.nanoTime() - submitted[i], statusCode >= HttpStatus.SC_BAD_REQUEST);
+            results.get(i).complete(statusCode);
+        }
+
+        private void failFrom(int from, IOException error){
+            long now = System.nanoTime();
+            for(int i = from; i < results.size(); i++){
+                SimulationMetrics.getInstance().recordRequest(itemEndpoint, now - submitted[i], true);
+                results.get(i).completeExceptionally(error);
+            }
+        }
+    }
+}
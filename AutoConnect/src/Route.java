@@ -0,0 +1,162 @@
+import java.util.Arrays;
+
+//Time-stamped trajectory of a vehicle, stored as primitive parallel columns (time, latitude, longitude) rather
+//than one boxed map entry per sample. Times are in SimulationTime milliseconds. A cursor marks the vehicle's CURRENT
+//sample: everything before it is in the past, so advancing the vehicle only moves the cursor and never removes or
+//re-hashes entries.
+//
+//Speed and heading at every sample are derived from the positions once, as two more columns, when the route is
+//fully loaded (or on first use, for routes still being added to), so reading them at a tick is an array access.
+public class Route {
+    private static final int INITIAL_CAPACITY = 256;
+    public static final int SPEED_WINDOW = 3; //samples from the current one (inclusive) that its speed is taken over
+
+    private int[] times;
+    private double[] latitudes;
+    private double[] longitudes;
+    private double[] speeds; //null until derived from the positions
+    private double[] headings;
+    private int length = 0;
+    private int cursor = 0;
+
+    public Route(){
+        this(INITIAL_CAPACITY);
+    }
+
+    public Route(int capacity){
+        times = new int[capacity];
+        latitudes = new double[capacity];
+        longitudes = new double[capacity];
+    }
+
+    //Wraps already loaded columns, which must be of equal length and in ascending time order
+    public Route(int[] times, double[] latitudes, double[] longitudes){
+        this.times = times;
+        this.latitudes = latitudes;
+        this.longitudes = longitudes;
+        this.length = times.length;
+        computeKinematics();
+    }
+
+    //Appends a sample; samples must be added in ascending time order
+    public void add(int time, double latitude, double longitude){
+        if(length == times.length){
+            int capacity = Math.max(INITIAL_CAPACITY, length * 2);
+            times = Arrays.copyOf(times, capacity);
+            latitudes = Arrays.copyOf(latitudes, capacity);
+            longitudes = Arrays.copyOf(longitudes, capacity);
+        }
+        times[length] = time;
+        latitudes[length] = latitude;
+        longitudes[length] = longitude;
+        length++;
+        speeds = null;
+        headings = null;
+    }
+
+    //Releases spare capacity once the route is fully loaded
+    public void trim(){
+        times = Arrays.copyOf(times, length);
+        latitudes = Arrays.copyOf(latitudes, length);
+        longitudes = Arrays.copyOf(longitudes, length);
+        computeKinematics();
+    }
+
+    //Total number of samples of the route, past ones included
+    public int length(){
+        return length;
+    }
+
+    //Number of samples from the current one (inclusive) to the end of the route
+    public int remaining(){
+        return length - cursor;
+    }
+
+    public boolean isEmpty(){
+        return remaining() == 0;
+    }
+
+    //Time of the sample 'offset' positions ahead of the current one
+    public int getTime(int offset){
+        return times[cursor + offset];
+    }
+
+    public double getLatitude(int offset){
+        return latitudes[cursor + offset];
+    }
+
+    public double getLongitude(int offset){
+        return longitudes[cursor + offset];
+    }
+
+    public int getCurrentTime(){
+        return getTime(0);
+    }
+
+    //Speed in km/h at the current sample: the speeds between it and the next SPEED_WINDOW-1 samples, summed and
+    //divided by SPEED_WINDOW. 0 once fewer than SPEED_WINDOW samples remain
+    public double getSpeed(){
+        if(speeds == null) computeKinematics();
+        return speeds[cursor];
+    }
+
+    //Heading in degrees from the current sample to the next (see Coordinate.getDirection). 0 at the last sample
+    public double getHeading(){
+        if(headings == null) computeKinematics();
+        return headings[cursor];
+    }
+
+    public Coordinate getLastCoordinate(){
+        return new Coordinate(latitudes[length - 1], longitudes[length - 1]);
+    }
+
+    //Fills the speed and heading columns, computing each step between consecutive samples once
+    private void computeKinematics(){
+        double[] speeds = new double[length];
+        double[] headings = new double[length];
+        for(int i = 0; i + 1 < length; i++){
+            speeds[i] = Coordinate.getSpeed(latitudes[i], longitudes[i], latitudes[i + 1], longitudes[i + 1]);
+            headings[i] = Coordinate.getDirection(latitudes[i], longitudes[i], latitudes[i + 1], longitudes[i + 1]);
+        }
+        //speeds[i] holds the speed of step i until sample i's window has been summed into it
+        for(int i = 0; i < length; i++){
+            if(i + SPEED_WINDOW > length){
+                speeds[i] = 0;
+                continue;
+            }
+            double totalSpeed = 0;
+            for(int step = i; step < i + SPEED_WINDOW - 1; step++){
+                totalSpeed += speeds[step];
+            }
+            speeds[i] = totalSpeed / SPEED_WINDOW;
+        }
+        this.speeds = speeds;
+        this.headings = headings;
+    }
+
+    //Moves the cursor back to the first sample, eg. to replay the route
+    public void rewind(){
+        cursor = 0;
+    }
+
+    //Moves the cursor to the latest sample at or before the given time, which need not fall on a sample. Returns
+    //false, leaving the cursor untouched, if that sample is a whole sampling step or more older than time, ie. the
+    //route has ended or has a gap there. Traces are sampled at a fixed rate, so the index is computed from the
+    //sampling step, and only searched for if the route isn't evenly sampled there.
+    public boolean advanceTo(int time){
+        if(isEmpty()) return false;
+        if(time < times[cursor]) return true; //never move back into the past
+        if(remaining() == 1) return time == times[cursor];
+
+        int step = times[cursor + 1] - times[cursor];
+        int index = (int) Math.min(length - 1, cursor + (long) (time - times[cursor]) / Math.max(1, step));
+        if(times[index] > time || (index + 1 < length && times[index + 1] <= time)){
+            index = Arrays.binarySearch(times, cursor, length, time);
+            if(index < 0) index = -index - 2; //the sample before the insertion point
+        }
+        if(step > 0 && time - times[index] >= step) return false;
+
+        cursor = index;
+        return true;
+    }
+}
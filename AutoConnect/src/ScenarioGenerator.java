@@ -0,0 +1,187 @@
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.SplittableRandom;
+
+//Synthetic fleet scaled up from the vehicles of a BinaryTrace, for loads far beyond what the trace holds. Enabled at
+//launch with -Dautoconnect.scenario.vehicles=<fleet size>. Every generated vehicle is a copy of one trace vehicle (its
+//base), varied by:
+//  time shift -> the copies of each base are spread over -Dautoconnect.scenario.window seconds (default 600): copy c
+//                of n starts at a random point of the c-th of n equal slices of the window
+//  jitter     -> the whole route is moved by up to -Dautoconnect.scenario.jitter metres (default 25) in a random
+//                direction, which leaves its speeds and headings unchanged
+//  reversal   -> with probability -Dautoconnect.scenario.reverse (default 0.5), the route is driven backwards over the
+//                same timestamps
+//Each vehicle draws its variations from a random stream of its own, derived from -Dautoconnect.scenario.seed (default
+//1), so a seed always yields the same fleet, whatever order it's consumed in.
+//
+//Vehicles are generated lazily and in starting-time order, as a SpawnTimeline pulls them: a heap holds the next copy of
+//every base, so the generator's memory grows with the number of bases but never with the fleet size. A vehicle's route
+//is only copied out of the trace and varied when the vehicle loads it.
+public class ScenarioGenerator implements Iterator<Vehicle> {
+    private static final int FLEET_SIZE = Integer.getInteger("autoconnect.scenario.vehicles", 0);
+    private static final long SEED = Long.getLong("autoconnect.scenario.seed", 1);
+    private static final int WINDOW_SECONDS = Integer.getInteger("autoconnect.scenario.window", 600);
+    private static final double JITTER_METRES = Double.parseDouble(System.getProperty("autoconnect.scenario.jitter", "25"));
+    private static final double REVERSE_PROBABILITY = Double.parseDouble(System.getProperty("autoconnect.scenario.reverse", "0.5"));
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+    private static final double METRES_IN_DEGREE = Coordinate.KM_IN_DEGREE * 1000.0;
+
+    private final BinaryTrace trace;
+    private final int bases;
+    private final int fleetSize;
+    private final long seed;
+    private final double sliceMillis; //part of the window each copy of a base starts in
+    private final double jitterMetres;
+    private final double reverseProbability;
+
+    //min-heap of (starting time, base) pairs packed into longs, one per base with copies left to generate
+    private final long[] heap;
+    private int heapSize = 0;
+    private final int[] nextCopy; //per base, the copy its heap entry stands for
+
+    //Generates fleetSize vehicles from the first 'bases' vehicles of the trace
+    public ScenarioGenerator(BinaryTrace trace, int bases, int fleetSize, long seed, int windowSeconds,
+                             double jitterMetres, double reverseProbability){
+        this.trace = trace;
+        this.bases = Math.min(bases, trace.getVehicleCount());
+        this.fleetSize = this.bases == 0 ? 0 : fleetSize;
+        this.seed = seed;
+        int copies = this.bases == 0 ? 1 : (int) ((fleetSize + (long) this.bases - 1) / this.bases);
+        this.sliceMillis = windowSeconds * 1000.0 / Math.max(1, copies);
+        this.jitterMetres = jitterMetres;
+        this.reverseProbability = reverseProbability;
+
+        heap = new long[this.bases];
+        nextCopy = new int[this.bases];
+        for(int base = 0; base < this.bases && base < this.fleetSize; base++){
+            push(startingTime(base, 0, random(base)), base);
+        }
+    }
+
+    //Whether the simulation should run a generated fleet rather than the trace as it is
+    public static boolean isEnabled(){
+        return FLEET_SIZE > 0;
+    }
+
+    //Generator configured by the -Dautoconnect.scenario.* settings
+    public static ScenarioGenerator fromSettings(BinaryTrace trace, int bases){
+        return new ScenarioGenerator(trace, bases, FLEET_SIZE, SEED, WINDOW_SECONDS, JITTER_METRES, REVERSE_PROBABILITY);
+    }
+
+    public int getFleetSize(){
+        return fleetSize;
+    }
+
+    @Override
+    public boolean hasNext(){
+        return heapSize > 0;
+    }
+
+    //Generates the vehicle starting next, named "1".."n" by (copy, base) so that names don't depend on starting times
+    @Override
+    public Vehicle next(){
+        if(!hasNext()) throw new NoSuchElementException();
+        int base = (int) heap[0];
+        int copy = nextCopy[base];
+        int vehicle = copy * bases + base;
+
+        SplittableRandom random = random(vehicle);
+        int start = startingTime(base, copy, random);
+        int shift = start - trace.getStartingTime(base);
+        boolean reversed = random.nextDouble() < reverseProbability;
+        double jitter = jitterMetres * Math.sqrt(random.nextDouble()) / METRES_IN_DEGREE; //uniform over the disc
+        double bearing = random.nextDouble() * 2 * Math.PI;
+        double latitudeOffset = jitter * Math.cos(bearing);
+        double longitudeOffset = jitter * Math.sin(bearing);
+
+        //replace this base's entry by its next copy, if it has one
+        int following = vehicle + bases;
+        if(following < fleetSize){
+            nextCopy[base] = copy + 1;
+            heap[0] = key(startingTime(base, copy + 1, random(following)), base);
+        }else{
+            heap[0] = heap[--heapSize];
+        }
+        siftDown(0);
+
+        return new Vehicle(Integer.toString(vehicle + 1), start,
+                () -> deriveRoute(base, shift, reversed, latitudeOffset, longitudeOffset));
+    }
+
+    //Copies the base's route out of the trace, shifted in time, moved, and reversed if asked to
+    private Route deriveRoute(int base, int shift, boolean reversed, double latitudeOffset, double longitudeOffset){
+        int samples = trace.getSampleCount(base);
+        int[] times = new int[samples];
+        double[] latitudes = new double[samples];
+        double[] longitudes = new double[samples];
+        trace.readColumns(base, times, latitudes, longitudes);
+
+        for(int i = 0; i < samples; i++){
+            times[i] += shift;
+            latitudes[i] += latitudeOffset;
+            longitudes[i] += longitudeOffset;
+        }
+        if(reversed){
+            for(int i = 0, j = samples - 1; i < j; i++, j--){
+                double latitude = latitudes[i];
+                latitudes[i] = latitudes[j];
+                latitudes[j] = latitude;
+                double longitude = longitudes[i];
+                longitudes[i] = longitudes[j];
+                longitudes[j] = longitude;
+            }
+        }
+        return new Route(times, latitudes, longitudes);
+    }
+
+    //Starting time of the given copy of a base; takes the first draw of the vehicle's random stream. Copies of a base
+    //start in distinct slices of the window, so later copies never start before earlier ones
+    private int startingTime(int base, int copy, SplittableRandom random){
+        return trace.getStartingTime(base) + (int) ((copy + random.nextDouble()) * sliceMillis);
+    }
+
+    //Random stream of one vehicle: streams of consecutive vehicles are seeded far apart, so they don't overlap
+    private SplittableRandom random(int vehicle){
+        return new SplittableRandom(mix(seed + vehicle * GOLDEN_GAMMA));
+    }
+
+    private static long mix(long z){
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    //---- heap ----
+
+    private static long key(int startingTime, int base){
+        return (long) startingTime << 32 | base;
+    }
+
+    private void push(int startingTime, int base){
+        int i = heapSize++;
+        heap[i] = key(startingTime, base);
+        while(i > 0 && heap[(i - 1) / 2] > heap[i]){
+            swap(i, (i - 1) / 2);
+            i = (i - 1) / 2;
+        }
+    }
+
+    private void siftDown(int i){
+        while(true){
+            int smallest = i;
+            int left = 2 * i + 1;
+            int right = left + 1;
+            if(left < heapSize && heap[left] < heap[smallest]) smallest = left;
+            if(right < heapSize && heap[right] < heap[smallest]) smallest = right;
+            if(smallest == i) return;
+            swap(i, smallest);
+            i = smallest;
+        }
+    }
+
+    private void swap(int i, int j){
+        long key = heap[i];
+        heap[i] = heap[j];
+        heap[j] = key;
+    }
+}
@@ -0,0 +1,9 @@
+//Failure of an exchange that may succeed if retried later: the server could not be reached, or answered that it is
+//overloaded. Vehicles back off and ride a few of these out instead of leaving the simulation (see UpdatePacing)
+public class ServerBusyException extends AutoConnectException {
+    private static final long serialVersionUID = 1L;
+
+    public ServerBusyException(String s){
+        super(s);
+    }
+}
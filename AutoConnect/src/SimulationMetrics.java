@@ -0,0 +1,330 @@
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+//Instrumentation of the simulation: per-endpoint request latency histograms, request and error counts, the number of
+//active vehicles, tick lag (how late each scheduled event starts running, compared to when it was due), and with
+//DeadReckoning, how many position updates were suppressed and how far the suppressed positions were off, and with
+//BetaCandidateCache, how often cached beta candidates were reused instead of asking the server.
+//
+//Requests are recorded by the transports (and by RequestBatcher for the vehicles' share of a batch), keyed by
+//endpoint; an error is an exchange that failed outright or was answered with an HTTP error status. Every recorder of
+//requests and ticks is striped (LatencyHistogram, LongAdder), so vehicles never contend on a shared counter. Only the
+//count of active vehicles, changed just once as each vehicle joins or leaves, is exact, so that its peak is too.
+//
+//While the simulation runs, an interval snapshot is printed every -Dautoconnect.metrics.interval seconds (default 10,
+//0 to disable), which with WorldState also counts the live vehicles in a snapshot of it; a summary of the whole run is
+//written to a file once it ends.
+public class SimulationMetrics {
+    private static final long REPORT_INTERVAL_SECONDS = Long.getLong("autoconnect.metrics.interval", 10);
+    private static final double NANOS_IN_MILLI = 1e6;
+    private static final double NANOS_IN_SECOND = 1e9;
+    private static final double MILLIMETRES_IN_METRE = 1e3;
+
+    private static final SimulationMetrics INSTANCE = new SimulationMetrics();
+
+    private final Map<String, EndpointMetrics> endpoints = new ConcurrentHashMap<>();
+    private final LatencyHistogram tickLag = new LatencyHistogram();
+    private final LongAdder updatesSent = new LongAdder();
+    private final LatencyHistogram reckoningError = new LatencyHistogram(); //in millimetres, one value per suppressed update
+    private final LongAdder betaCacheHits = new LongAdder();
+    private final LongAdder betaCacheMisses = new LongAdder();
+    private final AtomicLong activeVehicles = new AtomicLong();
+    private final LongAdder joinedVehicles = new LongAdder();
+    private final LongAccumulator peakActiveVehicles = new LongAccumulator(Math::max, 0);
+    private final long startNanos = System.nanoTime();
+
+    private ScheduledExecutorService reporter;
+    private Snapshot lastReport;
+    private final WorldState.Snapshot world = new WorldState.Snapshot(); //reused by every report; guarded by this
+
+    private SimulationMetrics(){
+    }
+
+    public static SimulationMetrics getInstance(){
+        return INSTANCE;
+    }
+
+    //Records one exchange with the server that took nanos, from sending the request to receiving the whole response
+    public void recordRequest(String endpoint, long nanos, boolean failed){
+        EndpointMetrics metrics = endpoints.get(endpoint);
+        if(metrics == null) metrics = endpoints.computeIfAbsent(endpoint, name -> new EndpointMetrics());
+        metrics.latency.record(nanos);
+        metrics.requests.increment();
+        if(failed) metrics.errors.increment();
+    }
+
+    public void recordTickLag(long nanos){
+        tickLag.record(nanos);
+    }
+
+    //Dead reckoning: an update was sent
+    public void recordSentUpdate(){
+        updatesSent.increment();
+    }
+
+    //Dead reckoning: an update was suppressed, while the true position was errorMillimetres off the extrapolated one
+    public void recordSuppressedUpdate(long errorMillimetres){
+        reckoningError.record(errorMillimetres);
+    }
+
+    //Beta candidate cache: cached candidates were reused
+    public void recordBetaCacheHit(){
+        betaCacheHits.increment();
+    }
+
+    //Beta candidate cache: candidates had to be asked for
+    public void recordBetaCacheMiss(){
+        betaCacheMisses.increment();
+    }
+
+    public void vehicleJoined(){
+        peakActiveVehicles.accumulate(activeVehicles.incrementAndGet());
+        joinedVehicles.increment();
+    }
+
+    public void vehicleLeft(){
+        activeVehicles.decrementAndGet();
+    }
+
+    //Most vehicles active at once so far
+    public long getPeakActiveVehicles(){
+        return peakActiveVehicles.get();
+    }
+
+    //Starts printing interval snapshots, if enabled
+    public synchronized void startReporting(){
+        if(REPORT_INTERVAL_SECONDS <= 0 || reporter != null) return;
+        lastReport = snapshot();
+        reporter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "simulation-metrics");
+            thread.setDaemon(true);
+            return thread;
+        });
+        reporter.scheduleAtFixedRate(this::report, REPORT_INTERVAL_SECONDS, REPORT_INTERVAL_SECONDS, TimeUnit.SECONDS);
+    }
+
+    public synchronized void stopReporting(){
+        if(reporter == null) return;
+        reporter.shutdownNow();
+        reporter = null;
+    }
+
+    //Copy of every recorder, from the start of the simulation until now
+    public Snapshot snapshot(){
+        Map<String, EndpointSnapshot> endpointSnapshots = new TreeMap<>();
+        for(Map.Entry<String, EndpointMetrics> endpoint : endpoints.entrySet()){
+            EndpointMetrics metrics = endpoint.getValue();
+            endpointSnapshots.put(endpoint.getKey(),
+                    new EndpointSnapshot(metrics.latency.snapshot(), metrics.requests.sum(), metrics.errors.sum()));
+        }
+        return new Snapshot(System.nanoTime() - startNanos, endpointSnapshots, tickLag.snapshot(), activeVehicles.get(), joinedVehicles.sum(),
+                updatesSent.sum(), reckoningError.snapshot(), betaCacheHits.sum(), betaCacheMisses.sum());
+    }
+
+    //Writes a summary of the whole run so far, replacing any earlier summary
+    public void writeSummary(String file) throws IOException{
+        Snapshot total = snapshot();
+        Path path = Paths.get(file);
+        if(path.getParent() != null) Files.createDirectories(path.getParent());
+        try(PrintWriter out = new PrintWriter(Files.newBufferedWriter(path))){
+            out.printf("Simulation metrics over %.1fs%n", total.elapsedNanos / NANOS_IN_SECOND);
+            out.printf("Vehicles: %d joined, %d peak active, %d still active%n", total.joinedVehicles, peakActiveVehicles.get(), total.activeVehicles);
+            out.println();
+            out.printf("%-22s %10s %9s %8s %8s %10s %10s %10s %10s %10s%n",
+                    "Endpoint", "Requests", "Req/s", "Errors", "Err/s", "Mean ms", "p50 ms", "p99 ms", "p99.9 ms", "Max ms");
+            for(Map.Entry<String, EndpointSnapshot> endpoint : total.endpoints.entrySet()){
+                EndpointSnapshot metrics = endpoint.getValue();
+                out.printf("%-22s %10d %9.1f %8d %8.2f %s%n", endpoint.getKey(), metrics.requests, total.perSecond(metrics.requests),
+                        metrics.errors, total.perSecond(metrics.errors), formatLatencies(metrics.latency));
+            }
+            out.printf("%-22s %10d %9.1f %8s %8s %s%n", "Tick lag", total.tickLag.getCount(), total.perSecond(total.tickLag.getCount()),
+                    "", "", formatLatencies(total.tickLag));
+
+            long suppressed = total.reckoningError.getCount();
+            if(total.updatesSent + suppressed > 0){
+                out.println();
+                out.printf("Dead reckoning: %d position updates sent, %d suppressed (%.1f%% fewer requests)%n", total.updatesSent,
+                        suppressed, 100.0 * suppressed / (total.updatesSent + suppressed));
+                out.printf("Error of suppressed positions: mean %.2f m, p50 %.2f m, p99 %.2f m, p99.9 %.2f m, max %.2f m%n",
+                        total.reckoningError.getMeanNanos() / MILLIMETRES_IN_METRE,
+                        total.reckoningError.getPercentileNanos(50) / MILLIMETRES_IN_METRE,
+                        total.reckoningError.getPercentileNanos(99) / MILLIMETRES_IN_METRE,
+                        total.reckoningError.getPercentileNanos(99.9) / MILLIMETRES_IN_METRE,
+                        total.reckoningError.getMaxNanos() / MILLIMETRES_IN_METRE);
+            }
+
+            long lookups = total.betaCacheHits + total.betaCacheMisses;
+            if(lookups > 0){
+                out.println();
+                out.printf("Beta candidate cache: %d of %d lookups hit (%.1f%% fewer beta requests)%n", total.betaCacheHits,
+                        lookups, 100.0 * total.getBetaCacheHitRate());
+            }
+        }
+    }
+
+    private synchronized void report(){
+        Snapshot current = snapshot();
+        Snapshot interval = current.since(lastReport);
+        lastReport = current;
+
+        StringBuilder report = new StringBuilder();
+        report.append(String.format("[metrics %.0fs] %d active vehicles, %.1f events/s, tick lag p50/p99/p99.9/max %s ms%n",
+                current.elapsedNanos / NANOS_IN_SECOND, current.activeVehicles, interval.perSecond(interval.tickLag.getCount()),
+                formatPercentiles(interval.tickLag)));
+        for(Map.Entry<String, EndpointSnapshot> endpoint : interval.endpoints.entrySet()){
+            EndpointSnapshot metrics = endpoint.getValue();
+            report.append(String.format("  %-22s %9.1f req/s %7.2f err/s  p50/p99/p99.9/max %s ms%n", endpoint.getKey(),
+                    interval.perSecond(metrics.requests), interval.perSecond(metrics.errors), formatPercentiles(metrics.latency)));
+        }
+        long suppressed = interval.reckoningError.getCount();
+        if(interval.updatesSent + suppressed > 0){
+            report.append(String.format("  dead reckoning: %.1f%% of updates suppressed, error p50/p99/max %.2f/%.2f/%.2f m%n",
+                    100.0 * suppressed / (interval.updatesSent + suppressed),
+                    interval.reckoningError.getPercentileNanos(50) / MILLIMETRES_IN_METRE,
+                    interval.reckoningError.getPercentileNanos(99) / MILLIMETRES_IN_METRE,
+                    interval.reckoningError.getMaxNanos() / MILLIMETRES_IN_METRE));
+        }
+        if(interval.betaCacheHits + interval.betaCacheMisses > 0){
+            report.append(String.format("  beta candidate cache: %.1f%% hit rate%n", 100.0 * interval.getBetaCacheHitRate()));
+        }
+        if(WorldState.isEnabled()){
+            long retries = world.getRetries();
+            WorldState.getInstance().snapshot(world);
+            report.append(String.format("  world state: %d live vehicles, mean speed %.1f km/h, %d reads retried%n",
+                    world.size(), world.getMeanSpeed(), world.getRetries() - retries));
+        }
+        System.out.println(report);
+    }
+
+    private static String formatLatencies(LatencyHistogram.Snapshot latency){
+        return String.format("%10.3f %10.3f %10.3f %10.3f %10.3f", latency.getMeanNanos() / NANOS_IN_MILLI,
+                latency.getPercentileNanos(50) / NANOS_IN_MILLI, latency.getPercentileNanos(99) / NANOS_IN_MILLI,
+                latency.getPercentileNanos(99.9) / NANOS_IN_MILLI, latency.getMaxNanos() / NANOS_IN_MILLI);
+    }
+
+    private static String formatPercentiles(LatencyHistogram.Snapshot latency){
+        return String.format("%.3f/%.3f/%.3f/%.3f", latency.getPercentileNanos(50) / NANOS_IN_MILLI,
+                latency.getPercentileNanos(99) / NANOS_IN_MILLI, latency.getPercentileNanos(99.9) / NANOS_IN_MILLI,
+                latency.getMaxNanos() / NANOS_IN_MILLI);
+    }
+
+    private static class EndpointMetrics {
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private final LongAdder requests = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+    }
+
+    public static class EndpointSnapshot {
+        private final LatencyHistogram.Snapshot latency;
+        private final long requests;
+        private final long errors;
+
+        private EndpointSnapshot(LatencyHistogram.Snapshot latency, long requests, long errors){
+            this.latency = latency;
+            this.requests = requests;
+            this.errors = errors;
+        }
+
+        public LatencyHistogram.Snapshot getLatency(){
+            return latency;
+        }
+
+        public long getRequests(){
+            return requests;
+        }
+
+        public long getErrors(){
+            return errors;
+        }
+    }
+
+    public static class Snapshot {
+        private final long elapsedNanos;
+        private final Map<String, EndpointSnapshot> endpoints;
+        private final LatencyHistogram.Snapshot tickLag;
+        private final long activeVehicles;
+        private final long joinedVehicles;
+        private final long updatesSent;
+        private final LatencyHistogram.Snapshot reckoningError; //one value per suppressed update
+        private final long betaCacheHits;
+        private final long betaCacheMisses;
+
+        private Snapshot(long elapsedNanos, Map<String, EndpointSnapshot> endpoints, LatencyHistogram.Snapshot tickLag,
+                         long activeVehicles, long joinedVehicles, long updatesSent, LatencyHistogram.Snapshot reckoningError,
+                         long betaCacheHits, long betaCacheMisses){
+            this.elapsedNanos = elapsedNanos;
+            this.endpoints = endpoints;
+            this.tickLag = tickLag;
+            this.activeVehicles = activeVehicles;
+            this.joinedVehicles = joinedVehicles;
+            this.updatesSent = updatesSent;
+            this.reckoningError = reckoningError;
+            this.betaCacheHits = betaCacheHits;
+            this.betaCacheMisses = betaCacheMisses;
+        }
+
+        public Map<String, EndpointSnapshot> getEndpoints(){
+            return endpoints;
+        }
+
+        public LatencyHistogram.Snapshot getTickLag(){
+            return tickLag;
+        }
+
+        public long getActiveVehicles(){
+            return activeVehicles;
+        }
+
+        public long getUpdatesSent(){
+            return updatesSent;
+        }
+
+        public long getUpdatesSuppressed(){
+            return reckoningError.getCount();
+        }
+
+        public long getBetaCacheHits(){
+            return betaCacheHits;
+        }
+
+        public long getBetaCacheMisses(){
+            return betaCacheMisses;
+        }
+
+        //Share of beta candidate lookups answered from the cache; 0 if the cache was not used
+        public double getBetaCacheHitRate(){
+            long lookups = betaCacheHits + betaCacheMisses;
+            return lookups == 0 ? 0 : (double) betaCacheHits / lookups;
+        }
+
+        //What was recorded since an earlier snapshot; vehicle counts stay those of this snapshot
+        public Snapshot since(Snapshot earlier){
+            Map<String, EndpointSnapshot> difference = new TreeMap<>();
+            for(Map.Entry<String, EndpointSnapshot> endpoint : endpoints.entrySet()){
+                EndpointSnapshot now = endpoint.getValue();
+                EndpointSnapshot before = earlier.endpoints.get(endpoint.getKey());
+                difference.put(endpoint.getKey(), before == null ? now : new EndpointSnapshot(now.latency.since(before.latency),
+                        now.requests - before.requests, now.errors - before.errors));
+            }
+            return new Snapshot(elapsedNanos - earlier.elapsedNanos, difference, tickLag.since(earlier.tickLag), activeVehicles, joinedVehicles,
+                    updatesSent - earlier.updatesSent, reckoningError.since(earlier.reckoningError),
+                    betaCacheHits - earlier.betaCacheHits, betaCacheMisses - earlier.betaCacheMisses);
+        }
+
+        private double perSecond(long count){
+            return elapsedNanos <= 0 ? 0 : count * NANOS_IN_SECOND / elapsedNanos;
+        }
+    }
+}
@@ -0,0 +1,213 @@
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+//Asynchronous output pipeline of the simulation. Vehicles publish compact connection events into a lock-free ring
+//buffer, and a single writer thread drains it into an OutputSink, so output is streamed to disk while the
+//simulation runs instead of being held in memory until the end.
+//
+//The format is chosen at launch with -Dautoconnect.output=text (the simulation.txt column layout, the default) or
+//binary (see BinaryOutputSink), and the ring size with -Dautoconnect.output.ringSize (rounded up to a power of two).
+//
+//The ring is a multi-producer, single-consumer sequence ring: a producer claims a sequence number with one atomic
+//increment, fills the slot's primitive fields (no event object is allocated), then publishes the slot by storing its
+//sequence number. The writer consumes slots strictly in sequence order. When the ring is full, producers wait for the
+//writer to free a slot rather than drop events.
+public class SimulationOutput {
+    private static final String FORMAT_PROPERTY = "autoconnect.output";
+    private static final int RING_SIZE = Integer.getInteger("autoconnect.output.ringSize", 1 << 16);
+    private static final long WRITER_IDLE_NANOS = 100_000;
+    private static final long FLUSH_INTERVAL_NANOS = 50_000_000; //longest time written events may sit in the sink's buffer
+    private static final long PRODUCER_BACKOFF_NANOS = 10_000;
+    private static final int INITIAL_CANDIDATES = 4;
+
+    private static final byte JOINED = 1;
+    private static final byte CONNECTION = 2;
+    private static final byte LEFT = 3;
+
+    private static final SimulationOutput DISCARD = new SimulationOutput();
+    private static volatile SimulationOutput instance = DISCARD;
+
+    private final OutputSink sink;
+    private final int mask;
+    private final Thread writer;
+
+    //slot fields; a slot is owned by its producer until published, then by the writer until consumed
+    private final byte[] kinds;
+    private final int[] autoIds;
+    private final int[] times;
+    private final int[] counts;
+    private final int[][] candidates;
+    private final String[] vins;
+    private final AtomicLongArray published; //sequence number last published in each slot
+
+    private final AtomicLong claimed = new AtomicLong();
+    private final AtomicLong consumed = new AtomicLong();
+    private volatile boolean closing = false;
+    private IOException failure; //first sink error, reported on close
+
+    //Output that discards every event, used until the simulation opens a real one (eg. in benchmarks)
+    private SimulationOutput(){
+        sink = null;
+        mask = 0;
+        writer = null;
+        kinds = null;
+        autoIds = null;
+        times = null;
+        counts = null;
+        candidates = null;
+        vins = null;
+        published = null;
+    }
+
+    private SimulationOutput(OutputSink sink, int ringSize){
+        int capacity = Integer.highestOneBit(Math.max(2, ringSize - 1)) << 1;
+        this.sink = sink;
+        this.mask = capacity - 1;
+        kinds = new byte[capacity];
+        autoIds = new int[capacity];
+        times = new int[capacity];
+        counts = new int[capacity];
+        candidates = new int[capacity][INITIAL_CANDIDATES];
+        vins = new String[capacity];
+        published = new AtomicLongArray(capacity);
+        for(int i = 0; i < capacity; i++) published.set(i, -1);
+
+        writer = new Thread(this::drain, "simulation-output");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    //Opens the output every vehicle publishes to from now on, in the format chosen at launch. textFile receives the
+    //text layout; the binary layout goes to the same path with a .bin extension
+    public static SimulationOutput open(String textFile) throws IOException{
+        String format = System.getProperty(FORMAT_PROPERTY, "text");
+        OutputSink sink = format.equalsIgnoreCase("binary")
+                ? new BinaryOutputSink(textFile.replaceFirst("\\.txt$", "") + ".bin")
+                : new TextOutputSink(textFile);
+        return open(sink);
+    }
+
+    public static SimulationOutput open(OutputSink sink){
+        SimulationOutput output = new SimulationOutput(sink, RING_SIZE);
+        instance = output;
+        return output;
+    }
+
+    public static SimulationOutput getInstance(){
+        return instance;
+    }
+
+    public void vehicleJoined(String vin, int autoId){
+        if(sink == null) return;
+        long sequence = claim();
+        int slot = (int) (sequence & mask);
+        kinds[slot] = JOINED;
+        autoIds[slot] = autoId;
+        vins[slot] = vin;
+        published.lazySet(slot, sequence);
+    }
+
+    public void connection(int autoId, int time, int[] connections, int count){
+        if(sink == null) return;
+        long sequence = claim();
+        int slot = (int) (sequence & mask);
+        kinds[slot] = CONNECTION;
+        autoIds[slot] = autoId;
+        times[slot] = time;
+        if(count > candidates[slot].length) candidates[slot] = new int[count];
+        System.arraycopy(connections, 0, candidates[slot], 0, count);
+        counts[slot] = count;
+        published.lazySet(slot, sequence);
+    }
+
+    public void vehicleLeft(int autoId){
+        if(sink == null) return;
+        long sequence = claim();
+        int slot = (int) (sequence & mask);
+        kinds[slot] = LEFT;
+        autoIds[slot] = autoId;
+        published.lazySet(slot, sequence);
+    }
+
+    //Writes out every event published so far and closes the sink. Only call once every vehicle has finished
+    public void close() throws IOException, InterruptedException{
+        if(sink == null) return;
+        closing = true;
+        LockSupport.unpark(writer);
+        writer.join();
+        if(instance == this) instance = DISCARD;
+        if(failure != null) throw failure;
+    }
+
+    //Claims the next sequence number, waiting while its slot still holds an event the writer hasn't consumed
+    private long claim(){
+        long sequence = claimed.getAndIncrement();
+        while(sequence - consumed.get() > mask){
+            LockSupport.parkNanos(PRODUCER_BACKOFF_NANOS);
+        }
+        return sequence;
+    }
+
+    private void drain(){
+        long next = 0;
+        boolean dirty = false;
+        long lastFlush = System.nanoTime();
+        while(true){
+            int slot = (int) (next & mask);
+            if(published.get(slot) == next){
+                if(failure == null) dispatch(slot);
+                vins[slot] = null;
+                consumed.lazySet(++next);
+                dirty = true;
+                continue;
+            }
+
+            if(dirty && System.nanoTime() - lastFlush >= FLUSH_INTERVAL_NANOS){
+                flush();
+                dirty = false;
+                lastFlush = System.nanoTime();
+                continue;
+            }
+            if(closing && claimed.get() == next) break;
+            LockSupport.parkNanos(WRITER_IDLE_NANOS);
+        }
+
+        try{
+            sink.close();
+        }catch (IOException e){
+            if(failure == null) failure = e;
+        }
+    }
+
+    private void dispatch(int slot){
+        try{
+            switch(kinds[slot]){
+                case JOINED:
+                    sink.vehicleJoined(vins[slot], autoIds[slot]);
+                    break;
+                case CONNECTION:
+                    sink.connection(autoIds[slot], times[slot], candidates[slot], counts[slot]);
+                    break;
+                case LEFT:
+                    sink.vehicleLeft(autoIds[slot]);
+                    break;
+            }
+        }catch (IOException e){
+            //keep draining so that producers never block on a dead writer; the error is reported on close
+            failure = e;
+            System.out.println("Simulation output could not be written --> " + e.getMessage());
+        }
+    }
+
+    private void flush(){
+        if(failure != null) return;
+        try{
+            sink.flush();
+        }catch (IOException e){
+            failure = e;
+            System.out.println("Simulation output could not be written --> " + e.getMessage());
+        }
+    }
+}
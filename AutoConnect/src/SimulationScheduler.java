@@ -0,0 +1,269 @@
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+//Central discrete-event scheduler of the simulation. Vehicle spawns and vehicle ticks are events keyed by
+//simulated time (SimulationTime milliseconds), dispatched in time order onto the VehicleRuntime.
+//
+//Simulated time is mapped onto wall-clock time by a speed-up factor, set at launch with -Dautoconnect.speedup:
+//  1   -> real time (a 30 minute trace takes 30 minutes)
+//  n   -> n times faster than real time
+//  max -> as fast as possible: time jumps straight to the next event as soon as every event of the
+//         current instant has been handled, so causality between ticks is still preserved
+//
+//Vehicles given as a SpawnTimeline are admitted one at a time as the simulation reaches their starting time, rather
+//than all being queued up front.
+//
+//With -Dautoconnect.io=async, vehicles run as asynchronous request/response chains (see AsyncHttpTransport): an event
+//only occupies a runtime thread while it prepares its request, but still counts as running until its response has
+//been handled.
+public class SimulationScheduler {
+    private static final String SPEEDUP_PROPERTY = "autoconnect.speedup";
+
+    private final VehicleRuntime runtime;
+    private final double speedup; //simulated seconds per wall-clock second; infinite when running as fast as possible
+    private final PriorityQueue<Event> events = new PriorityQueue<>();
+    private final CompletableFuture<Void> completion = new CompletableFuture<>();
+
+    //all fields below are guarded by 'this'
+    private long eventSequence = 0;
+    private long spawnSequence = Long.MIN_VALUE; //spawns admitted from the timeline go ahead of ticks of their instant
+    private SpawnTimeline timeline;
+    private int eventsInFlight = 0;
+    private boolean acceptingSpawns = true;
+    private int currentTime = 0;
+    private int epochTime;
+    private long epochNanos;
+    private long instantNanos; //when the simulation reached currentTime
+
+    public SimulationScheduler(VehicleRuntime runtime, double speedup){
+        this.runtime = runtime;
+        this.speedup = speedup;
+    }
+
+    public static SimulationScheduler create(VehicleRuntime runtime){
+        String speedupSetting = System.getProperty(SPEEDUP_PROPERTY, "1").trim();
+        double speedup = Double.NaN;
+        if(speedupSetting.equalsIgnoreCase("max")){
+            speedup = Double.POSITIVE_INFINITY;
+        }else{
+            try{
+                speedup = Double.parseDouble(speedupSetting);
+            }catch (NumberFormatException e){
+                //reported below
+            }
+        }
+        if(Double.isNaN(speedup)){
+            throw new IllegalArgumentException("-D" + SPEEDUP_PROPERTY + " must be a number or \"max\", not \"" + speedupSetting + "\"");
+        }
+        if(speedup <= 0) speedup = Double.POSITIVE_INFINITY;
+        return new SimulationScheduler(runtime, speedup);
+    }
+
+    public boolean isAsFastAsPossible(){
+        return Double.isInfinite(speedup);
+    }
+
+    //Schedules vehicle to join the simulation at its starting time, then tick at the times it asks for until it leaves
+    public void spawn(Vehicle vehicle){
+        scheduleAsync(vehicle.getStartingTime(), joining(vehicle));
+    }
+
+    //Spawns every vehicle of the timeline, each once the simulation reaches its starting time
+    public synchronized void spawnAll(SpawnTimeline timeline){
+        this.timeline = timeline;
+        notifyAll();
+    }
+
+    private Supplier<? extends CompletionStage<?>> joining(Vehicle vehicle){
+        if(AsyncHttpTransport.isEnabled()){
+            return () -> vehicle.initializeAsync().thenAccept(joined -> {
+                if(joined){
+                    scheduleTickAsync(vehicle, vehicle.getNextTickTime());
+                }
+            });
+        }
+        return () -> {
+            if(vehicle.initialize()){
+                scheduleTick(vehicle, vehicle.getNextTickTime());
+            }
+            return null;
+        };
+    }
+
+    private void scheduleTick(Vehicle vehicle, int time){
+        schedule(time, () -> {
+            if(vehicle.tick()){
+                scheduleTick(vehicle, vehicle.getNextTickTime());
+            }
+        });
+    }
+
+    private void scheduleTickAsync(Vehicle vehicle, int time){
+        scheduleAsync(time, () -> vehicle.tickAsync().thenAccept(alive -> {
+            if(alive){
+                scheduleTickAsync(vehicle, vehicle.getNextTickTime());
+            }
+        }));
+    }
+
+    public void schedule(int time, Runnable action){
+        scheduleAsync(time, () -> {
+            action.run();
+            return null;
+        });
+    }
+
+    //Schedules an event that completes asynchronously: it is running until the stage returned by action completes
+    //(a null stage means the event completed synchronously)
+    public synchronized void scheduleAsync(int time, Supplier<? extends CompletionStage<?>> action){
+        events.add(new Event(time, eventSequence++, action));
+        notifyAll();
+    }
+
+    public synchronized int getCurrentTime(){
+        return currentTime;
+    }
+
+    //Signals no more vehicles will be spawned: the simulation completes once every vehicle has left
+    public synchronized void finishSubmitting(){
+        acceptingSpawns = false;
+        notifyAll();
+    }
+
+    public CompletableFuture<Void> getCompletion(){
+        return completion;
+    }
+
+    //Starts dispatching events on a dedicated thread, with the earliest scheduled event as simulated epoch
+    public void start(){
+        synchronized (this){
+            epochTime = events.isEmpty() ? 0 : events.peek().time;
+            if(timeline != null && timeline.hasNext() && (events.isEmpty() || timeline.peekTime() < epochTime)){
+                epochTime = timeline.peekTime();
+            }
+            currentTime = epochTime;
+            epochNanos = System.nanoTime();
+            instantNanos = epochNanos;
+        }
+        Thread dispatcher = new Thread(this::dispatchEvents, "simulation-scheduler");
+        dispatcher.setDaemon(true);
+        dispatcher.start();
+    }
+
+    public void awaitCompletion() throws InterruptedException{
+        try{
+            completion.get();
+        }catch (java.util.concurrent.ExecutionException e){
+            System.out.println("Simulation scheduler finished abnormally --> " + e.getCause().getMessage());
+        }finally{
+            runtime.shutdown();
+        }
+    }
+
+    private synchronized void dispatchEvents(){
+        try{
+            while(true){
+                admitSpawns();
+                if(events.isEmpty()){
+                    if(!acceptingSpawns && eventsInFlight == 0){
+                        completion.complete(null);
+                        return;
+                    }
+                    wait();
+                    continue;
+                }
+
+                Event next = events.peek();
+                if(next.time > currentTime){
+                    if(isAsFastAsPossible()){
+                        //never leave the current instant while some of its events are still running
+                        if(eventsInFlight > 0){
+                            wait();
+                            continue;
+                        }
+                    }else{
+                        long waitNanos = wallClockDeadline(next.time) - System.nanoTime();
+                        if(waitNanos > 0){
+                            TimeUnit.NANOSECONDS.timedWait(this, waitNanos);
+                            continue;
+                        }
+                    }
+                    currentTime = next.time;
+                    instantNanos = System.nanoTime();
+                }
+
+                events.poll();
+                eventsInFlight++;
+                long dueNanos = isAsFastAsPossible() ? instantNanos : wallClockDeadline(next.time);
+                runtime.execute(() -> runEvent(next, dueNanos));
+            }
+        }catch (InterruptedException e){
+            completion.completeExceptionally(e);
+        }
+    }
+
+    //Queues the spawns of the timeline that are due no later than the earliest queued event
+    private void admitSpawns(){
+        while(timeline != null && timeline.hasNext() && (events.isEmpty() || timeline.peekTime() <= events.peek().time)){
+            int time = timeline.peekTime();
+            events.add(new Event(time, spawnSequence++, joining(timeline.next())));
+        }
+    }
+
+    //dueNanos is when the event should have started: its wall-clock deadline, or when running as fast as possible, the
+    //moment the simulation reached its instant. How late it actually starts is recorded as tick lag
+    private void runEvent(Event event, long dueNanos){
+        SimulationMetrics.getInstance().recordTickLag(System.nanoTime() - dueNanos);
+        CompletionStage<?> completion = null;
+        try{
+            completion = event.action.get();
+        }catch (Throwable e){
+            //errors too (eg. StackOverflowError): the event must still finish, or the simulation never completes
+            reportCrash(event, e);
+        }
+
+        if(completion == null){
+            finishEvent();
+        }else{
+            completion.whenComplete((result, error) -> {
+                if(error != null) reportCrash(event, error instanceof CompletionException ? error.getCause() : error);
+                finishEvent();
+            });
+        }
+    }
+
+    private synchronized void finishEvent(){
+        eventsInFlight--;
+        notifyAll();
+    }
+
+    private static void reportCrash(Event event, Throwable error){
+        System.out.println("Simulation event at " + SimulationTime.format(event.time) + "s crashed --> " + error.getMessage() + "\n");
+    }
+
+    private long wallClockDeadline(int time){
+        return epochNanos + (long) ((time - epochTime) * TimeUnit.MILLISECONDS.toNanos(1) / speedup);
+    }
+
+    private static class Event implements Comparable<Event> {
+        private final int time;
+        private final long sequence; //keeps events of the same instant in submission order
+        private final Supplier<? extends CompletionStage<?>> action;
+
+        private Event(int time, long sequence, Supplier<? extends CompletionStage<?>> action){
+            this.time = time;
+            this.sequence = sequence;
+            this.action = action;
+        }
+
+        @Override
+        public int compareTo(Event other){
+            int byTime = Integer.compare(time, other.time);
+            return byTime != 0 ? byTime : Long.compare(sequence, other.sequence);
+        }
+    }
+}
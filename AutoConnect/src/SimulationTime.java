@@ -0,0 +1,56 @@
+//Simulated time is kept as a whole number of milliseconds on the vehicleCreationTime timeline, in an int (enough for
+//24 days of traffic). Time stamps of traces are decimal seconds, so every one of them with up to three decimals is
+//represented exactly: equal time stamps compare equal, and stepping along a route is plain index arithmetic.
+//
+//Seconds only appear at the edges: parsing traces and TimeChecks, and writing time stamps out.
+public final class SimulationTime {
+    public static final int MILLIS_IN_SECOND = 1000;
+    private static final int DECIMALS = 3;
+
+    private SimulationTime(){
+    }
+
+    //Nearest time to the given number of seconds; throws ArithmeticException if it doesn't fit
+    public static int fromSeconds(double seconds){
+        return Math.toIntExact(Math.round(seconds * MILLIS_IN_SECOND));
+    }
+
+    public static double toSeconds(long time){
+        return (double) time / MILLIS_IN_SECOND;
+    }
+
+    //Time of a decimal time stamp, given as its digits without the point and the number of digits after the point
+    //(eg. 12.4 is 124 with 1 fraction digit). Digits beyond the third decimal are rounded half up, towards positive
+    //infinity as fromSeconds does. Throws ArithmeticException if the time doesn't fit
+    public static int fromDecimal(long digits, int fractionDigits){
+        if(fractionDigits <= DECIMALS){
+            for(int i = fractionDigits; i < DECIMALS; i++) digits = Math.multiplyExact(digits, 10);
+            return Math.toIntExact(digits);
+        }
+        long divisor = 1;
+        for(int i = DECIMALS; i < fractionDigits; i++) divisor *= 10;
+        return Math.toIntExact(Math.floorDiv(Math.addExact(digits, divisor / 2), divisor));
+    }
+
+    public static int parse(String seconds){
+        return fromSeconds(Double.parseDouble(seconds));
+    }
+
+    //Time in seconds as text, with as few decimals as it needs but at least one, as in the traces (eg. 12.4, 30.0)
+    public static String format(long time){
+        StringBuilder text = new StringBuilder(12);
+        if(time < 0){
+            text.append('-');
+            time = -time;
+        }
+        text.append(time / MILLIS_IN_SECOND).append('.');
+        int fraction = (int) (time % MILLIS_IN_SECOND);
+        int unit = MILLIS_IN_SECOND / 10;
+        do{
+            text.append((char) ('0' + fraction / unit));
+            fraction %= unit;
+            unit /= 10;
+        }while(fraction != 0);
+        return text.toString();
+    }
+}
@@ -0,0 +1,268 @@
+import java.util.Arrays;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntConsumer;
+
+//Uniform-grid index over the live positions of vehicles, keyed by AutoConnectId, answering radius and k-nearest
+//queries (optionally filtered by heading) without scanning the whole fleet.
+//
+//Coordinate measures distance as KM_IN_DEGREE km per degree on both axes, so square cells of equal size in degrees
+//are also square in distance, and a query only has to visit the rings of cells its radius can reach.
+//Vehicle state is held in primitive arrays indexed by id (AutoConnectIds are small, densely allocated ints), and a
+//vehicle moving within its cell is updated in place without touching the grid. Queries run concurrently with each
+//other; updates are serialized.
+public class SpatialIndex {
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final double cellSizeKm;
+    private final double cellSizeDegrees;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    //per vehicle state, indexed by id
+    private double[] latitudes = new double[INITIAL_CAPACITY];
+    private double[] longitudes = new double[INITIAL_CAPACITY];
+    private double[] headings = new double[INITIAL_CAPACITY];
+    private long[] cellKeys = new long[INITIAL_CAPACITY];
+    private int[] positionsInCell = new int[INITIAL_CAPACITY];
+    private boolean[] present = new boolean[INITIAL_CAPACITY];
+    private int size = 0;
+
+    private final CellMap cells = new CellMap();
+
+    //cellSizeKm should be close to the typical query radius
+    public SpatialIndex(double cellSizeKm){
+        this.cellSizeKm = cellSizeKm;
+        this.cellSizeDegrees = cellSizeKm / Coordinate.KM_IN_DEGREE;
+    }
+
+    //Inserts a vehicle, or moves it if already present
+    public void update(int id, double latitude, double longitude, double heading){
+        long cellKey = cellKey(cellOf(latitude), cellOf(longitude));
+
+        lock.writeLock().lock();
+        try{
+            ensureCapacity(id);
+            if(!present[id]){
+                present[id] = true;
+                size++;
+                addToCell(id, cellKey);
+            }else if(cellKeys[id] != cellKey){
+                removeFromCell(id);
+                addToCell(id, cellKey);
+            }
+            latitudes[id] = latitude;
+            longitudes[id] = longitude;
+            headings[id] = heading;
+        }finally{
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(int id){
+        lock.writeLock().lock();
+        try{
+            if(id >= present.length || !present[id]) return;
+            removeFromCell(id);
+            present[id] = false;
+            size--;
+        }finally{
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean contains(int id){
+        lock.readLock().lock();
+        try{
+            return id < present.length && present[id];
+        }finally{
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size(){
+        lock.readLock().lock();
+        try{
+            return size;
+        }finally{
+            lock.readLock().unlock();
+        }
+    }
+
+    //Reports every vehicle within radiusKm whose heading is within headingTolerance degrees of the given heading
+    //(a tolerance of 180 or more disables the heading filter), except excludeId
+    public void findWithinRadius(double latitude, double longitude, double radiusKm, double heading, double headingTolerance,
+                                 int excludeId, IntConsumer consumer){
+        int rings = (int) Math.ceil(radiusKm / cellSizeKm);
+        int centreX = cellOf(latitude);
+        int centreY = cellOf(longitude);
+
+        lock.readLock().lock();
+        try{
+            for(int x = centreX - rings; x <= centreX + rings; x++){
+                for(int y = centreY - rings; y <= centreY + rings; y++){
+                    Cell cell = cells.get(cellKey(x, y));
+                    if(cell == null) continue;
+                    for(int i = 0; i < cell.size; i++){
+                        int id = cell.ids[i];
+                        if(id != excludeId && matchesHeading(id, heading, headingTolerance)
+                                && Coordinate.getDistance(latitude, longitude, latitudes[id], longitudes[id]) <= radiusKm){
+                            consumer.accept(id);
+                        }
+                    }
+                }
+            }
+        }finally{
+            lock.readLock().unlock();
+        }
+    }
+
+    //Writes the ids of up to k nearest vehicles within radiusKm (closest first) into result, applying the same
+    //filters as findWithinRadius. Returns the number of ids written
+    public int findNearest(double latitude, double longitude, double radiusKm, int k, double heading, double headingTolerance,
+                           int excludeId, int[] result){
+        int wanted = Math.min(k, result.length);
+        if(wanted <= 0) return 0;
+        double[] distances = new double[wanted];
+        int found = 0;
+
+        int maxRings = (int) Math.ceil(radiusKm / cellSizeKm);
+        int centreX = cellOf(latitude);
+        int centreY = cellOf(longitude);
+
+        lock.readLock().lock();
+        try{
+            for(int ring = 0; ring <= maxRings; ring++){
+                for(int x = centreX - ring; x <= centreX + ring; x++){
+                    //only the outline of the ring: full rows at its top and bottom, two cells for the rows between
+                    int step = (x == centreX - ring || x == centreX + ring) ? 1 : Math.max(1, 2 * ring);
+                    for(int y = centreY - ring; y <= centreY + ring; y += step){
+                        Cell cell = cells.get(cellKey(x, y));
+                        if(cell == null) continue;
+                        for(int i = 0; i < cell.size; i++){
+                            int id = cell.ids[i];
+                            if(id == excludeId || !matchesHeading(id, heading, headingTolerance)) continue;
+                            double distance = Coordinate.getDistance(latitude, longitude, latitudes[id], longitudes[id]);
+                            if(distance > radiusKm) continue;
+                            if(found == wanted && distance >= distances[found - 1]) continue;
+
+                            //insertion into the sorted best-k list
+                            int position = found == wanted ? found - 1 : found++;
+                            while(position > 0 && distances[position - 1] > distance){
+                                distances[position] = distances[position - 1];
+                                result[position] = result[position - 1];
+                                position--;
+                            }
+                            distances[position] = distance;
+                            result[position] = id;
+                        }
+                    }
+                }
+                //anything outside the rings visited so far is at least ring*cellSizeKm away
+                if(found == wanted && distances[found - 1] <= ring * cellSizeKm) break;
+            }
+        }finally{
+            lock.readLock().unlock();
+        }
+        return found;
+    }
+
+    private boolean matchesHeading(int id, double heading, double headingTolerance){
+        if(headingTolerance >= 180) return true;
+        double difference = Math.abs(headings[id] - heading) % 360;
+        return Math.min(difference, 360 - difference) <= headingTolerance;
+    }
+
+    private int cellOf(double degrees){
+        return (int) Math.floor(degrees / cellSizeDegrees);
+    }
+
+    private static long cellKey(int x, int y){
+        return ((long) x << 32) | (y & 0xffffffffL);
+    }
+
+    private void addToCell(int id, long cellKey){
+        Cell cell = cells.getOrCreate(cellKey);
+        cell.add(id);
+        cellKeys[id] = cellKey;
+        positionsInCell[id] = cell.size - 1;
+    }
+
+    //swap-removes the vehicle from its cell, so removal is O(1) regardless of cell population
+    private void removeFromCell(int id){
+        Cell cell = cells.get(cellKeys[id]);
+        int position = positionsInCell[id];
+        int last = cell.ids[--cell.size];
+        cell.ids[position] = last;
+        positionsInCell[last] = position;
+    }
+
+    private void ensureCapacity(int id){
+        if(id < present.length) return;
+        int capacity = Math.max(id + 1, present.length * 2);
+        latitudes = Arrays.copyOf(latitudes, capacity);
+        longitudes = Arrays.copyOf(longitudes, capacity);
+        headings = Arrays.copyOf(headings, capacity);
+        cellKeys = Arrays.copyOf(cellKeys, capacity);
+        positionsInCell = Arrays.copyOf(positionsInCell, capacity);
+        present = Arrays.copyOf(present, capacity);
+    }
+
+    private static class Cell {
+        private int[] ids = new int[4];
+        private int size = 0;
+
+        private void add(int id){
+            if(size == ids.length) ids = Arrays.copyOf(ids, size * 2);
+            ids[size++] = id;
+        }
+    }
+
+    //Open-addressing map from cell key to cell, so that lookups don't box their keys. Cells are never removed:
+    //the number of cells is bounded by the area the fleet covers, not by the number of vehicles
+    private static class CellMap {
+        private long[] keys = new long[1024];
+        private Cell[] values = new Cell[1024];
+        private int size = 0;
+
+        private Cell get(long key){
+            int mask = keys.length - 1;
+            for(int slot = hash(key) & mask; values[slot] != null; slot = (slot + 1) & mask){
+                if(keys[slot] == key) return values[slot];
+            }
+            return null;
+        }
+
+        private Cell getOrCreate(long key){
+            Cell cell = get(key);
+            if(cell != null) return cell;
+
+            if(2 * (size + 1) > keys.length) resize();
+            cell = new Cell();
+            insert(key, cell);
+            size++;
+            return cell;
+        }
+
+        private void insert(long key, Cell cell){
+            int mask = keys.length - 1;
+            int slot = hash(key) & mask;
+            while(values[slot] != null) slot = (slot + 1) & mask;
+            keys[slot] = key;
+            values[slot] = cell;
+        }
+
+        private void resize(){
+            long[] oldKeys = keys;
+            Cell[] oldValues = values;
+            keys = new long[oldKeys.length * 2];
+            values = new Cell[oldValues.length * 2];
+            for(int i = 0; i < oldKeys.length; i++){
+                if(oldValues[i] != null) insert(oldKeys[i], oldValues[i]);
+            }
+        }
+
+        private static int hash(long key){
+            long h = key * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32));
+        }
+    }
+}
@@ -0,0 +1,100 @@
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+//Vehicles of a simulation in the order they join it. The SimulationScheduler consumes it incrementally, admitting each
+//vehicle only once the simulation reaches its starting time, so spawns never pile up in its event queue.
+//
+//A timeline is built either from a list of vehicles, sorted once by starting time (vehicles starting at the same instant
+//keep the order they were loaded in), or from a source that already yields vehicles in starting-time order, such as a
+//ScenarioGenerator; a source is only pulled from as vehicles are admitted, so the timeline never holds more than
+//-Dautoconnect.loadAhead vehicles (default 256) however many it spawns.
+//
+//Routes loaded lazily (see Vehicle.RouteSource) are prefetched on the loader executor for the vehicles held, which are
+//the next ones to be admitted: the simulation starts as soon as the first vehicles are ready, while later-starting ones
+//are still being loaded. Only the dispatching thread of the scheduler may call hasNext, peekTime and next.
+public class SpawnTimeline {
+    private static final int LOAD_AHEAD = Math.max(1, Integer.getInteger("autoconnect.loadAhead", 256));
+
+    private final Iterator<Vehicle> source;
+    private final Executor loader;
+
+    //ring of the next vehicles to join, pulled from source ahead of time
+    private final Vehicle[] ahead = new Vehicle[LOAD_AHEAD];
+    private final int[] startingTimes = new int[LOAD_AHEAD];
+    private int first = 0;
+    private int count = 0;
+
+    public SpawnTimeline(List<Vehicle> unsorted, Executor loader){
+        this(sorted(unsorted), loader);
+    }
+
+    //Timeline of the vehicles of source, which must yield them in ascending starting time
+    public SpawnTimeline(Iterator<Vehicle> source, Executor loader){
+        this.source = source;
+        this.loader = loader;
+        while(count < LOAD_AHEAD && pull());
+    }
+
+    //Vehicles of the list in joining order
+    private static Iterator<Vehicle> sorted(List<Vehicle> unsorted){
+        //sorting (starting time, load order) pairs packed into longs keeps ties in load order without boxing
+        long[] keys = new long[unsorted.size()];
+        for(int i = 0; i < keys.length; i++){
+            keys[i] = (long) unsorted.get(i).getStartingTime() << 32 | i;
+        }
+        Arrays.sort(keys);
+
+        Vehicle[] vehicles = new Vehicle[keys.length];
+        for(int i = 0; i < keys.length; i++){
+            vehicles[i] = unsorted.get((int) keys[i]);
+        }
+        return new Iterator<Vehicle>() {
+            private int next = 0;
+
+            @Override
+            public boolean hasNext(){
+                return next < vehicles.length;
+            }
+
+            @Override
+            public Vehicle next(){
+                Vehicle vehicle = vehicles[next];
+                vehicles[next++] = null; //the timeline holds on to it from now on
+                return vehicle;
+            }
+        };
+    }
+
+    public boolean hasNext(){
+        return count > 0;
+    }
+
+    //Starting time of the next vehicle to join; only valid while hasNext()
+    public int peekTime(){
+        return startingTimes[first];
+    }
+
+    //Takes the next vehicle to join, and pulls the next one from the source in its place
+    public Vehicle next(){
+        Vehicle vehicle = ahead[first];
+        ahead[first] = null; //the scheduler holds on to it from now on
+        first = (first + 1) % LOAD_AHEAD;
+        count--;
+        pull();
+        return vehicle;
+    }
+
+    //Appends the source's next vehicle to the ring and starts loading its route. Returns false once the source is done
+    private boolean pull(){
+        if(!source.hasNext()) return false;
+        Vehicle vehicle = source.next();
+        int slot = (first + count) % LOAD_AHEAD;
+        ahead[slot] = vehicle;
+        startingTimes[slot] = vehicle.getStartingTime();
+        count++;
+        vehicle.prefetchRoute(loader);
+        return true;
+    }
+}
@@ -0,0 +1,144 @@
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+//The original simulation.txt column layout:
+//  Connections ID, Vehicle ID, Time Stamp, Current Open Connections
+//one block of rows per vehicle, where only the first row of a block carries the vehicle's VIN and AutoConnectId (and
+//no connections), and the connections of later rows are joined with '.
+//
+//Because a block must be contiguous, each vehicle's rows are kept (as compact bytes) until it leaves the simulation,
+//and blocks are written in the order vehicles leave; vehicles still running when the output closes are written last.
+public class TextOutputSink extends FileOutputSink {
+    private static final String COLUMN_HEADERS = "Connections ID, Vehicle ID, Time Stamp, Current Open Connections\n";
+    private static final int INITIAL_ROWS_SIZE = 256;
+    private static final int MAX_ROW_PREFIX = 2 * 11 + 2 + 16; //two ints, two commas, a time stamp
+
+    private final Map<Integer, VehicleRows> running = new LinkedHashMap<>();
+    private final Map<String, byte[]> vinBytes = new HashMap<>();
+
+    public TextOutputSink(String file) throws IOException{
+        super(file);
+        byte[] headers = COLUMN_HEADERS.getBytes(StandardCharsets.US_ASCII);
+        write(headers, 0, headers.length);
+    }
+
+    @Override
+    public void vehicleJoined(String vin, int autoId){
+        running.put(autoId, new VehicleRows(vinBytes.computeIfAbsent(vin, v -> v.getBytes(StandardCharsets.UTF_8)), autoId));
+    }
+
+    @Override
+    public void connection(int autoId, int time, int[] candidates, int count){
+        VehicleRows rows = running.get(autoId);
+        if(rows != null) rows.append(time, candidates, count);
+    }
+
+    @Override
+    public void vehicleLeft(int autoId) throws IOException{
+        VehicleRows rows = running.remove(autoId);
+        if(rows != null) write(rows.bytes, 0, rows.length);
+    }
+
+    @Override
+    public void close() throws IOException{
+        try{
+            Iterator<VehicleRows> remaining = running.values().iterator();
+            while(remaining.hasNext()){
+                VehicleRows rows = remaining.next();
+                write(rows.bytes, 0, rows.length);
+                remaining.remove();
+            }
+        }finally{
+            super.close();
+        }
+    }
+
+    private static class VehicleRows {
+        private final byte[] vin;
+        private final int autoId;
+        private byte[] bytes = new byte[INITIAL_ROWS_SIZE];
+        private int length;
+        private int rowCount;
+
+        private VehicleRows(byte[] vin, int autoId){
+            this.vin = vin;
+            this.autoId = autoId;
+        }
+
+        private void append(int time, int[] candidates, int count){
+            ensureRoom(vin.length + MAX_ROW_PREFIX + count * 12 + 1);
+            if(rowCount == 0){
+                System.arraycopy(vin, 0, bytes, length, vin.length);
+                length += vin.length;
+                bytes[length++] = ',';
+                appendInt(autoId);
+            }else{
+                bytes[length++] = ',';
+            }
+            bytes[length++] = ',';
+            appendTime(time);
+            bytes[length++] = ',';
+            if(rowCount > 0){
+                for(int i = 0; i < count; i++){
+                    if(i > 0) bytes[length++] = '\'';
+                    appendInt(candidates[i]);
+                }
+            }
+            bytes[length++] = '\n';
+            rowCount++;
+        }
+
+        private void appendInt(int value){
+            if(value < 0){
+                bytes[length++] = '-';
+                if(value == Integer.MIN_VALUE){
+                    appendAscii("2147483648");
+                    return;
+                }
+                value = -value;
+            }
+            int start = length;
+            do{
+                bytes[length++] = (byte) ('0' + value % 10);
+                value /= 10;
+            }while(value != 0);
+            for(int i = start, j = length - 1; i < j; i++, j--){
+                byte b = bytes[i];
+                bytes[i] = bytes[j];
+                bytes[j] = b;
+            }
+        }
+
+        //Time stamp in seconds, with as few decimals as it needs but at least one (see SimulationTime.format)
+        private void appendTime(int time){
+            if(time < 0){
+                bytes[length++] = '-';
+                time = -time;
+            }
+            appendInt(time / SimulationTime.MILLIS_IN_SECOND);
+            bytes[length++] = '.';
+            int fraction = time % SimulationTime.MILLIS_IN_SECOND;
+            int unit = SimulationTime.MILLIS_IN_SECOND / 10;
+            do{
+                bytes[length++] = (byte) ('0' + fraction / unit);
+                fraction %= unit;
+                unit /= 10;
+            }while(fraction != 0);
+        }
+
+        private void appendAscii(String value){
+            for(int i = 0; i < value.length(); i++){
+                bytes[length++] = (byte) value.charAt(i);
+            }
+        }
+
+        private void ensureRoom(int extra){
+            if(length + extra > bytes.length) bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, length + extra));
+        }
+    }
+}
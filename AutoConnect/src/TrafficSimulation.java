@@ -1,24 +1,33 @@
 import java.io.BufferedReader;
+import java.io.File;
 import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
-import java.math.BigDecimal;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
 
 public class TrafficSimulation {
     private static final String INPUT_TRAFFIC_DATA = "trafficData/kingstonTraffic.txt";
+    private static final String INPUT_BINARY_TRAFFIC_DATA = "trafficData/kingstonTraffic.bin";
     private static final String OUTPUT_TRAFFIC_DATA = "trafficData/simulation.txt";
-    private static final String OUTPUT_COLUMN_HEADERS = "Connections ID, Vehicle ID, Time Stamp, Current Open Connections";
+    private static final String OUTPUT_METRICS_SUMMARY = "trafficData/metrics.txt";
 
     private static final int NUM_VEHICLES = 116; //total vehicles in simulation
+    private static final boolean RUN_LOCAL_SERVER = Boolean.getBoolean("autoconnect.localServer"); //flag to run against an embedded server instead of the real one
+    private static final int LOCAL_SERVER_PORT = Integer.getInteger("autoconnect.localServer.port", 0); //0 picks any free port
+    private static final int LOCAL_SERVER_BINARY_PORT = Integer.getInteger("autoconnect.localServer.binaryPort", 0);
+    private static boolean USE_BINARY_TRAFFIC_DATA = true; //flag to load vehicles lazily from the binary form of the raw traffic data
+    private static boolean STREAM_TRAFFIC_DATA = true; //flag to load vehicles straight from the raw traffic data, without per-vehicle files
     private static boolean CREATE_VEHICLE_FILES = false; //flag on how to generate individual vehicle data
 
-    private static HashMap<Float, List<Vehicle>> parsedVehicles = new HashMap<>();
-    private static ArrayList<Float> vehicleCreationTime = new ArrayList<>();
-    private static ArrayList<Thread> vehicleThreads = new ArrayList<>();
+    private static final ForkJoinPool VEHICLE_LOADER = new ForkJoinPool(Runtime.getRuntime().availableProcessors()); //parses and prefetches routes
+
+    private static SpawnTimeline spawnTimeline;
+    private static int vehicleCount;
+    private static SimulationScheduler scheduler;
 
     public static void main(String[] args){
         executeSimulation();
@@ -26,23 +35,102 @@ public class TrafficSimulation {
 
     private static void executeSimulation(){
         try{
+            scheduler = SimulationScheduler.create(VehicleRuntime.create());
+            //read the recorded exchanges up front when replaying them, so that a bad log fails before any vehicle runs
+            if(ReplayTransport.isEnabled()) ReplayTransport.load();
+
             //prepare simulation vehicle data
-            ArrayList<String> createdVehicleData = generateTestVehicleData();
-            createVehicles(createdVehicleData);
+            if(ScenarioGenerator.isEnabled()){
+                generateScenario();
+            }else{
+                List<Vehicle> vehicles;
+                if(USE_BINARY_TRAFFIC_DATA){
+                    vehicles = mapBinaryTrafficData();
+                }else if(STREAM_TRAFFIC_DATA){
+                    vehicles = streamTrafficData();
+                }else{
+                    vehicles = loadVehicleFiles(generateTestVehicleData());
+                }
+                createVehicles(vehicles);
+            }
 
-            //run simulation
+            //run simulation, streaming its output for visuals as vehicles report their connections
+            LocalAutoConnectServer localServer = startLocalServer();
+            SimulationOutput output = SimulationOutput.open(OUTPUT_TRAFFIC_DATA);
+            SimulationMetrics metrics = SimulationMetrics.getInstance();
+            metrics.startReporting();
             generateSimulationVehicles();
             waitForSimulationToFinish();
+            VehicleTransport.getInstance().shutdown();
+            if(localServer != null) localServer.stop();
+
+            //write out the rest of the output
+            output.close();
+            System.out.println("All vehicles' data has been outputted!\n");
 
-            //generate output for visuals
-            generateSimulationOutput();
+            //summarize how the run performed
+            metrics.stopReporting();
+            metrics.writeSummary(OUTPUT_METRICS_SUMMARY);
+            System.out.println("Simulation metrics have been written to " + OUTPUT_METRICS_SUMMARY + "!\n");
         }catch(IOException e){
             System.out.println(e.getMessage());
         }catch (InterruptedException e){
             System.out.println(e.getMessage());
         }catch(AutoConnectException e){
             System.out.println(e.getMessage());
+        }catch(IllegalArgumentException e){
+            System.out.println(e.getMessage()); //a malformed -Dautoconnect.* setting
+        }
+    }
+
+    //Starts an embedded AutoConnect server and points all vehicles at it, if requested at launch
+    private static LocalAutoConnectServer startLocalServer() throws IOException{
+        if(!RUN_LOCAL_SERVER) return null;
+
+        LocalAutoConnectServer localServer = new LocalAutoConnectServer(LOCAL_SERVER_PORT, Runtime.getRuntime().availableProcessors() * 2);
+        localServer.start();
+        HttpTransport.getInstance().setServerAddress(localServer.getAddress());
+        if(BinaryTransport.isEnabled()) BinaryTransport.getInstance().setServerAddress(localServer.startFrameListener(LOCAL_SERVER_BINARY_PORT));
+        return localServer;
+    }
+
+    //Returns every vehicle of the binary traffic data. Only the index is read here: each vehicle's route is read from
+    //the mapped file once the vehicle is spawned
+    private static List<Vehicle> mapBinaryTrafficData() throws IOException, AutoConnectException{
+        BinaryTrace trace = openBinaryTrafficData();
+        List<Vehicle> vehicles = new ArrayList<>();
+        for(int i=0; i<NUM_VEHICLES && i<trace.getVehicleCount(); i++){
+            vehicles.add(new Vehicle(Integer.toString(i + 1), trace, i));
         }
+        return vehicles;
+    }
+
+    //Maps the binary traffic data, (re)converting it from the raw traffic data if it's missing or outdated
+    private static BinaryTrace openBinaryTrafficData() throws IOException, AutoConnectException{
+        File binaryData = new File(INPUT_BINARY_TRAFFIC_DATA);
+        if(!binaryData.exists() || binaryData.lastModified() < new File(INPUT_TRAFFIC_DATA).lastModified()
+                || !BinaryTrace.isCurrent(INPUT_BINARY_TRAFFIC_DATA)){
+            System.out.println("Converting raw traffic data to binary!\n");
+            BinaryTrace.convert(INPUT_TRAFFIC_DATA, INPUT_BINARY_TRAFFIC_DATA);
+        }
+        System.out.println("Mapping binary traffic data!\n");
+        return BinaryTrace.open(INPUT_BINARY_TRAFFIC_DATA);
+    }
+
+    //Scales the vehicles of the binary traffic data up to the fleet size set with -Dautoconnect.scenario.vehicles.
+    //Vehicles are generated as the simulation reaches them, rather than up front
+    private static void generateScenario() throws IOException, AutoConnectException{
+        ScenarioGenerator generator = ScenarioGenerator.fromSettings(openBinaryTrafficData(), NUM_VEHICLES);
+        System.out.println("Generating " + generator.getFleetSize() + " vehicles from the traffic data!\n");
+        vehicleCount = generator.getFleetSize();
+        spawnTimeline = new SpawnTimeline(generator, VEHICLE_LOADER);
+    }
+
+    //Returns every vehicle of the raw traffic data, with routes built directly in memory. Large traces are read in
+    //chunks in parallel: starting times are only known once they're parsed, so this finishes before the simulation starts
+    private static List<Vehicle> streamTrafficData() throws IOException, AutoConnectException{
+        System.out.println("Streaming raw traffic data!\n");
+        return TrafficTraceReader.readParallel(INPUT_TRAFFIC_DATA, NUM_VEHICLES, VEHICLE_LOADER, VEHICLE_LOADER.getParallelism());
     }
 
     //Returns list of file paths of each vehicle's traffic data, by either generating the traffic data itself or using existing traffic data
@@ -116,103 +204,39 @@ public class TrafficSimulation {
         return vehicleData;
     }
 
-    private static void createVehicles(ArrayList<String> vehicleCSVs) throws IOException, AutoConnectException {
-        HashSet<Float> setVehicleCreationTimes = new HashSet<>();
-        int numVehicles=0;
-
-        for(int i=0; i<NUM_VEHICLES; i++){
-            String csvFile = vehicleCSVs.get(i);
-            Vehicle vehicle = new Vehicle(csvFile);
-
-            //add this vehicle to the hashmap entry: initialize empty list before adding, if needed
-            List<Vehicle> prevVehiclesAtTime= parsedVehicles.get(vehicle.getStartingTime());
-            if(prevVehiclesAtTime==null){
-                prevVehiclesAtTime = new ArrayList();
-            }
-            prevVehiclesAtTime.add(vehicle);
-            numVehicles++;
-            parsedVehicles.put(vehicle.getStartingTime(), prevVehiclesAtTime);
-
-            setVehicleCreationTimes.add(vehicle.getStartingTime());
+    //Reads the starting time of every individual vehicle file; each route is only parsed once the vehicle is about to join
+    private static List<Vehicle> loadVehicleFiles(ArrayList<String> vehicleCSVs) throws IOException, AutoConnectException {
+        List<Vehicle> vehicles = new ArrayList<>();
+        for(int i=0; i<NUM_VEHICLES && i<vehicleCSVs.size(); i++){
+            vehicles.add(Vehicle.fromFile(vehicleCSVs.get(i)));
         }
+        return vehicles;
+    }
 
-        //sort vehicleCreationTime in ascending order
-        vehicleCreationTime = new ArrayList<Float>(setVehicleCreationTimes);
-        Collections.sort(vehicleCreationTime);
-
-        if(!(numVehicles==NUM_VEHICLES && parsedVehicles.size()==vehicleCreationTime.size())){
+    //Sorts the vehicles into the order they join the simulation, and starts loading the routes of the first ones
+    private static void createVehicles(List<Vehicle> vehicles) throws AutoConnectException {
+        if(vehicles.size()!=NUM_VEHICLES){
             throw new AutoConnectException(String.format("Raw traffic data was parsed, but not into %s individual vehicles!\n", NUM_VEHICLES));
         }
+        vehicleCount = vehicles.size();
+        spawnTimeline = new SpawnTimeline(vehicles, VEHICLE_LOADER);
     }
 
 
+    //Hands the spawn timeline to the scheduler, which activates vehicles by creation time as the simulation reaches it
     private static void generateSimulationVehicles(){
-        System.out.println("Simulation should have " +NUM_VEHICLES + " cars running!\n" );
-
-        //activate system vehicles by creation time
-        for(int i=0; i<vehicleCreationTime.size()-1; i++){
-            List<Vehicle> activeCars = parsedVehicles.get(vehicleCreationTime.get(i));
-            for(Vehicle activeCar: activeCars){
-                Thread systemCar = new Thread(activeCar);
-                vehicleThreads.add(systemCar);
-                systemCar.start();
-            }
+        System.out.println("Simulation should have " + vehicleCount + " cars running!\n" );
 
-            Float waitTilNextCarInMilliseconds = round((vehicleCreationTime.get(i+1)-vehicleCreationTime.get(i)))*1000;
-            try{
-                System.out.println("Simulation is waiting " + waitTilNextCarInMilliseconds/1000 + "s for next car!\n");
-                Thread.sleep(waitTilNextCarInMilliseconds.longValue());
-            }catch (InterruptedException e){
-                System.out.println("Simulation encountered CRITICAL error in waiting for upcoming car to active!\n");
-            }
-        }
-
-        //create list of cars
-        List<Vehicle> activeCars = parsedVehicles.get(vehicleCreationTime.get(vehicleCreationTime.size()-1));
-        for(Vehicle activeCar: activeCars){
-            Thread systemCar = new Thread(activeCar);
-            vehicleThreads.add(systemCar);
-            systemCar.start();
-        }
-    }
-
-    private static void generateSimulationOutput() throws IOException{
-        Path vehicleFilePath = Paths.get(OUTPUT_TRAFFIC_DATA);
-        Files.createFile(vehicleFilePath);
-        FileWriter writer = new FileWriter(OUTPUT_TRAFFIC_DATA);
-        writer.write(OUTPUT_COLUMN_HEADERS + "\n");
-
-        for(int i=0; i<vehicleCreationTime.size(); i++){
-            List<Vehicle> vehicles = parsedVehicles.get(vehicleCreationTime.get(i));
-
-            for(Vehicle vehicle: vehicles){
-                List<String> alphaConnections = vehicle.getLifetimeAlphaConnections();
-                for(int j=0; j<alphaConnections.size(); j++){
-                    writer.write(alphaConnections.get(j));
-                }
-            }
-        }
-
-        writer.flush();
-        writer.close();
-        System.out.println("All vehicles' data has been outputted!\n");
+        scheduler.spawnAll(spawnTimeline);
+        scheduler.finishSubmitting();
+        scheduler.start();
     }
 
     //Although all vehicles will have started running in simulation, it's possible not all will have finished.
-    //Thus, simply wait for all to complete before proceeding, and do so in the order they were ran (not really required)
+    //Thus, simply wait on the scheduler's completion handle before proceeding
     private static void waitForSimulationToFinish() throws InterruptedException{
-        for(int i=0; i<vehicleThreads.size(); i++){
-            Thread vehicleThread = vehicleThreads.get(i);
-            vehicleThread.join();
-        }
+        scheduler.awaitCompletion();
 
         System.out.println("Simulation has finished!\n");
     }
-
-    //rounds float to one decimal place
-    private static Float round(Float f){
-        BigDecimal bd = new BigDecimal(Float.toString(f));
-        bd = bd.setScale(1, BigDecimal.ROUND_HALF_UP);
-        return bd.floatValue();
-    }
 }
@@ -0,0 +1,338 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+//Single-pass ingest of a raw traffic trace (Trajectory ID, Vehicle ID, Time Stamp, Latitude, Longitude) straight
+//into in-memory vehicle routes. The file is memory-mapped in fixed-size windows and every field is parsed in place
+//from the mapped bytes, so no per-row String or String[] is created and no intermediate per-vehicle files are written.
+//A row with a non-empty Trajectory ID starts a new vehicle; the rows that follow (",,time,lat,lon") belong to it.
+//
+//readParallel splits a large trace into chunks, each starting at a row that starts a vehicle, and parses them at once.
+public class TrafficTraceReader {
+    private static final long WINDOW_SIZE = 64L * 1024 * 1024;
+    private static final long MIN_CHUNK_SIZE = 1L << 20; //smaller traces aren't worth splitting
+    private static final int SCAN_BUFFER_SIZE = 1 << 16;
+    private static final int MAX_LONG_DIGITS = 18;
+    private static final long MAX_EXACT_DOUBLE_MANTISSA = 1L << 53;
+    private static final double[] DOUBLE_POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22};
+
+    private final String file;
+    private final int maxVehicles;
+    private final RouteHandler handler;
+    private final long rangeStart; //part of the file to read: from rangeStart, a row starting a vehicle, up to rangeEnd
+    private final long rangeEnd;
+
+    private int vehicleCount = 0;
+    private Route currentRoute = null;
+    private long lineNumber = 0;
+
+    //scratch state of the numeric parser: end position of the last parsed field
+    private int fieldEnd;
+
+    //Receives every vehicle's route as soon as it has been fully read
+    public interface RouteHandler {
+        void handle(String id, Route route) throws IOException;
+    }
+
+    public TrafficTraceReader(String file, int maxVehicles, RouteHandler handler){
+        this(file, maxVehicles, handler, 0, Long.MAX_VALUE);
+    }
+
+    private TrafficTraceReader(String file, int maxVehicles, RouteHandler handler, long rangeStart, long rangeEnd){
+        this.file = file;
+        this.maxVehicles = maxVehicles;
+        this.handler = handler;
+        this.rangeStart = rangeStart;
+        this.rangeEnd = rangeEnd;
+    }
+
+    //Reads at most maxVehicles vehicles from the trace, in file order, named "1".."n"
+    public static List<Vehicle> read(String file, int maxVehicles) throws IOException, AutoConnectException{
+        List<Vehicle> vehicles = new ArrayList<>();
+        new TrafficTraceReader(file, maxVehicles, (id, route) -> vehicles.add(new Vehicle(id, route))).read();
+        return vehicles;
+    }
+
+    //Same as read(file, maxVehicles), but parses up to 'chunks' parts of the trace in parallel on executor. Unlike
+    //read, it always parses the whole trace, even when fewer vehicles are wanted
+    public static List<Vehicle> readParallel(String file, int maxVehicles, ExecutorService executor, int chunks)
+            throws IOException, AutoConnectException{
+        long[] boundaries = chunkBoundaries(file, chunks);
+        if(boundaries.length <= 2) return read(file, maxVehicles);
+
+        List<Callable<List<Route>>> tasks = new ArrayList<>();
+        for(int i = 0; i < boundaries.length - 1; i++){
+            long start = boundaries[i];
+            long end = boundaries[i + 1];
+            tasks.add(() -> {
+                List<Route> routes = new ArrayList<>();
+                new TrafficTraceReader(file, Integer.MAX_VALUE, (id, route) -> routes.add(route), start, end).read();
+                return routes;
+            });
+        }
+
+        List<Vehicle> vehicles = new ArrayList<>();
+        try{
+            for(Future<List<Route>> chunk : executor.invokeAll(tasks)){
+                for(Route route : chunk.get()){
+                    if(vehicles.size() == maxVehicles) break;
+                    vehicles.add(new Vehicle(Integer.toString(vehicles.size() + 1), route));
+                }
+            }
+        }catch (InterruptedException e){
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while reading " + file);
+        }catch (ExecutionException e){
+            if(e.getCause() instanceof IOException) throw (IOException) e.getCause();
+            if(e.getCause() instanceof AutoConnectException) throw (AutoConnectException) e.getCause();
+            throw new IllegalStateException(e.getCause());
+        }
+        return vehicles;
+    }
+
+    //Offsets splitting the file into at most 'chunks' parts of similar size, each but the first starting at a row that
+    //starts a vehicle; the last offset is the file size
+    private static long[] chunkBoundaries(String file, int chunks) throws IOException{
+        try(FileChannel channel = FileChannel.open(Paths.get(file), StandardOpenOption.READ)){
+            long size = channel.size();
+            chunks = (int) Math.max(1, Math.min(chunks, size / MIN_CHUNK_SIZE));
+            List<Long> boundaries = new ArrayList<>();
+            boundaries.add(0L);
+            ByteBuffer scan = ByteBuffer.allocate(SCAN_BUFFER_SIZE);
+            for(int i = 1; i < chunks; i++){
+                long last = boundaries.get(boundaries.size() - 1);
+                long boundary = nextVehicleRow(channel, Math.max(size * i / chunks, last), size, scan);
+                if(boundary > last && boundary < size) boundaries.add(boundary);
+            }
+            boundaries.add(size);
+            return boundaries.stream().mapToLong(Long::longValue).toArray();
+        }
+    }
+
+    //Offset of the first row after 'from' that starts a vehicle (doesn't start with ','), or size if there is none
+    private static long nextVehicleRow(FileChannel channel, long from, long size, ByteBuffer scan) throws IOException{
+        boolean afterNewline = false;
+        long position = from;
+        while(position < size){
+            scan.clear();
+            int read = channel.read(scan, position);
+            if(read <= 0) break;
+            for(int i = 0; i < read; i++){
+                byte b = scan.get(i);
+                if(afterNewline && b != ',' && b != '\n' && b != '\r') return position + i;
+                afterNewline = b == '\n';
+            }
+            position += read;
+        }
+        return size;
+    }
+
+    //Streams every vehicle's route to the handler, without keeping any of them; returns the number of vehicles read
+    public int read() throws IOException, AutoConnectException{
+        try(FileChannel channel = FileChannel.open(Paths.get(file), StandardOpenOption.READ)){
+            long size = Math.min(channel.size(), rangeEnd);
+            long position = rangeStart;
+            boolean finished = false;
+
+            while(position < size && !finished){
+                long length = Math.min(WINDOW_SIZE, size - position);
+                boolean lastWindow = position + length == size;
+                MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+
+                int lineStart = 0;
+                int limit = (int) length;
+                while(lineStart < limit){
+                    int lineEnd = indexOfNewline(window, lineStart, limit);
+                    //a line cut by the end of the window is re-read at the start of the next one
+                    if(lineEnd == limit && !lastWindow) break;
+
+                    if(!parseLine(window, lineStart, trimCarriageReturn(window, lineStart, lineEnd))){
+                        finished = true;
+                        break;
+                    }
+                    lineStart = lineEnd + 1;
+                }
+
+                if(lineStart == 0 && !finished){
+                    throw new AutoConnectException(String.format("Traffic data %s has a row longer than %s bytes", file, WINDOW_SIZE));
+                }
+                position += lineStart;
+            }
+        }
+
+        finishCurrentVehicle();
+        return vehicleCount;
+    }
+
+    //Returns false once enough vehicles have been read
+    private boolean parseLine(MappedByteBuffer buffer, int start, int end) throws IOException, AutoConnectException{
+        lineNumber++;
+        if((lineNumber == 1 && rangeStart == 0) || start == end) return true; //skip column headers and blank lines
+
+        int trajectoryEnd = indexOf(buffer, start, end, (byte) ',');
+        int vehicleEnd = indexOf(buffer, trajectoryEnd + 1, end, (byte) ',');
+        if(vehicleEnd >= end){
+            throw new AutoConnectException(String.format("Traffic data %s was not parsed correctly at row %s", file, row()));
+        }
+
+        //a Trajectory ID marks the first row of a new vehicle. As with the per-vehicle files this replaces,
+        //that row only names the vehicle and its position sample is not part of the route
+        if(trajectoryEnd > start){
+            finishCurrentVehicle();
+            if(vehicleCount == maxVehicles) return false;
+            currentRoute = new Route();
+            return true;
+        }
+        if(currentRoute == null){
+            throw new AutoConnectException(String.format("Traffic data %s has samples before its first vehicle", file));
+        }
+
+        int time = parseTime(buffer, vehicleEnd + 1, end);
+        double latitude = parseDouble(buffer, fieldEnd + 1, end);
+        double longitude = parseDouble(buffer, fieldEnd + 1, end);
+        if(fieldEnd != end){
+            throw new AutoConnectException(String.format("Traffic data %s was not parsed correctly at row %s", file, row()));
+        }
+        currentRoute.add(time, latitude, longitude);
+        return true;
+    }
+
+    private void finishCurrentVehicle() throws IOException{
+        if(currentRoute == null) return;
+        currentRoute.trim();
+        handler.handle(Integer.toString(++vehicleCount), currentRoute);
+        currentRoute = null;
+    }
+
+    //Parses a decimal field starting at 'start'; afterwards fieldEnd points at the terminating ',' or line end.
+    //Values whose digits fit exactly in a double are computed as one correctly-rounded division, anything
+    //else (long mantissas, exponents) falls back to Double.parseDouble so results always match it exactly
+    private double parseDouble(MappedByteBuffer buffer, int start, int end) throws AutoConnectException{
+        int position = start;
+        boolean negative = false;
+        if(position < end && (buffer.get(position) == '-' || buffer.get(position) == '+')){
+            negative = buffer.get(position) == '-';
+            position++;
+        }
+
+        long mantissa = 0;
+        int fractionDigits = 0;
+        int digits = 0;
+        boolean inFraction = false;
+        boolean exact = true;
+        for(; position < end; position++){
+            byte b = buffer.get(position);
+            if(b >= '0' && b <= '9'){
+                if(++digits > MAX_LONG_DIGITS){
+                    exact = false;
+                }else{
+                    mantissa = mantissa * 10 + (b - '0');
+                    if(inFraction) fractionDigits++;
+                }
+            }else if(b == '.' && !inFraction){
+                inFraction = true;
+            }else if(b == ','){
+                break;
+            }else{
+                exact = false;
+            }
+        }
+        fieldEnd = position;
+
+        if(digits == 0){
+            throw new AutoConnectException(String.format("Traffic data %s has an empty number at row %s", file, row()));
+        }
+        if(!exact || mantissa > MAX_EXACT_DOUBLE_MANTISSA || fractionDigits >= DOUBLE_POWERS_OF_TEN.length){
+            try{
+                return Double.parseDouble(decode(buffer, start, position));
+            }catch (NumberFormatException e){
+                throw new AutoConnectException(String.format("Traffic data %s was not parsed correctly at row %s", file, row()));
+            }
+        }
+        double value = mantissa / DOUBLE_POWERS_OF_TEN[fractionDigits];
+        return negative ? -value : value;
+    }
+
+    //Same as parseDouble, but for a time stamp in seconds, converted straight from its digits to SimulationTime
+    //milliseconds without going through a floating-point value
+    private int parseTime(MappedByteBuffer buffer, int start, int end) throws AutoConnectException{
+        int position = start;
+        long mantissa = 0;
+        int fractionDigits = 0;
+        int digits = 0;
+        boolean inFraction = false;
+        boolean exact = true;
+        for(; position < end; position++){
+            byte b = buffer.get(position);
+            if(b >= '0' && b <= '9'){
+                if(++digits > MAX_LONG_DIGITS){
+                    exact = false;
+                }else{
+                    mantissa = mantissa * 10 + (b - '0');
+                    if(inFraction) fractionDigits++;
+                }
+            }else if(b == '.' && !inFraction){
+                inFraction = true;
+            }else if(b == ','){
+                break;
+            }else{
+                exact = false;
+            }
+        }
+        fieldEnd = position;
+
+        if(digits == 0){
+            throw new AutoConnectException(String.format("Traffic data %s has an empty time stamp at row %s", file, row()));
+        }
+        try{
+            if(!exact){
+                return SimulationTime.parse(decode(buffer, start, position));
+            }
+            return SimulationTime.fromDecimal(mantissa, fractionDigits);
+        }catch (ArithmeticException e){
+            throw new AutoConnectException(String.format("Traffic data %s has a time stamp out of range at row %s", file, row()));
+        }catch (NumberFormatException e){
+            throw new AutoConnectException(String.format("Traffic data %s was not parsed correctly at row %s", file, row()));
+        }
+    }
+
+    //Row being parsed, for error messages
+    private String row(){
+        return rangeStart == 0 ? Long.toString(lineNumber) : lineNumber + " after byte " + rangeStart;
+    }
+
+    private String decode(MappedByteBuffer buffer, int start, int end){
+        byte[] bytes = new byte[end - start];
+        for(int i = 0; i < bytes.length; i++){
+            bytes[i] = buffer.get(start + i);
+        }
+        return new String(bytes, StandardCharsets.US_ASCII).trim();
+    }
+
+    private static int indexOf(MappedByteBuffer buffer, int start, int end, byte target){
+        for(int i = start; i < end; i++){
+            if(buffer.get(i) == target) return i;
+        }
+        return end;
+    }
+
+    private static int indexOfNewline(MappedByteBuffer buffer, int start, int limit){
+        return indexOf(buffer, start, limit, (byte) '\n');
+    }
+
+    private static int trimCarriageReturn(MappedByteBuffer buffer, int start, int end){
+        return (end > start && buffer.get(end - 1) == '\r') ? end - 1 : end;
+    }
+}
@@ -0,0 +1,83 @@
+//Tick clock of a single vehicle: when its next update is due, in SimulationTime milliseconds.
+//
+//The base interval is the TimeCheck handed out by the server (1s if it sends none), and is followed whenever a later
+//response carries a new one. On top of it, the vehicle backs off when the server struggles: whenever the smoothed
+//latency of its requests exceeds -Dautoconnect.pacing.latencyTarget milliseconds (default 250), or one of them failed
+//because the server was busy or unreachable, the interval is doubled, up to -Dautoconnect.pacing.maxBackoff times
+//the server's (default 8). Once the server keeps up again, it shrinks back by a quarter per tick.
+//
+//Vehicles spawned at the same instant would otherwise tick in lockstep, so the first tick is brought forward by a
+//fraction of the interval, spreading their phases over -Dautoconnect.pacing.jitter of it (default 1, ie. the whole
+//interval; 0 ticks every vehicle exactly one interval after it joins). Phases come in PHASE_SLOTS steps rather than
+//anywhere in the interval, so that vehicles sharing a slot still tick at the same instant and can be batched together
+//(see RequestBatcher), and running as fast as possible does not have to step through one instant per vehicle. The
+//slot is derived from the VIN, so a simulation replays with the same phases.
+public class UpdatePacing {
+    private static final int DEFAULT_INTERVAL = SimulationTime.MILLIS_IN_SECOND;
+    private static final double LATENCY_TARGET_NANOS = Double.parseDouble(System.getProperty("autoconnect.pacing.latencyTarget", "250")) * 1e6;
+    private static final double MAX_BACKOFF = Math.max(1, Double.parseDouble(System.getProperty("autoconnect.pacing.maxBackoff", "8")));
+    private static final double JITTER = Math.min(1, Math.max(0, Double.parseDouble(System.getProperty("autoconnect.pacing.jitter", "1"))));
+    private static final double BACKOFF_INCREASE = 2;
+    private static final double BACKOFF_RECOVERY = 0.75;
+    private static final double LATENCY_SMOOTHING = 0.25; //weight of the newest latency in the moving average
+    private static final int PHASE_SLOTS = 10;
+    private static final double MAX_INTERVAL_SECONDS = 3600; //TimeChecks beyond this are taken as garbage
+    private static final int MAX_CONSECUTIVE_FAILURES = 3; //busy responses in a row a vehicle rides out before it gives up
+
+    private int serverInterval = DEFAULT_INTERVAL;
+    private double backoff = 1;
+    private double smoothedLatencyNanos = -1;
+    private boolean failedSinceLastTick = false;
+    private int consecutiveFailures = 0;
+
+    //Follows a TimeCheck sent by the server, in seconds; ignores values that can't be an interval
+    public void setServerInterval(double seconds){
+        if(seconds > 0 && seconds < MAX_INTERVAL_SECONDS) serverInterval = Math.max(1, SimulationTime.fromSeconds(seconds));
+    }
+
+    //Time until the next tick, server interval and backoff included
+    public int getInterval(){
+        return (int) Math.round(serverInterval * backoff);
+    }
+
+    //Time of the first tick of a vehicle joining at startingTime
+    public int firstTick(int startingTime, String vin){
+        int interval = getInterval();
+        return startingTime + interval - (int) Math.round(interval * JITTER * phaseSlot(vin) / PHASE_SLOTS);
+    }
+
+    //Time of the tick following the one at time, adjusting the backoff to what was observed since the last tick
+    public int nextTick(int time){
+        if(failedSinceLastTick || smoothedLatencyNanos > LATENCY_TARGET_NANOS){
+            backoff = Math.min(MAX_BACKOFF, backoff * BACKOFF_INCREASE);
+        }else{
+            backoff = Math.max(1, backoff * BACKOFF_RECOVERY);
+        }
+        failedSinceLastTick = false;
+        return time + getInterval();
+    }
+
+    //Records how long a request to the server took, and whether the server was too busy to answer it
+    public void observe(long latencyNanos, boolean busy){
+        smoothedLatencyNanos = smoothedLatencyNanos < 0 ? latencyNanos
+                : smoothedLatencyNanos + LATENCY_SMOOTHING * (latencyNanos - smoothedLatencyNanos);
+        if(busy){
+            failedSinceLastTick = true;
+            consecutiveFailures++;
+        }else{
+            consecutiveFailures = 0;
+        }
+    }
+
+    //Whether the vehicle should stay in the simulation after its latest request failed with the server busy
+    public boolean canRideOutFailure(){
+        return consecutiveFailures <= MAX_CONSECUTIVE_FAILURES;
+    }
+
+    //Slot in [0, PHASE_SLOTS) spread evenly over VINs
+    private static int phaseSlot(String vin){
+        long mixed = vin.hashCode() * 0x9E3779B97F4A7C15L;
+        mixed ^= mixed >>> 32;
+        return (int) ((mixed >>> 1) % PHASE_SLOTS);
+    }
+}
@@ -1,279 +1,405 @@
 //import io.jenetics.jpx.GPX;
 
-import java.math.BigDecimal;
-import java.nio.charset.StandardCharsets;
 import java.time.Clock;
 import java.io.IOException;
 import java.io.BufferedReader;
 import java.io.FileReader;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
 
-import org.apache.http.HttpEntity;
 import org.apache.http.HttpStatus;
-import org.apache.http.client.HttpClient;
-import org.apache.http.client.entity.EntityBuilder;
-import org.apache.http.client.methods.HttpPatch;
-import org.apache.http.client.methods.HttpPost;
-import org.apache.http.impl.client.HttpClientBuilder;
-import org.apache.http.entity.ContentType;
-import org.apache.http.HttpResponse;
-import org.apache.http.util.EntityUtils;
-import org.json.JSONArray;
 import org.json.JSONException;
-import org.json.JSONObject;
 
 
-public class Vehicle implements Runnable{
-    private static final int VEHICLES_IN_SPEED = 3;
+public class Vehicle {
     private static final Double CONNECTION_RADIUS_CAR = 100.0;
     private static final int BETA_BOUND = 3;
     private static final int BETA_REQUEST_INTERVALS = 1; //After how many position updates should vehicle ask for betas?
+    private static final int TOO_MANY_REQUESTS = 429; //not among the status codes of HttpStatus
 
-    //design of vehicle class is such that the very first entry of the collection futureRoute ALWAYS
-    //represents its CURRENT positional data (ie. must constantly prune this collection to remove all previous
-    //entries with timestamps in the past)
-    private LinkedHashMap<Float, Coordinate> futureRoute = null;
+    //design of vehicle class is such that the cursor of futureRoute ALWAYS points at its CURRENT positional
+    //data (ie. must constantly advance the route past all entries with timestamps in the past)
+    private Route futureRoute;
     private final String ID;
-    private final Coordinate destination;
+    private Coordinate destination;
+    private final int startingTime; //in SimulationTime milliseconds, as are all times below
+    private final RouteSource routeSource; //when set, futureRoute is only loaded from it once the vehicle joins the simulation
+    private CompletableFuture<Route> routeLoading; //route being loaded ahead of time, see prefetchRoute
     private int AutoConnectId ;
-    private Float updateInterval;
-    private List<Integer> betaCandidates;
-    private List<String> lifetimeAlphaConnections;
+    private final UpdatePacing pacing = new UpdatePacing();
+    private int nextTickTime; //simulated time of this vehicle's next tick
+    private int[] betaCandidates = new int[BETA_BOUND];
+    private int betaCandidateCount = 0;
+    private final VehicleTransport transport = VehicleTransport.getInstance();
+    private final VehicleMessageCodec codec = transport.newCodec(); //reusable request/response buffers
+    private boolean joined; //registered with the server and not yet left
+    private final DeadReckoning deadReckoning = DeadReckoning.isEnabled() ? new DeadReckoning() : null;
+    private final BetaCandidateCache betaCache = BetaCandidateCache.isEnabled() ? new BetaCandidateCache() : null;
+    private final WorldState world = WorldState.isEnabled() ? WorldState.getInstance() : null;
+    private int alphaVehicleCounter = 0; //counter for interval duration to connect to beta vehicles
+
+    //Loads a route that is kept out of memory until its vehicle joins the simulation
+    public interface RouteSource {
+        Route load() throws IOException, AutoConnectException;
+    }
 
     public Vehicle(String file) throws IOException, AutoConnectException {
-        //Given filepath is "trafficData/vehicleData1.txt", name is "vehicleData1" and ID is "1"
-        String vehicleName = file.substring(file.lastIndexOf("/")+1, file.length()-4);
-        ID = vehicleName.substring(11);
-        futureRoute = new LinkedHashMap<>();
-        destination = parsePointData(file);
+        this(idOfFile(file), parseRouteFile(file));
     }
 
-    //this function guarantees vehicle has proper time-stamped coordinate data
-    private Coordinate parsePointData(String file) throws IOException, AutoConnectException {
-        BufferedReader csvReader = new BufferedReader(new FileReader(file));
-        String row = "";
-        Coordinate lastPoint = null;
-        while ((row = csvReader.readLine()) != null) {
-            String[] data = row.split(",");
-
-            if(data.length!=5){
-                throw new AutoConnectException(String.format("Vehicle file %s was not parsed correctly", file));
-            }
-
-            Coordinate point = new Coordinate(Double.parseDouble(data[3]), Double.parseDouble(data[4]));
-            futureRoute.put(Float.parseFloat(data[2]), point);
-            lastPoint = point;
-        }
-        csvReader.close();
-        return lastPoint;
+    //Creates a vehicle from a route that has already been loaded in memory (eg. by TrafficTraceReader)
+    public Vehicle(String id, Route route){
+        ID = id;
+        futureRoute = route;
+        destination = route.isEmpty() ? null : route.getLastCoordinate();
+        startingTime = route.isEmpty() ? 0 : route.getCurrentTime();
+        routeSource = null;
     }
 
-    private Coordinate getStartingCoordinate(){
-        Collection<Coordinate> coordinates = futureRoute.values();
-        return coordinates.iterator().next();
+    //Creates a vehicle whose route stays in the binary trace until the vehicle is initialized
+    public Vehicle(String id, BinaryTrace trace, int index){
+        this(id, trace.getStartingTime(index), () -> trace.loadRoute(index));
     }
 
-    public Float getStartingTime(){
-        Collection<Float> times = futureRoute.keySet();
-        return times.iterator().next();
+    //Creates a vehicle joining at startingTime, whose route is only loaded from source when it is initialized
+    public Vehicle(String id, int startingTime, RouteSource source){
+        ID = id;
+        this.startingTime = startingTime;
+        routeSource = source;
     }
 
-    public List<String> getLifetimeAlphaConnections() {
-        return lifetimeAlphaConnections;
+    //Creates a vehicle from a vehicle file, reading only its first row until the vehicle joins the simulation
+    public static Vehicle fromFile(String file) throws IOException, AutoConnectException {
+        String row;
+        try(BufferedReader csvReader = new BufferedReader(new FileReader(file))){
+            row = csvReader.readLine();
+        }
+        String[] data = row == null ? new String[0] : row.split(",");
+        if(data.length!=5){
+            throw new AutoConnectException(String.format("Vehicle file %s was not parsed correctly", file));
+        }
+        return new Vehicle(idOfFile(file), SimulationTime.parse(data[2]), () -> parseRouteFile(file));
     }
 
-    // Calculates speed of vehicle by looking (VEHICLES_IN_SPEED-1) future positions ahead (ie. includes current position)
-    private Double getSpeed(){
-        int numVehicles=0;
-        double totalSpeed = 0;
-        Coordinate previousPoint = null;
-
-        Iterator<Float> times = futureRoute.keySet().iterator();
-        if(futureRoute.size()<VEHICLES_IN_SPEED) return 0d;
-        while(numVehicles<VEHICLES_IN_SPEED){
-            float time = times.next();
+    //Given filepath is "trafficData/vehicleData1.txt", name is "vehicleData1" and ID is "1"
+    private static String idOfFile(String file){
+        String vehicleName = file.substring(file.lastIndexOf("/")+1, file.length()-4);
+        return vehicleName.substring(11);
+    }
 
-            if(previousPoint==null){
-                previousPoint = futureRoute.get(time);
-            }else{
-                Coordinate currentPoint = futureRoute.get(time);
-                totalSpeed += previousPoint.getSpeed(currentPoint);
+    //this function guarantees vehicle has proper time-stamped coordinate data
+    private static Route parseRouteFile(String file) throws IOException, AutoConnectException {
+        Route route = new Route();
+        try(BufferedReader csvReader = new BufferedReader(new FileReader(file))){
+            String row = "";
+            while ((row = csvReader.readLine()) != null) {
+                String[] data = row.split(",");
+
+                if(data.length!=5){
+                    throw new AutoConnectException(String.format("Vehicle file %s was not parsed correctly", file));
+                }
 
-                previousPoint = currentPoint;
+                route.add(SimulationTime.parse(data[2]), Double.parseDouble(data[3]), Double.parseDouble(data[4]));
             }
-            numVehicles++;
         }
+        route.trim();
+        return route;
+    }
+
+    public int getStartingTime(){
+        return futureRoute == null ? startingTime : futureRoute.getCurrentTime();
+    }
 
-        return totalSpeed/(VEHICLES_IN_SPEED); //return average of the speeds
+    //Starts loading the route on loader ahead of the vehicle joining, so that initialize doesn't wait for the I/O
+    public synchronized void prefetchRoute(Executor loader){
+        if(futureRoute != null || routeLoading != null) return;
+        routeLoading = CompletableFuture.supplyAsync(() -> {
+            try{
+                return routeSource.load();
+            }catch (IOException | AutoConnectException e){
+                throw new CompletionException(e);
+            }
+        }, loader);
     }
 
-    private Double getDirection() {
-        Iterator<Float> times = futureRoute.keySet().iterator();
-        Coordinate currentPoint = futureRoute.get(times.next());
-        Coordinate nextPoint = futureRoute.get(times.next());
+    private synchronized void loadRoute() throws AutoConnectException{
+        if(futureRoute != null) return;
+        try{
+            futureRoute = routeLoading != null ? routeLoading.join() : routeSource.load();
+        }catch (IOException | CompletionException e){
+            Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+            throw new AutoConnectException("VIN# " + this.ID + " could not load its route --> " + cause.getMessage());
+        }finally{
+            routeLoading = null;
+        }
+        destination = futureRoute.isEmpty() ? null : futureRoute.getLastCoordinate();
+    }
 
-        return currentPoint.getDirection(nextPoint);
+    // Speed of vehicle over the (Route.SPEED_WINDOW-1) future positions ahead (ie. includes current position),
+    // precomputed with the route
+    private double getSpeed(){
+        return futureRoute.getSpeed();
     }
 
+    private double getDirection() {
+        return futureRoute.getHeading();
+    }
 
-    public void run(){
-        //counter for interval duration to connect to beta vehicles
-        int alphaVehicleCounter = 0;
 
+    //Registers vehicle with server. Returns false if the vehicle could not join the simulation
+    public boolean initialize(){
         try{
+            //materialize route of lazily loaded vehicles, now that the vehicle is joining the simulation
+            loadRoute();
+
             //initialize vehicle's connection with server
             initializeConnection();
+            return true;
+        }catch (AutoConnectException e){
+            System.out.println("After " + alphaVehicleCounter + " loops, Vehicle " + this.AutoConnectId + " exits --> " + e.getMessage() + "\n");
+            return false;
+        }
+    }
 
-            while(true){
-                //update vehicle's position to server
-                updatePositionToServer();
+    //Performs a single update interval of the vehicle. Returns false once the vehicle has left the simulation
+    public boolean tick(){
+        try{
+            //update vehicle's position to server
+            updatePositionToServer();
 
-                //after every BETA_REQUEST_INTERVALS updates to server, ask for candidate beta vehicles
-                alphaVehicleCounter++;
-                if(alphaVehicleCounter%BETA_REQUEST_INTERVALS==0) {
-                    getBetaVehicles();
-                }
+            //after every BETA_REQUEST_INTERVALS updates to server, ask for candidate beta vehicles
+            alphaVehicleCounter++;
+            if(alphaVehicleCounter%BETA_REQUEST_INTERVALS==0) {
+                getBetaVehicles();
             }
+            return true;
         }catch (AutoConnectException e){
+            if(ridesOut(e)) return true;
             System.out.println("After " + alphaVehicleCounter + " loops, Vehicle " + this.AutoConnectId + " exits --> " + e.getMessage() + "\n");
+            recordExit();
+            return false;
         }
     }
 
+    //Asynchronous form of initialize(), for -Dautoconnect.io=async: sends /initconnect through the transport's sendAsync
+    //and completes with whether the vehicle joined the simulation, without holding a thread while waiting
+    public CompletableFuture<Boolean> initializeAsync(){
+        try{
+            loadRoute();
+        }catch (AutoConnectException e){
+            return CompletableFuture.completedFuture(completeStep(null, e));
+        }
+        buildInitPayload();
+        return onResponse(transport.sendAsync(VehicleTransport.Request.INIT_CONNECT, codec), System.nanoTime(),
+                "VIN# " + this.ID + "was unable to attempt an initialization connection with server!", this::handleInitResponse)
+                .handle(this::completeStep);
+    }
+
+    //Asynchronous form of tick(). A vehicle only sends its next request once the previous response has been handled,
+    //so its requests reach the server in the same order as in the blocking mode
+    public CompletableFuture<Boolean> tickAsync(){
+        if(!moveVehicleForward() || isVehicleLifeOver()){
+            return leaveSimulationAsync();
+        }
+        publishState();
+
+        CompletableFuture<Void> updated;
+        if(isUpdateDue()){
+            buildUpdatePayload();
+            long start = System.nanoTime();
+            updated = onResponse(transport.sendAsync(VehicleTransport.Request.UPDATE_CONNECT, codec), start,
+                    "Vehicle " + this.AutoConnectId + " was unable to attempt an updating of its position with server!", this::handleUpdateAccepted);
+        }else{
+            updated = CompletableFuture.completedFuture(null);
+        }
+        return updated
+                .thenCompose(ignored -> {
+                    //after every BETA_REQUEST_INTERVALS updates to server, ask for candidate beta vehicles
+                    alphaVehicleCounter++;
+                    if(alphaVehicleCounter%BETA_REQUEST_INTERVALS!=0 || reuseBetaCandidates()) {
+                        return CompletableFuture.completedFuture(null);
+                    }
+                    buildBetaRequestPayload();
+                    long start = System.nanoTime();
+                    return onResponse(transport.sendAsync(VehicleTransport.Request.GET_BETAS, codec), start,
+                            "Vehicle " + this.AutoConnectId + " failed to obtain Beta candidate vehicles!", this::handleBetaResponse);
+                })
+                .handle(this::completeStep);
+    }
+
+    private CompletableFuture<Boolean> leaveSimulationAsync(){
+        codec.encodeTermination(this.AutoConnectId);
+        return transport.sendAsync(VehicleTransport.Request.TERMINATE, codec).handle((statusCode, error) -> {
+            if(error != null || statusCode != HttpStatus.SC_OK){
+                System.out.println("Vehicle " + this.AutoConnectId + " could not kill itself!");
+            }
+            return completeStep(null, new AutoConnectException("Vehicle " + this.AutoConnectId + " has exited the simulation!"));
+        });
+    }
+
+    //Applies a response handler to the outcome of an asynchronous exchange sent at startNanos. Transport failures are
+    //reported with the same message as the blocking path's IOException
+    private CompletableFuture<Void> onResponse(CompletableFuture<Integer> exchange, long startNanos, String failureMessage, ResponseHandler handler){
+        return exchange.handle((statusCode, error) -> {
+            try{
+                observe(startNanos, error != null || isServerBusy(statusCode));
+                if(error != null) throw new ServerBusyException(failureMessage);
+                handler.handle(statusCode);
+                return null;
+            }catch (AutoConnectException e){
+                throw new CompletionException(e);
+            }
+        });
+    }
+
+    //Ends an asynchronous step: true if it succeeded, false (as in the blocking mode) if the vehicle exits
+    private boolean completeStep(Object result, Throwable error){
+        if(error == null) return true;
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        if(cause instanceof AutoConnectException){
+            if(ridesOut((AutoConnectException) cause)) return true;
+            System.out.println("After " + alphaVehicleCounter + " loops, Vehicle " + this.AutoConnectId + " exits --> " + cause.getMessage() + "\n");
+            recordExit();
+            return false;
+        }
+        throw error instanceof CompletionException ? (CompletionException) error : new CompletionException(cause);
+    }
+
+    //Closes this vehicle's block of the simulation output and stops counting it as active, once it has left
+    private void recordExit(){
+        if(!joined) return;
+        joined = false;
+        SimulationOutput.getInstance().vehicleLeft(this.AutoConnectId);
+        SimulationMetrics.getInstance().vehicleLeft();
+        if(world != null) world.leave(this.AutoConnectId);
+    }
+
+    //Whether a vehicle that joined stays in the simulation after a failed tick, because the server was only busy and
+    //the vehicle can back off and try again at its next tick
+    private boolean ridesOut(AutoConnectException e){
+        if(!joined || !(e instanceof ServerBusyException) || !pacing.canRideOutFailure()) return false;
+        System.out.println("Vehicle " + this.AutoConnectId + " backs off to one update every " + SimulationTime.format(pacing.getInterval()) + "s --> " + e.getMessage() + "\n");
+        return true;
+    }
+
+    private static boolean isServerBusy(int statusCode){
+        return statusCode == HttpStatus.SC_SERVICE_UNAVAILABLE || statusCode == TOO_MANY_REQUESTS;
+    }
+
+    private interface ResponseHandler {
+        void handle(int statusCode) throws AutoConnectException;
+    }
+
+    //Simulated time of this vehicle's next tick: a TimeCheck interval after the last one, stretched while the server
+    //struggles to keep up (see UpdatePacing)
+    public int getNextTickTime(){
+        return nextTickTime;
+    }
+
 
     //initialize vehicle's connection with server. Successful request will receive an AutoConnect-registered ID
     //and an updateInterval with which to wait til updating its position.
     private void initializeConnection() throws AutoConnectException{
         try {
-            //set parameters
-            String VIN = this.ID;
-            String GPX = "dummyGPX";
-            Double PositionX = getStartingCoordinate().getLatitude();
-            Double PositionY = getStartingCoordinate().getLongitude();
-            Double DestinationX = this.destination.getLatitude();
-            Double DestinationY = this.destination.getLongitude();
-            Double Speed = getSpeed();
-            Double Direction = getDirection();
-            String Time = Clock.systemUTC().instant().toString();
-
-            //JSONify parameters, and build payload
-            JSONObject myJson = new JSONObject();
-            myJson.put("VIN", VIN);
-            myJson.put("RouteXML", GPX);
-            myJson.put("PositionX", PositionX);
-            myJson.put("PositionY", PositionY);
-            myJson.put("DestinationX", DestinationX);
-            myJson.put("DestinationY", DestinationY);
-            myJson.put("Speed", Speed);
-            myJson.put("Direction", Direction);
-            myJson.put("Time", Time);
-            HttpEntity entity = EntityBuilder.create()
-                    .setText(myJson.toString())
-                    .setContentType(ContentType.create("application/json", StandardCharsets.UTF_8)).build();
+            //encode payload
+            buildInitPayload();
 
             //execute POST request
-            HttpClient httpClient = HttpClientBuilder.create().build();
-            HttpPost request = new HttpPost("http://192.168.0.104:4001/initconnect");
-            request.setEntity(entity);
-            HttpResponse response = httpClient.execute(request);
-            int statusCode = response.getStatusLine().getStatusCode();
+            int statusCode = transport.send(VehicleTransport.Request.INIT_CONNECT, codec);
+            handleInitResponse(statusCode);
+        } catch (IOException e){
+            throw new ServerBusyException("VIN# " + this.ID + "was unable to attempt an initialization connection with server!");
+        }
+    }
 
+    private void buildInitPayload(){
+        codec.encodeInitConnect(this.ID, futureRoute.getLatitude(0), futureRoute.getLongitude(0),
+                this.destination.getLatitude(), this.destination.getLongitude(), getSpeed(), getDirection(),
+                Clock.systemUTC().millis());
+    }
+
+    private void handleInitResponse(int statusCode) throws AutoConnectException{
+        try {
             //Check REST call went through
             if (statusCode != HttpStatus.SC_CREATED) {
                 throw new AutoConnectException("VIN# " + this.ID + " failed to successively initialize connection with server!");
             }
 
-            //Obtain response data
-            String responseBody = EntityUtils.toString(response.getEntity());
-            JSONObject responseJson = new JSONObject(responseBody);
-
-            //Obtain AutoConnectId and updateInterval
-            this.AutoConnectId = (int) responseJson.get("AutoId");
-            this.updateInterval = ((Double) responseJson.get("TimeCheck")).floatValue();
-            this.updateInterval = 1f;
-
-            //Prepare lifetime Alpha request storage
-            this.lifetimeAlphaConnections = new ArrayList<>();
-        } catch (IOException e){
-            throw new AutoConnectException("VIN# " + this.ID + "was unable to attempt an initialization connection with server!");
+            //Obtain AutoConnectId and updateInterval, then spread this vehicle's first tick over it
+            codec.decodeResponse();
+            this.AutoConnectId = codec.getAutoId();
+            if(codec.hasTimeCheck()) pacing.setServerInterval(codec.getTimeCheck());
+            this.nextTickTime = pacing.firstTick(getStartingTime(), this.ID);
+
+            //Start this vehicle's block of the simulation output
+            SimulationOutput.getInstance().vehicleJoined(this.ID, this.AutoConnectId);
+            SimulationMetrics.getInstance().vehicleJoined();
+            this.joined = true;
+            publishState();
         } catch (JSONException e){
-            System.out.println("JSON Exception was: " + e.getMessage());
-            System.out.println("Value of direction is: " + getDirection());
+            throw new AutoConnectException("VIN# " + this.ID + " received a malformed init response --> " + e.getMessage());
         }
     }
 
     //update vehicle's current position with server. Successful request will receive next updateInterval by which to wait.
     private void updatePositionToServer() throws AutoConnectException{
         try {
-            //wait certain intervals
-            Thread.currentThread().sleep((long) (updateInterval * 1));
-
-            //prune GPX
-            moveVehicleForward();
+            //prune GPX; if vehicle doesn't exist at current moment (ie. no longer a running vehicle), simply exit simulation
+            if(!moveVehicleForward()){
+                killVehicle();
+            }
 
             //check if vehicle is no longer in simulation
             if(isVehicleLifeOver()){
                 killVehicle();
             }
+            publishState();
 
-            //set parameters
-            int AutoId = this.AutoConnectId;
-            String GPX = "dummyGPX";
-            Double PositionX = getStartingCoordinate().getLatitude();
-            Double PositionY = getStartingCoordinate().getLongitude();
-            Double DestinationX = this.destination.getLatitude();
-            Double DestinationY = this.destination.getLongitude();
-            Double Speed = getSpeed();
-            Double Direction = getDirection();
-            String Time = Clock.systemUTC().instant().toString();
-            int Terminated = 0;
-
-            //JSONify parameters, and build payload
-            JSONObject myJson = new JSONObject();
-            myJson.put("AutoId", AutoId);
-            myJson.put("RouteXML", GPX);
-            myJson.put("PositionX", PositionX);
-            myJson.put("PositionY", PositionY);
-            myJson.put("DestinationX", DestinationX);
-            myJson.put("DestinationY", DestinationY);
-            myJson.put("Speed", Speed);
-            myJson.put("Direction", Direction);
-            myJson.put("Time", Time);
-            myJson.put("Terminated", Terminated);
-            HttpEntity entity = EntityBuilder.create()
-                    .setText(myJson.toString())
-                    .setContentType(ContentType.create("application/json", StandardCharsets.UTF_8)).build();
+            //with dead reckoning, skip updates while the server can still extrapolate the position
+            if(!isUpdateDue()){
+                return;
+            }
 
-            //Execute PATCH request
-            HttpClient httpClient = HttpClientBuilder.create().build();
-            HttpPatch request = new HttpPatch("http://192.168.0.104:4001/updateconnect");
-            request.setEntity(entity);
-            HttpResponse response = httpClient.execute(request);
-            int statusCode = response.getStatusLine().getStatusCode();
+            //Execute PATCH request with the encoded position
+            buildUpdatePayload();
+            int statusCode = exchange(VehicleTransport.Request.UPDATE_CONNECT);
+            handleUpdateAccepted(statusCode);
+        } catch (InterruptedException e){
+            throw new AutoConnectException("Vehicle " + this.AutoConnectId + " has exited the simulation!");
+        } catch (IOException e){
+            throw new ServerBusyException("Vehicle " + this.AutoConnectId + " was unable to attempt an updating of its position with server!");
+        }
 
-            //Check REST call went through
-            if(statusCode != HttpStatus.SC_OK) {
-                throw new AutoConnectException("Vehicle " + this.AutoConnectId + " failed to successively update position with server!");
-            }
+    }
 
+    private void handleUpdateResponse(int statusCode) throws AutoConnectException{
+        //Check REST call went through
+        if(isServerBusy(statusCode)){
+            throw new ServerBusyException("Server was too busy to update position of Vehicle " + this.AutoConnectId + "!");
+        }
+        if(statusCode != HttpStatus.SC_OK) {
+            throw new AutoConnectException("Vehicle " + this.AutoConnectId + " failed to successively update position with server!");
+        }
+
+        try {
             //Obtain response data
-            String responseBody = EntityUtils.toString(response.getEntity());
-            JSONObject responseJson = new JSONObject(responseBody);
-            int responseAutoId = (int) responseJson.get("AutoId");
-            String responseStatus = (String) responseJson.get("Status");
+            codec.decodeResponse();
 
             //Perform error checks on server's response
-            if (responseAutoId != this.AutoConnectId){
+            if (codec.getAutoId() != this.AutoConnectId){
                 throw new AutoConnectException("Vehicle " + this.AutoConnectId + " received mismatched AutoConnectId from server in update attempt!");
             }
-            if (!responseStatus.equals("Success")){
+            if (!codec.isSuccess()){
                 throw new AutoConnectException("Server was unsuccessful in updating position of Vehicle " + this.AutoConnectId +"!");
             }
-        } catch (InterruptedException e){
-            throw new AutoConnectException("Vehicle " + this.AutoConnectId + " has exited the simulation!");
-        } catch (IOException e){
-            throw new AutoConnectException("Vehicle " + this.AutoConnectId + " was unable to attempt an updating of its position with server!");
-        }
 
+            //Follow the server if it hands out a new updateInterval
+            if(codec.hasTimeCheck()) pacing.setServerInterval(codec.getTimeCheck());
+        } catch (JSONException e){
+            throw new AutoConnectException("Vehicle " + this.AutoConnectId + " received a malformed update response from server --> " + e.getMessage());
+        }
     }
 
     private void getBetaVehicles() throws AutoConnectException{
@@ -283,106 +409,125 @@ public class Vehicle implements Runnable{
                 killVehicle();
             }
 
-            //set parameters
-            int AutoId = this.AutoConnectId;
-            Double PositionX = getStartingCoordinate().getLatitude();
-            Double PositionY = getStartingCoordinate().getLongitude();
-            Double Speed = getSpeed();
-            Double Direction = getDirection();
-            String Time = Clock.systemUTC().instant().toString();
-            Double ConnectionRadius = CONNECTION_RADIUS_CAR;
-            int BetaBound = BETA_BOUND;
-
-            //JSONify parameters, and build payload
-            JSONObject myJson = new JSONObject();
-            myJson.put("AutoId", AutoId);
-            myJson.put("PositionX", PositionX);
-            myJson.put("PositionY", PositionY);
-            myJson.put("Speed", Speed);
-            myJson.put("Direction", Direction);
-            myJson.put("Time", Time);
-            myJson.put("ConnectionRadius", ConnectionRadius);
-            myJson.put("BetaBound", BetaBound);
-            HttpEntity entity = EntityBuilder.create()
-                    .setText(myJson.toString())
-                    .setContentType(ContentType.create("application/json", StandardCharsets.UTF_8)).build();
-
-
-            //Execute POST request
-            HttpClient httpClient = HttpClientBuilder.create().build();
-            HttpPost request = new HttpPost("http://192.168.0.104:4001/getbetas");
-            request.setEntity(entity);
-            HttpResponse response = httpClient.execute(request);
-            int statusCode = response.getStatusLine().getStatusCode();
-
-            //Check REST call went through
-            if (statusCode != HttpStatus.SC_CREATED) {
-                throw new AutoConnectException("Vehicle " + this.AutoConnectId + " failed to successively initialize connection with server!");
+            //with the candidate cache, only ask the server once the cached candidates are likely stale
+            if(reuseBetaCandidates()){
+                return;
             }
 
+            //Execute POST request with the encoded beta request
+            buildBetaRequestPayload();
+            int statusCode = exchange(VehicleTransport.Request.GET_BETAS);
+            handleBetaResponse(statusCode);
+        } catch (InterruptedException e){
+            throw new AutoConnectException("Vehicle " + this.AutoConnectId + " has exited the simulation!");
+        } catch (IOException e) {
+            throw new ServerBusyException("Vehicle " + this.AutoConnectId + " failed to obtain Beta candidate vehicles!");
+        }
+    }
+
+    private void handleBetaResponse(int statusCode) throws AutoConnectException{
+        //Check REST call went through
+        if(isServerBusy(statusCode)){
+            throw new ServerBusyException("Server was too busy to generate candidate Beta cars for Vehicle " + this.AutoConnectId + "!");
+        }
+        if (statusCode != HttpStatus.SC_CREATED) {
+            throw new AutoConnectException("Vehicle " + this.AutoConnectId + " failed to successively initialize connection with server!");
+        }
+
+        try {
             //Obtain response data
-            String responseBody = EntityUtils.toString(response.getEntity());
-            JSONObject responseJson = new JSONObject(responseBody);
-            String responseStatus = (String) responseJson.get("Status");
+            codec.decodeResponse();
 
             //Perform error checks
-            if (!responseStatus.equals("Success")) {
+            if (!codec.isSuccess()) {
                 throw new AutoConnectException("Server was unsuccessful in generating candidate Beta cars for Vehicle " + this.AutoConnectId + "!");
             }
 
             //Obtain beta candidates
-            JSONArray priorityMatrix = (JSONArray) responseJson.get("PriorityMatrix");
-            this.betaCandidates = (List<Integer>) (List<?>) priorityMatrix.toList();
-
-            //Save Alpha response
-            String alphaResponseOutput = saveAlphaResponse();
-            this.lifetimeAlphaConnections.add(alphaResponseOutput);
-        } catch (InterruptedException e){
-            throw new AutoConnectException("Vehicle " + this.AutoConnectId + " has exited the simulation!");
-        } catch (IOException e) {
-            throw new AutoConnectException("Vehicle " + this.AutoConnectId + " failed to obtain Beta candidate vehicles!");
+            int candidateCount = codec.getPriorityMatrixLength();
+            if(candidateCount > betaCandidates.length) betaCandidates = new int[candidateCount];
+            System.arraycopy(codec.getPriorityMatrix(), 0, betaCandidates, 0, candidateCount);
+            betaCandidateCount = candidateCount;
+        } catch (JSONException e){
+            throw new AutoConnectException("Vehicle " + this.AutoConnectId + " received malformed Beta candidates from server --> " + e.getMessage());
         }
+        if(betaCache != null) betaCache.filled(futureRoute.getCurrentTime(), getSpeed(), getDirection());
+
+        //Publish Alpha response to the simulation output
+        SimulationOutput.getInstance().connection(this.AutoConnectId, getStartingTime(), betaCandidates, betaCandidateCount);
     }
 
-    private String saveAlphaResponse(){
-        String connectionsId = lifetimeAlphaConnections.size() == 0 ? this.ID : "";
-        String vehicleId = lifetimeAlphaConnections.size() == 0 ? String.valueOf(this.AutoConnectId) : "";
-        String timeStamp = getStartingTime().toString();
-        String openConnection = "";
-        if(lifetimeAlphaConnections.size() > 0){
-            StringJoiner joiner = new StringJoiner("'");
-            for(Integer i: this.betaCandidates){
-                joiner.add(i.toString());
-            }
-            openConnection = joiner.toString();
-        }
+    //Publishes the vehicle's current state to the shared world state, if enabled
+    private void publishState(){
+        if(world == null) return;
+        world.publish(this.AutoConnectId, futureRoute.getCurrentTime(), futureRoute.getLatitude(0), futureRoute.getLongitude(0),
+                getSpeed(), getDirection());
+    }
 
-        return connectionsId + "," + vehicleId + "," + timeStamp + "," + openConnection + "\n";
+    //Whether the current position must be sent to the server, ie. always unless dead reckoning suppresses it
+    private boolean isUpdateDue(){
+        return deadReckoning == null || deadReckoning.isUpdateDue(futureRoute);
     }
 
-    //As very first position entry of 'futureRoute' is at current moment, we must prune the collection of past positions
-    private void moveVehicleForward() throws InterruptedException{
-        Float updatedCurrentTime = round(getStartingTime() + updateInterval);
+    //Handles the response to an update of the current position, which dead reckoning then remembers as the last one
+    //the server accepted. A failed update is not remembered, so it is retried at the next tick
+    private void handleUpdateAccepted(int statusCode) throws AutoConnectException{
+        handleUpdateResponse(statusCode);
+        if(deadReckoning != null) deadReckoning.reported(futureRoute);
+    }
 
-        //if vehicle doesn't exist at current moment (ie. no longer a running vehicle), simply exit simulation
-        if(!futureRoute.containsKey(updatedCurrentTime)){
-            killVehicle();
-        }
+    //Whether the beta candidates of the last request can stand for this tick's, ie. always false unless the candidate
+    //cache holds fresh ones. If so, they are published to the simulation output as this tick's connections
+    private boolean reuseBetaCandidates(){
+        if(betaCache == null || !betaCache.isFresh(futureRoute.getCurrentTime(), getSpeed(), getDirection())) return false;
+        SimulationOutput.getInstance().connection(this.AutoConnectId, getStartingTime(), betaCandidates, betaCandidateCount);
+        return true;
+    }
 
-        //remove past locations of vehicle
-        Iterator<Map.Entry<Float, Coordinate>> entryIterator = futureRoute.entrySet().iterator();
-        while(entryIterator.hasNext()){
-            Map.Entry entry = entryIterator.next();
-            if(entry.getKey().equals(updatedCurrentTime)){
-                break;
-            }
-            entryIterator.remove();
+    //Encodes the body of a position update for the vehicle's current state into the codec's request buffer
+    private void buildUpdatePayload(){
+        codec.encodeUpdate(this.AutoConnectId, futureRoute.getLatitude(0), futureRoute.getLongitude(0),
+                this.destination.getLatitude(), this.destination.getLongitude(), getSpeed(), getDirection(),
+                Clock.systemUTC().millis());
+    }
+
+    //Encodes the body of a request for beta candidates around the vehicle's current state into the codec's request buffer
+    private void buildBetaRequestPayload(){
+        codec.encodeBetaRequest(this.AutoConnectId, futureRoute.getLatitude(0), futureRoute.getLongitude(0), getSpeed(),
+                getDirection(), Clock.systemUTC().millis(), CONNECTION_RADIUS_CAR, BETA_BOUND);
+    }
+
+    //Blocking exchange with the server, timed for the vehicle's pacing
+    private int exchange(VehicleTransport.Request request) throws IOException{
+        long start = System.nanoTime();
+        try{
+            int statusCode = transport.send(request, codec);
+            observe(start, isServerBusy(statusCode));
+            return statusCode;
+        }catch (IOException e){
+            observe(start, true);
+            throw e;
         }
     }
 
+    //Feeds an exchange sent at startNanos to the vehicle's pacing. Only exchanges of a joined vehicle count: joining
+    //also pays for connection setup and warm-up, which says nothing about how loaded the server is
+    private void observe(long startNanos, boolean busy){
+        if(joined) pacing.observe(System.nanoTime() - startNanos, busy);
+    }
+
+    //As the cursor of 'futureRoute' must sit at the current moment, advance it past all past positions: the moment
+    //is the tick's scheduled time, which need not fall on a sample. Then moves the tick clock on to the next tick.
+    //Returns false if the vehicle has no position at the new current moment
+    private boolean moveVehicleForward(){
+        boolean moved = futureRoute.advanceTo(nextTickTime);
+        nextTickTime = pacing.nextTick(nextTickTime);
+        return moved;
+    }
+
     //Check if vehicle is nearing or has passed its lifecyle
     private boolean isVehicleLifeOver(){
-        return (futureRoute.isEmpty() || futureRoute.size()<VEHICLES_IN_SPEED);
+        return (futureRoute.isEmpty() || futureRoute.remaining()<Route.SPEED_WINDOW);
     }
 
     private void killVehicle() throws InterruptedException{
@@ -391,46 +536,18 @@ public class Vehicle implements Runnable{
         }catch (AutoConnectException e){
             System.out.println("Vehicle " + this.AutoConnectId + " could not kill itself!");
         }
-        Thread.currentThread().interrupt();
+        //signals the end of this vehicle's life to its caller; the executing thread itself is left untouched,
+        //as it may be a pooled runtime thread shared with other vehicles
         throw new InterruptedException();
     }
 
     private void updateServerVehicleKilled() throws AutoConnectException{
         try{
-            //set parameters
-            int AutoId = this.AutoConnectId;
-            String GPX = "dummyGPX";
-            Double PositionX = 0.d;
-            Double PositionY = 0.d;
-            Double DestinationX = 0.d;
-            Double DestinationY = 0.d;
-            Double Speed = 0.d;
-            Double Direction = 0.d;
-            String Time = "";
-            int Terminated = 1;
-
-            //JSONify parameters, and build payload
-            JSONObject myJson = new JSONObject();
-            myJson.put("AutoId", AutoId);
-            myJson.put("RouteXML", GPX);
-            myJson.put("PositionX", PositionX);
-            myJson.put("PositionY", PositionY);
-            myJson.put("DestinationX", DestinationX);
-            myJson.put("DestinationY", DestinationY);
-            myJson.put("Speed", Speed);
-            myJson.put("Direction", Direction);
-            myJson.put("Time", Time);
-            myJson.put("Terminated", Terminated);
-            HttpEntity entity = EntityBuilder.create()
-                    .setText(myJson.toString())
-                    .setContentType(ContentType.create("application/json", StandardCharsets.UTF_8)).build();
+            //encode payload
+            codec.encodeTermination(this.AutoConnectId);
 
             //Execute PATCH request
-            HttpClient httpClient = HttpClientBuilder.create().build();
-            HttpPatch request = new HttpPatch("http://192.168.0.104:4001/updateconnect");
-            request.setEntity(entity);
-            HttpResponse response = httpClient.execute(request);
-            int statusCode = response.getStatusLine().getStatusCode();
+            int statusCode = transport.send(VehicleTransport.Request.TERMINATE, codec);
 
             //Check REST call went through
             if(statusCode != HttpStatus.SC_OK) {
@@ -442,13 +559,6 @@ public class Vehicle implements Runnable{
 
     }
 
-    //rounds float to one decimal place
-    private Float round(Float f){
-        BigDecimal bd = new BigDecimal(Float.toString(f));
-        bd = bd.setScale(1, BigDecimal.ROUND_HALF_UP);
-        return bd.floatValue();
-    }
-
     //just need to convert this GPX object to a string to send..
     /*
     private String generateGPX(){
@@ -456,9 +566,10 @@ public class Vehicle implements Runnable{
          GPX gpx = GPX.builder()
                 .addTrack(track -> track
                         .addSegment(segment -> {
-                                for(Map.Entry<Float, Coordinate> entry: futureRoute.entrySet()) {
-                                    Coordinate location = entry.getValue();
-                                    segment.addPoint(p -> p.lat(location.getLongitude()).lon(location.getLongitude()).ele(0));
+                                for(int i=0; i<futureRoute.remaining(); i++) {
+                                    double latitude = futureRoute.getLatitude(i);
+                                    double longitude = futureRoute.getLongitude(i);
+                                    segment.addPoint(p -> p.lat(latitude).lon(longitude).ele(0));
                                 }
                         }) )
                 .build();
@@ -0,0 +1,416 @@
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import org.json.JSONException;
+
+//Encoder/decoder for the fixed set of JSON messages a Vehicle exchanges with the AutoConnect server. Each vehicle owns
+//one codec: requests are written straight into its reusable request buffer, and responses are read into the response
+//buffer and scanned in place for the only fields the vehicle uses (AutoId, Status, TimeCheck, PriorityMatrix), which are
+//decoded into primitives and an int array. Once the buffers have grown to the vehicle's message sizes, a steady
+//state tick allocates nothing here.
+//
+//Doubles are written in plain decimal notation with up to FRACTION_DIGITS decimals (1e-12 degrees is well under a
+//micrometre), rather than Double.toString's shortest round-trip form. Errors are reported with JSONException, as
+//org.json does, so callers handle malformed messages the same way as before.
+public class VehicleMessageCodec extends MessageBuffer {
+    private static final int FRACTION_DIGITS = 12;
+    private static final long FRACTION_SCALE = 1_000_000_000_000L; //10^FRACTION_DIGITS
+    private static final double MAX_FIXED_POINT = 1e6; //larger magnitudes would overflow a long once scaled
+    private static final long MILLIS_IN_DAY = 86_400_000L;
+
+    private static final byte[] VIN = key("VIN");
+    private static final byte[] ROUTE_XML = key("RouteXML");
+    private static final byte[] AUTO_ID = key("AutoId");
+    private static final byte[] POSITION_X = key("PositionX");
+    private static final byte[] POSITION_Y = key("PositionY");
+    private static final byte[] DESTINATION_X = key("DestinationX");
+    private static final byte[] DESTINATION_Y = key("DestinationY");
+    private static final byte[] SPEED = key("Speed");
+    private static final byte[] DIRECTION = key("Direction");
+    private static final byte[] TIME = key("Time");
+    private static final byte[] TERMINATED = key("Terminated");
+    private static final byte[] CONNECTION_RADIUS = key("ConnectionRadius");
+    private static final byte[] BETA_BOUND = key("BetaBound");
+
+    private static final byte[] STATUS_NAME = name("Status");
+    private static final byte[] AUTO_ID_NAME = name("AutoId");
+    private static final byte[] TIME_CHECK_NAME = name("TimeCheck");
+    private static final byte[] PRIORITY_MATRIX_NAME = name("PriorityMatrix");
+    private static final byte[] SUCCESS = name("Success");
+
+    private static final String ROUTE_XML_VALUE = "dummyGPX";
+
+    private boolean firstField;
+
+    //vehicle the last request was encoded for, so that exchanges can be told apart per vehicle (see ExchangeRecorder)
+    private String requestVin; //of /initconnect, sent before the vehicle has an AutoId
+    private int requestAutoId; //of every other request; -1 for /initconnect
+
+    //fields decoded from the last response
+    protected boolean hasAutoId;
+    protected int autoId;
+    protected boolean hasTimeCheck;
+    protected double timeCheck;
+    protected int statusOffset; //Status text within the response buffer; -1 if missing
+    protected int statusLength;
+    protected int[] priorityMatrix = new int[8];
+    protected int priorityMatrixLength; //-1 if missing
+
+    //Body of /initconnect
+    public void encodeInitConnect(String vin, double positionX, double positionY, double destinationX, double destinationY,
+                                  double speed, double direction, long timeMillis){
+        setRequester(vin, -1);
+        beginObject();
+        writeStringField(VIN, vin);
+        writeStringField(ROUTE_XML, ROUTE_XML_VALUE);
+        writeDoubleField(POSITION_X, positionX);
+        writeDoubleField(POSITION_Y, positionY);
+        writeDoubleField(DESTINATION_X, destinationX);
+        writeDoubleField(DESTINATION_Y, destinationY);
+        writeDoubleField(SPEED, speed);
+        writeDoubleField(DIRECTION, direction);
+        writeTimeField(timeMillis);
+        endObject();
+    }
+
+    //Body of /updateconnect for a live vehicle
+    public void encodeUpdate(int autoId, double positionX, double positionY, double destinationX, double destinationY,
+                             double speed, double direction, long timeMillis){
+        setRequester(null, autoId);
+        beginObject();
+        writeIntField(AUTO_ID, autoId);
+        writeStringField(ROUTE_XML, ROUTE_XML_VALUE);
+        writeDoubleField(POSITION_X, positionX);
+        writeDoubleField(POSITION_Y, positionY);
+        writeDoubleField(DESTINATION_X, destinationX);
+        writeDoubleField(DESTINATION_Y, destinationY);
+        writeDoubleField(SPEED, speed);
+        writeDoubleField(DIRECTION, direction);
+        writeTimeField(timeMillis);
+        writeIntField(TERMINATED, 0);
+        endObject();
+    }
+
+    //Body of /updateconnect announcing that the vehicle has left the simulation
+    public void encodeTermination(int autoId){
+        setRequester(null, autoId);
+        beginObject();
+        writeIntField(AUTO_ID, autoId);
+        writeStringField(ROUTE_XML, ROUTE_XML_VALUE);
+        writeDoubleField(POSITION_X, 0);
+        writeDoubleField(POSITION_Y, 0);
+        writeDoubleField(DESTINATION_X, 0);
+        writeDoubleField(DESTINATION_Y, 0);
+        writeDoubleField(SPEED, 0);
+        writeDoubleField(DIRECTION, 0);
+        writeStringField(TIME, "");
+        writeIntField(TERMINATED, 1);
+        endObject();
+    }
+
+    //Body of /getbetas
+    public void encodeBetaRequest(int autoId, double positionX, double positionY, double speed, double direction,
+                                  long timeMillis, double connectionRadius, int betaBound){
+        setRequester(null, autoId);
+        beginObject();
+        writeIntField(AUTO_ID, autoId);
+        writeDoubleField(POSITION_X, positionX);
+        writeDoubleField(POSITION_Y, positionY);
+        writeDoubleField(SPEED, speed);
+        writeDoubleField(DIRECTION, direction);
+        writeTimeField(timeMillis);
+        writeDoubleField(CONNECTION_RADIUS, connectionRadius);
+        writeIntField(BETA_BOUND, betaBound);
+        endObject();
+    }
+
+    //Scans the buffered response, a JSON object, for the fields vehicles use. Other fields are skipped
+    public void decodeResponse(){
+        hasAutoId = false;
+        hasTimeCheck = false;
+        statusOffset = -1;
+        priorityMatrixLength = -1;
+
+        position = 0;
+        skipWhitespace();
+        expect('{');
+        skipWhitespace();
+        if(peek() == '}'){
+            position++;
+            return;
+        }
+        while(true){
+            skipWhitespace();
+            expect('"');
+            int nameOffset = position;
+            skipStringContent();
+            int nameLength = position - 1 - nameOffset;
+            skipWhitespace();
+            expect(':');
+            skipWhitespace();
+
+            if(nameEquals(nameOffset, nameLength, AUTO_ID_NAME)){
+                autoId = readInt();
+                hasAutoId = true;
+            }else if(nameEquals(nameOffset, nameLength, STATUS_NAME)){
+                expect('"');
+                statusOffset = position;
+                skipStringContent();
+                statusLength = position - 1 - statusOffset;
+            }else if(nameEquals(nameOffset, nameLength, TIME_CHECK_NAME)){
+                timeCheck = readNumber();
+                hasTimeCheck = true;
+            }else if(nameEquals(nameOffset, nameLength, PRIORITY_MATRIX_NAME)){
+                readIntArray();
+            }else{
+                skipValue();
+            }
+
+            skipWhitespace();
+            byte next = next();
+            if(next == '}') return;
+            if(next != ',') throw malformed("expected ',' or '}'");
+        }
+    }
+
+    public int getAutoId(){
+        if(!hasAutoId) throw missing("AutoId");
+        return autoId;
+    }
+
+    //TimeCheck is only sure to be in /initconnect responses
+    public boolean hasTimeCheck(){
+        return hasTimeCheck;
+    }
+
+    public double getTimeCheck(){
+        if(!hasTimeCheck) throw missing("TimeCheck");
+        return timeCheck;
+    }
+
+    //Whether Status was exactly "Success"; compares bytes in place, without building a String
+    public boolean isSuccess(){
+        if(statusOffset < 0) throw missing("Status");
+        return statusLength == SUCCESS.length
+                && Arrays.equals(response, statusOffset, statusOffset + statusLength, SUCCESS, 0, SUCCESS.length);
+    }
+
+    //Raw Status text, for error messages
+    public String getStatus(){
+        if(statusOffset < 0) throw missing("Status");
+        return new String(response, statusOffset, statusLength, StandardCharsets.UTF_8);
+    }
+
+    //VIN of the vehicle the last request was encoded for, if it was an /initconnect; null otherwise
+    public String getRequestVin(){
+        return requestVin;
+    }
+
+    //AutoId of the vehicle the last request was encoded for; -1 for /initconnect
+    public int getRequestAutoId(){
+        return requestAutoId;
+    }
+
+    protected void setRequester(String vin, int autoId){
+        requestVin = vin;
+        requestAutoId = autoId;
+    }
+
+    //Number of ids in PriorityMatrix; they are stored in the first getPriorityMatrixLength() slots of getPriorityMatrix()
+    public int getPriorityMatrixLength(){
+        if(priorityMatrixLength < 0) throw missing("PriorityMatrix");
+        return priorityMatrixLength;
+    }
+
+    public int[] getPriorityMatrix(){
+        if(priorityMatrixLength < 0) throw missing("PriorityMatrix");
+        return priorityMatrix;
+    }
+
+    //---- encoding ----
+
+    private void beginObject(){
+        clearRequest();
+        firstField = true;
+        writeByte('{');
+    }
+
+    private void endObject(){
+        writeByte('}');
+    }
+
+    private void beginField(byte[] key){
+        if(!firstField) writeByte(',');
+        firstField = false;
+        ensureRequestCapacity(key.length);
+        System.arraycopy(key, 0, request, requestLength, key.length);
+        requestLength += key.length;
+    }
+
+    private void writeIntField(byte[] key, int value){
+        beginField(key);
+        writeLong(value);
+    }
+
+    private void writeDoubleField(byte[] key, double value){
+        beginField(key);
+        writeDouble(value);
+    }
+
+    private void writeStringField(byte[] key, String value){
+        beginField(key);
+        writeString(value);
+    }
+
+    //Time as ISO-8601 in UTC with millisecond precision, eg. "2020-01-01T12:00:00.000Z"
+    private void writeTimeField(long timeMillis){
+        beginField(TIME);
+
+        //civil date from days since the epoch (proleptic Gregorian calendar)
+        long days = Math.floorDiv(timeMillis, MILLIS_IN_DAY);
+        long millisOfDay = Math.floorMod(timeMillis, MILLIS_IN_DAY);
+        long shifted = days + 719_468; //days since 0000-03-01
+        long era = Math.floorDiv(shifted, 146_097);
+        long dayOfEra = shifted - era * 146_097;
+        long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36_524 - dayOfEra / 146_096) / 365;
+        long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        long monthFromMarch = (5 * dayOfYear + 2) / 153;
+        long day = dayOfYear - (153 * monthFromMarch + 2) / 5 + 1;
+        long month = monthFromMarch < 10 ? monthFromMarch + 3 : monthFromMarch - 9;
+        long year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+
+        writeByte('"');
+        writePadded(year, 4);
+        writeByte('-');
+        writePadded(month, 2);
+        writeByte('-');
+        writePadded(day, 2);
+        writeByte('T');
+        writePadded(millisOfDay / 3_600_000, 2);
+        writeByte(':');
+        writePadded(millisOfDay / 60_000 % 60, 2);
+        writeByte(':');
+        writePadded(millisOfDay / 1000 % 60, 2);
+        writeByte('.');
+        writePadded(millisOfDay % 1000, 3);
+        writeByte('Z');
+        writeByte('"');
+    }
+
+    private void writeDouble(double value){
+        if(!Double.isFinite(value)) throw new JSONException("JSON does not allow non-finite numbers.");
+        double magnitude = Math.abs(value);
+        if(magnitude >= MAX_FIXED_POINT){
+            writeAscii(Double.toString(value));
+            return;
+        }
+
+        long scaled = Math.round(magnitude * FRACTION_SCALE);
+        if(value < 0 && scaled != 0) writeByte('-');
+        writeLong(scaled / FRACTION_SCALE);
+        writeByte('.');
+
+        long fraction = scaled % FRACTION_SCALE;
+        int digits = FRACTION_DIGITS;
+        while(digits > 1 && fraction % 10 == 0){
+            fraction /= 10;
+            digits--;
+        }
+        writePadded(fraction, digits);
+    }
+
+    private void writeLong(long value){
+        if(value < 0){
+            writeByte('-');
+            if(value == Long.MIN_VALUE){
+                writeAscii("9223372036854775808");
+                return;
+            }
+            value = -value;
+        }
+        int digits = 1;
+        for(long bound = 10; digits < 19 && value >= bound; bound *= 10) digits++;
+        writePadded(value, digits);
+    }
+
+    //writes the lowest digits of a non-negative value, left-padded with zeros
+    private void writePadded(long value, int digits){
+        ensureRequestCapacity(digits);
+        for(int i = requestLength + digits - 1; i >= requestLength; i--){
+            request[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        requestLength += digits;
+    }
+
+    private void writeString(String value){
+        writeByte('"');
+        for(int i = 0; i < value.length(); i++){
+            char c = value.charAt(i);
+            if(c == '"' || c == '\\'){
+                writeByte('\\');
+                writeByte(c);
+            }else if(c < 0x20){
+                writeByte('\\');
+                writeByte('u');
+                writePadded(0, 2);
+                writeByte(Character.forDigit(c >> 4, 16));
+                writeByte(Character.forDigit(c & 0xf, 16));
+            }else if(c < 0x80){
+                writeByte(c);
+            }else if(c < 0x800){
+                writeByte(0xc0 | c >> 6);
+                writeByte(0x80 | c & 0x3f);
+            }else if(Character.isHighSurrogate(c) && i + 1 < value.length() && Character.isLowSurrogate(value.charAt(i + 1))){
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                writeByte(0xf0 | codePoint >> 18);
+                writeByte(0x80 | codePoint >> 12 & 0x3f);
+                writeByte(0x80 | codePoint >> 6 & 0x3f);
+                writeByte(0x80 | codePoint & 0x3f);
+            }else{
+                writeByte(0xe0 | c >> 12);
+                writeByte(0x80 | c >> 6 & 0x3f);
+                writeByte(0x80 | c & 0x3f);
+            }
+        }
+        writeByte('"');
+    }
+
+    private void writeAscii(String value){
+        ensureRequestCapacity(value.length());
+        for(int i = 0; i < value.length(); i++) request[requestLength++] = (byte) value.charAt(i);
+    }
+
+    //---- decoding ----
+
+    private void readIntArray(){
+        expect('[');
+        priorityMatrixLength = 0;
+        skipWhitespace();
+        if(peek() == ']'){
+            position++;
+            return;
+        }
+        while(true){
+            skipWhitespace();
+            if(priorityMatrixLength == priorityMatrix.length) priorityMatrix = Arrays.copyOf(priorityMatrix, priorityMatrixLength * 2);
+            priorityMatrix[priorityMatrixLength++] = readInt();
+            skipWhitespace();
+            byte next = next();
+            if(next == ']') return;
+            if(next != ',') throw malformed("expected ',' or ']'");
+        }
+    }
+
+    protected static JSONException missing(String field){
+        return new JSONException("JSONObject[\"" + field + "\"] not found.");
+    }
+
+    private static byte[] key(String name){
+        return ("\"" + name + "\":").getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private static byte[] name(String name){
+        return name.getBytes(StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,27 @@
+//Executes the simulation's event handlers (vehicle spawns and ticks). The runtime is picked at launch with
+//-Dautoconnect.runtime=virtual (every handler on its own virtual thread) or -Dautoconnect.runtime=pool
+//(a bounded pool of platform threads, sized with -Dautoconnect.runtime.threads)
+public abstract class VehicleRuntime {
+    private static final String RUNTIME_PROPERTY = "autoconnect.runtime";
+    private static final String THREADS_PROPERTY = "autoconnect.runtime.threads";
+
+    public static VehicleRuntime create(){
+        String mode = System.getProperty(RUNTIME_PROPERTY, VirtualThreadVehicleRuntime.isSupported() ? "virtual" : "pool");
+        int threads = Integer.getInteger(THREADS_PROPERTY, Runtime.getRuntime().availableProcessors() * 4);
+
+        if(mode.equals("virtual")){
+            if(VirtualThreadVehicleRuntime.isSupported()){
+                return new VirtualThreadVehicleRuntime();
+            }
+            System.out.println("Virtual threads are not supported by this JVM, falling back to a pool of " + threads + " threads!\n");
+        }else if(!mode.equals("pool")){
+            System.out.println("Unknown vehicle runtime '" + mode + "', falling back to a pool of " + threads + " threads!\n");
+        }
+        return new PooledVehicleRuntime(threads);
+    }
+
+    //Runs the given handler asynchronously; returns immediately
+    public abstract void execute(Runnable task);
+
+    public abstract void shutdown();
+}
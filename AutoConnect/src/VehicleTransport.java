@@ -0,0 +1,57 @@
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+
+//How vehicles exchange messages with the AutoConnect server, chosen at launch with -Dautoconnect.transport:
+//  http   -> JSON bodies over HTTP (the default, see HttpVehicleTransport)
+//  binary -> fixed-layout binary frames pipelined over persistent TCP connections (see BinaryTransport)
+//  replay -> responses served from a recorded exchange log, without a server (see ReplayTransport)
+//With -Dautoconnect.record=<log file>, the exchanges of the http or binary transport are recorded for replay (see
+//ExchangeRecorder).
+//Each transport comes with the codec its messages are encoded in, so a Vehicle runs the same logic in both modes: it
+//encodes a request into its codec, sends it, and handles the status code and the response decoded by its codec.
+public interface VehicleTransport {
+    String TRANSPORT_PROPERTY = "autoconnect.transport";
+
+    //The messages a vehicle sends, and the endpoint they are recorded under in SimulationMetrics
+    enum Request {
+        INIT_CONNECT("/initconnect"),
+        UPDATE_CONNECT("/updateconnect"),
+        TERMINATE("/updateconnect"),
+        GET_BETAS("/getbetas");
+
+        private final String endpoint;
+
+        Request(String endpoint){
+            this.endpoint = endpoint;
+        }
+
+        public String getEndpoint(){
+            return endpoint;
+        }
+    }
+
+    //Transport selected at launch, shared by every vehicle
+    static VehicleTransport getInstance(){
+        if(ReplayTransport.isEnabled()) return ReplayTransport.getInstance();
+        return ExchangeRecorder.isEnabled() ? ExchangeRecorder.getInstance() : network();
+    }
+
+    //Transport to the AutoConnect server selected at launch, whether or not its exchanges are recorded
+    static VehicleTransport network(){
+        return BinaryTransport.isEnabled() ? BinaryTransport.getInstance() : HttpVehicleTransport.getInstance();
+    }
+
+    //A new codec for one vehicle, encoding messages in this transport's format
+    VehicleMessageCodec newCodec();
+
+    //Sends the request encoded in the codec and buffers the response in it. Returns the HTTP status code of the
+    //response (or its equivalent, for other transports)
+    int send(Request request, VehicleMessageCodec codec) throws IOException;
+
+    //Asynchronous form of send: the returned future completes with the status code once the response has been
+    //buffered in the codec, or exceptionally with an IOException. The codec must not be touched until then
+    CompletableFuture<Integer> sendAsync(Request request, VehicleMessageCodec codec);
+
+    //Releases the transport's connections; only call once every vehicle has finished
+    void shutdown();
+}
@@ -0,0 +1,44 @@
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+
+//Runs every vehicle event on its own virtual thread. Virtual threads park instead of pinning an OS thread
+//while a vehicle waits on the server, allowing very large fleets in one JVM. The executor is obtained
+//reflectively so the simulation still compiles and runs on JDKs without virtual threads.
+public class VirtualThreadVehicleRuntime extends VehicleRuntime {
+    private static final Method NEW_VIRTUAL_EXECUTOR = findVirtualExecutorFactory();
+
+    private final ExecutorService executor;
+
+    public VirtualThreadVehicleRuntime(){
+        try{
+            executor = (ExecutorService) NEW_VIRTUAL_EXECUTOR.invoke(null);
+        }catch (ReflectiveOperationException | NullPointerException e){
+            throw new IllegalStateException("Virtual threads are not supported by this JVM", e);
+        }
+    }
+
+    public static boolean isSupported(){
+        return NEW_VIRTUAL_EXECUTOR != null;
+    }
+
+    @Override
+    public void execute(Runnable task){
+        executor.execute(task);
+    }
+
+    @Override
+    public void shutdown(){
+        executor.shutdown();
+    }
+
+    //The factory, if calling it works: on JDK 19 and 20 it exists but throws unless the JVM runs with --enable-preview
+    private static Method findVirtualExecutorFactory(){
+        try{
+            Method factory = java.util.concurrent.Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            ((ExecutorService) factory.invoke(null)).shutdown();
+            return factory;
+        }catch (ReflectiveOperationException | RuntimeException | LinkageError e){
+            return null;
+        }
+    }
+}
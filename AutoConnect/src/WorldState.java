@@ -0,0 +1,232 @@
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+
+//Shared view of the latest state of every live vehicle, enabled with -Dautoconnect.worldState=true, so that the whole
+//fleet can be looked at (eg. for neighbour queries, metrics or visuals) without stopping any vehicle.
+//
+//State is kept by AutoConnectId in primitive columns (time, latitude, longitude, speed, heading, liveness), allocated
+//in segments of SEGMENT_SIZE AutoIds as vehicles with new AutoIds join. Each vehicle publishes its own slot at every
+//tick, and each slot is guarded by a sequence counter (a seqlock): the vehicle makes it odd, writes its state, and
+//makes it even again, without ever taking a lock or waiting for readers. A reader copies a slot's state and keeps it
+//only if the counter was the same even value before and after; otherwise the vehicle was writing it meanwhile, and
+//the reader copies it again. Readers therefore never hold up a tick: they get, for every vehicle, the whole state of
+//one of its ticks (never half of one tick and half of the next), along with the simulated time of its position.
+//Vehicles tick at different instants, so a snapshot is consistent per vehicle, not one instant across the fleet.
+public class WorldState {
+    private static final boolean ENABLED = Boolean.getBoolean("autoconnect.worldState");
+    private static final int SEGMENT_BITS = 10;
+    private static final int SEGMENT_SIZE = 1 << SEGMENT_BITS;
+    private static final int SEGMENT_MASK = SEGMENT_SIZE - 1;
+    private static final int SPINS_BEFORE_YIELD = 64; //a slot stays odd only for a few stores, unless its writer is descheduled
+
+    private static final VarHandle LONGS = MethodHandles.arrayElementVarHandle(long[].class);
+    private static final VarHandle INTS = MethodHandles.arrayElementVarHandle(int[].class);
+    private static final VarHandle DOUBLES = MethodHandles.arrayElementVarHandle(double[].class);
+    private static final VarHandle BOOLEANS = MethodHandles.arrayElementVarHandle(boolean[].class);
+
+    private static final WorldState INSTANCE = new WorldState();
+
+    //segment i holds AutoIds [i*SEGMENT_SIZE, (i+1)*SEGMENT_SIZE); replaced by a grown copy when a segment is added
+    private volatile Segment[] segments = new Segment[0];
+
+    private WorldState(){
+    }
+
+    public static boolean isEnabled(){
+        return ENABLED;
+    }
+
+    public static WorldState getInstance(){
+        return INSTANCE;
+    }
+
+    //Publishes the state of a live vehicle at one of its ticks. Only the vehicle itself may publish its AutoId, and
+    //only from one thread at a time (as its ticks are)
+    public void publish(int autoId, int time, double latitude, double longitude, double speed, double heading){
+        if(autoId < 0) return;
+        Segment segment = segmentOf(autoId);
+        int slot = autoId & SEGMENT_MASK;
+        long sequence = segment.sequences[slot]; //only ever written by this vehicle
+        LONGS.setOpaque(segment.sequences, slot, sequence + 1);
+        VarHandle.storeStoreFence(); //the odd sequence is visible before any of the state written below
+        INTS.setOpaque(segment.times, slot, time);
+        DOUBLES.setOpaque(segment.latitudes, slot, latitude);
+        DOUBLES.setOpaque(segment.longitudes, slot, longitude);
+        DOUBLES.setOpaque(segment.speeds, slot, speed);
+        DOUBLES.setOpaque(segment.headings, slot, heading);
+        BOOLEANS.setOpaque(segment.live, slot, true);
+        LONGS.setRelease(segment.sequences, slot, sequence + 2);
+    }
+
+    //Marks a vehicle as no longer live, once it has left the simulation
+    public void leave(int autoId){
+        if(autoId < 0) return;
+        Segment segment = segmentOf(autoId);
+        int slot = autoId & SEGMENT_MASK;
+        long sequence = segment.sequences[slot];
+        LONGS.setOpaque(segment.sequences, slot, sequence + 1);
+        VarHandle.storeStoreFence();
+        BOOLEANS.setOpaque(segment.live, slot, false);
+        LONGS.setRelease(segment.sequences, slot, sequence + 2);
+    }
+
+    //Copies the state of every live vehicle into snapshot, replacing its contents, in AutoId order
+    public Snapshot snapshot(Snapshot snapshot){
+        snapshot.size = 0;
+        Segment[] segments = this.segments;
+        for(int index = 0; index < segments.length; index++){
+            Segment segment = segments[index];
+            if(segment == null) continue;
+            for(int slot = 0; slot < SEGMENT_SIZE; slot++){
+                read(segment, slot, (index << SEGMENT_BITS) | slot, snapshot);
+            }
+        }
+        return snapshot;
+    }
+
+    public Snapshot snapshot(){
+        return snapshot(new Snapshot());
+    }
+
+    //Appends the slot's state to the snapshot if its vehicle is live, retrying while the vehicle is writing it
+    private static void read(Segment segment, int slot, int autoId, Snapshot snapshot){
+        for(int spins = 0; ; spins++){
+            long sequence = (long) LONGS.getAcquire(segment.sequences, slot);
+            if(sequence == 0) return; //never published
+            if((sequence & 1) == 0){
+                boolean live = (boolean) BOOLEANS.getOpaque(segment.live, slot);
+                int time = (int) INTS.getOpaque(segment.times, slot);
+                double latitude = (double) DOUBLES.getOpaque(segment.latitudes, slot);
+                double longitude = (double) DOUBLES.getOpaque(segment.longitudes, slot);
+                double speed = (double) DOUBLES.getOpaque(segment.speeds, slot);
+                double heading = (double) DOUBLES.getOpaque(segment.headings, slot);
+                VarHandle.acquireFence(); //the state is read before the sequence is checked again
+                if((long) LONGS.getOpaque(segment.sequences, slot) == sequence){
+                    if(live) snapshot.add(autoId, time, latitude, longitude, speed, heading);
+                    return;
+                }
+            }
+            snapshot.retries++;
+            if(spins < SPINS_BEFORE_YIELD){
+                Thread.onSpinWait();
+            }else{
+                Thread.yield();
+            }
+        }
+    }
+
+    private Segment segmentOf(int autoId){
+        int index = autoId >>> SEGMENT_BITS;
+        Segment[] segments = this.segments;
+        if(index < segments.length && segments[index] != null) return segments[index];
+        return addSegment(index);
+    }
+
+    //Only taken the first time an AutoId of a new segment is seen, ie. when a vehicle joins, never at a tick
+    private synchronized Segment addSegment(int index){
+        Segment[] grown = Arrays.copyOf(segments, Math.max(segments.length, index + 1));
+        if(grown[index] == null) grown[index] = new Segment();
+        segments = grown;
+        return grown[index];
+    }
+
+    //State columns of SEGMENT_SIZE consecutive AutoIds
+    private static class Segment {
+        private final long[] sequences = new long[SEGMENT_SIZE]; //odd while the slot is being written
+        private final int[] times = new int[SEGMENT_SIZE];
+        private final double[] latitudes = new double[SEGMENT_SIZE];
+        private final double[] longitudes = new double[SEGMENT_SIZE];
+        private final double[] speeds = new double[SEGMENT_SIZE];
+        private final double[] headings = new double[SEGMENT_SIZE];
+        private final boolean[] live = new boolean[SEGMENT_SIZE];
+    }
+
+    //Copy of the live vehicles' states, as dense columns indexed 0..size()-1. Reusable: snapshot(Snapshot) only grows
+    //its columns, so taking snapshots at a steady fleet size allocates nothing
+    public static class Snapshot {
+        private static final int INITIAL_CAPACITY = 256;
+
+        private int size = 0;
+        private long retries = 0;
+        private int[] autoIds = new int[INITIAL_CAPACITY];
+        private int[] times = new int[INITIAL_CAPACITY];
+        private double[] latitudes = new double[INITIAL_CAPACITY];
+        private double[] longitudes = new double[INITIAL_CAPACITY];
+        private double[] speeds = new double[INITIAL_CAPACITY];
+        private double[] headings = new double[INITIAL_CAPACITY];
+        private double[] distances = new double[0]; //scratch of neighbours
+
+        public int size(){
+            return size;
+        }
+
+        //Reads of a slot that had to be retried because its vehicle was publishing it, over this snapshot's lifetime
+        public long getRetries(){
+            return retries;
+        }
+
+        public int getAutoId(int i){
+            return autoIds[i];
+        }
+
+        //Simulated time (SimulationTime milliseconds) of the vehicle's position
+        public int getTime(int i){
+            return times[i];
+        }
+
+        public double getLatitude(int i){
+            return latitudes[i];
+        }
+
+        public double getLongitude(int i){
+            return longitudes[i];
+        }
+
+        public double getSpeed(int i){
+            return speeds[i];
+        }
+
+        public double getHeading(int i){
+            return headings[i];
+        }
+
+        //Mean speed in km/h of the vehicles in the snapshot; 0 if there are none
+        public double getMeanSpeed(){
+            double total = 0;
+            for(int i = 0; i < size; i++) total += speeds[i];
+            return size == 0 ? 0 : total / size;
+        }
+
+        //Writes the AutoIds of the vehicles within radiusKm of (latitude, longitude) into out, as distances are
+        //measured by Coordinate.getDistance, and returns how many there are (at most out.length)
+        public int neighbours(double latitude, double longitude, double radiusKm, int[] out){
+            if(distances.length < size) distances = new double[latitudes.length];
+            GeometryKernels.get().distances(latitude, longitude, latitudes, longitudes, 0, size, distances);
+            int found = 0;
+            for(int i = 0; i < size && found < out.length; i++){
+                if(distances[i] <= radiusKm) out[found++] = autoIds[i];
+            }
+            return found;
+        }
+
+        private void add(int autoId, int time, double latitude, double longitude, double speed, double heading){
+            if(size == autoIds.length){
+                int capacity = size * 2;
+                autoIds = Arrays.copyOf(autoIds, capacity);
+                times = Arrays.copyOf(times, capacity);
+                latitudes = Arrays.copyOf(latitudes, capacity);
+                longitudes = Arrays.copyOf(longitudes, capacity);
+                speeds = Arrays.copyOf(speeds, capacity);
+                headings = Arrays.copyOf(headings, capacity);
+            }
+            autoIds[size] = autoId;
+            times[size] = time;
+            latitudes[size] = latitude;
+            longitudes[size] = longitude;
+            speeds[size] = speed;
+            headings[size] = heading;
+            size++;
+        }
+    }
+}